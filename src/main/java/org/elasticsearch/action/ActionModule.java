@@ -106,7 +106,10 @@ import org.elasticsearch.action.index.IndexAction;
 import org.elasticsearch.action.index.TransportIndexAction;
 import org.elasticsearch.action.mlt.MoreLikeThisAction;
 import org.elasticsearch.action.mlt.TransportMoreLikeThisAction;
+import org.elasticsearch.action.percolate.MultiPercolateAction;
 import org.elasticsearch.action.percolate.PercolateAction;
+import org.elasticsearch.action.percolate.TransportDistributedPercolateAction;
+import org.elasticsearch.action.percolate.TransportMultiPercolateAction;
 import org.elasticsearch.action.percolate.TransportPercolateAction;
 import org.elasticsearch.action.search.*;
 import org.elasticsearch.action.search.type.*;
@@ -224,7 +227,8 @@ public class ActionModule extends AbstractModule {
         );
         registerAction(MultiSearchAction.INSTANCE, TransportMultiSearchAction.class);
         registerAction(MoreLikeThisAction.INSTANCE, TransportMoreLikeThisAction.class);
-        registerAction(PercolateAction.INSTANCE, TransportPercolateAction.class);
+        registerAction(PercolateAction.INSTANCE, TransportPercolateAction.class, TransportDistributedPercolateAction.class);
+        registerAction(MultiPercolateAction.INSTANCE, TransportMultiPercolateAction.class);
         registerAction(ExplainAction.INSTANCE, TransportExplainAction.class);
 
         // register Name -> GenericAction Map that can be injected to instances.
@@ -25,6 +25,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.fielddata.FieldDataStats;
 import org.elasticsearch.index.flush.FlushStats;
 import org.elasticsearch.index.get.GetStats;
 import org.elasticsearch.index.indexing.IndexingStats;
@@ -68,6 +69,9 @@ public class CommonStats implements Streamable, ToXContent {
     @Nullable
     WarmerStats warmer;
 
+    @Nullable
+    FieldDataStats fieldData;
+
     public void add(CommonStats stats) {
         if (docs == null) {
             if (stats.docs() != null) {
@@ -141,6 +145,14 @@ public class CommonStats implements Streamable, ToXContent {
         } else {
             warmer.add(stats.warmer());
         }
+        if (fieldData == null) {
+            if (stats.fieldData() != null) {
+                fieldData = new FieldDataStats();
+                fieldData.add(stats.fieldData());
+            }
+        } else {
+            fieldData.add(stats.fieldData());
+        }
     }
 
     @Nullable
@@ -233,6 +245,16 @@ public class CommonStats implements Streamable, ToXContent {
         return this.warmer;
     }
 
+    @Nullable
+    public FieldDataStats fieldData() {
+        return this.fieldData;
+    }
+
+    @Nullable
+    public FieldDataStats getFieldData() {
+        return this.fieldData;
+    }
+
     public static CommonStats readCommonStats(StreamInput in) throws IOException {
         CommonStats stats = new CommonStats();
         stats.readFrom(in);
@@ -268,6 +290,9 @@ public class CommonStats implements Streamable, ToXContent {
         if (in.readBoolean()) {
             warmer = WarmerStats.readWarmerStats(in);
         }
+        if (in.readBoolean()) {
+            fieldData = FieldDataStats.readFieldDataStats(in);
+        }
     }
 
     @Override
@@ -326,6 +351,12 @@ public class CommonStats implements Streamable, ToXContent {
             out.writeBoolean(true);
             warmer.writeTo(out);
         }
+        if (fieldData == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            fieldData.writeTo(out);
+        }
     }
 
     // note, requires a wrapping object
@@ -358,6 +389,9 @@ public class CommonStats implements Streamable, ToXContent {
         if (warmer != null) {
             warmer.toXContent(builder, params);
         }
+        if (fieldData != null) {
+            fieldData.toXContent(builder, params);
+        }
         return builder;
     }
 }
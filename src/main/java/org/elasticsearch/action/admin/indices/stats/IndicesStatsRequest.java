@@ -45,6 +45,8 @@ public class IndicesStatsRequest extends BroadcastOperationRequest<IndicesStatsR
     private boolean refresh = false;
     private boolean flush = false;
     private boolean warmer = false;
+    private boolean fieldData = false;
+    private boolean fieldDataSegments = false;
     private String[] types = null;
     private String[] groups = null;
 
@@ -61,6 +63,7 @@ public class IndicesStatsRequest extends BroadcastOperationRequest<IndicesStatsR
         refresh = true;
         flush = true;
         warmer = true;
+        fieldData = true;
         types = null;
         groups = null;
         return this;
@@ -79,6 +82,8 @@ public class IndicesStatsRequest extends BroadcastOperationRequest<IndicesStatsR
         refresh = false;
         flush = false;
         warmer = false;
+        fieldData = false;
+        fieldDataSegments = false;
         types = null;
         groups = null;
         return this;
@@ -195,6 +200,31 @@ public class IndicesStatsRequest extends BroadcastOperationRequest<IndicesStatsR
         return this.warmer;
     }
 
+    /**
+     * Should the field data stats, broken down per field, be returned.
+     */
+    public IndicesStatsRequest fieldData(boolean fieldData) {
+        this.fieldData = fieldData;
+        return this;
+    }
+
+    public boolean fieldData() {
+        return this.fieldData;
+    }
+
+    /**
+     * Should the field data stats of each field be further broken down per segment. Only applies
+     * when {@link #fieldData(boolean)} is set.
+     */
+    public IndicesStatsRequest fieldDataSegments(boolean fieldDataSegments) {
+        this.fieldDataSegments = fieldDataSegments;
+        return this;
+    }
+
+    public boolean fieldDataSegments() {
+        return this.fieldDataSegments;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
@@ -207,6 +237,8 @@ public class IndicesStatsRequest extends BroadcastOperationRequest<IndicesStatsR
         out.writeBoolean(flush);
         out.writeBoolean(refresh);
         out.writeBoolean(warmer);
+        out.writeBoolean(fieldData);
+        out.writeBoolean(fieldDataSegments);
         if (types == null) {
             out.writeVInt(0);
         } else {
@@ -237,6 +269,8 @@ public class IndicesStatsRequest extends BroadcastOperationRequest<IndicesStatsR
         flush = in.readBoolean();
         refresh = in.readBoolean();
         warmer = in.readBoolean();
+        fieldData = in.readBoolean();
+        fieldDataSegments = in.readBoolean();
         int size = in.readVInt();
         if (size > 0) {
             types = new String[size];
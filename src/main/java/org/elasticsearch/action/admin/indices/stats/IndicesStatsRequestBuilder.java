@@ -114,6 +114,16 @@ public class IndicesStatsRequestBuilder extends BroadcastOperationRequestBuilder
         return this;
     }
 
+    public IndicesStatsRequestBuilder setFieldData(boolean fieldData) {
+        request.fieldData(fieldData);
+        return this;
+    }
+
+    public IndicesStatsRequestBuilder setFieldDataSegments(boolean fieldDataSegments) {
+        request.fieldDataSegments(fieldDataSegments);
+        return this;
+    }
+
     @Override
     protected void doExecute(ActionListener<IndicesStats> listener) {
         ((IndicesAdminClient) client).stats(request, listener);
@@ -36,6 +36,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.service.InternalIndexService;
 import org.elasticsearch.index.shard.service.InternalIndexShard;
 import org.elasticsearch.indices.IndicesService;
@@ -172,6 +173,14 @@ public class TransportIndicesStatsAction extends TransportBroadcastOperationActi
         if (request.request.warmer()) {
             stats.stats.warmer = indexShard.warmerStats();
         }
+        if (request.request.fieldData()) {
+            Engine.Searcher searcher = indexShard.searcher();
+            try {
+                stats.stats.fieldData = indexService.fieldData().stats(indexShard.shardId(), searcher.reader(), request.request.fieldDataSegments());
+            } finally {
+                searcher.release();
+            }
+        }
 
         return stats;
     }
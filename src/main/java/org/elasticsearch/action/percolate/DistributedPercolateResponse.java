@@ -0,0 +1,102 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import org.elasticsearch.action.ShardOperationFailedException;
+import org.elasticsearch.action.support.broadcast.BroadcastOperationResponse;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The merged shard responses of a distributed percolate request, holding per percolated doc either the matches
+ * across all the shards, or the failure message if any of the shards failed to percolate it.
+ */
+class DistributedPercolateResponse extends BroadcastOperationResponse {
+
+    private List<String>[] matches;
+
+    private String[] failures;
+
+    DistributedPercolateResponse() {
+
+    }
+
+    DistributedPercolateResponse(List<String>[] matches, String[] failures, int totalShards, int successfulShards, int failedShards, List<ShardOperationFailedException> shardFailures) {
+        super(totalShards, successfulShards, failedShards, shardFailures);
+        this.matches = matches;
+        this.failures = failures;
+    }
+
+    int size() {
+        return matches.length;
+    }
+
+    @Nullable
+    List<String> matches(int i) {
+        return matches[i];
+    }
+
+    @Nullable
+    String failure(int i) {
+        return failures[i];
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        int size = in.readVInt();
+        matches = new List[size];
+        failures = new String[size];
+        for (int i = 0; i < size; i++) {
+            if (in.readBoolean()) {
+                int matchesSize = in.readVInt();
+                matches[i] = new ArrayList<String>(matchesSize);
+                for (int j = 0; j < matchesSize; j++) {
+                    matches[i].add(in.readString());
+                }
+            } else {
+                failures[i] = in.readString();
+            }
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(matches.length);
+        for (int i = 0; i < matches.length; i++) {
+            if (failures[i] == null) {
+                out.writeBoolean(true);
+                out.writeVInt(matches[i].size());
+                for (String match : matches[i]) {
+                    out.writeString(match);
+                }
+            } else {
+                out.writeBoolean(false);
+                out.writeString(failures[i]);
+            }
+        }
+    }
+}
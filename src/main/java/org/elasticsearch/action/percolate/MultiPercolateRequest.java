@@ -0,0 +1,222 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import com.google.common.collect.Lists;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.support.single.custom.SingleCustomOperationRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContent;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentParser;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * A multi percolate API request, percolating a batch of documents against the queries registered for a
+ * single index in one shard operation.
+ */
+public class MultiPercolateRequest extends SingleCustomOperationRequest<MultiPercolateRequest> {
+
+    private String index;
+
+    private List<PercolateRequest> requests = Lists.newArrayList();
+
+    public MultiPercolateRequest() {
+
+    }
+
+    /**
+     * Constructs a new multi percolate request.
+     *
+     * @param index The index name
+     */
+    public MultiPercolateRequest(String index) {
+        this.index = index;
+    }
+
+    public MultiPercolateRequest index(String index) {
+        this.index = index;
+        return this;
+    }
+
+    public String index() {
+        return this.index;
+    }
+
+    /**
+     * Add a percolate request to execute. Note, the order is important, the percolate response will be returned
+     * in the same order as the percolate requests. Its index, if set, must be the one of this request.
+     */
+    public MultiPercolateRequest add(PercolateRequestBuilder request) {
+        return add(request.request());
+    }
+
+    /**
+     * Add a percolate request to execute. Note, the order is important, the percolate response will be returned
+     * in the same order as the percolate requests. Its index, if set, must be the one of this request.
+     */
+    public MultiPercolateRequest add(PercolateRequest request) {
+        requests.add(request);
+        return this;
+    }
+
+    /**
+     * Adds the percolate requests of a newline delimited body, made of a header line (<tt>{"type" : "..."}</tt>,
+     * possibly empty) followed by the percolate request source line for each doc.
+     */
+    public MultiPercolateRequest add(BytesReference data, boolean contentUnsafe, @Nullable String type) throws Exception {
+        XContent xContent = XContentFactory.xContent(data);
+        int from = 0;
+        int length = data.length();
+        byte marker = xContent.streamSeparator();
+        while (true) {
+            int nextMarker = findNextMarker(marker, from, data, length);
+            if (nextMarker == -1) {
+                break;
+            }
+            // support first line with \n
+            if (nextMarker == 0) {
+                from = nextMarker + 1;
+                continue;
+            }
+
+            PercolateRequest percolateRequest = new PercolateRequest(index, type);
+
+            // now parse the header
+            if (nextMarker - from > 0) {
+                XContentParser parser = xContent.createParser(data.slice(from, nextMarker - from));
+                try {
+                    // Move to START_OBJECT, if token is null, its an empty data
+                    XContentParser.Token token = parser.nextToken();
+                    if (token != null) {
+                        assert token == XContentParser.Token.START_OBJECT;
+                        String currentFieldName = null;
+                        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                            if (token == XContentParser.Token.FIELD_NAME) {
+                                currentFieldName = parser.currentName();
+                            } else if (token.isValue()) {
+                                if ("index".equals(currentFieldName)) {
+                                    percolateRequest.index(parser.text());
+                                } else if ("type".equals(currentFieldName)) {
+                                    percolateRequest.type(parser.text());
+                                }
+                            }
+                        }
+                    }
+                } finally {
+                    parser.close();
+                }
+            }
+
+            // move pointers
+            from = nextMarker + 1;
+            // now for the body
+            nextMarker = findNextMarker(marker, from, data, length);
+            if (nextMarker == -1) {
+                break;
+            }
+
+            percolateRequest.source(data.slice(from, nextMarker - from), contentUnsafe);
+            // move pointers
+            from = nextMarker + 1;
+
+            add(percolateRequest);
+        }
+
+        return this;
+    }
+
+    private int findNextMarker(byte marker, int from, BytesReference data, int length) {
+        for (int i = from; i < length; i++) {
+            if (data.get(i) == marker) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public List<PercolateRequest> requests() {
+        return this.requests;
+    }
+
+    /**
+     * Before we fork on a local thread, make sure we copy over the bytes if they are unsafe
+     */
+    @Override
+    public void beforeLocalFork() {
+        for (PercolateRequest request : requests) {
+            request.beforeLocalFork();
+        }
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = super.validate();
+        if (index == null) {
+            validationException = addValidationError("index is missing", validationException);
+        }
+        if (requests.isEmpty()) {
+            validationException = addValidationError("no requests added", validationException);
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            PercolateRequest request = requests.get(i);
+            if (request.index() != null && !request.index().equals(index)) {
+                validationException = addValidationError("request [" + i + "] index [" + request.index() + "] is not the multi percolate index", validationException);
+            }
+            if (request.type() == null) {
+                validationException = addValidationError("request [" + i + "] type is missing", validationException);
+            }
+            if (request.source() == null) {
+                validationException = addValidationError("request [" + i + "] source is missing", validationException);
+            }
+        }
+        return validationException;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        index = in.readString();
+        int size = in.readVInt();
+        for (int i = 0; i < size; i++) {
+            PercolateRequest request = new PercolateRequest(index, in.readString());
+            request.source(in.readBytesReference(), false);
+            requests.add(request);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(index);
+        out.writeVInt(requests.size());
+        for (PercolateRequest request : requests) {
+            out.writeString(request.type());
+            out.writeBytesReference(request.source());
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.single.custom.SingleCustomOperationRequestBuilder;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.internal.InternalClient;
+
+/**
+ * A request builder for multiple percolate requests.
+ */
+public class MultiPercolateRequestBuilder extends SingleCustomOperationRequestBuilder<MultiPercolateRequest, MultiPercolateResponse, MultiPercolateRequestBuilder> {
+
+    public MultiPercolateRequestBuilder(Client client) {
+        super((InternalClient) client, new MultiPercolateRequest());
+    }
+
+    public MultiPercolateRequestBuilder(Client client, String index) {
+        super((InternalClient) client, new MultiPercolateRequest(index));
+    }
+
+    /**
+     * Sets the index to percolate the documents against.
+     */
+    public MultiPercolateRequestBuilder setIndex(String index) {
+        request.index(index);
+        return this;
+    }
+
+    /**
+     * Add a percolate request to execute. Note, the order is important, the percolate response will be returned
+     * in the same order as the percolate requests.
+     */
+    public MultiPercolateRequestBuilder add(PercolateRequest request) {
+        super.request.add(request);
+        return this;
+    }
+
+    /**
+     * Add a percolate request to execute. Note, the order is important, the percolate response will be returned
+     * in the same order as the percolate requests.
+     */
+    public MultiPercolateRequestBuilder add(PercolateRequestBuilder request) {
+        super.request.add(request);
+        return this;
+    }
+
+    @Override
+    protected void doExecute(ActionListener<MultiPercolateResponse> listener) {
+        ((Client) client).multiPercolate(request, listener);
+    }
+}
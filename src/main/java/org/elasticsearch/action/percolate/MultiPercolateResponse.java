@@ -0,0 +1,196 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import com.google.common.collect.Iterators;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * A multi percolate response.
+ */
+public class MultiPercolateResponse extends ActionResponse implements Iterable<MultiPercolateResponse.Item>, ToXContent {
+
+    /**
+     * A percolate response item, holding the actual percolate response, or an error message if it failed.
+     */
+    public static class Item implements Streamable {
+        private PercolateResponse response;
+        private String failureMessage;
+
+        Item() {
+
+        }
+
+        public Item(PercolateResponse response, String failureMessage) {
+            this.response = response;
+            this.failureMessage = failureMessage;
+        }
+
+        /**
+         * Is it a failed percolation?
+         */
+        public boolean isFailure() {
+            return failureMessage != null;
+        }
+
+        /**
+         * The actual failure message, null if its not a failure.
+         */
+        @Nullable
+        public String failureMessage() {
+            return failureMessage;
+        }
+
+        /**
+         * The actual failure message, null if its not a failure.
+         */
+        @Nullable
+        public String getFailureMessage() {
+            return failureMessage;
+        }
+
+        /**
+         * The actual percolate response, null if its a failure.
+         */
+        @Nullable
+        public PercolateResponse response() {
+            return this.response;
+        }
+
+        /**
+         * The actual percolate response, null if its a failure.
+         */
+        @Nullable
+        public PercolateResponse getResponse() {
+            return this.response;
+        }
+
+        public static Item readItem(StreamInput in) throws IOException {
+            Item item = new Item();
+            item.readFrom(in);
+            return item;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            if (in.readBoolean()) {
+                this.response = new PercolateResponse();
+                response.readFrom(in);
+            } else {
+                failureMessage = in.readString();
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            if (response != null) {
+                out.writeBoolean(true);
+                response.writeTo(out);
+            } else {
+                out.writeBoolean(false);
+                out.writeString(failureMessage);
+            }
+        }
+    }
+
+    private Item[] items;
+
+    MultiPercolateResponse() {
+    }
+
+    public MultiPercolateResponse(Item[] items) {
+        this.items = items;
+    }
+
+    @Override
+    public Iterator<Item> iterator() {
+        return Iterators.forArray(items);
+    }
+
+    /**
+     * The list of responses, the order is the same as the one provided in the request.
+     */
+    public Item[] responses() {
+        return this.items;
+    }
+
+    /**
+     * The list of responses, the order is the same as the one provided in the request.
+     */
+    public Item[] getResponses() {
+        return this.items;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        items = new Item[in.readVInt()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = Item.readItem(in);
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(items.length);
+        for (Item item : items) {
+            item.writeTo(out);
+        }
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startArray(Fields.RESPONSES);
+        for (Item item : items) {
+            builder.startObject();
+            if (item.isFailure()) {
+                builder.field(Fields.ERROR, item.failureMessage());
+            } else {
+                builder.field(Fields.OK, true);
+                builder.startArray(Fields.MATCHES);
+                for (String match : item.response()) {
+                    builder.value(match);
+                }
+                builder.endArray();
+            }
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString RESPONSES = new XContentBuilderString("responses");
+        static final XContentBuilderString ERROR = new XContentBuilderString("error");
+        static final XContentBuilderString OK = new XContentBuilderString("ok");
+        static final XContentBuilderString MATCHES = new XContentBuilderString("matches");
+    }
+}
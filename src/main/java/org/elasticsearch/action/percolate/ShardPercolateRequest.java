@@ -0,0 +1,79 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import org.elasticsearch.action.support.broadcast.BroadcastShardOperationRequest;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Internal percolate request evaluating the queries partitioned to a specific index shard.
+ */
+class ShardPercolateRequest extends BroadcastShardOperationRequest {
+
+    private List<String> types;
+
+    private List<BytesReference> sources;
+
+    ShardPercolateRequest() {
+
+    }
+
+    public ShardPercolateRequest(String index, int shardId, DistributedPercolateRequest request) {
+        super(index, shardId, request);
+        this.types = request.types();
+        this.sources = request.sources();
+    }
+
+    public List<String> types() {
+        return types;
+    }
+
+    public List<BytesReference> sources() {
+        return sources;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        int size = in.readVInt();
+        types = new ArrayList<String>(size);
+        sources = new ArrayList<BytesReference>(size);
+        for (int i = 0; i < size; i++) {
+            types.add(in.readString());
+            sources.add(in.readBytesReference());
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(types.size());
+        for (int i = 0; i < types.size(); i++) {
+            out.writeString(types.get(i));
+            out.writeBytesReference(sources.get(i));
+        }
+    }
+}
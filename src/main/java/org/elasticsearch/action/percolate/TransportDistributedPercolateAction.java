@@ -0,0 +1,198 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ShardOperationFailedException;
+import org.elasticsearch.action.support.DefaultShardOperationFailedException;
+import org.elasticsearch.action.support.broadcast.BroadcastShardOperationFailedException;
+import org.elasticsearch.action.support.broadcast.TransportBroadcastOperationAction;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockException;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.percolator.PercolatorExecutor;
+import org.elasticsearch.index.service.IndexService;
+import org.elasticsearch.indices.IndexMissingException;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+/**
+ * Percolates docs on indices with {@link PercolatorExecutor#PERCOLATE_DISTRIBUTED} set, by evaluating on one copy
+ * of each shard the queries partitioned to it, and merging the matches.
+ */
+public class TransportDistributedPercolateAction extends TransportBroadcastOperationAction<DistributedPercolateRequest, DistributedPercolateResponse, ShardPercolateRequest, ShardPercolateResponse> {
+
+    private final IndicesService indicesService;
+
+    @Inject
+    public TransportDistributedPercolateAction(Settings settings, ThreadPool threadPool, ClusterService clusterService, TransportService transportService,
+                                               IndicesService indicesService) {
+        super(settings, threadPool, clusterService, transportService);
+        this.indicesService = indicesService;
+    }
+
+    /**
+     * Are the queries of the given index (or alias) partitioned across its shards.
+     */
+    static boolean distributed(ClusterState clusterState, String index) {
+        IndexMetaData indexMetaData;
+        try {
+            indexMetaData = clusterState.metaData().index(clusterState.metaData().concreteIndex(index));
+        } catch (IndexMissingException e) {
+            return false;
+        } catch (ElasticSearchIllegalArgumentException e) {
+            return false;
+        }
+        return indexMetaData != null && indexMetaData.settings().getAsBoolean(PercolatorExecutor.PERCOLATE_DISTRIBUTED, false);
+    }
+
+    @Override
+    protected String executor() {
+        return ThreadPool.Names.PERCOLATE;
+    }
+
+    @Override
+    protected String transportAction() {
+        return PercolateAction.NAME + "/distributed";
+    }
+
+    @Override
+    protected DistributedPercolateRequest newRequest() {
+        return new DistributedPercolateRequest();
+    }
+
+    @Override
+    protected ShardPercolateRequest newShardRequest() {
+        return new ShardPercolateRequest();
+    }
+
+    @Override
+    protected ShardPercolateRequest newShardRequest(ShardRouting shard, DistributedPercolateRequest request) {
+        return new ShardPercolateRequest(shard.index(), shard.id(), request);
+    }
+
+    @Override
+    protected ShardPercolateResponse newShardResponse() {
+        return new ShardPercolateResponse();
+    }
+
+    @Override
+    protected GroupShardsIterator shards(ClusterState clusterState, DistributedPercolateRequest request, String[] concreteIndices) {
+        return clusterService.operationRouting().searchShards(clusterState, request.indices(), concreteIndices, null, null);
+    }
+
+    @Override
+    protected ClusterBlockException checkGlobalBlock(ClusterState state, DistributedPercolateRequest request) {
+        return state.blocks().globalBlockedException(ClusterBlockLevel.READ);
+    }
+
+    @Override
+    protected ClusterBlockException checkRequestBlock(ClusterState state, DistributedPercolateRequest request, String[] concreteIndices) {
+        return state.blocks().indicesBlockedException(ClusterBlockLevel.READ, concreteIndices);
+    }
+
+    @Override
+    protected DistributedPercolateResponse newResponse(DistributedPercolateRequest request, AtomicReferenceArray shardsResponses, ClusterState clusterState) {
+        int successfulShards = 0;
+        int failedShards = 0;
+        List<ShardOperationFailedException> shardFailures = null;
+        List<String>[] matches = new List[request.size()];
+        String[] failures = new String[request.size()];
+        for (int i = 0; i < matches.length; i++) {
+            matches[i] = new ArrayList<String>();
+        }
+        for (int i = 0; i < shardsResponses.length(); i++) {
+            Object shardResponse = shardsResponses.get(i);
+            if (shardResponse == null || shardResponse instanceof BroadcastShardOperationFailedException) {
+                failedShards++;
+                String failure = "failed to percolate on shard";
+                if (shardResponse != null) {
+                    if (shardFailures == null) {
+                        shardFailures = newArrayList();
+                    }
+                    DefaultShardOperationFailedException shardFailure = new DefaultShardOperationFailedException((BroadcastShardOperationFailedException) shardResponse);
+                    shardFailures.add(shardFailure);
+                    failure = "failed to percolate on shard [" + shardFailure.index() + "][" + shardFailure.shardId() + "]: " + shardFailure.reason();
+                }
+                // the matches of the queries partitioned to the failed shard are missing
+                for (int j = 0; j < failures.length; j++) {
+                    if (failures[j] == null) {
+                        failures[j] = failure;
+                    }
+                }
+            } else {
+                successfulShards++;
+                ShardPercolateResponse response = (ShardPercolateResponse) shardResponse;
+                for (int j = 0; j < response.size(); j++) {
+                    if (response.failure(j) != null) {
+                        if (failures[j] == null) {
+                            failures[j] = response.failure(j);
+                        }
+                    } else {
+                        matches[j].addAll(response.matches(j));
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < failures.length; i++) {
+            if (failures[i] != null) {
+                matches[i] = null;
+            }
+        }
+        return new DistributedPercolateResponse(matches, failures, shardsResponses.length(), successfulShards, failedShards, shardFailures);
+    }
+
+    @Override
+    protected ShardPercolateResponse shardOperation(ShardPercolateRequest request) throws ElasticSearchException {
+        IndexService indexService = indicesService.indexServiceSafe(request.index());
+
+        List<PercolatorExecutor.SourceRequest> sourceRequests = new ArrayList<PercolatorExecutor.SourceRequest>(request.types().size());
+        for (int i = 0; i < request.types().size(); i++) {
+            sourceRequests.add(new PercolatorExecutor.SourceRequest(request.types().get(i), request.sources().get(i), request.shardId()));
+        }
+        PercolatorExecutor.BatchResponse batch = indexService.percolateService().percolate(sourceRequests);
+
+        List<String>[] matches = new List[batch.size()];
+        String[] failures = new String[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.failure(i) != null) {
+                failures[i] = ExceptionsHelper.detailedMessage(batch.failure(i));
+            } else {
+                matches[i] = batch.response(i).matches();
+            }
+        }
+        return new ShardPercolateResponse(request.index(), request.shardId(), matches, failures);
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.action.percolate;
+
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.single.custom.TransportSingleCustomOperationAction;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockException;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.routing.ShardsIterator;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.percolator.PercolatorExecutor;
+import org.elasticsearch.index.percolator.PercolatorService;
+import org.elasticsearch.index.service.IndexService;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Percolates all the docs of a multi percolate request within a single shard operation.
+ */
+public class TransportMultiPercolateAction extends TransportSingleCustomOperationAction<MultiPercolateRequest, MultiPercolateResponse> {
+
+    private final IndicesService indicesService;
+
+    private final TransportDistributedPercolateAction distributedPercolateAction;
+
+    @Inject
+    public TransportMultiPercolateAction(Settings settings, ThreadPool threadPool, ClusterService clusterService, TransportService transportService,
+                                         IndicesService indicesService, TransportDistributedPercolateAction distributedPercolateAction) {
+        super(settings, threadPool, clusterService, transportService);
+        this.indicesService = indicesService;
+        this.distributedPercolateAction = distributedPercolateAction;
+    }
+
+    @Override
+    protected void doExecute(MultiPercolateRequest request, final ActionListener<MultiPercolateResponse> listener) {
+        if (!TransportDistributedPercolateAction.distributed(clusterService.state(), request.index())) {
+            super.doExecute(request, listener);
+            return;
+        }
+        // the shard requests might be executed on other threads
+        request.beforeLocalFork();
+        // all the docs are percolated within a single shard operation on each shard
+        DistributedPercolateRequest distributedRequest = new DistributedPercolateRequest(request.index());
+        for (PercolateRequest percolateRequest : request.requests()) {
+            distributedRequest.add(percolateRequest.type(), percolateRequest.source());
+        }
+        distributedPercolateAction.execute(distributedRequest, new ActionListener<DistributedPercolateResponse>() {
+            @Override
+            public void onResponse(DistributedPercolateResponse response) {
+                MultiPercolateResponse.Item[] items = new MultiPercolateResponse.Item[response.size()];
+                for (int i = 0; i < items.length; i++) {
+                    if (response.failure(i) != null) {
+                        items[i] = new MultiPercolateResponse.Item(null, response.failure(i));
+                    } else {
+                        items[i] = new MultiPercolateResponse.Item(new PercolateResponse(response.matches(i)), null);
+                    }
+                }
+                listener.onResponse(new MultiPercolateResponse(items));
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
+    }
+
+    @Override
+    protected String executor() {
+        return ThreadPool.Names.PERCOLATE;
+    }
+
+    @Override
+    protected MultiPercolateRequest newRequest() {
+        return new MultiPercolateRequest();
+    }
+
+    @Override
+    protected MultiPercolateResponse newResponse() {
+        return new MultiPercolateResponse();
+    }
+
+    @Override
+    protected String transportAction() {
+        return MultiPercolateAction.NAME;
+    }
+
+    @Override
+    protected ClusterBlockException checkGlobalBlock(ClusterState state, MultiPercolateRequest request) {
+        return state.blocks().globalBlockedException(ClusterBlockLevel.READ);
+    }
+
+    @Override
+    protected ClusterBlockException checkRequestBlock(ClusterState state, MultiPercolateRequest request) {
+        request.index(state.metaData().concreteIndex(request.index()));
+        return state.blocks().indexBlockedException(ClusterBlockLevel.READ, request.index());
+    }
+
+    @Override
+    protected ShardsIterator shards(ClusterState clusterState, MultiPercolateRequest request) {
+        return clusterState.routingTable().index(request.index()).randomAllActiveShardsIt();
+    }
+
+    @Override
+    protected MultiPercolateResponse shardOperation(MultiPercolateRequest request, int shardId) throws ElasticSearchException {
+        IndexService indexService = indicesService.indexServiceSafe(request.index());
+        PercolatorService percolatorService = indexService.percolateService();
+
+        List<PercolatorExecutor.SourceRequest> sourceRequests = new ArrayList<PercolatorExecutor.SourceRequest>(request.requests().size());
+        for (PercolateRequest percolateRequest : request.requests()) {
+            sourceRequests.add(new PercolatorExecutor.SourceRequest(percolateRequest.type(), percolateRequest.source()));
+        }
+        PercolatorExecutor.BatchResponse batch = percolatorService.percolate(sourceRequests);
+
+        MultiPercolateResponse.Item[] items = new MultiPercolateResponse.Item[batch.size()];
+        for (int i = 0; i < items.length; i++) {
+            if (batch.failure(i) != null) {
+                items[i] = new MultiPercolateResponse.Item(null, ExceptionsHelper.detailedMessage(batch.failure(i)));
+            } else {
+                items[i] = new MultiPercolateResponse.Item(new PercolateResponse(batch.response(i).matches()), null);
+            }
+        }
+        return new MultiPercolateResponse(items);
+    }
+}
@@ -20,6 +20,7 @@
 package org.elasticsearch.action.percolate;
 
 import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.support.single.custom.TransportSingleCustomOperationAction;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.ClusterState;
@@ -28,6 +29,8 @@ import org.elasticsearch.cluster.block.ClusterBlockLevel;
 import org.elasticsearch.cluster.routing.ShardsIterator;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.percolator.PercolatorException;
 import org.elasticsearch.index.percolator.PercolatorExecutor;
 import org.elasticsearch.index.percolator.PercolatorService;
 import org.elasticsearch.index.service.IndexService;
@@ -42,11 +45,40 @@ public class TransportPercolateAction extends TransportSingleCustomOperationActi
 
     private final IndicesService indicesService;
 
+    private final TransportDistributedPercolateAction distributedPercolateAction;
+
     @Inject
     public TransportPercolateAction(Settings settings, ThreadPool threadPool, ClusterService clusterService, TransportService transportService,
-                                    IndicesService indicesService) {
+                                    IndicesService indicesService, TransportDistributedPercolateAction distributedPercolateAction) {
         super(settings, threadPool, clusterService, transportService);
         this.indicesService = indicesService;
+        this.distributedPercolateAction = distributedPercolateAction;
+    }
+
+    @Override
+    protected void doExecute(final PercolateRequest request, final ActionListener<PercolateResponse> listener) {
+        if (!TransportDistributedPercolateAction.distributed(clusterService.state(), request.index())) {
+            super.doExecute(request, listener);
+            return;
+        }
+        // the shard requests might be executed on other threads
+        request.beforeLocalFork();
+        DistributedPercolateRequest distributedRequest = new DistributedPercolateRequest(request.index()).add(request.type(), request.source());
+        distributedPercolateAction.execute(distributedRequest, new ActionListener<DistributedPercolateResponse>() {
+            @Override
+            public void onResponse(DistributedPercolateResponse response) {
+                if (response.failure(0) != null) {
+                    listener.onFailure(new PercolatorException(new Index(request.index()), response.failure(0)));
+                } else {
+                    listener.onResponse(new PercolateResponse(response.matches(0)));
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                listener.onFailure(e);
+            }
+        });
     }
 
     @Override
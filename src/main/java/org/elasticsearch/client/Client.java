@@ -41,6 +41,9 @@ import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.mlt.MoreLikeThisRequest;
 import org.elasticsearch.action.mlt.MoreLikeThisRequestBuilder;
+import org.elasticsearch.action.percolate.MultiPercolateRequest;
+import org.elasticsearch.action.percolate.MultiPercolateRequestBuilder;
+import org.elasticsearch.action.percolate.MultiPercolateResponse;
 import org.elasticsearch.action.percolate.PercolateRequest;
 import org.elasticsearch.action.percolate.PercolateRequestBuilder;
 import org.elasticsearch.action.percolate.PercolateResponse;
@@ -435,6 +438,23 @@ public interface Client {
      */
     PercolateRequestBuilder preparePercolate(String index, String type);
 
+    /**
+     * Percolates multiple docs against the same index in a single operation.
+     */
+    ActionFuture<MultiPercolateResponse> multiPercolate(MultiPercolateRequest request);
+
+    /**
+     * Percolates multiple docs against the same index in a single operation.
+     */
+    void multiPercolate(MultiPercolateRequest request, ActionListener<MultiPercolateResponse> listener);
+
+    /**
+     * Percolates multiple docs against the same index in a single operation.
+     *
+     * @param index The index to percolate the docs
+     */
+    MultiPercolateRequestBuilder prepareMultiPercolate(String index);
+
     /**
      * Computes a score explanation for the specified request.
      *
@@ -48,10 +48,7 @@ import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.mlt.MoreLikeThisAction;
 import org.elasticsearch.action.mlt.MoreLikeThisRequest;
 import org.elasticsearch.action.mlt.MoreLikeThisRequestBuilder;
-import org.elasticsearch.action.percolate.PercolateAction;
-import org.elasticsearch.action.percolate.PercolateRequest;
-import org.elasticsearch.action.percolate.PercolateRequestBuilder;
-import org.elasticsearch.action.percolate.PercolateResponse;
+import org.elasticsearch.action.percolate.*;
 import org.elasticsearch.action.search.*;
 import org.elasticsearch.action.update.UpdateAction;
 import org.elasticsearch.action.update.UpdateRequest;
@@ -290,6 +287,21 @@ public abstract class AbstractClient implements InternalClient {
         return new PercolateRequestBuilder(this, index, type);
     }
 
+    @Override
+    public ActionFuture<MultiPercolateResponse> multiPercolate(final MultiPercolateRequest request) {
+        return execute(MultiPercolateAction.INSTANCE, request);
+    }
+
+    @Override
+    public void multiPercolate(final MultiPercolateRequest request, final ActionListener<MultiPercolateResponse> listener) {
+        execute(MultiPercolateAction.INSTANCE, request, listener);
+    }
+
+    @Override
+    public MultiPercolateRequestBuilder prepareMultiPercolate(String index) {
+        return new MultiPercolateRequestBuilder(this, index);
+    }
+
     @Override
     public ExplainRequestBuilder prepareExplain(String index, String type, String id) {
         return new ExplainRequestBuilder(this, index, type, id);
@@ -0,0 +1,114 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.breaker;
+
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of an estimate of the memory used by some data structures, and breaks (throws a
+ * {@link CircuitBreakingException}) when adding to it would go over the configured limit. Estimates
+ * are multiplied by an overhead factor before being checked against the limit, to account for the
+ * estimation being rough.
+ */
+public class MemoryCircuitBreaker {
+
+    private final ESLogger logger;
+
+    private volatile long memoryBytesLimit;
+
+    private volatile double overheadConstant;
+
+    private final AtomicLong used = new AtomicLong();
+
+    private final AtomicLong trippedCount = new AtomicLong();
+
+    public MemoryCircuitBreaker(ByteSizeValue limit, double overheadConstant, ESLogger logger) {
+        this.memoryBytesLimit = limit.bytes();
+        this.overheadConstant = overheadConstant;
+        this.logger = logger;
+    }
+
+    /**
+     * Adds the estimated bytes to the breaker, unless the new total (with the overhead applied) would go over
+     * the limit, in which case nothing is added and a {@link CircuitBreakingException} is thrown.
+     *
+     * @param bytes the estimated number of bytes
+     * @param label a description of what is being loaded, used in the error message
+     */
+    public void addEstimateBytesAndMaybeBreak(long bytes, String label) throws CircuitBreakingException {
+        while (true) {
+            long currentUsed = used.get();
+            long newUsed = currentUsed + bytes;
+            long newUsedWithOverhead = (long) (newUsed * overheadConstant);
+            if (bytes > 0 && newUsedWithOverhead > memoryBytesLimit) {
+                trippedCount.incrementAndGet();
+                logger.warn("[{}] would be larger than limit of [{}], current usage [{}], estimated [{}]",
+                        label, new ByteSizeValue(memoryBytesLimit), new ByteSizeValue(currentUsed), new ByteSizeValue(bytes));
+                throw new CircuitBreakingException("Data too large, data for [" + label + "] would be larger than limit of [" +
+                        memoryBytesLimit + "/" + new ByteSizeValue(memoryBytesLimit) + "], current usage [" + currentUsed + "/" +
+                        new ByteSizeValue(currentUsed) + "], estimated [" + bytes + "/" + new ByteSizeValue(bytes) + "]");
+            }
+            if (used.compareAndSet(currentUsed, newUsed)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds (or removes, when negative) bytes to the breaker without checking the limit, used to adjust an
+     * estimate to the actual size once known, and to release memory.
+     */
+    public long addWithoutBreaking(long bytes) {
+        return used.addAndGet(bytes);
+    }
+
+    /**
+     * The current memory usage tracked by the breaker.
+     */
+    public long getUsed() {
+        return used.get();
+    }
+
+    public long getMaximum() {
+        return memoryBytesLimit;
+    }
+
+    public double getOverhead() {
+        return overheadConstant;
+    }
+
+    /**
+     * The number of times the breaker refused to add an estimate.
+     */
+    public long getTrippedCount() {
+        return trippedCount.get();
+    }
+
+    public void setLimit(ByteSizeValue limit) {
+        this.memoryBytesLimit = limit.bytes();
+    }
+
+    public void setOverhead(double overheadConstant) {
+        this.overheadConstant = overheadConstant;
+    }
+}
@@ -112,6 +112,59 @@ public class GeoHashUtils {
         return geohash.toString();
     }
 
+    /**
+     * Encodes the given latitude and longitude into a geohash of the given precision, packed into a long.
+     * The geohash bits are stored in the upper bits and the precision in the lowest 4 bits, so that
+     * cells of different precisions never collide. See {@link #toString(long)} to get the string form.
+     */
+    public static long encodeAsLong(double latitude, double longitude, int precision) {
+        double latInterval0 = -90.0;
+        double latInterval1 = 90.0;
+        double lngInterval0 = -180.0;
+        double lngInterval1 = 180.0;
+
+        long hash = 0;
+        boolean isEven = true;
+        int numBits = precision * 5;
+        for (int i = 0; i < numBits; i++) {
+            hash <<= 1;
+            double mid;
+            if (isEven) {
+                mid = (lngInterval0 + lngInterval1) / 2D;
+                if (longitude > mid) {
+                    hash |= 1;
+                    lngInterval0 = mid;
+                } else {
+                    lngInterval1 = mid;
+                }
+            } else {
+                mid = (latInterval0 + latInterval1) / 2D;
+                if (latitude > mid) {
+                    hash |= 1;
+                    latInterval0 = mid;
+                } else {
+                    latInterval1 = mid;
+                }
+            }
+            isEven = !isEven;
+        }
+        return (hash << 4) | precision;
+    }
+
+    /**
+     * Converts a geohash packed by {@link #encodeAsLong(double, double, int)} into its string form.
+     */
+    public static String toString(long geohashAsLong) {
+        int precision = (int) (geohashAsLong & 0xf);
+        long hash = geohashAsLong >>> 4;
+        char[] chars = new char[precision];
+        for (int i = precision - 1; i >= 0; i--) {
+            chars[i] = BASE_32[(int) (hash & 0x1f)];
+            hash >>>= 5;
+        }
+        return new String(chars);
+    }
+
     public static GeoPoint decode(String geohash) {
         GeoPoint point = new GeoPoint();
         decode(geohash, point);
@@ -62,6 +62,11 @@ public class AndDocIdSet extends DocIdSet {
 
     @Override
     public DocIdSetIterator iterator() throws IOException {
+        RoaringDocIdSet[] compressed = RoaringDocIdSet.asRoaring(sets);
+        if (compressed != null) {
+            // intersect container by container instead of leap frogging
+            return RoaringDocIdSet.intersect(compressed).iterator();
+        }
         // we try and be smart here, if we can iterate through docsets quickly, prefer to iterate
         // over them as much as possible, before actually going to "bits" based ones to check
         List<DocIdSet> iterators = new ArrayList<DocIdSet>(sets.length);
@@ -22,10 +22,12 @@ package org.elasticsearch.common.lucene.docset;
 import org.apache.lucene.index.AtomicReader;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.BitUtil;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.OpenBitSetIterator;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.RamUsage;
 
 import java.io.IOException;
 
@@ -45,7 +47,7 @@ public class DocIdSets {
      * For example, it does not ends up iterating one doc at a time check for its "value".
      */
     public static boolean isFastIterator(DocIdSet set) {
-        return set instanceof FixedBitSet;
+        return set instanceof FixedBitSet || set instanceof RoaringDocIdSet;
     }
 
     /**
@@ -54,7 +56,7 @@ public class DocIdSets {
      */
     public static boolean isFastIterator(DocIdSetIterator iterator) {
         // this is the iterator in the FixedBitSet.
-        return iterator instanceof OpenBitSetIterator;
+        return iterator instanceof OpenBitSetIterator || iterator instanceof RoaringDocIdSet.Iterator;
     }
 
     /**
@@ -85,6 +87,37 @@ public class DocIdSets {
         return toFixedBitSet(set.iterator(), reader.maxDoc());
     }
 
+    /**
+     * Same as {@link #toCacheable(AtomicReader, DocIdSet)}, except that the set is returned as a compressed
+     * {@link RoaringDocIdSet} when it takes less memory than a {@link FixedBitSet}, which is the case for
+     * either very sparse or very dense sets.
+     */
+    public static DocIdSet toCompressedCacheable(AtomicReader reader, @Nullable DocIdSet set) throws IOException {
+        if (set == null) {
+            return DocIdSet.EMPTY_DOCIDSET;
+        }
+        if (set == DocIdSet.EMPTY_DOCIDSET || set instanceof RoaringDocIdSet) {
+            return set;
+        }
+        DocIdSetIterator it = set.iterator();
+        if (it == null) {
+            return DocIdSet.EMPTY_DOCIDSET;
+        }
+        int doc = it.nextDoc();
+        if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+            return DocIdSet.EMPTY_DOCIDSET;
+        }
+        RoaringDocIdSet compressed = RoaringDocIdSet.build(set.iterator(), reader.maxDoc());
+        long fixedBitSetSize = FixedBitSet.bits2words(reader.maxDoc()) * RamUsage.NUM_BYTES_LONG + RamUsage.NUM_BYTES_ARRAY_HEADER + RamUsage.NUM_BYTES_INT;
+        if (compressed.ramBytesUsed() < fixedBitSetSize) {
+            return compressed;
+        }
+        if (set instanceof FixedBitSet) {
+            return set;
+        }
+        return compressed.toFixedBitSet();
+    }
+
     /**
      * Gets a set to bits.
      */
@@ -114,4 +147,39 @@ public class DocIdSets {
         }
         return set;
     }
+
+    /**
+     * Counts the docs that are both set in the provided bits and match the provided set. When the set is
+     * a {@link FixedBitSet} as well, this is a word wise intersection, otherwise the cheaper side is iterated.
+     */
+    public static long intersectionCount(FixedBitSet bits, @Nullable DocIdSet set) throws IOException {
+        if (isEmpty(set)) {
+            return 0;
+        }
+        if (set instanceof FixedBitSet) {
+            long[] otherBits = ((FixedBitSet) set).getBits();
+            return BitUtil.pop_intersect(bits.getBits(), otherBits, 0, Math.min(bits.getBits().length, otherBits.length));
+        }
+        long count = 0;
+        Bits setBits = set.bits();
+        if (setBits != null) {
+            for (int doc = bits.nextSetBit(0); doc != -1; doc = doc + 1 >= bits.length() ? -1 : bits.nextSetBit(doc + 1)) {
+                if (setBits.get(doc)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        DocIdSetIterator iterator = set.iterator();
+        if (iterator == null) {
+            return 0;
+        }
+        int doc;
+        while ((doc = iterator.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+            if (doc < bits.length() && bits.get(doc)) {
+                count++;
+            }
+        }
+        return count;
+    }
 }
@@ -60,6 +60,11 @@ public class OrDocIdSet extends DocIdSet {
 
     @Override
     public DocIdSetIterator iterator() throws IOException {
+        RoaringDocIdSet[] compressed = RoaringDocIdSet.asRoaring(sets);
+        if (compressed != null) {
+            // union container by container instead of using a heap of iterators
+            return RoaringDocIdSet.union(compressed).iterator();
+        }
         return new IteratorBasedIterator(sets);
     }
 
@@ -0,0 +1,601 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.docset;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.RamUsage;
+
+import java.io.IOException;
+
+/**
+ * A compressed {@link DocIdSet}, splitting the doc id space into blocks of 2^16 docs and storing each
+ * block in the most compact of three representations based on its density: a sorted array of the docs
+ * it contains (sparse), a bitmap (medium), or a sorted array of the docs it does not contain (dense).
+ * Blocks without docs are not stored at all. Random access is supported through {@link #bits()}.
+ */
+public class RoaringDocIdSet extends DocIdSet implements Bits {
+
+    static final int BLOCK_BITS = 16;
+    static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+    static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    static final int BITMAP_WORDS = BLOCK_SIZE >>> 6;
+    // above 4096 docs, a bitmap (8KB) is smaller than an array of shorts
+    static final int MAX_ARRAY_LENGTH = BLOCK_SIZE >>> 4;
+
+    private final Container[] containers;
+    private final int maxDoc;
+    private final int cardinality;
+
+    RoaringDocIdSet(Container[] containers, int maxDoc, int cardinality) {
+        this.containers = containers;
+        this.maxDoc = maxDoc;
+        this.cardinality = cardinality;
+    }
+
+    /**
+     * Builds a set out of the docs of the provided iterator.
+     */
+    public static RoaringDocIdSet build(DocIdSetIterator iterator, int maxDoc) throws IOException {
+        Builder builder = new Builder(maxDoc);
+        int doc;
+        while ((doc = iterator.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+            builder.add(doc);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The number of docs in the set.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public long ramBytesUsed() {
+        long size = RamUsage.NUM_BYTES_OBJECT_HEADER + RamUsage.NUM_BYTES_OBJECT_REF + 2 * RamUsage.NUM_BYTES_INT
+                + RamUsage.NUM_BYTES_ARRAY_HEADER + containers.length * RamUsage.NUM_BYTES_OBJECT_REF;
+        for (Container container : containers) {
+            if (container != null) {
+                size += container.ramBytesUsed();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
+    @Override
+    public Bits bits() {
+        return this;
+    }
+
+    @Override
+    public boolean get(int doc) {
+        Container container = containers[doc >>> BLOCK_BITS];
+        return container != null && container.contains(doc & BLOCK_MASK);
+    }
+
+    @Override
+    public int length() {
+        return maxDoc;
+    }
+
+    @Override
+    public Iterator iterator() {
+        return new Iterator();
+    }
+
+    public FixedBitSet toFixedBitSet() {
+        FixedBitSet bits = new FixedBitSet(maxDoc);
+        Iterator iterator = iterator();
+        for (int doc = iterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iterator.nextDoc()) {
+            bits.set(doc);
+        }
+        return bits;
+    }
+
+    /**
+     * Returns the provided sets as {@link RoaringDocIdSet}s if they all are, over the same number of docs, or
+     * <tt>null</tt> otherwise.
+     */
+    @Nullable
+    static RoaringDocIdSet[] asRoaring(DocIdSet[] sets) {
+        if (sets.length == 0) {
+            return null;
+        }
+        RoaringDocIdSet[] roaringSets = new RoaringDocIdSet[sets.length];
+        for (int i = 0; i < sets.length; i++) {
+            if (!(sets[i] instanceof RoaringDocIdSet)) {
+                return null;
+            }
+            roaringSets[i] = (RoaringDocIdSet) sets[i];
+            if (roaringSets[i].maxDoc != roaringSets[0].maxDoc) {
+                return null;
+            }
+        }
+        return roaringSets;
+    }
+
+    /**
+     * Computes the intersection of the provided sets, which must all have the same <tt>maxDoc</tt>.
+     */
+    public static RoaringDocIdSet intersect(RoaringDocIdSet... sets) {
+        int maxDoc = sets[0].maxDoc;
+        Builder builder = new Builder(maxDoc);
+        Container[] blockContainers = new Container[sets.length];
+        for (int block = 0; block < sets[0].containers.length; block++) {
+            Container smallest = null;
+            boolean allBitmaps = true;
+            for (int i = 0; i < sets.length; i++) {
+                Container container = sets[i].containers[block];
+                if (container == null) {
+                    smallest = null;
+                    break;
+                }
+                blockContainers[i] = container;
+                allBitmaps &= container instanceof BitmapContainer;
+                if (smallest == null || container.cardinality() < smallest.cardinality()) {
+                    smallest = container;
+                }
+            }
+            if (smallest == null) {
+                continue;
+            }
+            if (allBitmaps) {
+                long[] words = ((BitmapContainer) blockContainers[0]).words.clone();
+                for (int i = 1; i < sets.length; i++) {
+                    long[] otherWords = ((BitmapContainer) blockContainers[i]).words;
+                    for (int w = 0; w < BITMAP_WORDS; w++) {
+                        words[w] &= otherWords[w];
+                    }
+                }
+                builder.addBlock(block, words);
+            } else {
+                // drive the intersection with the smallest container
+                final int base = block << BLOCK_BITS;
+                outer:
+                for (int low = smallest.nextSetBit(0); low != -1; low = low == BLOCK_MASK ? -1 : smallest.nextSetBit(low + 1)) {
+                    for (Container container : blockContainers) {
+                        if (container != smallest && !container.contains(low)) {
+                            continue outer;
+                        }
+                    }
+                    builder.add(base | low);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Computes the union of the provided sets, which must all have the same <tt>maxDoc</tt>.
+     */
+    public static RoaringDocIdSet union(RoaringDocIdSet... sets) {
+        int maxDoc = sets[0].maxDoc;
+        Builder builder = new Builder(maxDoc);
+        long[] words = new long[BITMAP_WORDS];
+        for (int block = 0; block < sets[0].containers.length; block++) {
+            boolean empty = true;
+            for (RoaringDocIdSet set : sets) {
+                Container container = set.containers[block];
+                if (container != null) {
+                    container.orInto(words);
+                    empty = false;
+                }
+            }
+            if (!empty) {
+                builder.addBlock(block, words);
+                words = new long[BITMAP_WORDS];
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Builds a {@link RoaringDocIdSet}, docs must be added in order.
+     */
+    public static class Builder {
+
+        private final int maxDoc;
+        private final Container[] containers;
+        private int cardinality;
+
+        private int currentBlock = -1;
+        private final short[] buffer = new short[MAX_ARRAY_LENGTH];
+        private int bufferSize;
+        private long[] bitmap;
+        private int blockCardinality;
+
+        public Builder(int maxDoc) {
+            this.maxDoc = maxDoc;
+            this.containers = new Container[(maxDoc + BLOCK_MASK) >>> BLOCK_BITS];
+        }
+
+        public void add(int doc) {
+            int block = doc >>> BLOCK_BITS;
+            if (block != currentBlock) {
+                flush();
+                currentBlock = block;
+            }
+            int low = doc & BLOCK_MASK;
+            if (bitmap != null) {
+                bitmap[low >>> 6] |= 1L << low;
+            } else if (bufferSize < MAX_ARRAY_LENGTH) {
+                buffer[bufferSize++] = (short) low;
+            } else {
+                bitmap = new long[BITMAP_WORDS];
+                for (int i = 0; i < bufferSize; i++) {
+                    int l = buffer[i] & BLOCK_MASK;
+                    bitmap[l >>> 6] |= 1L << l;
+                }
+                bitmap[low >>> 6] |= 1L << low;
+            }
+            blockCardinality++;
+        }
+
+        /**
+         * Adds a whole block at once, the words are owned by the builder from now on.
+         */
+        void addBlock(int block, long[] words) {
+            flush();
+            currentBlock = block;
+            bitmap = words;
+            for (long word : words) {
+                blockCardinality += Long.bitCount(word);
+            }
+            flush();
+        }
+
+        private void flush() {
+            if (blockCardinality > 0) {
+                int blockLength = Math.min(BLOCK_SIZE, maxDoc - (currentBlock << BLOCK_BITS));
+                int missing = blockLength - blockCardinality;
+                Container container;
+                if (blockCardinality <= MAX_ARRAY_LENGTH && blockCardinality <= missing) {
+                    container = new ArrayContainer(sortedDocs());
+                } else if (missing <= MAX_ARRAY_LENGTH) {
+                    container = new InvertedContainer(missingDocs(blockLength, missing), blockLength);
+                } else {
+                    container = new BitmapContainer(bitmap, blockCardinality);
+                }
+                containers[currentBlock] = container;
+                cardinality += blockCardinality;
+            }
+            bufferSize = 0;
+            bitmap = null;
+            blockCardinality = 0;
+        }
+
+        private short[] sortedDocs() {
+            if (bitmap == null) {
+                short[] docs = new short[bufferSize];
+                System.arraycopy(buffer, 0, docs, 0, bufferSize);
+                return docs;
+            }
+            short[] docs = new short[blockCardinality];
+            int i = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                long word = bitmap[w];
+                while (word != 0) {
+                    docs[i++] = (short) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return docs;
+        }
+
+        private short[] missingDocs(int blockLength, int missing) {
+            short[] docs = new short[missing];
+            int i = 0;
+            if (bitmap == null) {
+                int next = 0;
+                for (int j = 0; j < bufferSize; j++) {
+                    int low = buffer[j] & BLOCK_MASK;
+                    while (next < low) {
+                        docs[i++] = (short) next++;
+                    }
+                    next = low + 1;
+                }
+                while (next < blockLength) {
+                    docs[i++] = (short) next++;
+                }
+            } else {
+                for (int low = 0; low < blockLength; low++) {
+                    if ((bitmap[low >>> 6] & (1L << low)) == 0) {
+                        docs[i++] = (short) low;
+                    }
+                }
+            }
+            return docs;
+        }
+
+        public RoaringDocIdSet build() {
+            flush();
+            return new RoaringDocIdSet(containers, maxDoc, cardinality);
+        }
+    }
+
+    static abstract class Container {
+
+        abstract int cardinality();
+
+        abstract boolean contains(int low);
+
+        /**
+         * Returns the first doc in the container that is greater than or equal to <tt>low</tt>, or -1 if none.
+         */
+        abstract int nextSetBit(int low);
+
+        abstract void orInto(long[] words);
+
+        abstract long ramBytesUsed();
+
+        /**
+         * Returns the index of the first value that is greater than or equal to <tt>low</tt>, starting at <tt>from</tt>.
+         */
+        static int advance(short[] docs, int low, int from) {
+            int lo = from;
+            int hi = docs.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if ((docs[mid] & BLOCK_MASK) < low) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return lo;
+        }
+    }
+
+    static final class ArrayContainer extends Container {
+
+        final short[] docs;
+
+        ArrayContainer(short[] docs) {
+            this.docs = docs;
+        }
+
+        @Override
+        int cardinality() {
+            return docs.length;
+        }
+
+        @Override
+        boolean contains(int low) {
+            int index = advance(docs, low, 0);
+            return index < docs.length && (docs[index] & BLOCK_MASK) == low;
+        }
+
+        @Override
+        int nextSetBit(int low) {
+            int index = advance(docs, low, 0);
+            return index < docs.length ? docs[index] & BLOCK_MASK : -1;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (short doc : docs) {
+                int low = doc & BLOCK_MASK;
+                words[low >>> 6] |= 1L << low;
+            }
+        }
+
+        @Override
+        long ramBytesUsed() {
+            return RamUsage.NUM_BYTES_OBJECT_HEADER + RamUsage.NUM_BYTES_OBJECT_REF + RamUsage.NUM_BYTES_ARRAY_HEADER + docs.length * RamUsage.NUM_BYTES_SHORT;
+        }
+    }
+
+    static final class BitmapContainer extends Container {
+
+        final long[] words;
+        final int cardinality;
+
+        BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        int nextSetBit(int low) {
+            int i = low >>> 6;
+            long word = words[i] >>> low;
+            if (word != 0) {
+                return low + Long.numberOfTrailingZeros(word);
+            }
+            while (++i < BITMAP_WORDS) {
+                word = words[i];
+                if (word != 0) {
+                    return (i << 6) + Long.numberOfTrailingZeros(word);
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                words[i] |= this.words[i];
+            }
+        }
+
+        @Override
+        long ramBytesUsed() {
+            return RamUsage.NUM_BYTES_OBJECT_HEADER + RamUsage.NUM_BYTES_OBJECT_REF + RamUsage.NUM_BYTES_INT + RamUsage.NUM_BYTES_ARRAY_HEADER + words.length * RamUsage.NUM_BYTES_LONG;
+        }
+    }
+
+    static final class InvertedContainer extends Container {
+
+        final short[] missing;
+        final int length;
+
+        InvertedContainer(short[] missing, int length) {
+            this.missing = missing;
+            this.length = length;
+        }
+
+        @Override
+        int cardinality() {
+            return length - missing.length;
+        }
+
+        @Override
+        boolean contains(int low) {
+            if (low >= length) {
+                return false;
+            }
+            int index = advance(missing, low, 0);
+            return index == missing.length || (missing[index] & BLOCK_MASK) != low;
+        }
+
+        @Override
+        int nextSetBit(int low) {
+            return nextSetBit(low, advance(missing, low, 0));
+        }
+
+        /**
+         * Same as {@link #nextSetBit(int)}, <tt>index</tt> being the index of the first missing doc greater than or equal to <tt>low</tt>.
+         */
+        int nextSetBit(int low, int index) {
+            while (index < missing.length && (missing[index] & BLOCK_MASK) == low) {
+                low++;
+                index++;
+            }
+            return low < length ? low : -1;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            int next = 0;
+            for (short doc : missing) {
+                int low = doc & BLOCK_MASK;
+                for (; next < low; next++) {
+                    words[next >>> 6] |= 1L << next;
+                }
+                next = low + 1;
+            }
+            for (; next < length; next++) {
+                words[next >>> 6] |= 1L << next;
+            }
+        }
+
+        @Override
+        long ramBytesUsed() {
+            return RamUsage.NUM_BYTES_OBJECT_HEADER + RamUsage.NUM_BYTES_OBJECT_REF + RamUsage.NUM_BYTES_INT + RamUsage.NUM_BYTES_ARRAY_HEADER + missing.length * RamUsage.NUM_BYTES_SHORT;
+        }
+    }
+
+    /**
+     * Iterates over the docs of the set, keeping track of its position in array based containers
+     * so that moving to the next doc does not require a binary search.
+     */
+    public final class Iterator extends DocIdSetIterator {
+
+        private int doc = -1;
+        private int block = -1;
+        private Container container;
+        // position in the docs of an array container, or in the missing docs of an inverted container
+        private int index;
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            if (doc == NO_MORE_DOCS) {
+                return NO_MORE_DOCS;
+            }
+            if (container instanceof ArrayContainer) {
+                // fast path, the next doc in the same array
+                short[] docs = ((ArrayContainer) container).docs;
+                if (index + 1 < docs.length) {
+                    return doc = (block << BLOCK_BITS) | (docs[++index] & BLOCK_MASK);
+                }
+            }
+            return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+            if (target >= maxDoc || doc == NO_MORE_DOCS) {
+                return doc = NO_MORE_DOCS;
+            }
+            int targetBlock = target >>> BLOCK_BITS;
+            if (targetBlock != block) {
+                block = targetBlock;
+                container = containers[block];
+                index = 0;
+            }
+            int low = target & BLOCK_MASK;
+            while (true) {
+                if (container != null) {
+                    int next = nextInContainer(low);
+                    if (next != -1) {
+                        return doc = (block << BLOCK_BITS) | next;
+                    }
+                }
+                do {
+                    block++;
+                } while (block < containers.length && containers[block] == null);
+                if (block >= containers.length) {
+                    return doc = NO_MORE_DOCS;
+                }
+                container = containers[block];
+                index = 0;
+                low = 0;
+            }
+        }
+
+        private int nextInContainer(int low) {
+            if (container instanceof ArrayContainer) {
+                short[] docs = ((ArrayContainer) container).docs;
+                index = Container.advance(docs, low, index);
+                return index < docs.length ? docs[index] & BLOCK_MASK : -1;
+            } else if (container instanceof InvertedContainer) {
+                InvertedContainer inverted = (InvertedContainer) container;
+                index = Container.advance(inverted.missing, low, index);
+                return inverted.nextSetBit(low, index);
+            } else {
+                return container.nextSetBit(low);
+            }
+        }
+    }
+}
@@ -60,6 +60,18 @@ public class ApplyAcceptedDocsFilter extends Filter {
         return this.filter;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return filter.equals(((ApplyAcceptedDocsFilter) o).filter);
+    }
+
+    @Override
+    public int hashCode() {
+        return filter.hashCode();
+    }
+
     @Override
     public String toString() {
         return filter.toString();
@@ -26,6 +26,11 @@ import org.apache.lucene.search.Filter;
  */
 public abstract class CachedFilter extends Filter {
 
+    /**
+     * The filter whose results are cached.
+     */
+    public abstract Filter filter();
+
     public static boolean isCached(Filter filter) {
         return filter instanceof CachedFilter;
     }
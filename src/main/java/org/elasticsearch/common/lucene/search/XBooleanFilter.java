@@ -27,11 +27,14 @@ import org.apache.lucene.search.Filter;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.lucene.docset.AllDocIdSet;
+import org.elasticsearch.common.lucene.docset.AndDocIdSet;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
 import org.elasticsearch.common.lucene.docset.NotDocIdSet;
+import org.elasticsearch.common.lucene.docset.RoaringDocIdSet;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
@@ -52,7 +55,6 @@ public class XBooleanFilter extends Filter implements Iterable<FilterClause> {
      */
     @Override
     public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
-        FixedBitSet res = null;
         final AtomicReader reader = context.reader();
 
         // optimize single case...
@@ -73,11 +75,12 @@ public class XBooleanFilter extends Filter implements Iterable<FilterClause> {
             return set;
         }
 
-        // first, go over and see if we can shortcut the execution
-        // and gather Bits if we need to
-        List<ResultClause> results = new ArrayList<ResultClause>(clauses.size());
+        // first, go over and see if we can shortcut the execution, and estimate the cost of each clause
+        final int maxDoc = reader.maxDoc();
+        List<ResultClause> musts = new ArrayList<ResultClause>(clauses.size());
+        List<ResultClause> shoulds = new ArrayList<ResultClause>(clauses.size());
+        List<ResultClause> mustNots = new ArrayList<ResultClause>(clauses.size());
         boolean hasShouldClauses = false;
-        boolean hasNonEmptyShouldClause = false;
         for (int i = 0; i < clauses.size(); i++) {
             FilterClause clause = clauses.get(i);
             DocIdSet set = clause.getFilter().getDocIdSet(context, acceptDocs);
@@ -85,145 +88,114 @@ public class XBooleanFilter extends Filter implements Iterable<FilterClause> {
                 if (DocIdSets.isEmpty(set)) {
                     return null;
                 }
+                musts.add(new ResultClause(set, clause, maxDoc));
             } else if (clause.getOccur() == Occur.SHOULD) {
                 hasShouldClauses = true;
-                if (DocIdSets.isEmpty(set)) {
-                    continue;
+                if (!DocIdSets.isEmpty(set)) {
+                    shoulds.add(new ResultClause(set, clause, maxDoc));
                 }
-                hasNonEmptyShouldClause = true;
             } else if (clause.getOccur() == Occur.MUST_NOT) {
-                if (DocIdSets.isEmpty(set)) {
-                    // we mark empty ones as null for must_not, handle it in the next run...
-                    results.add(new ResultClause(null, null, clause));
-                    continue;
+                // an empty must_not clause does not exclude anything
+                if (!DocIdSets.isEmpty(set)) {
+                    mustNots.add(new ResultClause(set, clause, maxDoc));
                 }
             }
-            Bits bits = null;
-            if (!DocIdSets.isFastIterator(set)) {
-                bits = set.bits();
-            }
-            results.add(new ResultClause(set, bits, clause));
         }
 
-        if (hasShouldClauses && !hasNonEmptyShouldClause) {
+        if (hasShouldClauses && shoulds.isEmpty()) {
             return null;
         }
 
-        // now, go over the clauses and apply the "fast" ones...
-        boolean hasBits = false;
-        for (int i = 0; i < results.size(); i++) {
-            ResultClause clause = results.get(i);
-            // we apply bits in based ones (slow) in the second run
-            if (clause.bits != null) {
-                hasBits = true;
-                continue;
+        // cheapest clauses first, fast iterators ordered by their number of docs, random access ones last
+        Collections.sort(musts);
+        Collections.sort(shoulds);
+        Collections.sort(mustNots);
+
+        if (!musts.isEmpty() && shoulds.isEmpty()) {
+            // only required and excluded clauses, don't materialize anything: leap frog over the cheapest
+            // iterators and only check the random access ones against the docs that survive it
+            DocIdSet[] sets = new DocIdSet[musts.size() + mustNots.size()];
+            int i = 0;
+            for (ResultClause clause : musts) {
+                sets[i++] = clause.docIdSet;
             }
-            if (clause.clause.getOccur() == Occur.SHOULD) {
-                DocIdSetIterator it = clause.docIdSet.iterator();
-                if (it == null) {
-                    continue;
-                }
-                if (res == null) {
-                    res = new FixedBitSet(reader.maxDoc());
-                }
-                res.or(it);
-            } else if (clause.clause.getOccur() == Occur.MUST) {
-                DocIdSetIterator it = clause.docIdSet.iterator();
-                if (it == null) {
-                    return null;
-                }
-                if (res == null) {
-                    res = new FixedBitSet(reader.maxDoc());
-                    res.or(it);
-                } else {
-                    res.and(it);
-                }
-            } else if (clause.clause.getOccur() == Occur.MUST_NOT) {
-                if (res == null) {
-                    res = new FixedBitSet(reader.maxDoc());
-                    res.set(0, reader.maxDoc()); // NOTE: may set bits on deleted docs
-                }
-                if (clause.docIdSet != null) {
-                    DocIdSetIterator it = clause.docIdSet.iterator();
-                    if (it != null) {
-                        res.andNot(it);
-                    }
-                }
+            for (ResultClause clause : mustNots) {
+                sets[i++] = new NotDocIdSet(clause.docIdSet, maxDoc);
             }
+            return new AndDocIdSet(sets);
         }
 
-        if (!hasBits) {
-            return res;
-        }
-
-        // we have some clauses with bits, apply them...
-        // we let the "res" drive the computation, and check Bits for that
-        for (int i = 0; i < results.size(); i++) {
-            ResultClause clause = results.get(i);
-            // we apply bits in based ones (slow) in the second run
-            if (clause.bits == null) {
-                continue;
+        FixedBitSet res = new FixedBitSet(maxDoc);
+        if (!musts.isEmpty()) {
+            DocIdSet[] sets = new DocIdSet[musts.size()];
+            for (int i = 0; i < sets.length; i++) {
+                sets[i] = musts.get(i).docIdSet;
             }
-            if (clause.clause.getOccur() == Occur.SHOULD) {
-                if (res == null) {
+            res.or(new AndDocIdSet(sets).iterator());
+        } else if (!shoulds.isEmpty()) {
+            for (ResultClause clause : shoulds) {
+                if (clause.bits == null) {
                     DocIdSetIterator it = clause.docIdSet.iterator();
-                    if (it == null) {
-                        continue;
+                    if (it != null) {
+                        res.or(it);
                     }
-                    res = new FixedBitSet(reader.maxDoc());
-                    res.or(it);
                 } else {
-                    Bits bits = clause.bits;
-                    // use the "res" to drive the iteration
-                    int lastSetDoc = res.nextSetBit(0);
-                    DocIdSetIterator it = res.iterator();
-                    for (int setDoc = it.nextDoc(); setDoc != DocIdSetIterator.NO_MORE_DOCS; setDoc = it.nextDoc()) {
-                        int diff = setDoc - lastSetDoc;
-                        if (diff > 1) {
-                            for (int unsetDoc = lastSetDoc + 1; unsetDoc < setDoc; unsetDoc++) {
-                                if (bits.get(unsetDoc)) {
-                                    res.set(unsetDoc);
-                                }
-                            }
+                    // only check the docs that are not set yet
+                    for (int doc = nextClearBit(res, 0); doc < maxDoc; doc = nextClearBit(res, doc + 1)) {
+                        if (clause.bits.get(doc)) {
+                            res.set(doc);
                         }
-                        lastSetDoc = setDoc;
                     }
                 }
-            } else if (clause.clause.getOccur() == Occur.MUST) {
-                if (res == null) {
-                    // nothing we can do, just or it...
-                    res = new FixedBitSet(reader.maxDoc());
-                    DocIdSetIterator it = clause.docIdSet.iterator();
-                    if (it == null) {
-                        return null;
-                    }
-                    res.or(it);
+            }
+        } else {
+            res.set(0, maxDoc); // NOTE: may set bits on deleted docs
+        }
+
+        // remove the excluded docs, iterators first as they don't need to go through every candidate
+        for (ResultClause clause : mustNots) {
+            if (clause.bits == null) {
+                DocIdSetIterator it = clause.docIdSet.iterator();
+                if (it != null) {
+                    res.andNot(it);
+                }
+            }
+        }
+
+        if (!musts.isEmpty() && !shoulds.isEmpty()) {
+            // at least one of the should clauses must match, check them against the remaining candidates only
+            Bits[] shouldBits = new Bits[shoulds.size()];
+            for (int i = 0; i < shouldBits.length; i++) {
+                ResultClause clause = shoulds.get(i);
+                if (clause.bits != null) {
+                    shouldBits[i] = clause.bits;
                 } else {
-                    Bits bits = clause.bits;
-                    // use the "res" to drive the iteration
-                    DocIdSetIterator it = res.iterator();
-                    for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
-                        if (!bits.get(doc)) {
-                            res.clear(doc);
-                        }
-                    }
+                    shouldBits[i] = DocIdSets.toSafeBits(reader, clause.docIdSet);
                 }
-            } else if (clause.clause.getOccur() == Occur.MUST_NOT) {
-                if (res == null) {
-                    res = new FixedBitSet(reader.maxDoc());
-                    res.set(0, reader.maxDoc()); // NOTE: may set bits on deleted docs
-                    DocIdSetIterator it = clause.docIdSet.iterator();
-                    if (it != null) {
-                        res.andNot(it);
+            }
+            DocIdSetIterator it = res.iterator();
+            for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+                boolean match = false;
+                for (Bits bits : shouldBits) {
+                    if (bits.get(doc)) {
+                        match = true;
+                        break;
                     }
-                } else {
-                    Bits bits = clause.bits;
-                    // let res drive the iteration
-                    DocIdSetIterator it = res.iterator();
-                    for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
-                        if (bits.get(doc)) {
-                            res.clear(doc);
-                        }
+                }
+                if (!match) {
+                    res.clear(doc);
+                }
+            }
+        }
+
+        for (ResultClause clause : mustNots) {
+            if (clause.bits != null) {
+                Bits bits = clause.bits;
+                // let res drive the iteration
+                DocIdSetIterator it = res.iterator();
+                for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+                    if (bits.get(doc)) {
+                        res.clear(doc);
                     }
                 }
             }
@@ -296,15 +268,44 @@ public class XBooleanFilter extends Filter implements Iterable<FilterClause> {
         return buffer.append(')').toString();
     }
 
-    static class ResultClause {
+    /**
+     * A clause along with its doc id set, and an estimation of how expensive it is to evaluate it.
+     */
+    static class ResultClause implements Comparable<ResultClause> {
         public final DocIdSet docIdSet;
+        /**
+         * The random access bits of the clause, <tt>null</tt> if it can be iterated quickly.
+         */
         public final Bits bits;
         public final FilterClause clause;
+        public final long cost;
 
-        ResultClause(DocIdSet docIdSet, Bits bits, FilterClause clause) {
+        ResultClause(DocIdSet docIdSet, FilterClause clause, int maxDoc) throws IOException {
             this.docIdSet = docIdSet;
-            this.bits = bits;
             this.clause = clause;
+            if (docIdSet instanceof RoaringDocIdSet) {
+                this.bits = null;
+                this.cost = ((RoaringDocIdSet) docIdSet).cardinality();
+            } else if (docIdSet instanceof FixedBitSet) {
+                this.bits = null;
+                this.cost = ((FixedBitSet) docIdSet).cardinality();
+            } else {
+                this.bits = docIdSet.bits();
+                // plain iterators might have to check every doc, random access ones are checked doc by doc
+                this.cost = bits == null ? maxDoc : 2L * maxDoc;
+            }
+        }
+
+        @Override
+        public int compareTo(ResultClause o) {
+            return cost < o.cost ? -1 : (cost == o.cost ? 0 : 1);
+        }
+    }
+
+    private static int nextClearBit(FixedBitSet bits, int from) {
+        while (from < bits.length() && bits.get(from)) {
+            from++;
         }
+        return from;
     }
 }
@@ -160,7 +160,10 @@ public class XFilteredQuery extends Query {
      */
     @Override
     public boolean equals(Object o) {
-       return delegate.equals(o);
+        if (!(o instanceof XFilteredQuery)) {
+            return false;
+        }
+        return delegate.equals(((XFilteredQuery) o).delegate);
     }
 
     /**
@@ -251,6 +251,20 @@ public final class XTermsFilter extends Filter {
         return hashCode;
     }
 
+    /**
+     * Returns the (deduplicated) terms of this filter.
+     */
+    public List<Term> getTerms() {
+        List<Term> terms = new ArrayList<Term>();
+        for (int i = 0; i < termsAndFields.length; i++) {
+            TermsAndField current = termsAndFields[i];
+            for (int j = current.start; j < current.end; j++) {
+                terms.add(new Term(current.field, new BytesRef(termsBytes, offsets[j], offsets[j + 1] - offsets[j])));
+            }
+        }
+        return terms;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -252,6 +252,17 @@ public class AnalysisService extends AbstractIndexComponent implements Closeable
     }
 
     public void close() {
+        // releases the analysis resources shared with the other indices (closing is idempotent, since
+        // token filters are aliased)
+        for (TokenFilterFactory tokenFilterFactory : tokenFilters.values()) {
+            if (tokenFilterFactory instanceof CloseableComponent) {
+                try {
+                    ((CloseableComponent) tokenFilterFactory).close();
+                } catch (Exception e) {
+                    logger.debug("failed to close token filter " + tokenFilterFactory.name());
+                }
+            }
+        }
         for (NamedAnalyzer analyzer : analyzers.values()) {
             if (analyzer.scope() == AnalyzerScope.INDEX) {
                 try {
@@ -24,19 +24,33 @@ import org.apache.lucene.analysis.core.StopAnalyzer;
 import org.apache.lucene.analysis.core.StopFilter;
 import org.apache.lucene.analysis.util.CharArraySet;
 import org.apache.lucene.util.Version;
+import org.elasticsearch.common.Digest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.component.CloseableComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.assistedinject.Assisted;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.indices.analysis.IndicesAnalysisService;
 
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- *
+ * Stop words configured in the settings are loaded once per node for all the indices configuring identical ones,
+ * and shared through {@link IndicesAnalysisService#acquireSharedResource(String, java.util.concurrent.Callable)}.
  */
-public class StopTokenFilterFactory extends AbstractTokenFilterFactory {
+public class StopTokenFilterFactory extends AbstractTokenFilterFactory implements CloseableComponent {
+
+    private final IndicesAnalysisService indicesAnalysisService;
+
+    @Nullable
+    private final String stopWordsKey;
 
     private final CharArraySet stopWords;
 
@@ -44,11 +58,34 @@ public class StopTokenFilterFactory extends AbstractTokenFilterFactory {
 
     private final boolean enablePositionIncrements;
 
+    private final AtomicBoolean closed = new AtomicBoolean();
+
     @Inject
-    public StopTokenFilterFactory(Index index, @IndexSettings Settings indexSettings, Environment env, @Assisted String name, @Assisted Settings settings) {
+    public StopTokenFilterFactory(Index index, @IndexSettings Settings indexSettings, final Environment env, IndicesAnalysisService indicesAnalysisService,
+                                  @Assisted String name, @Assisted final Settings settings) {
         super(index, indexSettings, name, settings);
+        this.indicesAnalysisService = indicesAnalysisService;
         this.ignoreCase = settings.getAsBoolean("ignore_case", false);
-        this.stopWords = Analysis.parseStopWords(env, settings, StopAnalyzer.ENGLISH_STOP_WORDS_SET, version, ignoreCase);
+        String stopWordsSource = settings.get("stopwords");
+        if (stopWordsSource == null) {
+            List<String> stopWordsList = Analysis.getWordList(env, settings, "stopwords");
+            if (stopWordsList != null) {
+                stopWordsSource = Strings.collectionToDelimitedString(stopWordsList, "\n");
+            }
+        }
+        if (stopWordsSource == null || "_none_".equals(stopWordsSource)) {
+            // nothing worth sharing
+            this.stopWordsKey = null;
+            this.stopWords = Analysis.parseStopWords(env, settings, StopAnalyzer.ENGLISH_STOP_WORDS_SET, version, ignoreCase);
+        } else {
+            this.stopWordsKey = "stop/" + version + "/" + ignoreCase + "/" + Digest.shaHex(stopWordsSource);
+            this.stopWords = indicesAnalysisService.acquireSharedResource(stopWordsKey, new Callable<CharArraySet>() {
+                @Override
+                public CharArraySet call() {
+                    return Analysis.parseStopWords(env, settings, StopAnalyzer.ENGLISH_STOP_WORDS_SET, version, ignoreCase);
+                }
+            });
+        }
         // LUCENE 4 UPGRADE: LUCENE_29 constant is no longer defined
         this.enablePositionIncrements = settings.getAsBoolean("enable_position_increments", version.onOrAfter(Version.LUCENE_30));
     }
@@ -71,4 +108,11 @@ public class StopTokenFilterFactory extends AbstractTokenFilterFactory {
     public boolean enablePositionIncrements() {
         return this.enablePositionIncrements;
     }
+
+    @Override
+    public void close() {
+        if (stopWordsKey != null && closed.compareAndSet(false, true)) {
+            indicesAnalysisService.releaseSharedResource(stopWordsKey);
+        }
+    }
 }
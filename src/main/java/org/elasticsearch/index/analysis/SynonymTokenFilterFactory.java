@@ -27,8 +27,11 @@ import org.apache.lucene.analysis.synonym.SynonymFilter;
 import org.apache.lucene.analysis.synonym.SynonymMap;
 import org.apache.lucene.analysis.synonym.WordnetSynonymParser;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.Digest;
+import org.elasticsearch.common.component.CloseableComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.assistedinject.Assisted;
+import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.env.Environment;
@@ -36,38 +39,54 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.indices.analysis.IndicesAnalysisService;
 
+import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * The synonym map is built once per node for all the indices configuring identical synonyms, and shared through
+ * {@link IndicesAnalysisService#acquireSharedResource(String, java.util.concurrent.Callable)}.
+ */
 @AnalysisSettingsRequired
-public class SynonymTokenFilterFactory extends AbstractTokenFilterFactory {
+public class SynonymTokenFilterFactory extends AbstractTokenFilterFactory implements CloseableComponent {
 
+    private final IndicesAnalysisService indicesAnalysisService;
+    private final String synonymMapKey;
     private final SynonymMap synonymMap;
     private final boolean ignoreCase;
+    private final AtomicBoolean closed = new AtomicBoolean();
 
     @Inject
     public SynonymTokenFilterFactory(Index index, @IndexSettings Settings indexSettings, Environment env, IndicesAnalysisService indicesAnalysisService, Map<String, TokenizerFactoryFactory> tokenizerFactories,
-                                     @Assisted String name, @Assisted Settings settings) {
+                                     @Assisted String name, @Assisted final Settings settings) {
         super(index, indexSettings, name, settings);
+        this.indicesAnalysisService = indicesAnalysisService;
 
-        Reader rulesReader = null;
+        final String rules;
         if (settings.getAsArray("synonyms", null) != null) {
-            List<String> rules = Analysis.getWordList(env, settings, "synonyms");
+            List<String> rulesList = Analysis.getWordList(env, settings, "synonyms");
             StringBuilder sb = new StringBuilder();
-            for (String line : rules) {
+            for (String line : rulesList) {
                 sb.append(line).append(System.getProperty("line.separator"));
             }
-            rulesReader = new StringReader(sb.toString());
+            rules = sb.toString();
         } else if (settings.get("synonyms_path") != null) {
-            rulesReader = Analysis.getReaderFromFile(env, settings, "synonyms_path");
+            try {
+                rules = Streams.copyToString(Analysis.getReaderFromFile(env, settings, "synonyms_path"));
+            } catch (IOException e) {
+                throw new ElasticSearchIllegalArgumentException("failed to read synonyms_path", e);
+            }
         } else {
             throw new ElasticSearchIllegalArgumentException("synonym requires either `synonyms` or `synonyms_path` to be configured");
         }
 
         this.ignoreCase = settings.getAsBoolean("ignore_case", false);
-        boolean expand = settings.getAsBoolean("expand", true);
+        final boolean expand = settings.getAsBoolean("expand", true);
 
         String tokenizerName = settings.get("tokenizer", "whitespace");
 
@@ -80,7 +99,7 @@ public class SynonymTokenFilterFactory extends AbstractTokenFilterFactory {
         }
         final TokenizerFactory tokenizerFactory = tokenizerFactoryFactory.create(tokenizerName, settings);
 
-        Analyzer analyzer = new Analyzer() {
+        final Analyzer analyzer = new Analyzer() {
             @Override
             protected TokenStreamComponents createComponents(String fieldName, Reader reader) {
                 Tokenizer tokenizer = tokenizerFactory == null ? new WhitespaceTokenizer(Lucene.ANALYZER_VERSION, reader) : tokenizerFactory.create(reader);
@@ -89,21 +108,28 @@ public class SynonymTokenFilterFactory extends AbstractTokenFilterFactory {
             }
         };
 
-        try {
-            SynonymMap.Builder parser = null;
+        // the map only depends on the rules and the filter settings (format, tokenizer...)
+        this.synonymMapKey = "synonym/" + version + "/" + Digest.shaHex(new TreeMap<String, String>(settings.getAsMap()) + "\n" + rules);
+        this.synonymMap = indicesAnalysisService.acquireSharedResource(synonymMapKey, new Callable<SynonymMap>() {
+            @Override
+            public SynonymMap call() {
+                try {
+                    SynonymMap.Builder parser = null;
 
-            if ("wordnet".equalsIgnoreCase(settings.get("format"))) {
-                parser = new WordnetSynonymParser(true, expand, analyzer);
-                ((WordnetSynonymParser) parser).add(rulesReader);
-            } else {
-                parser = new SolrSynonymParser(true, expand, analyzer);
-                ((SolrSynonymParser) parser).add(rulesReader);
-            }
+                    if ("wordnet".equalsIgnoreCase(settings.get("format"))) {
+                        parser = new WordnetSynonymParser(true, expand, analyzer);
+                        ((WordnetSynonymParser) parser).add(new StringReader(rules));
+                    } else {
+                        parser = new SolrSynonymParser(true, expand, analyzer);
+                        ((SolrSynonymParser) parser).add(new StringReader(rules));
+                    }
 
-            synonymMap = parser.build();
-        } catch (Exception e) {
-            throw new ElasticSearchIllegalArgumentException("failed to build synonyms", e);
-        }
+                    return parser.build();
+                } catch (Exception e) {
+                    throw new ElasticSearchIllegalArgumentException("failed to build synonyms", e);
+                }
+            }
+        });
     }
 
     @Override
@@ -111,4 +137,11 @@ public class SynonymTokenFilterFactory extends AbstractTokenFilterFactory {
         // fst is null means no synonyms
         return synonymMap.fst == null ? tokenStream : new SynonymFilter(tokenStream, synonymMap, ignoreCase);
     }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            indicesAnalysisService.releaseSharedResource(synonymMapKey);
+        }
+    }
 }
\ No newline at end of file
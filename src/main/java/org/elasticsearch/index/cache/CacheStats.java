@@ -37,15 +37,25 @@ public class CacheStats implements Streamable, ToXContent {
     long filterEvictions;
     long filterCount;
     long filterSize;
+    long filterHits;
+    long filterAdmissions;
+    long filterRejections;
     long idCacheSize;
 
     public CacheStats() {
     }
 
     public CacheStats(long filterEvictions, long filterSize, long filterCount, long idCacheSize) {
+        this(filterEvictions, filterSize, filterCount, 0, 0, 0, idCacheSize);
+    }
+
+    public CacheStats(long filterEvictions, long filterSize, long filterCount, long filterHits, long filterAdmissions, long filterRejections, long idCacheSize) {
         this.filterEvictions = filterEvictions;
         this.filterSize = filterSize;
         this.filterCount = filterCount;
+        this.filterHits = filterHits;
+        this.filterAdmissions = filterAdmissions;
+        this.filterRejections = filterRejections;
         this.idCacheSize = idCacheSize;
     }
 
@@ -53,6 +63,9 @@ public class CacheStats implements Streamable, ToXContent {
         this.filterEvictions += stats.filterEvictions;
         this.filterSize += stats.filterSize;
         this.filterCount += stats.filterCount;
+        this.filterHits += stats.filterHits;
+        this.filterAdmissions += stats.filterAdmissions;
+        this.filterRejections += stats.filterRejections;
         this.idCacheSize += stats.idCacheSize;
     }
 
@@ -96,6 +109,48 @@ public class CacheStats implements Streamable, ToXContent {
         return filterSize();
     }
 
+    /**
+     * The number of times a cached filter result was found in the cache.
+     */
+    public long getFilterHits() {
+        return this.filterHits;
+    }
+
+    /**
+     * The number of times a filter result was not in the cache, and was admitted into it.
+     */
+    public long getFilterAdmissions() {
+        return this.filterAdmissions;
+    }
+
+    /**
+     * The number of times a filter result was not in the cache, and was not admitted into it (not used
+     * often enough yet, or segment too small).
+     */
+    public long getFilterRejections() {
+        return this.filterRejections;
+    }
+
+    public long getFilterMisses() {
+        return filterAdmissions + filterRejections;
+    }
+
+    /**
+     * The ratio of filter executions that were served by the cache.
+     */
+    public double getFilterHitRatio() {
+        long total = filterHits + getFilterMisses();
+        return total == 0 ? 0 : ((double) filterHits) / total;
+    }
+
+    /**
+     * The ratio of filter cache misses that were admitted into the cache.
+     */
+    public double getFilterAdmissionRatio() {
+        long misses = getFilterMisses();
+        return misses == 0 ? 0 : ((double) filterAdmissions) / misses;
+    }
+
     public long idCacheSizeInBytes() {
         return idCacheSize;
     }
@@ -119,6 +174,11 @@ public class CacheStats implements Streamable, ToXContent {
         builder.field(Fields.FILTER_EVICTIONS, filterEvictions);
         builder.field(Fields.FILTER_SIZE, filterSize().toString());
         builder.field(Fields.FILTER_SIZE_IN_BYTES, filterSize);
+        builder.field(Fields.FILTER_HITS, filterHits);
+        builder.field(Fields.FILTER_ADMISSIONS, filterAdmissions);
+        builder.field(Fields.FILTER_REJECTIONS, filterRejections);
+        builder.field(Fields.FILTER_HIT_RATIO, getFilterHitRatio());
+        builder.field(Fields.FILTER_ADMISSION_RATIO, getFilterAdmissionRatio());
         builder.field(Fields.ID_CACHE_SIZE, idCacheSize().toString());
         builder.field(Fields.ID_CACHE_SIZE_IN_BYTES, idCacheSize);
         builder.endObject();
@@ -131,6 +191,11 @@ public class CacheStats implements Streamable, ToXContent {
         static final XContentBuilderString FILTER_COUNT = new XContentBuilderString("filter_count");
         static final XContentBuilderString FILTER_SIZE = new XContentBuilderString("filter_size");
         static final XContentBuilderString FILTER_SIZE_IN_BYTES = new XContentBuilderString("filter_size_in_bytes");
+        static final XContentBuilderString FILTER_HITS = new XContentBuilderString("filter_hits");
+        static final XContentBuilderString FILTER_ADMISSIONS = new XContentBuilderString("filter_admissions");
+        static final XContentBuilderString FILTER_REJECTIONS = new XContentBuilderString("filter_rejections");
+        static final XContentBuilderString FILTER_HIT_RATIO = new XContentBuilderString("filter_hit_ratio");
+        static final XContentBuilderString FILTER_ADMISSION_RATIO = new XContentBuilderString("filter_admission_ratio");
         static final XContentBuilderString ID_CACHE_SIZE = new XContentBuilderString("id_cache_size");
         static final XContentBuilderString ID_CACHE_SIZE_IN_BYTES = new XContentBuilderString("id_cache_size_in_bytes");
     }
@@ -146,6 +211,9 @@ public class CacheStats implements Streamable, ToXContent {
         filterEvictions = in.readVLong();
         filterSize = in.readVLong();
         filterCount = in.readVLong();
+        filterHits = in.readVLong();
+        filterAdmissions = in.readVLong();
+        filterRejections = in.readVLong();
         idCacheSize = in.readVLong();
     }
 
@@ -154,6 +222,9 @@ public class CacheStats implements Streamable, ToXContent {
         out.writeVLong(filterEvictions);
         out.writeVLong(filterSize);
         out.writeVLong(filterCount);
+        out.writeVLong(filterHits);
+        out.writeVLong(filterAdmissions);
+        out.writeVLong(filterRejections);
         out.writeVLong(idCacheSize);
     }
 }
\ No newline at end of file
@@ -33,6 +33,7 @@ import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.cache.filter.FilterCache;
 import org.elasticsearch.index.cache.id.IdCache;
+import org.elasticsearch.index.cache.id.JoinCache;
 import org.elasticsearch.index.cache.query.parser.QueryParserCache;
 import org.elasticsearch.index.settings.IndexSettings;
 
@@ -47,6 +48,8 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
 
     private final IdCache idCache;
 
+    private final JoinCache joinCache;
+
     private final TimeValue refreshInterval;
 
     private ClusterService clusterService;
@@ -60,6 +63,7 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
         this.filterCache = filterCache;
         this.queryParserCache = queryParserCache;
         this.idCache = idCache;
+        this.joinCache = new JoinCache(componentSettings.getAsInt("join.max_entries_per_reader", 100));
 
         this.refreshInterval = componentSettings.getAsTime("stats.refresh_interval", TimeValue.timeValueSeconds(1));
 
@@ -75,21 +79,26 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
     }
 
     public synchronized void invalidateCache() {
-        FilterCache.EntriesStats filterEntriesStats = filterCache.entriesStats();
-        latestCacheStats = new CacheStats(filterCache.evictions(), filterEntriesStats.sizeInBytes, filterEntriesStats.count, idCache.sizeInBytes());
+        latestCacheStats = buildCacheStats();
         latestCacheStatsTimestamp = System.currentTimeMillis();
     }
 
     public synchronized CacheStats stats() {
         long timestamp = System.currentTimeMillis();
         if ((timestamp - latestCacheStatsTimestamp) > refreshInterval.millis()) {
-            FilterCache.EntriesStats filterEntriesStats = filterCache.entriesStats();
-            latestCacheStats = new CacheStats(filterCache.evictions(), filterEntriesStats.sizeInBytes, filterEntriesStats.count, idCache.sizeInBytes());
+            latestCacheStats = buildCacheStats();
             latestCacheStatsTimestamp = timestamp;
         }
         return latestCacheStats;
     }
 
+    private CacheStats buildCacheStats() {
+        FilterCache.EntriesStats filterEntriesStats = filterCache.entriesStats();
+        FilterCache.UsageStats filterUsageStats = filterCache.usageStats();
+        return new CacheStats(filterCache.evictions(), filterEntriesStats.sizeInBytes, filterEntriesStats.count,
+                filterUsageStats.hits, filterUsageStats.admissions, filterUsageStats.rejections, idCache.sizeInBytes());
+    }
+
     public FilterCache filter() {
         return filterCache;
     }
@@ -98,6 +107,10 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
         return this.idCache;
     }
 
+    public JoinCache joinCache() {
+        return this.joinCache;
+    }
+
     public QueryParserCache queryParserCache() {
         return this.queryParserCache;
     }
@@ -106,6 +119,7 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
     public void close() throws ElasticSearchException {
         filterCache.close();
         idCache.close();
+        joinCache.clear();
         queryParserCache.close();
         if (clusterService != null) {
             clusterService.remove(this);
@@ -120,6 +134,7 @@ public class IndexCache extends AbstractIndexComponent implements CloseableCompo
     public void clear(String reason) {
         filterCache.clear(reason);
         idCache.clear();
+        joinCache.clear();
         queryParserCache.clear();
     }
 
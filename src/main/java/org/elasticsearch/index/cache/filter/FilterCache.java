@@ -39,6 +39,18 @@ public interface FilterCache extends IndexComponent, CloseableComponent {
         }
     }
 
+    static class UsageStats {
+        public final long hits;
+        public final long admissions;
+        public final long rejections;
+
+        public UsageStats(long hits, long admissions, long rejections) {
+            this.hits = hits;
+            this.admissions = admissions;
+            this.rejections = rejections;
+        }
+    }
+
     String type();
 
     Filter cache(Filter filterToCache);
@@ -50,4 +62,9 @@ public interface FilterCache extends IndexComponent, CloseableComponent {
     EntriesStats entriesStats();
 
     long evictions();
+
+    /**
+     * The number of cache hits, and of misses that were admitted into the cache or rejected by the admission policy.
+     */
+    UsageStats usageStats();
 }
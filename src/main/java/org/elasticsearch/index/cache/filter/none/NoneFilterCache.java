@@ -73,4 +73,9 @@ public class NoneFilterCache extends AbstractIndexComponent implements FilterCac
     public long evictions() {
         return 0;
     }
+
+    @Override
+    public UsageStats usageStats() {
+        return new UsageStats(0, 0, 0);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,100 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.filter.support;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.index.AtomicReader;
+import org.elasticsearch.common.Nullable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Decides whether the result of a filter on a segment should be cached. A filter is only admitted once it
+ * has been used <tt>minFrequency</tt> times on the segment, and never on segments with less than
+ * <tt>minSegmentSize</tt> docs. Usage counts are kept for the <tt>historySize</tt> most recently used keys.
+ */
+public class FilterCacheAdmissionPolicy {
+
+    public static final int DEFAULT_MIN_FREQUENCY = 2;
+    public static final int DEFAULT_MIN_SEGMENT_SIZE = 1000;
+    public static final int DEFAULT_HISTORY_SIZE = 10000;
+
+    private final int minFrequency;
+
+    private final int minSegmentSize;
+
+    @Nullable
+    private final Cache<Object, AtomicInteger> usage;
+
+    public FilterCacheAdmissionPolicy(int minFrequency, int minSegmentSize, int historySize) {
+        this.minFrequency = minFrequency;
+        this.minSegmentSize = minSegmentSize;
+        if (minFrequency > 1) {
+            this.usage = CacheBuilder.newBuilder().maximumSize(historySize).concurrencyLevel(16).build();
+        } else {
+            this.usage = null;
+        }
+    }
+
+    public int minFrequency() {
+        return minFrequency;
+    }
+
+    public int minSegmentSize() {
+        return minSegmentSize;
+    }
+
+    /**
+     * Records a use of the filter identified by the (per segment) key, and returns <tt>true</tt> if its
+     * result should now be cached.
+     */
+    public boolean admit(Object key, AtomicReader reader) {
+        if (reader.maxDoc() < minSegmentSize) {
+            return false;
+        }
+        if (usage == null) {
+            return true;
+        }
+        AtomicInteger count = usage.getIfPresent(key);
+        if (count == null) {
+            count = new AtomicInteger();
+            AtomicInteger existing = usage.asMap().putIfAbsent(key, count);
+            if (existing != null) {
+                count = existing;
+            }
+        }
+        if (count.incrementAndGet() >= minFrequency) {
+            // the result is going to be cached, no need to track it anymore
+            usage.invalidate(key);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Forgets about all the usages recorded so far.
+     */
+    public void clear() {
+        if (usage != null) {
+            usage.invalidateAll();
+        }
+    }
+}
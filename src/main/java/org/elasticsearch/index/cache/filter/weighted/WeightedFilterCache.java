@@ -33,6 +33,7 @@ import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
+import org.elasticsearch.common.lucene.docset.RoaringDocIdSet;
 import org.elasticsearch.common.lucene.search.CachedFilter;
 import org.elasticsearch.common.lucene.search.NoCacheFilter;
 import org.elasticsearch.common.metrics.CounterMetric;
@@ -43,6 +44,7 @@ import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.cache.filter.FilterCache;
 import org.elasticsearch.index.cache.filter.support.CacheKeyFilter;
+import org.elasticsearch.index.cache.filter.support.FilterCacheAdmissionPolicy;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.indices.cache.filter.IndicesFilterCache;
 
@@ -59,10 +61,24 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
     final CounterMetric evictionsMetric = new CounterMetric();
     final MeanMetric totalMetric = new MeanMetric();
 
+    final CounterMetric hitsMetric = new CounterMetric();
+    final CounterMetric admissionsMetric = new CounterMetric();
+    final CounterMetric rejectionsMetric = new CounterMetric();
+
+    final FilterCacheAdmissionPolicy admissionPolicy;
+
+    final boolean compress;
+
     @Inject
     public WeightedFilterCache(Index index, @IndexSettings Settings indexSettings, IndicesFilterCache indicesFilterCache) {
         super(index, indexSettings);
         this.indicesFilterCache = indicesFilterCache;
+        this.admissionPolicy = new FilterCacheAdmissionPolicy(
+                indexSettings.getAsInt("index.cache.filter.min_frequency", FilterCacheAdmissionPolicy.DEFAULT_MIN_FREQUENCY),
+                indexSettings.getAsInt("index.cache.filter.min_segment_size", FilterCacheAdmissionPolicy.DEFAULT_MIN_SEGMENT_SIZE),
+                indexSettings.getAsInt("index.cache.filter.usage_history_size", FilterCacheAdmissionPolicy.DEFAULT_HISTORY_SIZE));
+        this.compress = indexSettings.getAsBoolean("index.cache.filter.compress", true);
+        logger.debug("using min_frequency [{}], min_segment_size [{}], compress [{}]", admissionPolicy.minFrequency(), admissionPolicy.minSegmentSize(), compress);
         indicesFilterCache.addRemovalListener(index.name(), this);
     }
 
@@ -80,6 +96,7 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
     @Override
     public void clear(String reason) {
         logger.debug("full cache clear, reason [{}]", reason);
+        admissionPolicy.clear();
         for (Object readerKey : seenReaders.keySet()) {
             Boolean removed = seenReaders.remove(readerKey);
             if (removed == null) {
@@ -118,6 +135,11 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
         return evictionsMetric.count();
     }
 
+    @Override
+    public UsageStats usageStats() {
+        return new UsageStats(hitsMetric.count(), admissionsMetric.count(), rejectionsMetric.count());
+    }
+
     @Override
     public Filter cache(Filter filterToCache) {
         if (filterToCache instanceof NoCacheFilter) {
@@ -140,6 +162,10 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
             this.cache = cache;
         }
 
+        @Override
+        public Filter filter() {
+            return filter;
+        }
 
         @Override
         public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
@@ -151,7 +177,15 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
             Cache<FilterCacheKey, DocIdSet> innerCache = cache.indicesFilterCache.cache();
 
             DocIdSet cacheValue = innerCache.getIfPresent(cacheKey);
-            if (cacheValue == null) {
+            if (cacheValue != null) {
+                cache.hitsMetric.inc();
+            } else if (!cache.admissionPolicy.admit(cacheKey, context.reader())) {
+                // not used often enough (or the segment is too small) to be worth caching, execute it as is, without
+                // building a bitset out of it. We still use the live docs so the result is the same as when cached
+                cache.rejectionsMetric.inc();
+                return filter.getDocIdSet(context, context.reader().getLiveDocs());
+            } else {
+                cache.admissionsMetric.inc();
                 if (!cache.seenReaders.containsKey(context.reader().getCoreCacheKey())) {
                     Boolean previous = cache.seenReaders.putIfAbsent(context.reader().getCoreCacheKey(), Boolean.TRUE);
                     if (previous == null && (context.reader() instanceof SegmentReader)) {
@@ -162,7 +196,12 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
 
                 // we can't pass down acceptedDocs provided, because we are caching the result, and acceptedDocs
                 // might be specific to a query AST, we do pass down the live docs to make sure we optimize the execution
-                cacheValue = DocIdSets.toCacheable(context.reader(), filter.getDocIdSet(context, context.reader().getLiveDocs()));
+                DocIdSet docIdSet = filter.getDocIdSet(context, context.reader().getLiveDocs());
+                if (cache.compress && !(filter instanceof FixedBitSetFilter)) {
+                    cacheValue = DocIdSets.toCompressedCacheable(context.reader(), docIdSet);
+                } else {
+                    cacheValue = DocIdSets.toCacheable(context.reader(), docIdSet);
+                }
                 // we might put the same one concurrently, that's fine, it will be replaced and the removal
                 // will be called
                 cache.totalMetric.inc(sizeInBytes(cacheValue));
@@ -215,6 +254,9 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
         if (set instanceof FixedBitSet) {
             return ((FixedBitSet) set).getBits().length * 8 + 16;
         }
+        if (set instanceof RoaringDocIdSet) {
+            return ((RoaringDocIdSet) set).ramBytesUsed();
+        }
         // only for empty ones
         return 1;
     }
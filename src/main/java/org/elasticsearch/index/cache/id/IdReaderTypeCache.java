@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.cache.id;
 
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.bytes.HashedBytesArray;
 
 /**
@@ -44,6 +45,56 @@ public interface IdReaderTypeCache {
      */
     HashedBytesArray idByDoc(int docId);
 
+    /**
+     * The ids of a type within a segment (both its _uid values and the _parent values pointing to it) are stored
+     * in a sorted dictionary, identified by ordinals starting at 1, 0 being used for docs that don't have an id.
+     *
+     * @return The number of ordinals, including the missing (0) one
+     */
+    int numOrds();
+
+    /**
+     * @param docId The lucene docId of the document to return the _uid ordinal for
+     * @return The ordinal of the _uid of the specified docId, 0 if it has none
+     */
+    int ordByDoc(int docId);
+
+    /**
+     * @param docId The Lucene docId of the child document to return the parent _uid ordinal for
+     * @return The ordinal of the parent _uid of the specified docId, 0 if it has none
+     */
+    int parentOrdByDoc(int docId);
+
+    /**
+     * @param uid The uid to look up in the dictionary of this segment
+     * @return The ordinal of the uid, 0 if it does not exist within this segment
+     */
+    int ordById(BytesRef uid);
+
+    /**
+     * Looks up a uid among the ordinals starting at <tt>fromOrd</tt>. Since the dictionary is sorted, this allows
+     * to look up ids in ascending order by moving forward from the last ordinal found.
+     *
+     * @param uid     The uid to look up in the dictionary of this segment
+     * @param fromOrd The ordinal to start the lookup from, at least 1
+     * @return The ordinal of the uid if found, otherwise <tt>-(the first ordinal having a greater uid)</tt>, which
+     *         is <tt>-numOrds()</tt> if there is no such ordinal
+     */
+    int seekOrd(BytesRef uid, int fromOrd);
+
+    /**
+     * @param ord The ordinal of the uid
+     * @return The lucene docId of the document having this uid, -1 if the uid only exists as a parent value
+     */
+    int docByOrd(int ord);
+
+    /**
+     * @param ord   The ordinal of the uid
+     * @param spare A ref that can be filled to return the value
+     * @return The uid for the specified ordinal
+     */
+    BytesRef idByOrd(int ord, BytesRef spare);
+
     /**
      * @return The size in bytes for this particular instance
      */
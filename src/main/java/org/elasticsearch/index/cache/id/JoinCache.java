@@ -0,0 +1,70 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.id;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.ElasticSearchException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Caches the result of parent/child joins (computed on top of the {@link IdCache}) per top level reader, so
+ * that repeated identical has_child / has_parent filters don't need to run their inner query again until the
+ * reader is refreshed. Entries go away together with their reader.
+ */
+public class JoinCache {
+
+    private final Cache<IndexReader, Cache<Object, Object>> cache = CacheBuilder.newBuilder().weakKeys().build();
+
+    private final int maxEntriesPerReader;
+
+    public JoinCache(int maxEntriesPerReader) {
+        this.maxEntriesPerReader = maxEntriesPerReader;
+    }
+
+    /**
+     * Returns the join result cached for the provided top level reader and key, computing it with the
+     * provided loader if missing. The key must not hold on any per request state.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(IndexReader topReader, Object key, Callable<T> loader) throws Exception {
+        try {
+            Cache<Object, Object> readerCache = cache.get(topReader, new Callable<Cache<Object, Object>>() {
+                @Override
+                public Cache<Object, Object> call() throws Exception {
+                    return CacheBuilder.newBuilder().maximumSize(maxEntriesPerReader).build();
+                }
+            });
+            return (T) readerCache.get(key, (Callable<Object>) loader);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw new ElasticSearchException("failed to compute join", e.getCause());
+        }
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
@@ -19,15 +19,17 @@
 
 package org.elasticsearch.index.cache.id.simple;
 
-import gnu.trove.impl.Constants;
 import org.apache.lucene.index.*;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PagedBytes;
+import org.apache.lucene.util.packed.GrowableWriter;
+import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.ElasticSearchException;
-import org.elasticsearch.common.bytes.HashedBytesArray;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.common.trove.ExtTObjectIntHasMap;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
@@ -38,22 +40,28 @@ import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
 import org.elasticsearch.index.mapper.internal.UidFieldMapper;
 import org.elasticsearch.index.settings.IndexSettings;
 
-import java.util.*;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 
 /**
- *
+ * An id cache storing, per segment and type, the ids in a sorted dictionary shared by the _uid and _parent
+ * values, with docs pointing to it using packed ordinals.
  */
 public class SimpleIdCache extends AbstractIndexComponent implements IdCache, SegmentReader.CoreClosedListener {
 
     private final ConcurrentMap<Object, SimpleIdReaderCache> idReaders;
-    private final boolean reuse;
+
+    private final float acceptableOverheadRatio;
 
     @Inject
     public SimpleIdCache(Index index, @IndexSettings Settings indexSettings) {
         super(index, indexSettings);
         idReaders = ConcurrentCollections.newConcurrentMap();
-        this.reuse = componentSettings.getAsBoolean("reuse", false);
+        this.acceptableOverheadRatio = componentSettings.getAsFloat("acceptable_overhead_ratio", PackedInts.DEFAULT);
     }
 
     @Override
@@ -87,7 +95,6 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
         return (Iterator<IdReaderCache>) idReaders.values();
     }
 
-    @SuppressWarnings({"StringEquality"})
     @Override
     public void refresh(List<AtomicReaderContext> atomicReaderContexts) throws Exception {
         // do a quick check for the common case, that all are there
@@ -97,10 +104,6 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
                     return;
                 }
 
-                // do the refresh
-                Map<Object, Map<String, TypeBuilder>> builders = new HashMap<Object, Map<String, TypeBuilder>>();
-
-                // first, go over and load all the id->doc map for all types
                 for (AtomicReaderContext context : atomicReaderContexts) {
                     AtomicReader reader = context.reader();
                     if (idReaders.containsKey(reader.getCoreCacheKey())) {
@@ -111,91 +114,78 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
                     if (reader instanceof SegmentReader) {
                         ((SegmentReader) reader).addCoreClosedListener(this);
                     }
-                    Map<String, TypeBuilder> readerBuilder = new HashMap<String, TypeBuilder>();
-                    builders.put(reader.getCoreCacheKey(), readerBuilder);
-
-
-                    Terms terms = reader.terms(UidFieldMapper.NAME);
-                    if (terms != null) {
-                        TermsEnum termsEnum = terms.iterator(null);
-                        DocsEnum docsEnum = null;
-                        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
-                            HashedBytesArray[] typeAndId = Uid.splitUidIntoTypeAndId(term);
-                            TypeBuilder typeBuilder = readerBuilder.get(typeAndId[0].toUtf8());
-                            if (typeBuilder == null) {
-                                typeBuilder = new TypeBuilder(reader);
-                                readerBuilder.put(typeAndId[0].toUtf8(), typeBuilder);
-                            }
-
-                            HashedBytesArray idAsBytes = checkIfCanReuse(builders, typeAndId[1]);
-                            docsEnum = termsEnum.docs(reader.getLiveDocs(), docsEnum, 0);
-                            for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
-                                typeBuilder.idToDoc.put(idAsBytes, docId);
-                                typeBuilder.docToId[docId] = idAsBytes;
-                            }
-                        }
-                    }
+                    SimpleIdReaderCache readerCache = load(reader);
+                    idReaders.put(readerCache.readerCacheKey(), readerCache);
                 }
+            }
+        }
+    }
 
-                // now, go and load the docId->parentId map
-
-                for (AtomicReaderContext context : atomicReaderContexts) {
-                    AtomicReader reader = context.reader();
-                    if (idReaders.containsKey(reader.getCoreCacheKey())) {
-                        // no need, continue
-                        continue;
-                    }
-
-                    Map<String, TypeBuilder> readerBuilder = builders.get(reader.getCoreCacheKey());
-
-                    Terms terms = reader.terms(ParentFieldMapper.NAME);
-                    if (terms != null) {
-                        TermsEnum termsEnum = terms.iterator(null);
-                        DocsEnum docsEnum = null;
-                        for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
-                            HashedBytesArray[] typeAndId = Uid.splitUidIntoTypeAndId(term);
-
-                            TypeBuilder typeBuilder = readerBuilder.get(typeAndId[0].toUtf8());
-                            if (typeBuilder == null) {
-                                typeBuilder = new TypeBuilder(reader);
-                                readerBuilder.put(typeAndId[0].toUtf8(), typeBuilder);
-                            }
-
-                            HashedBytesArray idAsBytes = checkIfCanReuse(builders, typeAndId[1]);
-                            boolean added = false; // optimize for when all the docs are deleted for this id
-
-                            docsEnum = termsEnum.docs(reader.getLiveDocs(), docsEnum, 0);
-                            for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
-                                if (!added) {
-                                    typeBuilder.parentIdsValues.add(idAsBytes);
-                                    added = true;
-                                }
-                                typeBuilder.parentIdsOrdinals[docId] = typeBuilder.t;
-                            }
-
-                            if (added) {
-                                typeBuilder.t++;
-                            }
-                        }
+    /**
+     * Loads the ids of a segment. The _uid and _parent terms are both of the form <tt>type#id</tt>, so merging
+     * the two sorted terms enums visits each type as a contiguous range, and the ids of a type in order. Each
+     * distinct id (with live docs) gets the next ordinal of its type.
+     */
+    private SimpleIdReaderCache load(AtomicReader reader) throws IOException {
+        Map<String, TypeBuilder> builders = new HashMap<String, TypeBuilder>();
+        Bits liveDocs = reader.getLiveDocs();
+        TermsEnum uidTermsEnum = termsEnum(reader, UidFieldMapper.NAME);
+        TermsEnum parentTermsEnum = termsEnum(reader, ParentFieldMapper.NAME);
+        BytesRef uidTerm = uidTermsEnum == null ? null : uidTermsEnum.next();
+        BytesRef parentTerm = parentTermsEnum == null ? null : parentTermsEnum.next();
+
+        DocsEnum docsEnum = null;
+        TypeBuilder typeBuilder = null;
+        BytesRef id = new BytesRef();
+        while (uidTerm != null || parentTerm != null) {
+            int cmp = uidTerm == null ? 1 : (parentTerm == null ? -1 : uidTerm.compareTo(parentTerm));
+            BytesRef term = cmp <= 0 ? uidTerm : parentTerm;
+            int delimiter = delimiterIndex(term);
+            if (typeBuilder == null || !typeBuilder.isType(term, delimiter)) {
+                String type = new BytesRef(term.bytes, term.offset, delimiter - term.offset).utf8ToString();
+                typeBuilder = builders.get(type);
+                if (typeBuilder == null) {
+                    typeBuilder = new TypeBuilder(type, reader.maxDoc(), acceptableOverheadRatio);
+                    builders.put(type, typeBuilder);
+                }
+            }
+            id.bytes = term.bytes;
+            id.offset = delimiter + 1;
+            id.length = term.offset + term.length - id.offset;
+
+            int ord = 0; // only assigned once we see a live doc for this id
+            if (cmp <= 0) {
+                docsEnum = uidTermsEnum.docs(liveDocs, docsEnum, DocsEnum.FLAG_NONE);
+                for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                    if (ord == 0) {
+                        ord = typeBuilder.addId(id);
                     }
+                    typeBuilder.addDoc(docId, ord);
                 }
-
-
-                // now, build it back
-                for (Map.Entry<Object, Map<String, TypeBuilder>> entry : builders.entrySet()) {
-                    MapBuilder<String, SimpleIdReaderTypeCache> types = MapBuilder.newMapBuilder();
-                    for (Map.Entry<String, TypeBuilder> typeBuilderEntry : entry.getValue().entrySet()) {
-                        types.put(typeBuilderEntry.getKey(), new SimpleIdReaderTypeCache(typeBuilderEntry.getKey(),
-                                typeBuilderEntry.getValue().idToDoc,
-                                typeBuilderEntry.getValue().docToId,
-                                typeBuilderEntry.getValue().parentIdsValues.toArray(new HashedBytesArray[typeBuilderEntry.getValue().parentIdsValues.size()]),
-                                typeBuilderEntry.getValue().parentIdsOrdinals));
+            }
+            if (cmp >= 0) {
+                docsEnum = parentTermsEnum.docs(liveDocs, docsEnum, DocsEnum.FLAG_NONE);
+                for (int docId = docsEnum.nextDoc(); docId != DocsEnum.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                    if (ord == 0) {
+                        ord = typeBuilder.addId(id);
                     }
-                    SimpleIdReaderCache readerCache = new SimpleIdReaderCache(entry.getKey(), types.immutableMap());
-                    idReaders.put(readerCache.readerCacheKey(), readerCache);
+                    typeBuilder.addParent(docId, ord);
                 }
             }
+            // move the enums only now, as doing so invalidates their current term
+            if (cmp <= 0) {
+                uidTerm = uidTermsEnum.next();
+            }
+            if (cmp >= 0) {
+                parentTerm = parentTermsEnum.next();
+            }
         }
+
+        MapBuilder<String, SimpleIdReaderTypeCache> types = MapBuilder.newMapBuilder();
+        for (Map.Entry<String, TypeBuilder> entry : builders.entrySet()) {
+            types.put(entry.getKey(), entry.getValue().build());
+        }
+        return new SimpleIdReaderCache(reader.getCoreCacheKey(), types.immutableMap());
     }
 
     public long sizeInBytes() {
@@ -206,29 +196,6 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
         return sizeInBytes;
     }
 
-    private HashedBytesArray checkIfCanReuse(Map<Object, Map<String, TypeBuilder>> builders, HashedBytesArray idAsBytes) {
-        HashedBytesArray finalIdAsBytes;
-        // go over and see if we can reuse this id
-        if (reuse) {
-            for (SimpleIdReaderCache idReaderCache : idReaders.values()) {
-                finalIdAsBytes = idReaderCache.canReuse(idAsBytes);
-                if (finalIdAsBytes != null) {
-                    return finalIdAsBytes;
-                }
-            }
-        }
-        // even if we don't enable reuse, at least check on the current "live" builders that we are handling
-        for (Map<String, TypeBuilder> map : builders.values()) {
-            for (TypeBuilder typeBuilder : map.values()) {
-                finalIdAsBytes = typeBuilder.canReuse(idAsBytes);
-                if (finalIdAsBytes != null) {
-                    return finalIdAsBytes;
-                }
-            }
-        }
-        return idAsBytes;
-    }
-
     private boolean refreshNeeded(List<AtomicReaderContext> atomicReaderContexts) {
         for (AtomicReaderContext atomicReaderContext : atomicReaderContexts) {
             if (!idReaders.containsKey(atomicReaderContext.reader().getCoreCacheKey())) {
@@ -238,25 +205,90 @@ public class SimpleIdCache extends AbstractIndexComponent implements IdCache, Se
         return false;
     }
 
+    private static TermsEnum termsEnum(AtomicReader reader, String field) throws IOException {
+        Terms terms = reader.terms(field);
+        return terms == null ? null : terms.iterator(null);
+    }
+
+    private static int delimiterIndex(BytesRef term) {
+        for (int i = term.offset; i < term.offset + term.length; i++) {
+            if (term.bytes[i] == Uid.DELIMITER_BYTE) {
+                return i;
+            }
+        }
+        throw new ElasticSearchException("Malformed uid [" + term.utf8ToString() + "], no type delimiter");
+    }
+
     static class TypeBuilder {
-        final ExtTObjectIntHasMap<HashedBytesArray> idToDoc = new ExtTObjectIntHasMap<HashedBytesArray>(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, -1);
-        final HashedBytesArray[] docToId;
-        final ArrayList<HashedBytesArray> parentIdsValues = new ArrayList<HashedBytesArray>();
-        final int[] parentIdsOrdinals;
-        int t = 1;  // current term number (0 indicated null value)
-
-        TypeBuilder(IndexReader reader) {
-            parentIdsOrdinals = new int[reader.maxDoc()];
+        final String type;
+        final BytesRef typeAsBytes;
+        final int maxDoc;
+        final float acceptableOverheadRatio;
+
+        final PagedBytes ids = new PagedBytes(15);
+        GrowableWriter ordToOffset;
+        GrowableWriter ordToDoc;
+        // created lazily, some types only have parents, some only have children
+        GrowableWriter docToOrd;
+        GrowableWriter docToParentOrd;
+        int numOrds = 1; // 0 is reserved for docs without an id
+
+        TypeBuilder(String type, int maxDoc, float acceptableOverheadRatio) {
+            this.type = type;
+            this.typeAsBytes = new BytesRef(type);
+            this.maxDoc = maxDoc;
+            this.acceptableOverheadRatio = acceptableOverheadRatio;
+            this.ordToOffset = new GrowableWriter(1, 16, acceptableOverheadRatio);
+            this.ordToDoc = new GrowableWriter(1, 16, acceptableOverheadRatio);
             // the first one indicates null value
-            parentIdsValues.add(null);
-            docToId = new HashedBytesArray[reader.maxDoc()];
+            ordToOffset.set(0, ids.copyUsingLengthPrefix(new BytesRef()));
+        }
+
+        boolean isType(BytesRef term, int delimiter) {
+            if (delimiter - term.offset != typeAsBytes.length) {
+                return false;
+            }
+            for (int i = 0; i < typeAsBytes.length; i++) {
+                if (term.bytes[term.offset + i] != typeAsBytes.bytes[typeAsBytes.offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        int addId(BytesRef id) {
+            int ord = numOrds++;
+            if (ord == ordToOffset.size()) {
+                int newSize = ArrayUtil.oversize(ord + 1, 1);
+                ordToOffset = ordToOffset.resize(newSize);
+                ordToDoc = ordToDoc.resize(newSize);
+            }
+            ordToOffset.set(ord, ids.copyUsingLengthPrefix(id));
+            return ord;
+        }
+
+        void addDoc(int docId, int ord) {
+            if (docToOrd == null) {
+                docToOrd = new GrowableWriter(1, maxDoc, acceptableOverheadRatio);
+            }
+            docToOrd.set(docId, ord);
+            // nested docs share the _uid of their root doc, which comes last and wins
+            ordToDoc.set(ord, docId + 1);
+        }
+
+        void addParent(int docId, int ord) {
+            if (docToParentOrd == null) {
+                docToParentOrd = new GrowableWriter(1, maxDoc, acceptableOverheadRatio);
+            }
+            docToParentOrd.set(docId, ord);
         }
 
-        /**
-         * Returns an already stored instance if exists, if not, returns null;
-         */
-        public HashedBytesArray canReuse(HashedBytesArray id) {
-            return idToDoc.key(id);
+        SimpleIdReaderTypeCache build() {
+            return new SimpleIdReaderTypeCache(type, ids.freeze(true),
+                    ordToOffset.resize(numOrds).getMutable(), ordToDoc.resize(numOrds).getMutable(),
+                    docToOrd == null ? null : docToOrd.getMutable(),
+                    docToParentOrd == null ? null : docToParentOrd.getMutable(),
+                    numOrds);
         }
     }
 }
@@ -73,17 +73,4 @@ public class SimpleIdReaderCache implements IdReaderCache {
         }
         return sizeInBytes;
     }
-
-    /**
-     * Returns an already stored instance if exists, if not, returns null;
-     */
-    public HashedBytesArray canReuse(HashedBytesArray id) {
-        for (SimpleIdReaderTypeCache typeCache : types.values()) {
-            HashedBytesArray wrap = typeCache.canReuse(id);
-            if (wrap != null) {
-                return wrap;
-            }
-        }
-        return null;
-    }
 }
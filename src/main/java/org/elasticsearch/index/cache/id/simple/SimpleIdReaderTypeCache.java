@@ -19,37 +19,49 @@
 
 package org.elasticsearch.index.cache.id.simple;
 
-import gnu.trove.impl.hash.TObjectHash;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.PagedBytes;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.common.bytes.HashedBytesArray;
-import org.elasticsearch.common.trove.ExtTObjectIntHasMap;
 import org.elasticsearch.index.cache.id.IdReaderTypeCache;
 
 /**
- *
+ * Stores the ids of a type within a segment in a sorted dictionary of (paged) bytes, shared by the _uid and
+ * _parent values. Docs point to ordinals in this dictionary using packed ints, which allows to join parents and
+ * children of the same segment on ordinals without hashing the ids.
  */
 public class SimpleIdReaderTypeCache implements IdReaderTypeCache {
 
     private final String type;
 
-    private final ExtTObjectIntHasMap<HashedBytesArray> idToDoc;
+    private final PagedBytes.Reader ids;
+
+    private final PackedInts.Reader ordToOffset;
 
-    private final HashedBytesArray[] docIdToId;
+    // doc + 1, so 0 means no (live) doc holds this id
+    private final PackedInts.Reader ordToDoc;
 
-    private final HashedBytesArray[] parentIdsValues;
+    @Nullable
+    private final PackedInts.Reader docToOrd;
 
-    private final int[] parentIdsOrdinals;
+    @Nullable
+    private final PackedInts.Reader docToParentOrd;
+
+    private final int numOrds;
 
     private long sizeInBytes = -1;
 
-    public SimpleIdReaderTypeCache(String type, ExtTObjectIntHasMap<HashedBytesArray> idToDoc, HashedBytesArray[] docIdToId,
-                                   HashedBytesArray[] parentIdsValues, int[] parentIdsOrdinals) {
+    public SimpleIdReaderTypeCache(String type, PagedBytes.Reader ids, PackedInts.Reader ordToOffset, PackedInts.Reader ordToDoc,
+                                   @Nullable PackedInts.Reader docToOrd, @Nullable PackedInts.Reader docToParentOrd, int numOrds) {
         this.type = type;
-        this.idToDoc = idToDoc;
-        this.docIdToId = docIdToId;
-        this.idToDoc.trimToSize();
-        this.parentIdsValues = parentIdsValues;
-        this.parentIdsOrdinals = parentIdsOrdinals;
+        this.ids = ids;
+        this.ordToOffset = ordToOffset;
+        this.ordToDoc = ordToDoc;
+        this.docToOrd = docToOrd;
+        this.docToParentOrd = docToParentOrd;
+        this.numOrds = numOrds;
     }
 
     public String type() {
@@ -57,57 +69,121 @@ public class SimpleIdReaderTypeCache implements IdReaderTypeCache {
     }
 
     public HashedBytesArray parentIdByDoc(int docId) {
-        return parentIdsValues[parentIdsOrdinals[docId]];
+        return toHashedBytesArray(parentOrdByDoc(docId));
     }
 
     public int docById(HashedBytesArray uid) {
-        return idToDoc.get(uid);
+        int ord = ordById(uid.toBytesRef());
+        return ord == 0 ? -1 : docByOrd(ord);
     }
 
     public HashedBytesArray idByDoc(int docId) {
-        return docIdToId[docId];
+        return toHashedBytesArray(ordByDoc(docId));
     }
 
-    public long sizeInBytes() {
-        if (sizeInBytes == -1) {
-            sizeInBytes = computeSizeInBytes();
-        }
-        return sizeInBytes;
+    @Override
+    public int numOrds() {
+        return numOrds;
     }
 
-    /**
-     * Returns an already stored instance if exists, if not, returns null;
-     */
-    public HashedBytesArray canReuse(HashedBytesArray id) {
-        return idToDoc.key(id);
+    @Override
+    public int ordByDoc(int docId) {
+        return docToOrd == null ? 0 : (int) docToOrd.get(docId);
     }
 
-    long computeSizeInBytes() {
-        long sizeInBytes = 0;
-        // Ignore type field
-        //  sizeInBytes += ((type.length() * RamUsage.NUM_BYTES_CHAR) + (3 * RamUsage.NUM_BYTES_INT)) + RamUsage.NUM_BYTES_OBJECT_HEADER;
-        sizeInBytes += RamUsage.NUM_BYTES_ARRAY_HEADER + (idToDoc._valuesSize() * RamUsage.NUM_BYTES_INT);
-        for (Object o : idToDoc._set) {
-            if (o == TObjectHash.FREE || o == TObjectHash.REMOVED) {
-                sizeInBytes += RamUsage.NUM_BYTES_OBJECT_REF;
+    @Override
+    public int parentOrdByDoc(int docId) {
+        return docToParentOrd == null ? 0 : (int) docToParentOrd.get(docId);
+    }
+
+    @Override
+    public int ordById(BytesRef uid) {
+        BytesRef spare = new BytesRef();
+        int low = 1;
+        int high = numOrds - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = idByOrd(mid, spare).compareTo(uid);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
             } else {
-                HashedBytesArray bytesArray = (HashedBytesArray) o;
-                sizeInBytes += RamUsage.NUM_BYTES_OBJECT_HEADER + (bytesArray.length() + RamUsage.NUM_BYTES_INT);
+                return mid;
             }
         }
+        return 0;
+    }
 
-        // The docIdToId array contains references to idToDoc for this segment or other segments, so we can use OBJECT_REF
-        sizeInBytes += RamUsage.NUM_BYTES_ARRAY_HEADER + (RamUsage.NUM_BYTES_OBJECT_REF * docIdToId.length);
-        for (HashedBytesArray bytesArray : parentIdsValues) {
-            if (bytesArray == null) {
-                sizeInBytes += RamUsage.NUM_BYTES_OBJECT_REF;
+    @Override
+    public int seekOrd(BytesRef uid, int fromOrd) {
+        BytesRef spare = new BytesRef();
+        // gallop forward to find the range holding the uid, then binary search it
+        int low = fromOrd;
+        int high = fromOrd;
+        int step = 1;
+        while (high < numOrds) {
+            int cmp = idByOrd(high, spare).compareTo(uid);
+            if (cmp == 0) {
+                return high;
+            } else if (cmp > 0) {
+                break;
+            }
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, numOrds) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = idByOrd(mid, spare).compareTo(uid);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
             } else {
-                sizeInBytes += RamUsage.NUM_BYTES_OBJECT_HEADER + (bytesArray.length() + RamUsage.NUM_BYTES_INT);
+                return mid;
             }
         }
-        sizeInBytes += RamUsage.NUM_BYTES_ARRAY_HEADER + (RamUsage.NUM_BYTES_INT * parentIdsOrdinals.length);
+        return -low;
+    }
+
+    @Override
+    public int docByOrd(int ord) {
+        return (int) ordToDoc.get(ord) - 1;
+    }
+
+    @Override
+    public BytesRef idByOrd(int ord, BytesRef spare) {
+        return ids.fill(spare, ordToOffset.get(ord));
+    }
 
+    public long sizeInBytes() {
+        if (sizeInBytes == -1) {
+            sizeInBytes = computeSizeInBytes();
+        }
         return sizeInBytes;
     }
 
+    private HashedBytesArray toHashedBytesArray(int ord) {
+        if (ord == 0) {
+            return null;
+        }
+        return new HashedBytesArray(BytesRef.deepCopyOf(idByOrd(ord, new BytesRef())).bytes);
+    }
+
+    long computeSizeInBytes() {
+        long sizeInBytes = RamUsage.NUM_BYTES_ARRAY_HEADER + ids.getBlocks().length * RamUsage.NUM_BYTES_OBJECT_REF;
+        for (byte[] block : ids.getBlocks()) {
+            sizeInBytes += RamUsage.NUM_BYTES_ARRAY_HEADER + block.length;
+        }
+        sizeInBytes += ordToOffset.ramBytesUsed() + ordToDoc.ramBytesUsed();
+        if (docToOrd != null) {
+            sizeInBytes += docToOrd.ramBytesUsed();
+        }
+        if (docToParentOrd != null) {
+            sizeInBytes += docToParentOrd.ramBytesUsed();
+        }
+        return sizeInBytes;
+    }
 }
@@ -0,0 +1,105 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.io.IOException;
+
+/**
+ * Estimates the memory a field data load will take for a segment before actually loading it, based on the
+ * statistics of the terms dictionary (number of terms, sum of doc freqs and max doc). The estimate is used
+ * by the field data circuit breaker, and is later corrected with the actual loaded size.
+ */
+public class FieldDataSizeEstimator {
+
+    /**
+     * The number of terms sampled to estimate the average term length of string fields.
+     */
+    static final int TERM_SAMPLE_SIZE = 1000;
+
+    public static long estimate(AtomicReader reader, String field, FieldDataType fieldDataType) throws IOException {
+        if (fieldDataType.hasDocValues() && reader.docValues(field) != null) {
+            // read from disk, only the docs with a value are loaded on the heap
+            return reader.maxDoc() / 8;
+        }
+        Terms terms = reader.terms(field);
+        if (terms == null) {
+            return 0;
+        }
+        final int maxDoc = reader.maxDoc();
+        long numTerms = terms.size();
+        long sumDocFreq = terms.getSumDocFreq();
+        if (numTerms == -1) {
+            numTerms = sumDocFreq == -1 ? maxDoc : sumDocFreq;
+        }
+
+        // ordinals: a single int per doc for single valued fields, an int per doc/term pair otherwise
+        long ordinalsSize;
+        if (sumDocFreq == -1 || sumDocFreq <= maxDoc) {
+            ordinalsSize = (long) maxDoc * RamUsageEstimator.NUM_BYTES_INT;
+        } else {
+            ordinalsSize = (long) maxDoc * RamUsageEstimator.NUM_BYTES_INT + sumDocFreq * RamUsageEstimator.NUM_BYTES_INT;
+        }
+
+        int bytesPerValue = bytesPerValue(fieldDataType.getType());
+        if (bytesPerValue != -1) {
+            // numeric terms include the lower precision terms, so this tends to over estimate, which is fine
+            return ordinalsSize + Math.min(numTerms, sumDocFreq == -1 ? numTerms : sumDocFreq) * bytesPerValue;
+        }
+
+        // string based field data, sample the length of the first terms and extrapolate
+        TermsEnum termsEnum = terms.iterator(null);
+        long sampledBytes = 0;
+        int sampled = 0;
+        for (BytesRef term = termsEnum.next(); term != null && sampled < TERM_SAMPLE_SIZE; term = termsEnum.next()) {
+            sampledBytes += term.length;
+            sampled++;
+        }
+        if (sampled == 0) {
+            return ordinalsSize;
+        }
+        long avgTermLength = (sampledBytes + sampled - 1) / sampled;
+        // the term bytes, their start offset and the ordinal to term mapping
+        return ordinalsSize + numTerms * (avgTermLength + RamUsageEstimator.NUM_BYTES_LONG + RamUsageEstimator.NUM_BYTES_INT);
+    }
+
+    /**
+     * The number of bytes used per value for numeric field data types, <tt>-1</tt> for non numeric types.
+     */
+    static int bytesPerValue(String type) {
+        if ("byte".equals(type)) {
+            return 1;
+        } else if ("short".equals(type)) {
+            return 2;
+        } else if ("int".equals(type) || "float".equals(type)) {
+            return 4;
+        } else if ("long".equals(type) || "double".equals(type)) {
+            return 8;
+        } else if ("geo_point".equals(type)) {
+            return 16;
+        }
+        return -1;
+    }
+}
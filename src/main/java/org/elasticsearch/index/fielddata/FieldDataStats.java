@@ -16,18 +16,21 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-
 package org.elasticsearch.index.fielddata;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  */
@@ -35,16 +38,57 @@ public class FieldDataStats implements Streamable, ToXContent {
 
     long memorySize;
 
+    long savedMemorySize;
+
+    long evictions;
+
+    long loads;
+
+    long loadTimeInMillis;
+
+    @Nullable
+    Map<String, FieldStats> fields;
+
     public FieldDataStats() {
 
     }
 
     public FieldDataStats(long memorySize) {
+        this(memorySize, 0, 0, 0, 0, null);
+    }
+
+    public FieldDataStats(long memorySize, long savedMemorySize, long evictions, long loads, long loadTimeInMillis, @Nullable Map<String, FieldStats> fields) {
         this.memorySize = memorySize;
+        this.savedMemorySize = savedMemorySize;
+        this.evictions = evictions;
+        this.loads = loads;
+        this.loadTimeInMillis = loadTimeInMillis;
+        this.fields = fields;
     }
 
     public void add(FieldDataStats stats) {
         this.memorySize += stats.memorySize;
+        this.savedMemorySize += stats.savedMemorySize;
+        this.evictions += stats.evictions;
+        this.loads += stats.loads;
+        this.loadTimeInMillis += stats.loadTimeInMillis;
+        if (stats.fields != null) {
+            if (fields == null) {
+                fields = new HashMap<String, FieldStats>();
+            }
+            addAll(fields, stats.fields);
+        }
+    }
+
+    static void addAll(Map<String, FieldStats> to, Map<String, FieldStats> from) {
+        for (Map.Entry<String, FieldStats> entry : from.entrySet()) {
+            FieldStats fieldStats = to.get(entry.getKey());
+            if (fieldStats == null) {
+                fieldStats = new FieldStats();
+                to.put(entry.getKey(), fieldStats);
+            }
+            fieldStats.add(entry.getValue());
+        }
     }
 
     public long getMemorySizeInBytes() {
@@ -55,34 +99,274 @@ public class FieldDataStats implements Streamable, ToXContent {
         return new ByteSizeValue(memorySize);
     }
 
+    /**
+     * The memory saved by field data stored compressed (like the <tt>packed</tt> long format), compared
+     * to the plain array format. Not included in the memory size.
+     */
+    public long getSavedMemorySizeInBytes() {
+        return this.savedMemorySize;
+    }
+
+    public ByteSizeValue getSavedMemorySize() {
+        return new ByteSizeValue(savedMemorySize);
+    }
+
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * The number of times field data was loaded for a segment.
+     */
+    public long getLoads() {
+        return this.loads;
+    }
+
+    public long getLoadTimeInMillis() {
+        return this.loadTimeInMillis;
+    }
+
+    public TimeValue getLoadTime() {
+        return new TimeValue(loadTimeInMillis);
+    }
+
+    /**
+     * The stats broken down per field, <tt>null</tt> if not available.
+     */
+    @Nullable
+    public Map<String, FieldStats> getFields() {
+        return this.fields;
+    }
+
     public static FieldDataStats readFieldDataStats(StreamInput in) throws IOException {
         FieldDataStats stats = new FieldDataStats();
         stats.readFrom(in);
         return stats;
     }
 
+    static Map<String, FieldStats> readStatsMap(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        Map<String, FieldStats> map = new HashMap<String, FieldStats>(size);
+        for (int i = 0; i < size; i++) {
+            String key = in.readString();
+            FieldStats fieldStats = new FieldStats();
+            fieldStats.readFrom(in);
+            map.put(key, fieldStats);
+        }
+        return map;
+    }
+
+    static void writeStatsMap(StreamOutput out, Map<String, FieldStats> map) throws IOException {
+        out.writeVInt(map.size());
+        for (Map.Entry<String, FieldStats> entry : map.entrySet()) {
+            out.writeString(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         memorySize = in.readVLong();
+        savedMemorySize = in.readVLong();
+        evictions = in.readVLong();
+        loads = in.readVLong();
+        loadTimeInMillis = in.readVLong();
+        if (in.readBoolean()) {
+            fields = readStatsMap(in);
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(memorySize);
+        out.writeVLong(savedMemorySize);
+        out.writeVLong(evictions);
+        out.writeVLong(loads);
+        out.writeVLong(loadTimeInMillis);
+        if (fields == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            writeStatsMap(out, fields);
+        }
+    }
+
+    static void statsMapToXContent(XContentBuilder builder, Params params, XContentBuilderString name, Map<String, FieldStats> map) throws IOException {
+        builder.startObject(name);
+        for (Map.Entry<String, FieldStats> entry : map.entrySet()) {
+            builder.startObject(entry.getKey(), XContentBuilder.FieldCaseConversion.NONE);
+            entry.getValue().toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endObject();
     }
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.FIELD_DATA);
-        builder.field(Fields.MEMORY_SIZE, memorySize);
-        builder.field(Fields.MEMORY_SIZE_IN_BYTES, getMemorySize().toString());
+        builder.field(Fields.MEMORY_SIZE, getMemorySize().toString());
+        builder.field(Fields.MEMORY_SIZE_IN_BYTES, memorySize);
+        if (savedMemorySize > 0) {
+            builder.field(Fields.SAVED_MEMORY_SIZE, getSavedMemorySize().toString());
+            builder.field(Fields.SAVED_MEMORY_SIZE_IN_BYTES, savedMemorySize);
+        }
+        builder.field(Fields.EVICTIONS, evictions);
+        builder.field(Fields.LOADS, loads);
+        builder.field(Fields.LOAD_TIME, getLoadTime().toString());
+        builder.field(Fields.LOAD_TIME_IN_MILLIS, loadTimeInMillis);
+        if (fields != null) {
+            statsMapToXContent(builder, params, Fields.FIELDS, fields);
+        }
         builder.endObject();
         return builder;
     }
 
+    /**
+     * The field data stats of a single field, or of a single field in a single segment.
+     */
+    public static class FieldStats implements Streamable, ToXContent {
+
+        long memorySize;
+
+        long savedMemorySize;
+
+        long evictions;
+
+        long loads;
+
+        long loadTimeInMillis;
+
+        @Nullable
+        Map<String, FieldStats> segments;
+
+        public FieldStats() {
+        }
+
+        public FieldStats(long memorySize, long evictions) {
+            this(memorySize, 0, evictions, 0, 0, null);
+        }
+
+        public FieldStats(long memorySize, long savedMemorySize, long evictions, long loads, long loadTimeInMillis, @Nullable Map<String, FieldStats> segments) {
+            this.memorySize = memorySize;
+            this.savedMemorySize = savedMemorySize;
+            this.evictions = evictions;
+            this.loads = loads;
+            this.loadTimeInMillis = loadTimeInMillis;
+            this.segments = segments;
+        }
+
+        public void add(FieldStats stats) {
+            this.memorySize += stats.memorySize;
+            this.savedMemorySize += stats.savedMemorySize;
+            this.evictions += stats.evictions;
+            this.loads += stats.loads;
+            this.loadTimeInMillis += stats.loadTimeInMillis;
+            if (stats.segments != null) {
+                if (segments == null) {
+                    segments = new HashMap<String, FieldStats>();
+                }
+                addAll(segments, stats.segments);
+            }
+        }
+
+        public long getMemorySizeInBytes() {
+            return this.memorySize;
+        }
+
+        public ByteSizeValue getMemorySize() {
+            return new ByteSizeValue(memorySize);
+        }
+
+        public long getSavedMemorySizeInBytes() {
+            return this.savedMemorySize;
+        }
+
+        public ByteSizeValue getSavedMemorySize() {
+            return new ByteSizeValue(savedMemorySize);
+        }
+
+        public long getEvictions() {
+            return this.evictions;
+        }
+
+        public long getLoads() {
+            return this.loads;
+        }
+
+        public long getLoadTimeInMillis() {
+            return this.loadTimeInMillis;
+        }
+
+        public TimeValue getLoadTime() {
+            return new TimeValue(loadTimeInMillis);
+        }
+
+        /**
+         * The stats of the field broken down per segment (keyed by <tt>shard_id/segment_name</tt>),
+         * <tt>null</tt> if not requested.
+         */
+        @Nullable
+        public Map<String, FieldStats> getSegments() {
+            return this.segments;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            memorySize = in.readVLong();
+            savedMemorySize = in.readVLong();
+            evictions = in.readVLong();
+            loads = in.readVLong();
+            loadTimeInMillis = in.readVLong();
+            if (in.readBoolean()) {
+                segments = readStatsMap(in);
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(memorySize);
+            out.writeVLong(savedMemorySize);
+            out.writeVLong(evictions);
+            out.writeVLong(loads);
+            out.writeVLong(loadTimeInMillis);
+            if (segments == null) {
+                out.writeBoolean(false);
+            } else {
+                out.writeBoolean(true);
+                writeStatsMap(out, segments);
+            }
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field(Fields.MEMORY_SIZE, getMemorySize().toString());
+            builder.field(Fields.MEMORY_SIZE_IN_BYTES, memorySize);
+            if (savedMemorySize > 0) {
+                builder.field(Fields.SAVED_MEMORY_SIZE, getSavedMemorySize().toString());
+                builder.field(Fields.SAVED_MEMORY_SIZE_IN_BYTES, savedMemorySize);
+            }
+            builder.field(Fields.EVICTIONS, evictions);
+            builder.field(Fields.LOADS, loads);
+            builder.field(Fields.LOAD_TIME, getLoadTime().toString());
+            builder.field(Fields.LOAD_TIME_IN_MILLIS, loadTimeInMillis);
+            if (segments != null) {
+                statsMapToXContent(builder, params, Fields.SEGMENTS, segments);
+            }
+            return builder;
+        }
+    }
+
     static final class Fields {
         static final XContentBuilderString FIELD_DATA = new XContentBuilderString("field_data");
         static final XContentBuilderString MEMORY_SIZE = new XContentBuilderString("memory_size");
         static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
+        static final XContentBuilderString SAVED_MEMORY_SIZE = new XContentBuilderString("saved_memory_size");
+        static final XContentBuilderString SAVED_MEMORY_SIZE_IN_BYTES = new XContentBuilderString("saved_memory_size_in_bytes");
+        static final XContentBuilderString EVICTIONS = new XContentBuilderString("evictions");
+        static final XContentBuilderString LOADS = new XContentBuilderString("loads");
+        static final XContentBuilderString LOAD_TIME = new XContentBuilderString("load_time");
+        static final XContentBuilderString LOAD_TIME_IN_MILLIS = new XContentBuilderString("load_time_in_millis");
+        static final XContentBuilderString FIELDS = new XContentBuilderString("fields");
+        static final XContentBuilderString SEGMENTS = new XContentBuilderString("segments");
     }
 }
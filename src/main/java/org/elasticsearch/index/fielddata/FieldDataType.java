@@ -19,6 +19,7 @@
 
 package org.elasticsearch.index.fielddata;
 
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 
@@ -26,6 +27,34 @@ import org.elasticsearch.common.settings.Settings;
  */
 public class FieldDataType {
 
+    /**
+     * The field data format reading the values from doc values written at index time.
+     */
+    public static final String DOC_VALUES_FORMAT = "doc_values";
+
+    /**
+     * When the field data of new segments should be loaded.
+     */
+    public static enum Loading {
+        /**
+         * On first use, typically by the first sort or facet on the field.
+         */
+        LAZY,
+        /**
+         * When the new segments are warmed, before they are exposed to searches.
+         */
+        EAGER;
+
+        public static Loading fromString(String loading) {
+            if ("lazy".equals(loading)) {
+                return LAZY;
+            } else if ("eager".equals(loading)) {
+                return EAGER;
+            }
+            throw new ElasticSearchIllegalArgumentException("No fielddata loading type for [" + loading + "]");
+        }
+    }
+
     private final String type;
     private final Settings settings;
 
@@ -50,6 +79,17 @@ public class FieldDataType {
         return this.settings;
     }
 
+    /**
+     * Is the field data read from doc values, which need to be written at index time?
+     */
+    public boolean hasDocValues() {
+        return DOC_VALUES_FORMAT.equals(settings.get("format"));
+    }
+
+    public Loading getLoading() {
+        return Loading.fromString(settings.get("loading", "lazy"));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -23,14 +23,18 @@ import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
+import org.apache.lucene.index.AtomicReader;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.SegmentReader;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.FieldMapper;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A simple field data cache abstraction.
@@ -47,9 +51,15 @@ public interface IndexFieldDataCache {
 
     interface Listener {
 
-        void onLoad(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicFieldData fieldData);
+        /**
+         * Called once field data was loaded for the segment of the given reader, taking <tt>loadTimeInNanos</tt>.
+         */
+        void onLoad(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicReader reader, AtomicFieldData fieldData, long loadTimeInNanos);
 
-        void onUnload(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, @Nullable AtomicFieldData fieldData);
+        /**
+         * Called once field data was removed from the cache, <tt>readerKey</tt> being the core cache key of the segment it was loaded for.
+         */
+        void onUnload(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Object readerKey, boolean wasEvicted, @Nullable AtomicFieldData fieldData);
     }
 
     /**
@@ -61,19 +71,30 @@ public interface IndexFieldDataCache {
         private final FieldDataType fieldDataType;
         private final Listener listener;
         private final Cache<Object, AtomicFieldData> cache;
+        @Nullable
+        private final MemoryCircuitBreaker breaker;
+        // the bytes accounted in the breaker per cache key, values can be collected before we get to see them
+        private final ConcurrentMap<Object, Long> accountedBytes = ConcurrentCollections.newConcurrentMap();
 
-        protected FieldBased(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener, CacheBuilder cache) {
+        protected FieldBased(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener, @Nullable MemoryCircuitBreaker breaker, CacheBuilder cache) {
             this.index = index;
             this.fieldNames = fieldNames;
             this.fieldDataType = fieldDataType;
             this.listener = listener;
+            this.breaker = breaker;
             cache.removalListener(this);
             this.cache = cache.build();
         }
 
         @Override
         public void onRemoval(RemovalNotification<Object, AtomicFieldData> notification) {
-            listener.onUnload(index, fieldNames, fieldDataType, notification.getValue());
+            listener.onUnload(index, fieldNames, fieldDataType, notification.getKey(), notification.wasEvicted(), notification.getValue());
+            if (breaker != null) {
+                Long bytes = accountedBytes.remove(notification.getKey());
+                if (bytes != null) {
+                    breaker.addWithoutBreaking(-bytes);
+                }
+            }
         }
 
         @Override
@@ -83,18 +104,63 @@ public interface IndexFieldDataCache {
 
         @Override
         public <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(final AtomicReaderContext context, final IFD indexFieldData) throws Exception {
+            final Object key = context.reader().getCoreCacheKey();
+            if (breaker == null) {
+                //noinspection unchecked
+                return (FD) cache.get(key, new Loader(context, indexFieldData, 0));
+            }
+            AtomicFieldData fieldData = cache.getIfPresent(key);
+            if (fieldData != null) {
+                //noinspection unchecked
+                return (FD) fieldData;
+            }
+            // account for the estimate before loading, failing the load if it would go over the limit
+            long estimate = FieldDataSizeEstimator.estimate(context.reader(), fieldNames.indexName(), fieldDataType);
+            breaker.addEstimateBytesAndMaybeBreak(estimate, fieldNames.fullName());
+            Loader loader = new Loader(context, indexFieldData, estimate);
+            try {
+                fieldData = cache.get(key, loader);
+            } finally {
+                if (!loader.loaded) {
+                    // either failed to load, or someone else loaded it concurrently
+                    breaker.addWithoutBreaking(-estimate);
+                }
+            }
             //noinspection unchecked
-            return (FD) cache.get(context.reader().getCoreCacheKey(), new Callable<AtomicFieldData>() {
-                @Override
-                public AtomicFieldData call() throws Exception {
-                    if (context.reader() instanceof SegmentReader) {
-                        ((SegmentReader) context.reader()).addCoreClosedListener(FieldBased.this);
-                    }
-                    AtomicFieldData fieldData = indexFieldData.loadDirect(context);
-                    listener.onLoad(index, fieldNames, fieldDataType, fieldData);
-                    return fieldData;
+            return (FD) fieldData;
+        }
+
+        class Loader implements Callable<AtomicFieldData> {
+            private final AtomicReaderContext context;
+            private final IndexFieldData indexFieldData;
+            private final long estimate;
+            boolean loaded;
+
+            Loader(AtomicReaderContext context, IndexFieldData indexFieldData, long estimate) {
+                this.context = context;
+                this.indexFieldData = indexFieldData;
+                this.estimate = estimate;
+            }
+
+            @Override
+            public AtomicFieldData call() throws Exception {
+                if (context.reader() instanceof SegmentReader) {
+                    ((SegmentReader) context.reader()).addCoreClosedListener(FieldBased.this);
+                }
+                long start = System.nanoTime();
+                AtomicFieldData fieldData = indexFieldData.loadDirect(context);
+                long loadTime = System.nanoTime() - start;
+                listener.onLoad(index, fieldNames, fieldDataType, context.reader(), fieldData, loadTime);
+                if (breaker != null) {
+                    // replace the estimate with the actual size, only once nothing can fail anymore, otherwise
+                    // the entry would never make it into the cache and the bytes would never be released
+                    long actual = fieldData.getMemorySizeInBytes();
+                    breaker.addWithoutBreaking(actual - estimate);
+                    accountedBytes.put(context.reader().getCoreCacheKey(), actual);
+                    loaded = true;
                 }
-            });
+                return fieldData;
+            }
         }
 
         @Override
@@ -115,15 +181,15 @@ public interface IndexFieldDataCache {
 
     static class Resident extends FieldBased {
 
-        public Resident(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener) {
-            super(index, fieldNames, fieldDataType, listener, CacheBuilder.newBuilder());
+        public Resident(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener, @Nullable MemoryCircuitBreaker breaker) {
+            super(index, fieldNames, fieldDataType, listener, breaker, CacheBuilder.newBuilder());
         }
     }
 
     static class Soft extends FieldBased {
 
-        public Soft(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener) {
-            super(index, fieldNames, fieldDataType, listener, CacheBuilder.newBuilder().softValues());
+        public Soft(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Listener listener, @Nullable MemoryCircuitBreaker breaker) {
+            super(index, fieldNames, fieldDataType, listener, breaker, CacheBuilder.newBuilder().softValues());
         }
     }
 }
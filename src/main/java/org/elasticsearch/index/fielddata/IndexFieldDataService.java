@@ -20,9 +20,13 @@
 package org.elasticsearch.index.fielddata;
 
 import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SegmentReader;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.collect.MapBuilder;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.inject.Inject;
@@ -35,8 +39,14 @@ import org.elasticsearch.index.Index;
 import org.elasticsearch.index.fielddata.plain.*;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.fielddata.breaker.IndicesFieldDataBreaker;
+import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  */
@@ -60,13 +70,23 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Ind
         buildersByTypeAndFormat = MapBuilder.<Tuple<String, String>, IndexFieldData.Builder>newMapBuilder()
                 .put(Tuple.tuple("string", "concrete_bytes"), new ConcreteBytesRefIndexFieldData.Builder())
                 .put(Tuple.tuple("string", "paged_bytes"), new PagedBytesIndexFieldData.Builder())
+                .put(Tuple.tuple("string", "fst"), new FSTBytesIndexFieldData.Builder())
                 .put(Tuple.tuple("float", "array"), new FloatArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("double", "array"), new DoubleArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("byte", "array"), new ByteArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("short", "array"), new ShortArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("int", "array"), new IntArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("long", "array"), new LongArrayIndexFieldData.Builder())
+                .put(Tuple.tuple("long", "packed"), new PackedArrayIndexFieldData.Builder())
                 .put(Tuple.tuple("geo_point", "array"), new GeoPointDoubleArrayIndexFieldData.Builder())
+                .put(Tuple.tuple("geo_point", "compressed"), new GeoPointCompressedIndexFieldData.Builder())
+                .put(Tuple.tuple("string", FieldDataType.DOC_VALUES_FORMAT), new DocValuesBytesIndexFieldData.Builder())
+                .put(Tuple.tuple("float", FieldDataType.DOC_VALUES_FORMAT), new DocValuesNumericIndexFieldData.Builder(IndexNumericFieldData.NumericType.FLOAT, new FloatArrayIndexFieldData.Builder()))
+                .put(Tuple.tuple("double", FieldDataType.DOC_VALUES_FORMAT), new DocValuesNumericIndexFieldData.Builder(IndexNumericFieldData.NumericType.DOUBLE, new DoubleArrayIndexFieldData.Builder()))
+                .put(Tuple.tuple("byte", FieldDataType.DOC_VALUES_FORMAT), new DocValuesNumericIndexFieldData.Builder(IndexNumericFieldData.NumericType.BYTE, new ByteArrayIndexFieldData.Builder()))
+                .put(Tuple.tuple("short", FieldDataType.DOC_VALUES_FORMAT), new DocValuesNumericIndexFieldData.Builder(IndexNumericFieldData.NumericType.SHORT, new ShortArrayIndexFieldData.Builder()))
+                .put(Tuple.tuple("int", FieldDataType.DOC_VALUES_FORMAT), new DocValuesNumericIndexFieldData.Builder(IndexNumericFieldData.NumericType.INT, new IntArrayIndexFieldData.Builder()))
+                .put(Tuple.tuple("long", FieldDataType.DOC_VALUES_FORMAT), new DocValuesNumericIndexFieldData.Builder(IndexNumericFieldData.NumericType.LONG, new LongArrayIndexFieldData.Builder()))
                 .immutableMap();
     }
 
@@ -74,13 +94,42 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Ind
 
     private final CounterMetric memoryUsedInBytes = new CounterMetric();
 
+    private final CounterMetric savedMemoryInBytes = new CounterMetric();
+
+    private final CounterMetric evictions = new CounterMetric();
+
+    private final CounterMetric loads = new CounterMetric();
+
+    private final CounterMetric loadTimeInNanos = new CounterMetric();
+
+    private final ConcurrentMap<String, FieldCounters> fieldCounters = ConcurrentCollections.newConcurrentMap();
+
+    // the counters of the segments field data was loaded for, keyed by core cache key, removed once the segment is closed
+    private final ConcurrentMap<Object, SegmentCounters> segmentCounters = ConcurrentCollections.newConcurrentMap();
+
+    private final SegmentReader.CoreClosedListener segmentClosedListener = new SegmentReader.CoreClosedListener() {
+        @Override
+        public void onClose(SegmentReader owner) {
+            segmentCounters.remove(owner.getCoreCacheKey());
+        }
+    };
+
+    @Nullable
+    private final MemoryCircuitBreaker breaker;
+
+    @Nullable
+    private final IndicesFieldDataCache indicesFieldDataCache;
+
     public IndexFieldDataService(Index index) {
-        this(index, ImmutableSettings.Builder.EMPTY_SETTINGS);
+        this(index, ImmutableSettings.Builder.EMPTY_SETTINGS, null, null);
     }
 
     @Inject
-    public IndexFieldDataService(Index index, @IndexSettings Settings indexSettings) {
+    public IndexFieldDataService(Index index, @IndexSettings Settings indexSettings, @Nullable IndicesFieldDataBreaker fieldDataBreaker,
+                                 @Nullable IndicesFieldDataCache indicesFieldDataCache) {
         super(index, indexSettings);
+        this.breaker = fieldDataBreaker == null ? null : fieldDataBreaker.breaker();
+        this.indicesFieldDataCache = indicesFieldDataCache;
     }
 
     public void clear() {
@@ -108,21 +157,153 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Ind
     }
 
     @Override
-    public void onLoad(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicFieldData fieldData) {
+    public void onLoad(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicReader reader, AtomicFieldData fieldData, long loadTimeInNanos) {
         assert index.equals(this.index);
-        memoryUsedInBytes.inc(fieldData.getMemorySizeInBytes());
+        long memorySize = fieldData.getMemorySizeInBytes();
+        long savedMemorySize = savedMemorySize(fieldData);
+        memoryUsedInBytes.inc(memorySize);
+        savedMemoryInBytes.inc(savedMemorySize);
+        loads.inc();
+        this.loadTimeInNanos.inc(loadTimeInNanos);
+        fieldCounters(fieldCounters, fieldNames).onLoad(memorySize, savedMemorySize, loadTimeInNanos);
+        if (reader instanceof SegmentReader) {
+            fieldCounters(segmentCounters((SegmentReader) reader).fields, fieldNames).onLoad(memorySize, savedMemorySize, loadTimeInNanos);
+        }
     }
 
     @Override
-    public void onUnload(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, @Nullable AtomicFieldData fieldData) {
+    public void onUnload(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Object readerKey, boolean wasEvicted, @Nullable AtomicFieldData fieldData) {
         assert index.equals(this.index);
-        if (fieldData != null) {
-            memoryUsedInBytes.dec(fieldData.getMemorySizeInBytes());
+        long memorySize = fieldData == null ? 0 : fieldData.getMemorySizeInBytes();
+        long savedMemorySize = fieldData == null ? 0 : savedMemorySize(fieldData);
+        memoryUsedInBytes.dec(memorySize);
+        savedMemoryInBytes.dec(savedMemorySize);
+        if (wasEvicted) {
+            evictions.inc();
         }
+        fieldCounters(fieldCounters, fieldNames).onUnload(memorySize, savedMemorySize, wasEvicted);
+        // the segment counters are gone if the segment was closed already
+        SegmentCounters segment = segmentCounters.get(readerKey);
+        if (segment != null) {
+            FieldCounters counters = segment.fields.get(fieldNames.fullName());
+            if (counters != null) {
+                counters.onUnload(memorySize, savedMemorySize, wasEvicted);
+            }
+        }
+    }
+
+    /**
+     * The memory the field data saves compared to the plain array format, by being stored compressed.
+     */
+    private static long savedMemorySize(AtomicFieldData fieldData) {
+        if (fieldData instanceof PackedArrayAtomicFieldData) {
+            return ((PackedArrayAtomicFieldData) fieldData).getSavedMemorySizeInBytes();
+        }
+        return 0;
     }
 
+    /**
+     * The field data stats of this index, broken down per field.
+     */
     public FieldDataStats stats() {
-        return new FieldDataStats(memoryUsedInBytes.count());
+        Map<String, FieldDataStats.FieldStats> fields = new HashMap<String, FieldDataStats.FieldStats>();
+        for (Map.Entry<String, FieldCounters> entry : fieldCounters.entrySet()) {
+            fields.put(entry.getKey(), entry.getValue().stats());
+        }
+        return new FieldDataStats(memoryUsedInBytes.count(), savedMemoryInBytes.count(), evictions.count(), loads.count(),
+                TimeUnit.NANOSECONDS.toMillis(loadTimeInNanos.count()), fields);
+    }
+
+    /**
+     * The field data stats of the segments of the provided reader (typically the searcher of a shard), broken
+     * down per field and, if <tt>segments</tt> is set, per segment. Only the segments that are still open are
+     * accounted for, so loads and evictions of segments that have been merged away are not included.
+     */
+    public FieldDataStats stats(ShardId shardId, IndexReader reader, boolean segments) {
+        FieldDataStats stats = new FieldDataStats(0, 0, 0, 0, 0, new HashMap<String, FieldDataStats.FieldStats>());
+        for (AtomicReaderContext context : reader.leaves()) {
+            SegmentCounters segment = segmentCounters.get(context.reader().getCoreCacheKey());
+            if (segment == null) {
+                continue;
+            }
+            for (Map.Entry<String, FieldCounters> entry : segment.fields.entrySet()) {
+                FieldDataStats.FieldStats segmentStats = entry.getValue().stats();
+                Map<String, FieldDataStats.FieldStats> segmentsStats = null;
+                if (segments) {
+                    segmentsStats = new HashMap<String, FieldDataStats.FieldStats>();
+                    segmentsStats.put(shardId.id() + "/" + segment.name, segmentStats);
+                }
+                Map<String, FieldDataStats.FieldStats> fieldStats = new HashMap<String, FieldDataStats.FieldStats>();
+                fieldStats.put(entry.getKey(), new FieldDataStats.FieldStats(segmentStats.getMemorySizeInBytes(), segmentStats.getSavedMemorySizeInBytes(), segmentStats.getEvictions(),
+                        segmentStats.getLoads(), segmentStats.getLoadTimeInMillis(), segmentsStats));
+                stats.add(new FieldDataStats(segmentStats.getMemorySizeInBytes(), segmentStats.getSavedMemorySizeInBytes(), segmentStats.getEvictions(),
+                        segmentStats.getLoads(), segmentStats.getLoadTimeInMillis(), fieldStats));
+            }
+        }
+        return stats;
+    }
+
+    private static FieldCounters fieldCounters(ConcurrentMap<String, FieldCounters> fieldCounters, FieldMapper.Names fieldNames) {
+        FieldCounters counters = fieldCounters.get(fieldNames.fullName());
+        if (counters == null) {
+            counters = new FieldCounters();
+            FieldCounters existing = fieldCounters.putIfAbsent(fieldNames.fullName(), counters);
+            if (existing != null) {
+                counters = existing;
+            }
+        }
+        return counters;
+    }
+
+    private SegmentCounters segmentCounters(SegmentReader reader) {
+        SegmentCounters counters = segmentCounters.get(reader.getCoreCacheKey());
+        if (counters == null) {
+            counters = new SegmentCounters(reader.getSegmentName());
+            SegmentCounters existing = segmentCounters.putIfAbsent(reader.getCoreCacheKey(), counters);
+            if (existing != null) {
+                counters = existing;
+            } else {
+                reader.addCoreClosedListener(segmentClosedListener);
+            }
+        }
+        return counters;
+    }
+
+    static class FieldCounters {
+        final CounterMetric memoryUsedInBytes = new CounterMetric();
+        final CounterMetric savedMemoryInBytes = new CounterMetric();
+        final CounterMetric evictions = new CounterMetric();
+        final CounterMetric loads = new CounterMetric();
+        final CounterMetric loadTimeInNanos = new CounterMetric();
+
+        void onLoad(long memorySize, long savedMemorySize, long loadTimeInNanos) {
+            memoryUsedInBytes.inc(memorySize);
+            savedMemoryInBytes.inc(savedMemorySize);
+            loads.inc();
+            this.loadTimeInNanos.inc(loadTimeInNanos);
+        }
+
+        void onUnload(long memorySize, long savedMemorySize, boolean wasEvicted) {
+            memoryUsedInBytes.dec(memorySize);
+            savedMemoryInBytes.dec(savedMemorySize);
+            if (wasEvicted) {
+                evictions.inc();
+            }
+        }
+
+        FieldDataStats.FieldStats stats() {
+            return new FieldDataStats.FieldStats(memoryUsedInBytes.count(), savedMemoryInBytes.count(), evictions.count(), loads.count(),
+                    TimeUnit.NANOSECONDS.toMillis(loadTimeInNanos.count()), null);
+        }
+    }
+
+    static class SegmentCounters {
+        final String name;
+        final ConcurrentMap<String, FieldCounters> fields = ConcurrentCollections.newConcurrentMap();
+
+        SegmentCounters(String name) {
+            this.name = name;
+        }
     }
 
     public <IFD extends IndexFieldData> IFD getForField(FieldMapper mapper) {
@@ -151,11 +332,18 @@ public class IndexFieldDataService extends AbstractIndexComponent implements Ind
                     }
 
                     IndexFieldDataCache cache;
-                    String cacheType = type.getSettings().get("cache", indexSettings.get("index.fielddata.cache", "resident"));
-                    if ("resident".equals(cacheType)) {
-                        cache = new IndexFieldDataCache.Resident(index, fieldNames, type, this);
+                    String defaultCacheType = indicesFieldDataCache == null ? "resident" : "node";
+                    String cacheType = type.getSettings().get("cache", indexSettings.get("index.fielddata.cache", defaultCacheType));
+                    if ("node".equals(cacheType)) {
+                        if (indicesFieldDataCache == null) {
+                            cache = new IndexFieldDataCache.Resident(index, fieldNames, type, this, breaker);
+                        } else {
+                            cache = indicesFieldDataCache.buildIndexFieldDataCache(this, index, fieldNames, type);
+                        }
+                    } else if ("resident".equals(cacheType)) {
+                        cache = new IndexFieldDataCache.Resident(index, fieldNames, type, this, breaker);
                     } else if ("soft".equals(cacheType)) {
-                        cache = new IndexFieldDataCache.Soft(index, fieldNames, type, this);
+                        cache = new IndexFieldDataCache.Soft(index, fieldNames, type, this, breaker);
                     } else {
                         throw new ElasticSearchIllegalArgumentException("cache type not supported [" + cacheType + "] for field [" + fieldNames.fullName() + "]");
                     }
@@ -19,23 +19,37 @@
 
 package org.elasticsearch.index.fielddata.ordinals;
 
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.RamUsage;
 import org.elasticsearch.index.fielddata.util.IntArrayRef;
 
 /**
  * Ordinals that effectively are single valued and map "one to one" to the
  * doc ids. Note, the docId is incremented by 1 to get the ordinal, since 0
- * denotes an empty value.
+ * denotes an empty value. Docs without a value can optionally be excluded
+ * using a {@link FixedBitSet} of the docs with a value.
  */
 public class DocIdOrdinals implements Ordinals {
 
     private final int numDocs;
+    @Nullable
+    private final FixedBitSet docsWithValue;
 
     /**
      * Constructs a new doc id ordinals.
      */
     public DocIdOrdinals(int numDocs) {
+        this(numDocs, null);
+    }
+
+    /**
+     * Constructs a new doc id ordinals where only the docs set in <tt>docsWithValue</tt> have an ordinal,
+     * <tt>null</tt> meaning all docs have one.
+     */
+    public DocIdOrdinals(int numDocs, @Nullable FixedBitSet docsWithValue) {
         this.numDocs = numDocs;
+        this.docsWithValue = docsWithValue;
     }
 
     @Override
@@ -50,7 +64,10 @@ public class DocIdOrdinals implements Ordinals {
 
     @Override
     public long getMemorySizeInBytes() {
-        return RamUsage.NUM_BYTES_OBJECT_REF;
+        if (docsWithValue == null) {
+            return RamUsage.NUM_BYTES_OBJECT_REF;
+        }
+        return 2 * RamUsage.NUM_BYTES_OBJECT_REF + RamUsage.NUM_BYTES_ARRAY_HEADER + docsWithValue.getBits().length * RamUsage.NUM_BYTES_LONG;
     }
 
     @Override
@@ -70,17 +87,23 @@ public class DocIdOrdinals implements Ordinals {
 
     @Override
     public Ordinals.Docs ordinals() {
-        return new Docs(this);
+        return new Docs(this, docsWithValue);
     }
 
     public static class Docs implements Ordinals.Docs {
 
         private final DocIdOrdinals parent;
+        private final FixedBitSet docsWithValue;
         private final IntArrayRef intsScratch = new IntArrayRef(new int[1]);
         private final SingleValueIter iter = new SingleValueIter();
 
         public Docs(DocIdOrdinals parent) {
+            this(parent, null);
+        }
+
+        public Docs(DocIdOrdinals parent, @Nullable FixedBitSet docsWithValue) {
             this.parent = parent;
+            this.docsWithValue = docsWithValue;
         }
 
         @Override
@@ -105,23 +128,34 @@ public class DocIdOrdinals implements Ordinals {
 
         @Override
         public int getOrd(int docId) {
+            if (docsWithValue != null && !docsWithValue.get(docId)) {
+                return 0;
+            }
             return docId + 1;
         }
 
         @Override
         public IntArrayRef getOrds(int docId) {
-            intsScratch.values[0] = docId + 1;
+            int ord = getOrd(docId);
+            if (ord == 0) {
+                return IntArrayRef.EMPTY;
+            }
+            intsScratch.values[0] = ord;
             return intsScratch;
         }
 
         @Override
         public Iter getIter(int docId) {
-            return iter.reset(docId + 1);
+            int ord = getOrd(docId);
+            if (ord == 0) {
+                return EmptyIter.INSTANCE;
+            }
+            return iter.reset(ord);
         }
 
         @Override
         public void forEachOrdinalInDoc(int docId, OrdinalInDocProc proc) {
-            proc.onOrdinal(docId, docId + 1);
+            proc.onOrdinal(docId, getOrd(docId));
         }
     }
 }
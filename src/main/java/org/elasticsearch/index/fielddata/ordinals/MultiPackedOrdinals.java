@@ -0,0 +1,268 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.index.fielddata.util.IntArrayRef;
+
+/**
+ * Ordinals implementation that stores all the ordinals of all docs in a single packed stream, with offsets
+ * pointing to the start of each doc ordinals. The offsets are monotonic, so they are stored as their deviation
+ * from a linear estimate per block of docs, which takes far fewer bits than the offsets themselves.
+ * <p/>
+ * Unlike {@link MultiFlatArrayOrdinals} the memory used is proportional to the total number of values, no
+ * matter how many values the docs with the most values have.
+ */
+public final class MultiPackedOrdinals implements Ordinals {
+
+    // the ordinals of doc i are in ords [offsets[i], offsets[i + 1])
+    private final MonotonicOffsets offsets;
+    private final PackedInts.Reader ords;
+    private final int numOrds;
+    private final int numDocs;
+
+    private long size = -1;
+
+    public MultiPackedOrdinals(OrdinalsBuilder builder, float acceptableOverheadRatio) {
+        this.numDocs = builder.maxDoc();
+        this.numOrds = builder.getNumOrds();
+        int totalNumOrds = builder.getTotalNumOrds();
+        int[] offsets = new int[numDocs + 1];
+        PackedInts.Mutable ords = PackedInts.getMutable(totalNumOrds, PackedInts.bitsRequired(numOrds), acceptableOverheadRatio);
+        int offset = 0;
+        for (int doc = 0; doc < numDocs; doc++) {
+            offsets[doc] = offset;
+            IntArrayRef docOrds = builder.docOrds(doc);
+            for (int i = docOrds.start; i < docOrds.end; i++) {
+                ords.set(offset++, docOrds.values[i]);
+            }
+        }
+        offsets[numDocs] = offset;
+        this.offsets = new MonotonicOffsets(offsets, acceptableOverheadRatio);
+        this.ords = ords;
+    }
+
+    @Override
+    public boolean hasSingleArrayBackingStorage() {
+        return false;
+    }
+
+    @Override
+    public Object getBackingStorage() {
+        return null;
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        if (size == -1) {
+            size = 2 * RamUsage.NUM_BYTES_OBJECT_REF + offsets.ramBytesUsed() + ords.ramBytesUsed();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return true;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    @Override
+    public int getNumOrds() {
+        return numOrds;
+    }
+
+    @Override
+    public Docs ordinals() {
+        return new Docs(this, offsets, ords);
+    }
+
+    static class Docs implements Ordinals.Docs {
+
+        private final MultiPackedOrdinals parent;
+        private final MonotonicOffsets offsets;
+        private final PackedInts.Reader ords;
+
+        private final IntArrayRef spare = new IntArrayRef(new int[1]);
+        private final IterImpl iter = new IterImpl();
+
+        public Docs(MultiPackedOrdinals parent, MonotonicOffsets offsets, PackedInts.Reader ords) {
+            this.parent = parent;
+            this.offsets = offsets;
+            this.ords = ords;
+        }
+
+        @Override
+        public Ordinals ordinals() {
+            return this.parent;
+        }
+
+        @Override
+        public int getNumDocs() {
+            return parent.getNumDocs();
+        }
+
+        @Override
+        public int getNumOrds() {
+            return parent.getNumOrds();
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return true;
+        }
+
+        @Override
+        public int getOrd(int docId) {
+            int start = offsets.get(docId);
+            if (start == offsets.get(docId + 1)) {
+                return 0;
+            }
+            return (int) ords.get(start);
+        }
+
+        @Override
+        public IntArrayRef getOrds(int docId) {
+            int start = offsets.get(docId);
+            int end = offsets.get(docId + 1);
+            if (start == end) {
+                return IntArrayRef.EMPTY;
+            }
+            int size = end - start;
+            if (spare.values.length < size) {
+                spare.values = new int[ArrayUtil.oversize(size, RamUsage.NUM_BYTES_INT)];
+            }
+            for (int i = 0; i < size; i++) {
+                spare.values[i] = (int) ords.get(start + i);
+            }
+            spare.start = 0;
+            spare.end = size;
+            return spare;
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            return iter.reset(offsets.get(docId), offsets.get(docId + 1));
+        }
+
+        @Override
+        public void forEachOrdinalInDoc(int docId, OrdinalInDocProc proc) {
+            int start = offsets.get(docId);
+            int end = offsets.get(docId + 1);
+            if (start == end) {
+                proc.onOrdinal(docId, 0);
+                return;
+            }
+            for (int i = start; i < end; i++) {
+                proc.onOrdinal(docId, (int) ords.get(i));
+            }
+        }
+
+        class IterImpl implements Docs.Iter {
+
+            private int offset;
+            private int end;
+
+            public IterImpl reset(int start, int end) {
+                this.offset = start;
+                this.end = end;
+                return this;
+            }
+
+            @Override
+            public int next() {
+                if (offset >= end) {
+                    return 0;
+                }
+                return (int) ords.get(offset++);
+            }
+        }
+    }
+
+    /**
+     * Monotonic offsets, stored per block of {@link #BLOCK_SIZE} values as the zig-zag encoded deviation from
+     * <tt>first value of the block + average increment * index within the block</tt>.
+     */
+    static final class MonotonicOffsets {
+
+        static final int BLOCK_SHIFT = 10;
+        static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+        static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+        private final int[] minValues;
+        private final float[] averages;
+        private final PackedInts.Reader[] deviations;
+
+        MonotonicOffsets(int[] values, float acceptableOverheadRatio) {
+            int numBlocks = (values.length + BLOCK_SIZE - 1) >>> BLOCK_SHIFT;
+            minValues = new int[numBlocks];
+            averages = new float[numBlocks];
+            deviations = new PackedInts.Reader[numBlocks];
+            for (int block = 0; block < numBlocks; block++) {
+                int start = block << BLOCK_SHIFT;
+                int length = Math.min(BLOCK_SIZE, values.length - start);
+                int minValue = values[start];
+                float average = length == 1 ? 0f : (float) (values[start + length - 1] - minValue) / (length - 1);
+                long maxDeviation = 0;
+                for (int i = 0; i < length; i++) {
+                    maxDeviation |= zigZagEncode(values[start + i] - expected(minValue, average, i));
+                }
+                PackedInts.Mutable blockDeviations = PackedInts.getMutable(length, PackedInts.bitsRequired(maxDeviation), acceptableOverheadRatio);
+                for (int i = 0; i < length; i++) {
+                    blockDeviations.set(i, zigZagEncode(values[start + i] - expected(minValue, average, i)));
+                }
+                minValues[block] = minValue;
+                averages[block] = average;
+                deviations[block] = blockDeviations;
+            }
+        }
+
+        private static long expected(int minValue, float average, int index) {
+            return minValue + (long) (average * index);
+        }
+
+        private static long zigZagEncode(long value) {
+            return (value >> 63) ^ (value << 1);
+        }
+
+        private static long zigZagDecode(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int get(int index) {
+            int block = index >>> BLOCK_SHIFT;
+            int i = index & BLOCK_MASK;
+            return (int) (expected(minValues[block], averages[block], i) + zigZagDecode(deviations[block].get(i)));
+        }
+
+        long ramBytesUsed() {
+            long size = 3 * RamUsage.NUM_BYTES_ARRAY_HEADER + minValues.length * (RamUsage.NUM_BYTES_INT + RamUsage.NUM_BYTES_FLOAT + RamUsage.NUM_BYTES_OBJECT_REF);
+            for (PackedInts.Reader blockDeviations : deviations) {
+                size += blockDeviations.ramBytesUsed();
+            }
+            return size;
+        }
+    }
+}
@@ -35,6 +35,7 @@ import org.apache.lucene.util.IntBlockPool;
 import org.apache.lucene.util.NumericUtils;
 import org.apache.lucene.util.IntBlockPool.Allocator;
 import org.apache.lucene.util.IntBlockPool.DirectAllocator;
+import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.fielddata.util.IntArrayRef;
@@ -48,6 +49,8 @@ public final class OrdinalsBuilder implements Closeable {
 
     private final int[] ords;
     private int[] offsets;
+    // the number of values of the multi valued docs, allocated along with offsets
+    private int[] numValues;
     private final IntBlockPool pool;
     private final IntBlockPool.SliceWriter writer;
     private final IntArrayRef intsRef = new IntArrayRef(new int[1]);
@@ -56,6 +59,7 @@ public final class OrdinalsBuilder implements Closeable {
     private int numDocsWithValue = 0;
     private int numMultiValuedDocs = 0;
     private int totalNumOrds = 0;
+    private int maxValuesPerDoc = 0;
 
     public OrdinalsBuilder(Terms terms, int maxDoc, Allocator allocator) {
         this.ords = new int[maxDoc];
@@ -97,6 +101,9 @@ public final class OrdinalsBuilder implements Closeable {
         if (docsOrd == 0) {
             ords[doc] = currentOrd;
             numDocsWithValue++;
+            if (maxValuesPerDoc == 0) {
+                maxValuesPerDoc = 1;
+            }
         } else if (docsOrd > 0) {
             numMultiValuedDocs++;
             int offset = writer.startNewSlice();
@@ -104,14 +111,18 @@ public final class OrdinalsBuilder implements Closeable {
             writer.writeInt(currentOrd);
             if (offsets == null) {
                 offsets = new int[ords.length];
+                numValues = new int[ords.length];
             }
             offsets[doc] = writer.getCurrentOffset();
             ords[doc] = (-1 * offset) - 1;
+            numValues[doc] = 2;
+            maxValuesPerDoc = Math.max(maxValuesPerDoc, 2);
         } else {
             assert offsets != null;
             writer.reset(offsets[doc]);
             writer.writeInt(currentOrd);
             offsets[doc] = writer.getCurrentOffset();
+            maxValuesPerDoc = Math.max(maxValuesPerDoc, ++numValues[doc]);
         }
         return this;
     }
@@ -181,8 +192,15 @@ public final class OrdinalsBuilder implements Closeable {
         if (numMultiValuedDocs == 0) {
             return new SingleArrayOrdinals(ords, getNumOrds());
         }
-        final String multiOrdinals = settings.get("multi_ordinals", "sparse");
-        if ("flat".equals(multiOrdinals)) {
+        String multiOrdinals = settings.get("multi_ordinals", "auto");
+        final float acceptableOverheadRatio = settings.getAsFloat("acceptable_overhead_ratio", PackedInts.DEFAULT);
+        if ("auto".equals(multiOrdinals)) {
+            // flat arrays are the fastest to iterate, use them unless most of their slots would be empty
+            multiOrdinals = flatArraysSlots() <= 2l * totalNumOrds ? "flat" : "packed";
+        }
+        if ("packed".equals(multiOrdinals)) {
+            return new MultiPackedOrdinals(this, acceptableOverheadRatio);
+        } else if ("flat".equals(multiOrdinals)) {
             final ArrayList<int[]> ordinalBuffer = new ArrayList<int[]>();
             for (int i = 0; i < ords.length; i++) {
                 IntArrayRef docOrds = docOrds(i);
@@ -206,6 +224,21 @@ public final class OrdinalsBuilder implements Closeable {
         }
     }
 
+    /**
+     * Returns the number of ordinals {@link MultiFlatArrayOrdinals} would allocate, one slot per doc for each
+     * ordinal level up to the maximum number of values a doc has.
+     */
+    private long flatArraysSlots() {
+        return (long) maxValuesPerDoc * ords.length;
+    }
+
+    /**
+     * Returns the maximum number of ordinals associated with a single document ID.
+     */
+    public int getMaxValuesPerDoc() {
+        return maxValuesPerDoc;
+    }
+
     /**
      * Returns a shared {@link IntArrayRef} instance for the given doc ID holding all ordinals associated with it.
      */
@@ -243,7 +276,7 @@ public final class OrdinalsBuilder implements Closeable {
      * A {@link TermsEnum} that iterates only full precision prefix coded 64 bit values.
      * @see #buildFromTerms(TermsEnum, Bits)
      */
-    public TermsEnum wrapNumeric64Bit(TermsEnum termsEnum) {
+    public static TermsEnum wrapNumeric64Bit(TermsEnum termsEnum) {
         return new FilteredTermsEnum(termsEnum, false) {
             @Override
             protected AcceptStatus accept(BytesRef term) throws IOException {
@@ -257,7 +290,7 @@ public final class OrdinalsBuilder implements Closeable {
      * A {@link TermsEnum} that iterates only full precision prefix coded 32 bit values.
      * @see #buildFromTerms(TermsEnum, Bits)
      */
-    public TermsEnum wrapNumeric32Bit(TermsEnum termsEnum) {
+    public static TermsEnum wrapNumeric32Bit(TermsEnum termsEnum) {
         return new FilteredTermsEnum(termsEnum, false) {
             
             @Override
@@ -0,0 +1,151 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.FilteredTermsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.CharsRef;
+import org.apache.lucene.util.UnicodeUtil;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.fieldcomparator.BytesRefFieldComparatorSource;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.settings.IndexSettings;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Base class for string field data loaded from the terms of a segment. Terms can be filtered out before they are
+ * loaded using the <tt>filter.frequency.min</tt>, <tt>filter.frequency.max</tt> and
+ * <tt>filter.frequency.min_segment_size</tt> settings, and the <tt>filter.regex.pattern</tt> setting.
+ * Frequencies below or equal to <tt>1.0</tt> are relative to the number of docs in the segment.
+ */
+public abstract class AbstractBytesIndexFieldData<FD extends AtomicFieldData.WithOrdinals<ScriptDocValues.Strings>> extends AbstractIndexFieldData<FD> implements IndexFieldData.WithOrdinals<FD> {
+
+    private final double minFrequency;
+    private final double maxFrequency;
+    private final int minSegmentSize;
+    @Nullable
+    private final Pattern regex;
+
+    protected AbstractBytesIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, IndexFieldDataCache cache) {
+        super(index, indexSettings, fieldNames, fieldDataType, cache);
+        Settings settings = fieldDataType.getSettings();
+        this.minFrequency = settings.getAsDouble("filter.frequency.min", 0d);
+        this.maxFrequency = settings.getAsDouble("filter.frequency.max", (double) Integer.MAX_VALUE);
+        this.minSegmentSize = settings.getAsInt("filter.frequency.min_segment_size", 0);
+        String pattern = settings.get("filter.regex.pattern");
+        this.regex = pattern == null ? null : Regex.compile(pattern, settings.get("filter.regex.flags"));
+    }
+
+    @Override
+    public boolean valuesOrdered() {
+        return true;
+    }
+
+    @Override
+    public FD load(AtomicReaderContext context) {
+        try {
+            return cache.load(context, this);
+        } catch (Throwable e) {
+            if (e instanceof ElasticSearchException) {
+                throw (ElasticSearchException) e;
+            } else {
+                throw new ElasticSearchException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public XFieldComparatorSource comparatorSource(@Nullable Object missingValue) {
+        // TODO support "missingValue" for sortMissingValue options here...
+        return new BytesRefFieldComparatorSource(this);
+    }
+
+    /**
+     * Returns the terms to load for the segment, skipping the ones rejected by the configured filters.
+     */
+    protected TermsEnum filter(Terms terms, AtomicReader reader) throws IOException {
+        TermsEnum iterator = terms.iterator(null);
+        int docCount = terms.getDocCount();
+        if (docCount == -1) {
+            docCount = reader.maxDoc();
+        }
+        if ((minFrequency > 0 || maxFrequency < Integer.MAX_VALUE) && docCount >= minSegmentSize) {
+            int minFreq = minFrequency > 1.0 ? (int) minFrequency : (int) (docCount * minFrequency);
+            int maxFreq = maxFrequency > 1.0 ? (int) maxFrequency : (int) (docCount * maxFrequency);
+            iterator = new FrequencyFilter(iterator, minFreq, maxFreq);
+        }
+        if (regex != null) {
+            iterator = new RegexFilter(iterator, regex);
+        }
+        return iterator;
+    }
+
+    static class FrequencyFilter extends FilteredTermsEnum {
+
+        private final int minFreq;
+        private final int maxFreq;
+
+        FrequencyFilter(TermsEnum delegate, int minFreq, int maxFreq) {
+            super(delegate, false);
+            this.minFreq = minFreq;
+            this.maxFreq = maxFreq;
+        }
+
+        @Override
+        protected AcceptStatus accept(BytesRef term) throws IOException {
+            int docFreq = docFreq();
+            if (docFreq >= minFreq && docFreq <= maxFreq) {
+                return AcceptStatus.YES;
+            }
+            return AcceptStatus.NO;
+        }
+    }
+
+    static class RegexFilter extends FilteredTermsEnum {
+
+        private final CharsRef spare = new CharsRef();
+        private final Pattern pattern;
+
+        RegexFilter(TermsEnum delegate, Pattern pattern) {
+            super(delegate, false);
+            this.pattern = pattern;
+        }
+
+        @Override
+        protected AcceptStatus accept(BytesRef term) throws IOException {
+            UnicodeUtil.UTF8toUTF16(term, spare);
+            if (pattern.matcher(spare).matches()) {
+                return AcceptStatus.YES;
+            }
+            return AcceptStatus.NO;
+        }
+    }
+}
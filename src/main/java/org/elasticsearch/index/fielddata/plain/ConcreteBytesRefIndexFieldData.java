@@ -24,15 +24,11 @@ import org.apache.lucene.search.FieldCache;
 import org.apache.lucene.search.FieldCache.StopFillCacheException;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefIterator;
-import org.elasticsearch.ElasticSearchException;
-import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.Index;
-import org.elasticsearch.index.fielddata.AbstractIndexFieldData;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
-import org.elasticsearch.index.fielddata.fieldcomparator.BytesRefFieldComparatorSource;
 import org.elasticsearch.index.fielddata.ordinals.Ordinals;
 import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
 import org.elasticsearch.index.fielddata.ordinals.SingleArrayOrdinals;
@@ -43,7 +39,7 @@ import java.util.ArrayList;
 
 /**
  */
-public class ConcreteBytesRefIndexFieldData extends AbstractIndexFieldData<ConcreteBytesRefAtomicFieldData> implements IndexFieldData.WithOrdinals<ConcreteBytesRefAtomicFieldData> {
+public class ConcreteBytesRefIndexFieldData extends AbstractBytesIndexFieldData<ConcreteBytesRefAtomicFieldData> {
 
     public static class Builder implements IndexFieldData.Builder {
 
@@ -57,24 +53,6 @@ public class ConcreteBytesRefIndexFieldData extends AbstractIndexFieldData<Concr
         super(index, indexSettings, fieldNames, fieldDataType, cache);
     }
 
-    @Override
-    public boolean valuesOrdered() {
-        return true;
-    }
-
-    @Override
-    public ConcreteBytesRefAtomicFieldData load(AtomicReaderContext context) {
-        try {
-            return cache.load(context, this);
-        } catch (Throwable e) {
-            if (e instanceof ElasticSearchException) {
-                throw (ElasticSearchException) e;
-            } else {
-                throw new ElasticSearchException(e.getMessage(), e);
-            }
-        }
-    }
-
     @Override
     public ConcreteBytesRefAtomicFieldData loadDirect(AtomicReaderContext context) throws Exception {
         AtomicReader reader = context.reader();
@@ -92,7 +70,7 @@ public class ConcreteBytesRefIndexFieldData extends AbstractIndexFieldData<Concr
         values.add(null); // first "t" indicates null value
         OrdinalsBuilder builder = new OrdinalsBuilder(terms, reader.maxDoc());
         try {
-            BytesRefIterator iter = builder.buildFromTerms(terms.iterator(null), reader.getLiveDocs());
+            BytesRefIterator iter = builder.buildFromTerms(filter(terms, reader), reader.getLiveDocs());
             BytesRef term;
             while((term = iter.next()) != null) {
                 values.add(BytesRef.deepCopyOf(term));
@@ -102,10 +80,4 @@ public class ConcreteBytesRefIndexFieldData extends AbstractIndexFieldData<Concr
             builder.close();
         }
     }
-
-    @Override
-    public XFieldComparatorSource comparatorSource(@Nullable Object missingValue) {
-        // TODO support "missingValue" for sortMissingValue options here...
-        return new BytesRefFieldComparatorSource(this);
-    }
 }
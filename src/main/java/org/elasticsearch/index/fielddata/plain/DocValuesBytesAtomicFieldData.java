@@ -0,0 +1,222 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.util.BytesRefArrayRef;
+import org.elasticsearch.index.fielddata.util.StringArrayRef;
+
+import java.io.IOException;
+
+/**
+ * String atomic field data reading the values from Lucene doc values written at index time, through a direct
+ * source so they are not loaded on the heap. Doc values hold a single value per doc, docs without a value read
+ * as an empty value and are treated as missing.
+ */
+public class DocValuesBytesAtomicFieldData implements AtomicFieldData<ScriptDocValues.Strings> {
+
+    private final DocValues docValues;
+    private final int numDocs;
+
+    public DocValuesBytesAtomicFieldData(DocValues docValues, int numDocs) {
+        this.docValues = docValues;
+        this.numDocs = numDocs;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return false;
+    }
+
+    @Override
+    public boolean isValuesOrdered() {
+        return false;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        // the values are not loaded on the heap
+        return 0;
+    }
+
+    @Override
+    public BytesValues getBytesValues() {
+        try {
+            // a direct source is not thread safe, each (non thread safe) values view gets its own
+            return new BytesValues(docValues.getDirectSource());
+        } catch (IOException e) {
+            throw new ElasticSearchException("failed to load doc values", e);
+        }
+    }
+
+    @Override
+    public HashedBytesValues getHashedBytesValues() {
+        return new HashedBytesValues.BytesBased(getBytesValues());
+    }
+
+    @Override
+    public StringValues getStringValues() {
+        return new StringValues(getBytesValues());
+    }
+
+    @Override
+    public ScriptDocValues.Strings getScriptValues() {
+        return new ScriptDocValues.Strings(getStringValues());
+    }
+
+    static class BytesValues implements org.elasticsearch.index.fielddata.BytesValues {
+
+        private final DocValues.Source source;
+
+        private final BytesRef scratch = new BytesRef();
+        private final BytesRefArrayRef arrayScratch = new BytesRefArrayRef(new BytesRef[1], 1);
+        private final Iter.Single iter = new Iter.Single();
+
+        BytesValues(DocValues.Source source) {
+            this.source = source;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return false;
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return source.getBytes(docId, scratch).length > 0;
+        }
+
+        @Override
+        public BytesRef makeSafe(BytesRef bytes) {
+            return BytesRef.deepCopyOf(bytes);
+        }
+
+        @Override
+        public BytesRef getValue(int docId) {
+            BytesRef value = source.getBytes(docId, scratch);
+            if (value.length == 0) {
+                return null;
+            }
+            return value;
+        }
+
+        @Override
+        public BytesRef getValueScratch(int docId, BytesRef ret) {
+            return source.getBytes(docId, ret);
+        }
+
+        @Override
+        public BytesRefArrayRef getValues(int docId) {
+            BytesRef value = source.getBytes(docId, scratch);
+            if (value.length == 0) {
+                return BytesRefArrayRef.EMPTY;
+            }
+            arrayScratch.values[0] = BytesRef.deepCopyOf(value);
+            return arrayScratch;
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            BytesRef value = source.getBytes(docId, scratch);
+            if (value.length == 0) {
+                return Iter.Empty.INSTANCE;
+            }
+            return iter.reset(value);
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            BytesRef value = source.getBytes(docId, scratch);
+            if (value.length == 0) {
+                proc.onMissing(docId);
+            } else {
+                proc.onValue(docId, value);
+            }
+        }
+    }
+
+    static class StringValues implements org.elasticsearch.index.fielddata.StringValues {
+
+        private final org.elasticsearch.index.fielddata.BytesValues values;
+
+        private final StringArrayRef arrayScratch = new StringArrayRef(new String[1], 1);
+        private final Iter.Single iter = new Iter.Single();
+
+        StringValues(org.elasticsearch.index.fielddata.BytesValues values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return false;
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return values.hasValue(docId);
+        }
+
+        @Override
+        public String getValue(int docId) {
+            BytesRef value = values.getValue(docId);
+            if (value == null) {
+                return null;
+            }
+            return value.utf8ToString();
+        }
+
+        @Override
+        public StringArrayRef getValues(int docId) {
+            String value = getValue(docId);
+            if (value == null) {
+                return StringArrayRef.EMPTY;
+            }
+            arrayScratch.values[0] = value;
+            return arrayScratch;
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            String value = getValue(docId);
+            if (value == null) {
+                return Iter.Empty.INSTANCE;
+            }
+            return iter.reset(value);
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            String value = getValue(docId);
+            if (value == null) {
+                proc.onMissing(docId);
+            } else {
+                proc.onValue(docId, value);
+            }
+        }
+    }
+}
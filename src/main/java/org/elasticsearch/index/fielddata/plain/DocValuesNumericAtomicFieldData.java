@@ -0,0 +1,350 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.index.DocValues;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.util.DoubleArrayRef;
+import org.elasticsearch.index.fielddata.util.LongArrayRef;
+import org.elasticsearch.index.fielddata.util.StringArrayRef;
+
+import java.io.IOException;
+
+/**
+ * Numeric atomic field data reading the values from Lucene doc values written at index time. Values are read
+ * through a direct source, so they stay on disk (in the OS file system cache) instead of the heap. Doc values
+ * hold a single value per doc, and read as <tt>0</tt> for docs without one, so the docs that actually have a
+ * value are read from the companion presence doc values written by the mapper.
+ */
+public class DocValuesNumericAtomicFieldData implements AtomicNumericFieldData {
+
+    private final DocValues docValues;
+    // null when all the docs have a value
+    @Nullable
+    private final DocValues presence;
+    private final int numDocs;
+    private final IndexNumericFieldData.NumericType numericType;
+
+    /**
+     * @param presence the doc values holding <tt>1</tt> for the docs with a value, <tt>null</tt> to consider that
+     *                 all the docs have one
+     */
+    public DocValuesNumericAtomicFieldData(DocValues docValues, @Nullable DocValues presence, int numDocs, IndexNumericFieldData.NumericType numericType) {
+        this.docValues = docValues;
+        this.presence = presence;
+        this.numDocs = numDocs;
+        this.numericType = numericType;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return false;
+    }
+
+    @Override
+    public boolean isValuesOrdered() {
+        return false;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        // neither the values nor the docs with a value are loaded on the heap
+        return 0;
+    }
+
+    private DocValues.Source source() {
+        return directSource(docValues);
+    }
+
+    @Nullable
+    private DocValues.Source presenceSource() {
+        return presence == null ? null : directSource(presence);
+    }
+
+    private static DocValues.Source directSource(DocValues docValues) {
+        try {
+            // a direct source is not thread safe, each (non thread safe) values view gets its own
+            return docValues.getDirectSource();
+        } catch (IOException e) {
+            throw new ElasticSearchException("failed to load doc values", e);
+        }
+    }
+
+    @Override
+    public ScriptDocValues getScriptValues() {
+        if (numericType.isFloatingPoint()) {
+            return new ScriptDocValues.NumericDouble(getDoubleValues());
+        }
+        return new ScriptDocValues.NumericLong(getLongValues());
+    }
+
+    @Override
+    public BytesValues getBytesValues() {
+        return new BytesValues.StringBased(getStringValues());
+    }
+
+    @Override
+    public HashedBytesValues getHashedBytesValues() {
+        return new HashedBytesValues.StringBased(getStringValues());
+    }
+
+    @Override
+    public StringValues getStringValues() {
+        return new StringValues(source(), presenceSource(), numericType);
+    }
+
+    @Override
+    public ByteValues getByteValues() {
+        return new ByteValues.LongBased(getLongValues());
+    }
+
+    @Override
+    public ShortValues getShortValues() {
+        return new ShortValues.LongBased(getLongValues());
+    }
+
+    @Override
+    public IntValues getIntValues() {
+        return new IntValues.LongBased(getLongValues());
+    }
+
+    @Override
+    public LongValues getLongValues() {
+        return new LongValues(source(), presenceSource(), numericType.isFloatingPoint());
+    }
+
+    @Override
+    public FloatValues getFloatValues() {
+        return new FloatValues.DoubleBased(getDoubleValues());
+    }
+
+    @Override
+    public DoubleValues getDoubleValues() {
+        return new DoubleValues(source(), presenceSource(), numericType.isFloatingPoint());
+    }
+
+    static class StringValues implements org.elasticsearch.index.fielddata.StringValues {
+
+        private final DocValues.Source source;
+        @Nullable
+        private final DocValues.Source presence;
+        private final IndexNumericFieldData.NumericType numericType;
+
+        private final StringArrayRef arrayScratch = new StringArrayRef(new String[1], 1);
+        private final Iter.Single iter = new Iter.Single();
+
+        StringValues(DocValues.Source source, @Nullable DocValues.Source presence, IndexNumericFieldData.NumericType numericType) {
+            this.source = source;
+            this.presence = presence;
+            this.numericType = numericType;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return false;
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return presence == null || presence.getInt(docId) != 0;
+        }
+
+        @Override
+        public String getValue(int docId) {
+            if (!hasValue(docId)) {
+                return null;
+            }
+            switch (numericType) {
+                case FLOAT:
+                    // floats are widened to doubles by the doc values
+                    return Float.toString((float) source.getFloat(docId));
+                case DOUBLE:
+                    return Double.toString(source.getFloat(docId));
+                default:
+                    return Long.toString(source.getInt(docId));
+            }
+        }
+
+        @Override
+        public StringArrayRef getValues(int docId) {
+            if (!hasValue(docId)) {
+                return StringArrayRef.EMPTY;
+            }
+            arrayScratch.values[0] = getValue(docId);
+            return arrayScratch;
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            if (!hasValue(docId)) {
+                return Iter.Empty.INSTANCE;
+            }
+            return iter.reset(getValue(docId));
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            if (hasValue(docId)) {
+                proc.onValue(docId, getValue(docId));
+            } else {
+                proc.onMissing(docId);
+            }
+        }
+    }
+
+    static class LongValues implements org.elasticsearch.index.fielddata.LongValues {
+
+        private final DocValues.Source source;
+        @Nullable
+        private final DocValues.Source presence;
+        private final boolean floatingPoint;
+
+        private final LongArrayRef arrayScratch = new LongArrayRef(new long[1], 1);
+        private final Iter.Single iter = new Iter.Single();
+
+        LongValues(DocValues.Source source, @Nullable DocValues.Source presence, boolean floatingPoint) {
+            this.source = source;
+            this.presence = presence;
+            this.floatingPoint = floatingPoint;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return false;
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return presence == null || presence.getInt(docId) != 0;
+        }
+
+        @Override
+        public long getValue(int docId) {
+            return floatingPoint ? (long) source.getFloat(docId) : source.getInt(docId);
+        }
+
+        @Override
+        public long getValueMissing(int docId, long missingValue) {
+            if (!hasValue(docId)) {
+                return missingValue;
+            }
+            return getValue(docId);
+        }
+
+        @Override
+        public LongArrayRef getValues(int docId) {
+            if (!hasValue(docId)) {
+                return LongArrayRef.EMPTY;
+            }
+            arrayScratch.values[0] = getValue(docId);
+            return arrayScratch;
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            if (!hasValue(docId)) {
+                return Iter.Empty.INSTANCE;
+            }
+            return iter.reset(getValue(docId));
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            if (hasValue(docId)) {
+                proc.onValue(docId, getValue(docId));
+            } else {
+                proc.onMissing(docId);
+            }
+        }
+    }
+
+    static class DoubleValues implements org.elasticsearch.index.fielddata.DoubleValues {
+
+        private final DocValues.Source source;
+        @Nullable
+        private final DocValues.Source presence;
+        private final boolean floatingPoint;
+
+        private final DoubleArrayRef arrayScratch = new DoubleArrayRef(new double[1], 1);
+        private final Iter.Single iter = new Iter.Single();
+
+        DoubleValues(DocValues.Source source, @Nullable DocValues.Source presence, boolean floatingPoint) {
+            this.source = source;
+            this.presence = presence;
+            this.floatingPoint = floatingPoint;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return false;
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return presence == null || presence.getInt(docId) != 0;
+        }
+
+        @Override
+        public double getValue(int docId) {
+            return floatingPoint ? source.getFloat(docId) : (double) source.getInt(docId);
+        }
+
+        @Override
+        public double getValueMissing(int docId, double missingValue) {
+            if (!hasValue(docId)) {
+                return missingValue;
+            }
+            return getValue(docId);
+        }
+
+        @Override
+        public DoubleArrayRef getValues(int docId) {
+            if (!hasValue(docId)) {
+                return DoubleArrayRef.EMPTY;
+            }
+            arrayScratch.values[0] = getValue(docId);
+            return arrayScratch;
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            if (!hasValue(docId)) {
+                return Iter.Empty.INSTANCE;
+            }
+            return iter.reset(getValue(docId));
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            if (hasValue(docId)) {
+                proc.onValue(docId, getValue(docId));
+            } else {
+                proc.onMissing(docId);
+            }
+        }
+    }
+}
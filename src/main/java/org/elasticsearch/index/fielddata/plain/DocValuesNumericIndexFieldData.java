@@ -0,0 +1,119 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocValues;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.fieldcomparator.*;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.core.NumberFieldMapper;
+import org.elasticsearch.index.settings.IndexSettings;
+
+/**
+ * Numeric field data backed by the doc values written at index time (<tt>doc_values</tt> in the mapping).
+ * Segments written before doc values were enabled on the field are loaded using the fallback (uninverting)
+ * field data.
+ */
+public class DocValuesNumericIndexFieldData extends AbstractIndexFieldData<AtomicNumericFieldData> implements IndexNumericFieldData<AtomicNumericFieldData> {
+
+    public static class Builder implements IndexFieldData.Builder {
+
+        private final NumericType numericType;
+        private final IndexFieldData.Builder fallback;
+
+        public Builder(NumericType numericType, IndexFieldData.Builder fallback) {
+            this.numericType = numericType;
+            this.fallback = fallback;
+        }
+
+        @Override
+        public IndexFieldData build(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType type, IndexFieldDataCache cache) {
+            IndexNumericFieldData fallbackFieldData = (IndexNumericFieldData) fallback.build(index, indexSettings, fieldNames, type, cache);
+            return new DocValuesNumericIndexFieldData(index, indexSettings, fieldNames, type, cache, numericType, fallbackFieldData);
+        }
+    }
+
+    private final NumericType numericType;
+    private final IndexNumericFieldData fallback;
+
+    public DocValuesNumericIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType fieldDataType,
+                                          IndexFieldDataCache cache, NumericType numericType, IndexNumericFieldData fallback) {
+        super(index, indexSettings, fieldNames, fieldDataType, cache);
+        this.numericType = numericType;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public NumericType getNumericType() {
+        return numericType;
+    }
+
+    @Override
+    public boolean valuesOrdered() {
+        return false;
+    }
+
+    @Override
+    public AtomicNumericFieldData load(AtomicReaderContext context) {
+        try {
+            return cache.load(context, this);
+        } catch (Throwable e) {
+            if (e instanceof ElasticSearchException) {
+                throw (ElasticSearchException) e;
+            } else {
+                throw new ElasticSearchException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public AtomicNumericFieldData loadDirect(AtomicReaderContext context) throws Exception {
+        DocValues docValues = context.reader().docValues(getFieldNames().indexName());
+        if (docValues == null) {
+            return fallback.loadDirect(context);
+        }
+        // segments written before presence was recorded consider that all the docs have a value
+        DocValues presence = context.reader().docValues(NumberFieldMapper.docValuesPresenceFieldName(getFieldNames().indexName()));
+        return new DocValuesNumericAtomicFieldData(docValues, presence, context.reader().maxDoc(), numericType);
+    }
+
+    @Override
+    public XFieldComparatorSource comparatorSource(@Nullable Object missingValue) {
+        switch (numericType) {
+            case BYTE:
+                return new ByteValuesComparatorSource(this, missingValue);
+            case SHORT:
+                return new ShortValuesComparatorSource(this, missingValue);
+            case INT:
+                return new IntValuesComparatorSource(this, missingValue);
+            case LONG:
+                return new LongValuesComparatorSource(this, missingValue);
+            case FLOAT:
+                return new FloatValuesComparatorSource(this, missingValue);
+            default:
+                return new DoubleValuesComparatorSource(this, missingValue);
+        }
+    }
+}
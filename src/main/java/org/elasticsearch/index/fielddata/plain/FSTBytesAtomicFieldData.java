@@ -0,0 +1,427 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.Util;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.ScriptDocValues;
+import org.elasticsearch.index.fielddata.ordinals.EmptyOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.index.fielddata.util.BytesRefArrayRef;
+import org.elasticsearch.index.fielddata.util.IntArrayRef;
+import org.elasticsearch.index.fielddata.util.StringArrayRef;
+
+import java.io.IOException;
+
+/**
+ * String field data that keeps the ordinal to term mapping in an {@link FST}, sharing prefixes and suffixes
+ * between terms at the cost of a lookup per value.
+ */
+public class FSTBytesAtomicFieldData implements AtomicFieldData.WithOrdinals<ScriptDocValues.Strings> {
+
+    public static FSTBytesAtomicFieldData empty(int numDocs) {
+        return new Empty(numDocs);
+    }
+
+    // 0 ordinal in values means no value (its null)
+    private final FST<Long> fst;
+    protected final Ordinals ordinals;
+
+    private long size = -1;
+
+    public FSTBytesAtomicFieldData(FST<Long> fst, Ordinals ordinals) {
+        this.fst = fst;
+        this.ordinals = ordinals;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return ordinals.isMultiValued();
+    }
+
+    @Override
+    public int getNumDocs() {
+        return ordinals.getNumDocs();
+    }
+
+    @Override
+    public boolean isValuesOrdered() {
+        return true;
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        if (size == -1) {
+            long size = ordinals.getMemorySizeInBytes();
+            if (fst != null) {
+                size += fst.sizeInBytes();
+            }
+            this.size = size;
+        }
+        return size;
+    }
+
+    @Override
+    public org.elasticsearch.index.fielddata.BytesValues.WithOrdinals getBytesValues() {
+        return ordinals.isMultiValued() ? new BytesValues.Multi(fst, ordinals.ordinals()) : new BytesValues.Single(fst, ordinals.ordinals());
+    }
+
+    @Override
+    public org.elasticsearch.index.fielddata.HashedBytesValues.WithOrdinals getHashedBytesValues() {
+        return new org.elasticsearch.index.fielddata.HashedBytesValues.WithOrdinals.BytesBased(getBytesValues());
+    }
+
+    @Override
+    public org.elasticsearch.index.fielddata.StringValues.WithOrdinals getStringValues() {
+        return new StringValues(getBytesValues());
+    }
+
+    @Override
+    public ScriptDocValues.Strings getScriptValues() {
+        return new ScriptDocValues.Strings(getStringValues());
+    }
+
+    static abstract class BytesValues implements org.elasticsearch.index.fielddata.BytesValues.WithOrdinals {
+
+        protected final FST<Long> fst;
+        protected final Ordinals.Docs ordinals;
+
+        protected final BytesRef scratch = new BytesRef();
+
+        BytesValues(FST<Long> fst, Ordinals.Docs ordinals) {
+            this.fst = fst;
+            this.ordinals = ordinals;
+        }
+
+        /**
+         * Fills the provided bytes with the term of the given ordinal, walking the FST by output.
+         */
+        protected BytesRef fill(int ord, BytesRef ret) {
+            ret.offset = 0;
+            ret.length = 0;
+            if (ord == 0) {
+                return ret;
+            }
+            IntsRef term;
+            try {
+                term = Util.getByOutput(fst, ord);
+            } catch (IOException e) {
+                throw new ElasticSearchException("failed to lookup ordinal [" + ord + "] in fst", e);
+            }
+            ret.grow(term.length);
+            for (int i = 0; i < term.length; i++) {
+                ret.bytes[i] = (byte) term.ints[term.offset + i];
+            }
+            ret.length = term.length;
+            return ret;
+        }
+
+        @Override
+        public Ordinals.Docs ordinals() {
+            return this.ordinals;
+        }
+
+        @Override
+        public BytesRef getValueByOrd(int ord) {
+            return fill(ord, scratch);
+        }
+
+        @Override
+        public BytesRef getValueScratchByOrd(int ord, BytesRef ret) {
+            return fill(ord, ret);
+        }
+
+        @Override
+        public BytesRef getSafeValueByOrd(int ord) {
+            return fill(ord, new BytesRef());
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return ordinals.getOrd(docId) != 0;
+        }
+
+        @Override
+        public BytesRef makeSafe(BytesRef bytes) {
+            return BytesRef.deepCopyOf(bytes);
+        }
+
+        @Override
+        public BytesRef getValue(int docId) {
+            int ord = ordinals.getOrd(docId);
+            if (ord == 0) return null;
+            return fill(ord, scratch);
+        }
+
+        @Override
+        public BytesRef getValueScratch(int docId, BytesRef ret) {
+            return fill(ordinals.getOrd(docId), ret);
+        }
+
+        static class Single extends BytesValues {
+
+            private final BytesRefArrayRef arrayScratch = new BytesRefArrayRef(new BytesRef[1], 1);
+            private final Iter.Single iter = new Iter.Single();
+
+            Single(FST<Long> fst, Ordinals.Docs ordinals) {
+                super(fst, ordinals);
+            }
+
+            @Override
+            public boolean isMultiValued() {
+                return false;
+            }
+
+            @Override
+            public BytesRefArrayRef getValues(int docId) {
+                int ord = ordinals.getOrd(docId);
+                if (ord == 0) return BytesRefArrayRef.EMPTY;
+                arrayScratch.values[0] = fill(ord, new BytesRef());
+                return arrayScratch;
+            }
+
+            @Override
+            public Iter getIter(int docId) {
+                int ord = ordinals.getOrd(docId);
+                if (ord == 0) return Iter.Empty.INSTANCE;
+                return iter.reset(fill(ord, scratch));
+            }
+
+            @Override
+            public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+                int ord = ordinals.getOrd(docId);
+                if (ord == 0) {
+                    proc.onMissing(docId);
+                } else {
+                    proc.onValue(docId, fill(ord, scratch));
+                }
+            }
+        }
+
+        static class Multi extends BytesValues {
+
+            private final BytesRefArrayRef arrayScratch = new BytesRefArrayRef(new BytesRef[10], 0);
+            private final ValuesIter iter = new ValuesIter();
+
+            Multi(FST<Long> fst, Ordinals.Docs ordinals) {
+                super(fst, ordinals);
+            }
+
+            @Override
+            public boolean isMultiValued() {
+                return true;
+            }
+
+            @Override
+            public BytesRefArrayRef getValues(int docId) {
+                IntArrayRef ords = ordinals.getOrds(docId);
+                int size = ords.size();
+                if (size == 0) return BytesRefArrayRef.EMPTY;
+
+                arrayScratch.reset(size);
+                for (int i = ords.start; i < ords.end; i++) {
+                    arrayScratch.values[arrayScratch.end++] = fill(ords.values[i], new BytesRef());
+                }
+                return arrayScratch;
+            }
+
+            @Override
+            public Iter getIter(int docId) {
+                return iter.reset(ordinals.getIter(docId));
+            }
+
+            @Override
+            public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+                Ordinals.Docs.Iter iter = ordinals.getIter(docId);
+                int ord = iter.next();
+                if (ord == 0) {
+                    proc.onMissing(docId);
+                    return;
+                }
+                do {
+                    proc.onValue(docId, fill(ord, scratch));
+                } while ((ord = iter.next()) != 0);
+            }
+
+            class ValuesIter implements Iter {
+
+                private final BytesRef scratch = new BytesRef();
+                private Ordinals.Docs.Iter ordsIter;
+                private int ord;
+
+                public ValuesIter reset(Ordinals.Docs.Iter ordsIter) {
+                    this.ordsIter = ordsIter;
+                    this.ord = ordsIter.next();
+                    return this;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return ord != 0;
+                }
+
+                @Override
+                public BytesRef next() {
+                    BytesRef value = fill(ord, scratch);
+                    ord = ordsIter.next();
+                    return value;
+                }
+            }
+        }
+    }
+
+    static class StringValues implements org.elasticsearch.index.fielddata.StringValues.WithOrdinals {
+
+        private final org.elasticsearch.index.fielddata.BytesValues.WithOrdinals values;
+
+        private final StringArrayRef arrayScratch = new StringArrayRef(new String[1], 1);
+        private final ValuesIter iter = new ValuesIter();
+        private final Proc proc = new Proc();
+
+        StringValues(org.elasticsearch.index.fielddata.BytesValues.WithOrdinals values) {
+            this.values = values;
+        }
+
+        @Override
+        public Ordinals.Docs ordinals() {
+            return values.ordinals();
+        }
+
+        @Override
+        public String getValueByOrd(int ord) {
+            return values.getValueByOrd(ord).utf8ToString();
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return values.isMultiValued();
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return values.hasValue(docId);
+        }
+
+        @Override
+        public String getValue(int docId) {
+            BytesRef value = values.getValue(docId);
+            return value == null ? null : value.utf8ToString();
+        }
+
+        @Override
+        public StringArrayRef getValues(int docId) {
+            BytesRefArrayRef bytes = values.getValues(docId);
+            int size = bytes.size();
+            if (size == 0) return StringArrayRef.EMPTY;
+
+            arrayScratch.reset(size);
+            for (int i = bytes.start; i < bytes.end; i++) {
+                arrayScratch.values[arrayScratch.end++] = bytes.values[i].utf8ToString();
+            }
+            return arrayScratch;
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            return iter.reset(values.getIter(docId));
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            values.forEachValueInDoc(docId, this.proc.reset(proc));
+        }
+
+        static class ValuesIter implements Iter {
+
+            private org.elasticsearch.index.fielddata.BytesValues.Iter iter;
+
+            public ValuesIter reset(org.elasticsearch.index.fielddata.BytesValues.Iter iter) {
+                this.iter = iter;
+                return this;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return iter.next().utf8ToString();
+            }
+        }
+
+        static class Proc implements org.elasticsearch.index.fielddata.BytesValues.ValueInDocProc {
+
+            private ValueInDocProc proc;
+
+            public Proc reset(ValueInDocProc proc) {
+                this.proc = proc;
+                return this;
+            }
+
+            @Override
+            public void onValue(int docId, BytesRef value) {
+                proc.onValue(docId, value.utf8ToString());
+            }
+
+            @Override
+            public void onMissing(int docId) {
+                proc.onMissing(docId);
+            }
+        }
+    }
+
+    static class Empty extends FSTBytesAtomicFieldData {
+
+        Empty(int numDocs) {
+            super(null, new EmptyOrdinals(numDocs));
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return false;
+        }
+
+        @Override
+        public org.elasticsearch.index.fielddata.BytesValues.WithOrdinals getBytesValues() {
+            return new org.elasticsearch.index.fielddata.BytesValues.WithOrdinals.Empty((EmptyOrdinals) ordinals);
+        }
+
+        @Override
+        public org.elasticsearch.index.fielddata.HashedBytesValues.WithOrdinals getHashedBytesValues() {
+            return new org.elasticsearch.index.fielddata.HashedBytesValues.WithOrdinals.Empty((EmptyOrdinals) ordinals);
+        }
+
+        @Override
+        public org.elasticsearch.index.fielddata.StringValues.WithOrdinals getStringValues() {
+            return new org.elasticsearch.index.fielddata.StringValues.WithOrdinals.Empty((EmptyOrdinals) ordinals);
+        }
+
+        @Override
+        public ScriptDocValues.Strings getScriptValues() {
+            return ScriptDocValues.EMPTY_STRINGS;
+        }
+    }
+}
@@ -0,0 +1,428 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.common.geo.GeoHashUtils;
+import org.elasticsearch.common.geo.GeoPoint;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.index.fielddata.util.GeoPointArrayRef;
+import org.elasticsearch.index.fielddata.util.IntArrayRef;
+import org.elasticsearch.index.fielddata.util.StringArrayRef;
+
+/**
+ * Geo point field data that stores lat and lon quantized to a fixed precision, in packed ints indexed by ordinal.
+ * Single valued segments use the (doc id + 1) as ordinal so no ordinals are stored for them.
+ */
+public class GeoPointCompressedAtomicFieldData implements AtomicGeoPointFieldData {
+
+    /**
+     * Quantizes coordinates so that the error on each of them is at most the precision, in meters at the equator.
+     */
+    public static class Encoding {
+
+        private static final double METERS_PER_DEGREE = 40075016.686 / 360;
+
+        public static final String DEFAULT_PRECISION = "1cm";
+
+        /**
+         * Parses a precision such as <tt>1cm</tt>, <tt>5m</tt> or <tt>1km</tt> (meters if no unit is provided).
+         */
+        public static Encoding of(String precision) {
+            double meters;
+            try {
+                if (precision.endsWith("mm")) {
+                    meters = Double.parseDouble(precision.substring(0, precision.length() - 2)) / 1000;
+                } else if (precision.endsWith("cm")) {
+                    meters = Double.parseDouble(precision.substring(0, precision.length() - 2)) / 100;
+                } else if (precision.endsWith("km")) {
+                    meters = Double.parseDouble(precision.substring(0, precision.length() - 2)) * 1000;
+                } else if (precision.endsWith("mi")) {
+                    meters = Double.parseDouble(precision.substring(0, precision.length() - 2)) * 1609.344;
+                } else if (precision.endsWith("m")) {
+                    meters = Double.parseDouble(precision.substring(0, precision.length() - 1));
+                } else {
+                    meters = Double.parseDouble(precision);
+                }
+            } catch (NumberFormatException e) {
+                throw new ElasticSearchIllegalArgumentException("failed to parse geo_point fielddata precision [" + precision + "]");
+            }
+            if (meters <= 0) {
+                throw new ElasticSearchIllegalArgumentException("geo_point fielddata precision must be positive, got [" + precision + "]");
+            }
+            return new Encoding(meters);
+        }
+
+        // number of steps per degree
+        private final double factor;
+        private final int latBits;
+        private final int lonBits;
+
+        Encoding(double precisionInMeters) {
+            // rounding to the closest step leads to an error of at most half a step
+            this.factor = 0.5 * METERS_PER_DEGREE / precisionInMeters;
+            this.latBits = PackedInts.bitsRequired(Math.round(180 * factor));
+            this.lonBits = PackedInts.bitsRequired(Math.round(360 * factor));
+        }
+
+        public int latBits() {
+            return latBits;
+        }
+
+        public int lonBits() {
+            return lonBits;
+        }
+
+        public long encodeLat(double lat) {
+            return Math.round((lat + 90) * factor);
+        }
+
+        public long encodeLon(double lon) {
+            return Math.round((lon + 180) * factor);
+        }
+
+        public double decodeLat(long encoded) {
+            return encoded / factor - 90;
+        }
+
+        public double decodeLon(long encoded) {
+            return encoded / factor - 180;
+        }
+    }
+
+    private final PackedInts.Reader lon;
+    private final PackedInts.Reader lat;
+    private final Encoding encoding;
+    private final Ordinals ordinals;
+
+    private long size = -1;
+
+    /**
+     * @param lon      encoded longitudes per ordinal, 0 being the missing value
+     * @param lat      encoded latitudes per ordinal, 0 being the missing value
+     * @param ordinals maps docs to ordinals
+     */
+    public GeoPointCompressedAtomicFieldData(PackedInts.Reader lon, PackedInts.Reader lat, Encoding encoding, Ordinals ordinals) {
+        this.lon = lon;
+        this.lat = lat;
+        this.encoding = encoding;
+        this.ordinals = ordinals;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return ordinals.isMultiValued();
+    }
+
+    @Override
+    public boolean isValuesOrdered() {
+        return false;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return ordinals.getNumDocs();
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        if (size == -1) {
+            size = RamUsage.NUM_BYTES_OBJECT_REF * 3 + lon.ramBytesUsed() + lat.ramBytesUsed() + ordinals.getMemorySizeInBytes();
+        }
+        return size;
+    }
+
+    @Override
+    public ScriptDocValues getScriptValues() {
+        return new ScriptDocValues.GeoPoints(getGeoPointValues());
+    }
+
+    @Override
+    public BytesValues getBytesValues() {
+        return new BytesValues.StringBased(getStringValues());
+    }
+
+    @Override
+    public HashedBytesValues getHashedBytesValues() {
+        return new HashedBytesValues.StringBased(getStringValues());
+    }
+
+    @Override
+    public StringValues getStringValues() {
+        return new StringValues(getGeoPointValues());
+    }
+
+    @Override
+    public GeoPointValues getGeoPointValues() {
+        return new GeoPointValues(lon, lat, encoding, ordinals.ordinals());
+    }
+
+    static class GeoPointValues implements org.elasticsearch.index.fielddata.GeoPointValues {
+
+        private final PackedInts.Reader lon;
+        private final PackedInts.Reader lat;
+        private final Encoding encoding;
+        private final Ordinals.Docs ordinals;
+
+        private final GeoPoint scratch = new GeoPoint();
+        private final GeoPointArrayRef arrayScratch = new GeoPointArrayRef(new GeoPoint[1], 1);
+        private final ValuesIter valuesIter = new ValuesIter(false);
+        private final ValuesIter safeValuesIter = new ValuesIter(true);
+
+        GeoPointValues(PackedInts.Reader lon, PackedInts.Reader lat, Encoding encoding, Ordinals.Docs ordinals) {
+            this.lon = lon;
+            this.lat = lat;
+            this.encoding = encoding;
+            this.ordinals = ordinals;
+        }
+
+        double lat(int ord) {
+            return encoding.decodeLat(lat.get(ord));
+        }
+
+        double lon(int ord) {
+            return encoding.decodeLon(lon.get(ord));
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return ordinals.isMultiValued();
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return ordinals.getOrd(docId) != 0;
+        }
+
+        @Override
+        public GeoPoint getValue(int docId) {
+            int ord = ordinals.getOrd(docId);
+            if (ord == 0) {
+                return null;
+            }
+            return scratch.reset(lat(ord), lon(ord));
+        }
+
+        @Override
+        public GeoPoint getValueSafe(int docId) {
+            int ord = ordinals.getOrd(docId);
+            if (ord == 0) {
+                return null;
+            }
+            return new GeoPoint(lat(ord), lon(ord));
+        }
+
+        @Override
+        public GeoPointArrayRef getValues(int docId) {
+            IntArrayRef ords = ordinals.getOrds(docId);
+            int size = ords.size();
+            if (size == 0) return GeoPointArrayRef.EMPTY;
+
+            arrayScratch.reset(size);
+            for (int i = ords.start; i < ords.end; i++) {
+                int ord = ords.values[i];
+                arrayScratch.values[arrayScratch.end++].reset(lat(ord), lon(ord));
+            }
+            return arrayScratch;
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            return valuesIter.reset(ordinals.getIter(docId));
+        }
+
+        @Override
+        public Iter getIterSafe(int docId) {
+            return safeValuesIter.reset(ordinals.getIter(docId));
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            Ordinals.Docs.Iter iter = ordinals.getIter(docId);
+            int ord = iter.next();
+            if (ord == 0) {
+                proc.onMissing(docId);
+                return;
+            }
+            do {
+                proc.onValue(docId, scratch.reset(lat(ord), lon(ord)));
+            } while ((ord = iter.next()) != 0);
+        }
+
+        @Override
+        public void forEachSafeValueInDoc(int docId, ValueInDocProc proc) {
+            Ordinals.Docs.Iter iter = ordinals.getIter(docId);
+            int ord = iter.next();
+            if (ord == 0) {
+                proc.onMissing(docId);
+                return;
+            }
+            do {
+                proc.onValue(docId, new GeoPoint(lat(ord), lon(ord)));
+            } while ((ord = iter.next()) != 0);
+        }
+
+        @Override
+        public void forEachLatLonValueInDoc(int docId, LatLonValueInDocProc proc) {
+            Ordinals.Docs.Iter iter = ordinals.getIter(docId);
+            int ord = iter.next();
+            if (ord == 0) {
+                proc.onMissing(docId);
+                return;
+            }
+            do {
+                proc.onValue(docId, lat(ord), lon(ord));
+            } while ((ord = iter.next()) != 0);
+        }
+
+        class ValuesIter implements Iter {
+
+            private final boolean safe;
+            private final GeoPoint scratch = new GeoPoint();
+
+            private Ordinals.Docs.Iter ordsIter;
+            private int ord;
+
+            ValuesIter(boolean safe) {
+                this.safe = safe;
+            }
+
+            public ValuesIter reset(Ordinals.Docs.Iter ordsIter) {
+                this.ordsIter = ordsIter;
+                this.ord = ordsIter.next();
+                return this;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return ord != 0;
+            }
+
+            @Override
+            public GeoPoint next() {
+                GeoPoint value = safe ? new GeoPoint(lat(ord), lon(ord)) : scratch.reset(lat(ord), lon(ord));
+                ord = ordsIter.next();
+                return value;
+            }
+        }
+    }
+
+    /**
+     * The values as geohashes.
+     */
+    static class StringValues implements org.elasticsearch.index.fielddata.StringValues {
+
+        private final org.elasticsearch.index.fielddata.GeoPointValues values;
+
+        private final StringArrayRef arrayScratch = new StringArrayRef(new String[1], 1);
+        private final ValuesIter valuesIter = new ValuesIter();
+        private final Proc proc = new Proc();
+
+        StringValues(org.elasticsearch.index.fielddata.GeoPointValues values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return values.isMultiValued();
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return values.hasValue(docId);
+        }
+
+        @Override
+        public String getValue(int docId) {
+            GeoPoint value = values.getValue(docId);
+            if (value == null) {
+                return null;
+            }
+            return GeoHashUtils.encode(value.lat(), value.lon());
+        }
+
+        @Override
+        public StringArrayRef getValues(int docId) {
+            GeoPointArrayRef points = values.getValues(docId);
+            int size = points.size();
+            if (size == 0) return StringArrayRef.EMPTY;
+
+            arrayScratch.reset(size);
+            for (int i = points.start; i < points.end; i++) {
+                arrayScratch.values[arrayScratch.end++] = GeoHashUtils.encode(points.values[i].lat(), points.values[i].lon());
+            }
+            return arrayScratch;
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            return valuesIter.reset(values.getIter(docId));
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            values.forEachLatLonValueInDoc(docId, this.proc.reset(proc));
+        }
+
+        static class ValuesIter implements Iter {
+
+            private org.elasticsearch.index.fielddata.GeoPointValues.Iter iter;
+
+            public ValuesIter reset(org.elasticsearch.index.fielddata.GeoPointValues.Iter iter) {
+                this.iter = iter;
+                return this;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            @Override
+            public String next() {
+                GeoPoint value = iter.next();
+                return GeoHashUtils.encode(value.lat(), value.lon());
+            }
+        }
+
+        static class Proc implements org.elasticsearch.index.fielddata.GeoPointValues.LatLonValueInDocProc {
+
+            private ValueInDocProc proc;
+
+            public Proc reset(ValueInDocProc proc) {
+                this.proc = proc;
+                return this;
+            }
+
+            @Override
+            public void onValue(int docId, double lat, double lon) {
+                proc.onValue(docId, GeoHashUtils.encode(lat, lon));
+            }
+
+            @Override
+            public void onMissing(int docId) {
+                proc.onMissing(docId);
+            }
+        }
+    }
+}
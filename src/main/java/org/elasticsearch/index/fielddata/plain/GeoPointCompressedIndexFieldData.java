@@ -0,0 +1,159 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.apache.lucene.util.CharsRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.UnicodeUtil;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.ordinals.DocIdOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.settings.IndexSettings;
+
+/**
+ * Geo point field data that trades precision for memory, see the <tt>precision</tt> setting (defaults to <tt>1cm</tt>).
+ */
+public class GeoPointCompressedIndexFieldData extends AbstractIndexFieldData<GeoPointCompressedAtomicFieldData> implements IndexGeoPointFieldData<GeoPointCompressedAtomicFieldData> {
+
+    public static class Builder implements IndexFieldData.Builder {
+
+        @Override
+        public IndexFieldData build(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType type, IndexFieldDataCache cache) {
+            return new GeoPointCompressedIndexFieldData(index, indexSettings, fieldNames, type, cache);
+        }
+    }
+
+    private final GeoPointCompressedAtomicFieldData.Encoding encoding;
+
+    public GeoPointCompressedIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, IndexFieldDataCache cache) {
+        super(index, indexSettings, fieldNames, fieldDataType, cache);
+        this.encoding = GeoPointCompressedAtomicFieldData.Encoding.of(
+                fieldDataType.getSettings().get("precision", GeoPointCompressedAtomicFieldData.Encoding.DEFAULT_PRECISION));
+    }
+
+    @Override
+    public boolean valuesOrdered() {
+        return false;
+    }
+
+    @Override
+    public GeoPointCompressedAtomicFieldData load(AtomicReaderContext context) {
+        try {
+            return cache.load(context, this);
+        } catch (Throwable e) {
+            if (e instanceof ElasticSearchException) {
+                throw (ElasticSearchException) e;
+            } else {
+                throw new ElasticSearchException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public GeoPointCompressedAtomicFieldData loadDirect(AtomicReaderContext context) throws Exception {
+        AtomicReader reader = context.reader();
+        float acceptableOverheadRatio = fieldDataType.getSettings().getAsFloat("acceptable_overhead_ratio", PackedInts.FAST);
+
+        Terms terms = reader.terms(getFieldNames().indexName());
+        if (terms == null) {
+            PackedInts.Mutable empty = PackedInts.getMutable(1, 1, acceptableOverheadRatio);
+            return new GeoPointCompressedAtomicFieldData(empty, empty, encoding, new DocIdOrdinals(reader.maxDoc(), new FixedBitSet(reader.maxDoc())));
+        }
+        OrdinalsBuilder builder = new OrdinalsBuilder(terms, reader.maxDoc());
+        // one slot per term and one for the missing value, grown while terms are consumed
+        PackedInts.Mutable lat = PackedInts.getMutable(128, encoding.latBits(), acceptableOverheadRatio);
+        PackedInts.Mutable lon = PackedInts.getMutable(128, encoding.lonBits(), acceptableOverheadRatio);
+        final CharsRef spare = new CharsRef();
+        try {
+            BytesRefIterator iter = builder.buildFromTerms(terms.iterator(null), reader.getLiveDocs());
+            BytesRef term;
+            int ord = 0;
+            while ((term = iter.next()) != null) {
+                UnicodeUtil.UTF8toUTF16(term, spare);
+                boolean parsed = false;
+                for (int i = spare.offset; i < spare.length; i++) {
+                    if (spare.chars[i] == ',') { // safes a string creation
+                        ++ord;
+                        if (ord >= lat.size()) {
+                            lat = resize(lat, ord * 2, acceptableOverheadRatio);
+                            lon = resize(lon, ord * 2, acceptableOverheadRatio);
+                        }
+                        lat.set(ord, encoding.encodeLat(Double.parseDouble(new String(spare.chars, spare.offset, (i - spare.offset)))));
+                        lon.set(ord, encoding.encodeLon(Double.parseDouble(new String(spare.chars, (spare.offset + (i + 1)), spare.length - ((i + 1) - spare.offset)))));
+                        parsed = true;
+                        break;
+                    }
+                }
+                assert parsed;
+            }
+
+            Ordinals build = builder.build(fieldDataType.getSettings());
+            if (!build.isMultiValued()) {
+                // store the values by doc id directly, no need to keep the ordinals around
+                Ordinals.Docs ordinals = build.ordinals();
+                PackedInts.Mutable sLat = PackedInts.getMutable(reader.maxDoc() + 1, encoding.latBits(), acceptableOverheadRatio);
+                PackedInts.Mutable sLon = PackedInts.getMutable(reader.maxDoc() + 1, encoding.lonBits(), acceptableOverheadRatio);
+                for (int i = 0; i < reader.maxDoc(); i++) {
+                    int nativeOrdinal = ordinals.getOrd(i);
+                    if (nativeOrdinal != 0) {
+                        sLat.set(i + 1, lat.get(nativeOrdinal));
+                        sLon.set(i + 1, lon.get(nativeOrdinal));
+                    }
+                }
+                return new GeoPointCompressedAtomicFieldData(sLon, sLat, encoding, new DocIdOrdinals(reader.maxDoc(), builder.buildDocsWithValuesSet()));
+            } else {
+                // trim the slots left over by growing the arrays while loading
+                if (lat.size() != ord + 1) {
+                    lat = resize(lat, ord + 1, acceptableOverheadRatio);
+                    lon = resize(lon, ord + 1, acceptableOverheadRatio);
+                }
+                return new GeoPointCompressedAtomicFieldData(lon, lat, encoding, build);
+            }
+        } finally {
+            builder.close();
+        }
+    }
+
+    private static PackedInts.Mutable resize(PackedInts.Mutable array, int newSize, float acceptableOverheadRatio) {
+        PackedInts.Mutable newArray = PackedInts.getMutable(newSize, array.getBitsPerValue(), acceptableOverheadRatio);
+        for (int i = 0; i < Math.min(array.size(), newSize); i++) {
+            newArray.set(i, array.get(i));
+        }
+        return newArray;
+    }
+
+    @Override
+    public XFieldComparatorSource comparatorSource(@Nullable Object missingValue) {
+        throw new ElasticSearchIllegalArgumentException("can't sort on geo_point field without using specific sorting feature, like geo_distance");
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.util.LongArrayRef;
+
+/**
+ * Single valued long field data, with each value stored as <tt>(value - minValue) / gcd</tt> in packed ints.
+ */
+public class PackedArrayAtomicFieldData implements AtomicNumericFieldData {
+
+    private final PackedInts.Reader values;
+    private final long minValue;
+    private final long gcd;
+    private final int numDocs;
+    @Nullable
+    private final FixedBitSet set;
+
+    private long size = -1;
+
+    /**
+     * @param set the docs with a value, <tt>null</tt> if all docs have a value
+     */
+    public PackedArrayAtomicFieldData(PackedInts.Reader values, long minValue, long gcd, int numDocs, @Nullable FixedBitSet set) {
+        this.values = values;
+        this.minValue = minValue;
+        this.gcd = gcd;
+        this.numDocs = numDocs;
+        this.set = set;
+    }
+
+    @Override
+    public boolean isMultiValued() {
+        return false;
+    }
+
+    @Override
+    public boolean isValuesOrdered() {
+        return false;
+    }
+
+    @Override
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    @Override
+    public long getMemorySizeInBytes() {
+        if (size == -1) {
+            size = values.ramBytesUsed() + (set == null ? 0 : set.getBits().length * RamUsage.NUM_BYTES_LONG);
+        }
+        return size;
+    }
+
+    /**
+     * The memory saved by packing the values, compared to storing them in a plain long array.
+     */
+    public long getSavedMemorySizeInBytes() {
+        return RamUsage.NUM_BYTES_ARRAY_HEADER + ((long) numDocs * RamUsage.NUM_BYTES_LONG) - values.ramBytesUsed();
+    }
+
+    @Override
+    public ScriptDocValues getScriptValues() {
+        return new ScriptDocValues.NumericLong(getLongValues());
+    }
+
+    @Override
+    public BytesValues getBytesValues() {
+        return new BytesValues.StringBased(getStringValues());
+    }
+
+    @Override
+    public HashedBytesValues getHashedBytesValues() {
+        return new HashedBytesValues.StringBased(getStringValues());
+    }
+
+    @Override
+    public StringValues getStringValues() {
+        return new StringValues.LongBased(getLongValues());
+    }
+
+    @Override
+    public ByteValues getByteValues() {
+        return new ByteValues.LongBased(getLongValues());
+    }
+
+    @Override
+    public ShortValues getShortValues() {
+        return new ShortValues.LongBased(getLongValues());
+    }
+
+    @Override
+    public IntValues getIntValues() {
+        return new IntValues.LongBased(getLongValues());
+    }
+
+    @Override
+    public LongValues getLongValues() {
+        return new LongValues(values, minValue, gcd, set);
+    }
+
+    @Override
+    public FloatValues getFloatValues() {
+        return new FloatValues.DoubleBased(getDoubleValues());
+    }
+
+    @Override
+    public DoubleValues getDoubleValues() {
+        return new DoubleValues.LongBased(getLongValues());
+    }
+
+    static class LongValues implements org.elasticsearch.index.fielddata.LongValues {
+
+        private final PackedInts.Reader values;
+        private final long minValue;
+        private final long gcd;
+        private final FixedBitSet set;
+
+        private final LongArrayRef arrayScratch = new LongArrayRef(new long[1], 1);
+        private final Iter.Single iter = new Iter.Single();
+
+        LongValues(PackedInts.Reader values, long minValue, long gcd, @Nullable FixedBitSet set) {
+            this.values = values;
+            this.minValue = minValue;
+            this.gcd = gcd;
+            this.set = set;
+        }
+
+        @Override
+        public boolean isMultiValued() {
+            return false;
+        }
+
+        @Override
+        public boolean hasValue(int docId) {
+            return set == null || set.get(docId);
+        }
+
+        @Override
+        public long getValue(int docId) {
+            return minValue + gcd * values.get(docId);
+        }
+
+        @Override
+        public long getValueMissing(int docId, long missingValue) {
+            if (hasValue(docId)) {
+                return getValue(docId);
+            } else {
+                return missingValue;
+            }
+        }
+
+        @Override
+        public LongArrayRef getValues(int docId) {
+            if (hasValue(docId)) {
+                arrayScratch.values[0] = getValue(docId);
+                return arrayScratch;
+            } else {
+                return LongArrayRef.EMPTY;
+            }
+        }
+
+        @Override
+        public Iter getIter(int docId) {
+            if (hasValue(docId)) {
+                return iter.reset(getValue(docId));
+            } else {
+                return Iter.Empty.INSTANCE;
+            }
+        }
+
+        @Override
+        public void forEachValueInDoc(int docId, ValueInDocProc proc) {
+            if (hasValue(docId)) {
+                proc.onValue(docId, getValue(docId));
+            } else {
+                proc.onMissing(docId);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.fielddata.plain;
+
+import gnu.trove.list.array.TLongArrayList;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.ElasticSearchException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.fieldcomparator.LongValuesComparatorSource;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.settings.IndexSettings;
+
+/**
+ * Long field data stored compressed: each value is encoded as <tt>(value - min) / gcd</tt> using the minimum
+ * number of bits required, which works well for values spanning a narrow range (or being multiples of a common
+ * value, like timestamps in seconds). Falls back to {@link LongArrayAtomicFieldData} for multi valued fields, and
+ * when packing would not save memory.
+ */
+public class PackedArrayIndexFieldData extends AbstractIndexFieldData<AtomicNumericFieldData> implements IndexNumericFieldData<AtomicNumericFieldData> {
+
+    public static class Builder implements IndexFieldData.Builder {
+
+        @Override
+        public IndexFieldData build(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType type, IndexFieldDataCache cache) {
+            return new PackedArrayIndexFieldData(index, indexSettings, fieldNames, type, cache);
+        }
+    }
+
+    private final float acceptableOverheadRatio;
+
+    public PackedArrayIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType fieldDataType, IndexFieldDataCache cache) {
+        super(index, indexSettings, fieldNames, fieldDataType, cache);
+        this.acceptableOverheadRatio = fieldDataType.getSettings().getAsFloat("acceptable_overhead_ratio", PackedInts.DEFAULT);
+    }
+
+    @Override
+    public NumericType getNumericType() {
+        return NumericType.LONG;
+    }
+
+    @Override
+    public boolean valuesOrdered() {
+        return false;
+    }
+
+    @Override
+    public AtomicNumericFieldData load(AtomicReaderContext context) {
+        try {
+            return cache.load(context, this);
+        } catch (Throwable e) {
+            if (e instanceof ElasticSearchException) {
+                throw (ElasticSearchException) e;
+            } else {
+                throw new ElasticSearchException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public AtomicNumericFieldData loadDirect(AtomicReaderContext context) throws Exception {
+        AtomicReader reader = context.reader();
+        Terms terms = reader.terms(getFieldNames().indexName());
+        if (terms == null) {
+            return LongArrayAtomicFieldData.EMPTY;
+        }
+        final TLongArrayList values = new TLongArrayList();
+
+        values.add(0); // first "t" indicates null value
+        OrdinalsBuilder builder = new OrdinalsBuilder(terms, reader.maxDoc());
+        try {
+            BytesRefIterator iter = builder.buildFromTerms(builder.wrapNumeric64Bit(terms.iterator(null)), reader.getLiveDocs());
+            BytesRef term;
+            while ((term = iter.next()) != null) {
+                values.add(NumericUtils.prefixCodedToLong(term));
+            }
+            Ordinals build = builder.build(fieldDataType.getSettings());
+            if (build.isMultiValued()) {
+                return new LongArrayAtomicFieldData.WithOrdinals(values.toArray(new long[values.size()]), reader.maxDoc(), build);
+            }
+
+            final int maxDoc = reader.maxDoc();
+            final FixedBitSet set = builder.buildDocsWithValuesSet();
+            Ordinals.Docs ordinals = build.ordinals();
+            if (values.size() == 1) {
+                // no values at all
+                return new LongArrayAtomicFieldData.SingleFixedSet(new long[maxDoc], maxDoc, new FixedBitSet(maxDoc));
+            }
+
+            // terms are sorted, so the first and last values are the min and max
+            long minValue = values.get(1);
+            long maxValue = values.get(values.size() - 1);
+            long gcd = 0;
+            for (int i = 1; i < values.size() && gcd != 1; i++) {
+                gcd = gcd(gcd, values.get(i) - minValue);
+            }
+            if (gcd == 0) {
+                // a single distinct value
+                gcd = 1;
+            }
+            long maxDelta = maxValue - minValue;
+            int bitsRequired = maxDelta < 0 ? 64 : PackedInts.bitsRequired(maxDelta / gcd);
+
+            // the overhead ratio is an allowance of extra bits per value for faster access, not a multiplier
+            int bitsPerValue = PackedInts.fastestFormatAndBits(maxDoc, bitsRequired, acceptableOverheadRatio).bitsPerValue;
+            if (bitsPerValue >= 64) {
+                // packing won't help, use a plain array
+                long[] sValues = new long[maxDoc];
+                for (int i = 0; i < maxDoc; i++) {
+                    sValues[i] = values.get(ordinals.getOrd(i));
+                }
+                if (set == null) {
+                    return new LongArrayAtomicFieldData.Single(sValues, maxDoc);
+                } else {
+                    return new LongArrayAtomicFieldData.SingleFixedSet(sValues, maxDoc, set);
+                }
+            }
+
+            PackedInts.Mutable packed = PackedInts.getMutable(maxDoc, bitsRequired, acceptableOverheadRatio);
+            for (int i = 0; i < maxDoc; i++) {
+                int ord = ordinals.getOrd(i);
+                if (ord != 0) {
+                    packed.set(i, (values.get(ord) - minValue) / gcd);
+                }
+            }
+            PackedArrayAtomicFieldData fieldData = new PackedArrayAtomicFieldData(packed, minValue, gcd, maxDoc, set);
+            if (logger.isDebugEnabled()) {
+                logger.debug("packed [{}] with [{}] bits per value, gcd [{}], saved [{}]", getFieldNames().fullName(), bitsPerValue, gcd,
+                        new ByteSizeValue(fieldData.getSavedMemorySizeInBytes()));
+            }
+            return fieldData;
+        } finally {
+            builder.close();
+        }
+    }
+
+    static long gcd(long a, long b) {
+        a = Math.abs(a);
+        b = Math.abs(b);
+        while (b != 0) {
+            long t = b;
+            b = a % b;
+            a = t;
+        }
+        return a;
+    }
+
+    @Override
+    public XFieldComparatorSource comparatorSource(@Nullable Object missingValue) {
+        return new LongValuesComparatorSource(this, missingValue);
+    }
+}
@@ -21,9 +21,12 @@ package org.elasticsearch.index.mapper.core;
 
 import com.google.common.base.Objects;
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.SortedBytesDocValuesField;
 import org.apache.lucene.index.FieldInfo.IndexOptions;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.BytesRef;
@@ -47,6 +50,7 @@ import org.elasticsearch.index.similarity.SimilarityProvider;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 /**
  *
@@ -148,6 +152,11 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T>, Mapper {
         public T fieldDataSettings(String settings) {
             return super.fieldDataSettings(settings);
         }
+
+        @Override
+        public T docValues(boolean docValues) {
+            return super.docValues(docValues);
+        }
     }
 
     public abstract static class Builder<T extends Builder, Y extends AbstractFieldMapper> extends Mapper.Builder<T, Y> {
@@ -164,6 +173,7 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T>, Mapper {
         protected SimilarityProvider similarity;
         @Nullable
         protected Settings fieldDataSettings;
+        protected boolean docValues = false;
 
         protected Builder(String name, FieldType fieldType) {
             super(name);
@@ -257,9 +267,35 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T>, Mapper {
 
         protected T fieldDataSettings(String settings) {
             this.fieldDataSettings = ImmutableSettings.builder().loadFromDelimitedString(settings, ';').build();
+            if (FieldDataType.DOC_VALUES_FORMAT.equals(fieldDataSettings.get("format"))) {
+                // same as setting doc_values, so the checks done on build apply to it as well
+                this.docValues = true;
+            }
+            if (docValues) {
+                applyDocValuesFormat();
+            }
+            return builder;
+        }
+
+        /**
+         * Writes the values as doc values at index time, and uses them as the field data format.
+         */
+        protected T docValues(boolean docValues) {
+            this.docValues = docValues;
+            if (docValues) {
+                applyDocValuesFormat();
+            }
             return builder;
         }
 
+        private void applyDocValuesFormat() {
+            ImmutableSettings.Builder settings = ImmutableSettings.builder();
+            if (fieldDataSettings != null) {
+                settings.put(fieldDataSettings);
+            }
+            this.fieldDataSettings = settings.put("format", FieldDataType.DOC_VALUES_FORMAT).build();
+        }
+
         protected Names buildNames(BuilderContext context) {
             return new Names(name, buildIndexName(context), indexName == null ? name : indexName, buildFullName(context), context.path().sourcePath());
         }
@@ -390,6 +426,19 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T>, Mapper {
             }
             if (context.listener().beforeFieldAdded(this, field, context)) {
                 context.doc().add(field);
+                if (fieldDataType.hasDocValues()) {
+                    Field docValuesField = docValuesField(field);
+                    if (docValuesField != null) {
+                        if (hasDocValuesField(context.doc())) {
+                            throw new MapperParsingException("doc_values only support a single value per document, field [" + names.fullName() + "] has several");
+                        }
+                        context.doc().add(docValuesField);
+                        Field docValuesPresenceField = docValuesPresenceField();
+                        if (docValuesPresenceField != null) {
+                            context.doc().add(docValuesPresenceField);
+                        }
+                    }
+                }
             }
         } catch (Exception e) {
             throw new MapperParsingException("failed to parse [" + names.fullName() + "]", e);
@@ -398,6 +447,37 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T>, Mapper {
 
     protected abstract Field parseCreateField(ParseContext context) throws IOException;
 
+    private boolean hasDocValuesField(Document doc) {
+        for (IndexableField field : doc.getFields(names.indexName())) {
+            if (field.fieldType().docValueType() != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The doc values field to add along with the provided field when doc values are enabled, <tt>null</tt> if
+     * the field has no value to write. Note, doc values hold a single value per document.
+     */
+    @Nullable
+    protected Field docValuesField(Field field) {
+        String value = field.stringValue();
+        if (value == null) {
+            return null;
+        }
+        return new SortedBytesDocValuesField(names.indexName(), new BytesRef(value));
+    }
+
+    /**
+     * A doc values field to add along with the doc values field, recording that the doc has a value, for doc values
+     * types that can't tell a missing value apart from a default one. <tt>null</tt> if not needed.
+     */
+    @Nullable
+    protected Field docValuesPresenceField() {
+        return null;
+    }
+
     /**
      * Derived classes can override it to specify that boost value is set by derived classes.
      */
@@ -654,8 +734,24 @@ public abstract class AbstractFieldMapper<T> implements FieldMapper<T>, Mapper {
             builder.field("similarity", similarity().name());
         }
 
+        if (fieldDataType.hasDocValues()) {
+            builder.field("doc_values", true);
+        }
         if (customFieldDataSettings != null) {
-            builder.field("fielddata", customFieldDataSettings.toDelimitedString(';'));
+            String fieldDataSettings = customFieldDataSettings.toDelimitedString(';');
+            if (fieldDataType.hasDocValues()) {
+                // the format is implied by doc_values
+                ImmutableSettings.Builder settings = ImmutableSettings.builder();
+                for (Map.Entry<String, String> entry : customFieldDataSettings.getAsMap().entrySet()) {
+                    if (!entry.getKey().equals("format")) {
+                        settings.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                fieldDataSettings = settings.build().toDelimitedString(';');
+            }
+            if (fieldDataSettings.length() > 0) {
+                builder.field("fielddata", fieldDataSettings);
+            }
         }
     }
 
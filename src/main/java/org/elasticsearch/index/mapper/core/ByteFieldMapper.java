@@ -22,6 +22,7 @@ package org.elasticsearch.index.mapper.core;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.PackedLongDocValuesField;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.NumericRangeFilter;
@@ -369,6 +370,11 @@ public class ByteFieldMapper extends NumberFieldMapper<Byte> {
             return null;
         }
 
+        @Override
+        public Field docValuesField() {
+            return new PackedLongDocValuesField(mapper.names().indexName(), number);
+        }
+
         @Override
         public String numericAsString() {
             return Byte.toString(number);
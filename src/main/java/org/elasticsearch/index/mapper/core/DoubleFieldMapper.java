@@ -22,6 +22,7 @@ package org.elasticsearch.index.mapper.core;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.DoubleDocValuesField;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.NumericRangeFilter;
@@ -368,6 +369,11 @@ public class DoubleFieldMapper extends NumberFieldMapper<Double> {
             return null;
         }
 
+        @Override
+        public Field docValuesField() {
+            return new DoubleDocValuesField(mapper.names().indexName(), number);
+        }
+
         @Override
         public String numericAsString() {
             return Double.toString(number);
@@ -22,6 +22,7 @@ package org.elasticsearch.index.mapper.core;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatDocValuesField;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.NumericRangeFilter;
@@ -364,6 +365,11 @@ public class FloatFieldMapper extends NumberFieldMapper<Float> {
             return null;
         }
 
+        @Override
+        public Field docValuesField() {
+            return new FloatDocValuesField(mapper.names().indexName(), number);
+        }
+
         @Override
         public String numericAsString() {
             return Float.toString(number);
@@ -22,6 +22,7 @@ package org.elasticsearch.index.mapper.core;
 import org.apache.lucene.analysis.NumericTokenStream;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.PackedLongDocValuesField;
 import org.apache.lucene.index.FieldInfo.IndexOptions;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
@@ -180,6 +181,31 @@ public abstract class NumberFieldMapper<T extends Number> extends AbstractFieldM
 
     protected abstract Field innerParseCreateField(ParseContext context) throws IOException;
 
+    @Override
+    protected Field docValuesField(Field field) {
+        if (field instanceof CustomNumericField) {
+            return ((CustomNumericField) field).docValuesField();
+        }
+        return null;
+    }
+
+    /**
+     * Numeric doc values read as <tt>0</tt> for docs without a value, so docs with one are marked in a companion
+     * doc values field, see {@link #docValuesPresenceFieldName(String)}.
+     */
+    @Override
+    protected Field docValuesPresenceField() {
+        return new PackedLongDocValuesField(docValuesPresenceFieldName(names.indexName()), 1);
+    }
+
+    /**
+     * The name of the doc values field holding <tt>1</tt> for the docs that have a value for the provided numeric
+     * field, and <tt>0</tt> for the others.
+     */
+    public static String docValuesPresenceFieldName(String indexName) {
+        return indexName + "._dv_exists";
+    }
+
     /**
      * Use the field query created here when matching on numbers.
      */
@@ -279,6 +305,11 @@ public abstract class NumberFieldMapper<T extends Number> extends AbstractFieldM
         }
 
         public abstract String numericAsString();
+
+        /**
+         * The doc values field holding the number, used when the mapper has doc values enabled.
+         */
+        public abstract Field docValuesField();
     }
 
     @Override
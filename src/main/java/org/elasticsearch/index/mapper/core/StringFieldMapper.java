@@ -120,6 +120,9 @@ public class StringFieldMapper extends AbstractFieldMapper<String> implements Al
 
         @Override
         public StringFieldMapper build(BuilderContext context) {
+            if (docValues && fieldType.tokenized()) {
+                throw new MapperParsingException("doc_values are only supported on not_analyzed string fields, field [" + name + "]");
+            }
             if (positionOffsetGap > 0) {
                 indexAnalyzer = new NamedCustomAnalyzer(indexAnalyzer, positionOffsetGap);
                 searchAnalyzer = new NamedCustomAnalyzer(searchAnalyzer, positionOffsetGap);
@@ -119,6 +119,8 @@ public class TypeParsers {
                 builder.similarity(parserContext.similarityLookupService().similarity(propNode.toString()));
             } else if (propName.equals("fielddata")) {
                 builder.fieldDataSettings(propNode.toString());
+            } else if (propName.equals("doc_values")) {
+                builder.docValues(nodeBooleanValue(propNode));
             }
         }
     }
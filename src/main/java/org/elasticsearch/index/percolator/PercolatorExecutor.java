@@ -31,6 +31,8 @@ import org.apache.lucene.search.Scorer;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.routing.operation.hash.djb.DjbHashFunction;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Preconditions;
 import org.elasticsearch.common.Strings;
@@ -44,6 +46,7 @@ import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
@@ -66,16 +69,21 @@ import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.settings.IndexSettingsService;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.elasticsearch.index.mapper.SourceToParse.source;
 
@@ -87,10 +95,19 @@ public class PercolatorExecutor extends AbstractIndexComponent {
     public static class SourceRequest {
         private final String type;
         private final BytesReference source;
+        private final int shardId;
 
         public SourceRequest(String type, BytesReference source) {
+            this(type, source, -1);
+        }
+
+        /**
+         * A request only evaluating the queries partitioned to the given shard, see {@link #PERCOLATE_DISTRIBUTED}.
+         */
+        public SourceRequest(String type, BytesReference source, int shardId) {
             this.type = type;
             this.source = source;
+            this.shardId = shardId;
         }
 
         public String type() {
@@ -100,6 +117,13 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         public BytesReference source() {
             return source;
         }
+
+        /**
+         * The shard whose queries are evaluated, <tt>-1</tt> for all the queries.
+         */
+        public int shardId() {
+            return shardId;
+        }
     }
 
     public static class DocAndSourceQueryRequest {
@@ -127,10 +151,16 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         private final ParsedDocument doc;
         @Nullable
         private final Query query;
+        private final int shardId;
 
         public DocAndQueryRequest(ParsedDocument doc, @Nullable Query query) {
+            this(doc, query, -1);
+        }
+
+        public DocAndQueryRequest(ParsedDocument doc, @Nullable Query query, int shardId) {
             this.doc = doc;
             this.query = query;
+            this.shardId = shardId;
         }
 
         public ParsedDocument doc() {
@@ -141,6 +171,10 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         Query query() {
             return this.query;
         }
+
+        int shardId() {
+            return this.shardId;
+        }
     }
 
     public static final class Response {
@@ -161,6 +195,34 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         }
     }
 
+    /**
+     * The responses of a batch of percolated docs, in the order of the requests. A doc that failed has a failure
+     * instead of a response, without failing the rest of the batch.
+     */
+    public static final class BatchResponse {
+        private final Response[] responses;
+        private final ElasticSearchException[] failures;
+
+        BatchResponse(int size) {
+            this.responses = new Response[size];
+            this.failures = new ElasticSearchException[size];
+        }
+
+        public int size() {
+            return responses.length;
+        }
+
+        @Nullable
+        public Response response(int i) {
+            return responses[i];
+        }
+
+        @Nullable
+        public ElasticSearchException failure(int i) {
+            return failures[i];
+        }
+    }
+
     private final MapperService mapperService;
 
     private final IndexQueryParserService queryParserService;
@@ -169,6 +231,9 @@ public class PercolatorExecutor extends AbstractIndexComponent {
     private final IndexFieldDataService fieldDataService;
 
     private final Map<String, Query> queries = ConcurrentCollections.newConcurrentMap();
+
+    // the terms of the registered queries, to only run the ones that might match a percolated doc
+    private final QueryTermIndex queryTermIndex = new QueryTermIndex();
     
     /**
      * Realtime index setting to control the number of MemoryIndex instances used to handle
@@ -190,6 +255,26 @@ public class PercolatorExecutor extends AbstractIndexComponent {
      * for an pooled memory index until an extra memory index is created. The default is <tt>100 ms</tt>
      */
     public static final String PERCOLATE_TIMEOUT = "index.percolate.pool.timeout";
+
+    /**
+     * Realtime index setting to control the number of percolate threads a percolate request evaluates its
+     * candidate queries on, against the same memory index. The default is <tt>1</tt>
+     */
+    public static final String PERCOLATE_PARALLELISM = "index.percolate.parallelism";
+
+    /**
+     * Index setting partitioning the registered queries of the index across its shards (by query id, the same
+     * way docs are routed). Each node then only holds the queries of the shards allocated on it, and a percolate
+     * request is broadcast to one copy of each shard. Can only be set on index creation. The default is <tt>false</tt>
+     */
+    public static final String PERCOLATE_DISTRIBUTED = "index.percolate.distributed";
+
+    // below that many candidate queries per thread, forking costs more than it saves
+    private static final int MIN_QUERIES_PER_SLICE = 128;
+
+    static {
+        IndexMetaData.addDynamicSettings(PERCOLATE_PARALLELISM);
+    }
     
     /**
      * Simple {@link MemoryIndex} Pool that reuses MemoryIndex instance across threads and allows each of the 
@@ -290,17 +375,26 @@ public class PercolatorExecutor extends AbstractIndexComponent {
 
     private IndicesService indicesService;
     private final MemoryIndexPool memIndexPool;
+    private final ThreadPool threadPool;
+    private volatile int parallelism;
+    private final boolean distributed;
+    private final int numberOfShards;
 
     @Inject
     public PercolatorExecutor(Index index, @IndexSettings Settings indexSettings,
                               MapperService mapperService, IndexQueryParserService queryParserService,
-                              IndexCache indexCache, IndexFieldDataService fieldDataService, IndexSettingsService indexSettingsService) {
+                              IndexCache indexCache, IndexFieldDataService fieldDataService, IndexSettingsService indexSettingsService,
+                              ThreadPool threadPool) {
         super(index, indexSettings);
         this.mapperService = mapperService;
         this.queryParserService = queryParserService;
         this.indexCache = indexCache;
         this.fieldDataService = fieldDataService;
+        this.threadPool = threadPool;
         memIndexPool = new MemoryIndexPool(indexSettings);
+        parallelism = parseParallelism(indexSettings, 1);
+        distributed = indexSettings.getAsBoolean(PERCOLATE_DISTRIBUTED, false);
+        numberOfShards = indexSettings.getAsInt(IndexMetaData.SETTING_NUMBER_OF_SHARDS, -1);
         ApplySettings applySettings = new ApplySettings();
         indexSettingsService.addListener(applySettings);
     }
@@ -308,16 +402,49 @@ public class PercolatorExecutor extends AbstractIndexComponent {
     class ApplySettings implements IndexSettingsService.Listener {
         @Override
         public void onRefreshSettings(Settings settings) {
+           int parallelism = PercolatorExecutor.this.parallelism;
+           try {
+               parallelism = parseParallelism(settings, parallelism);
+           } catch (Exception e) {
+               logger.warn("ignoring invalid [{}] setting, keeping [{}]", e, PERCOLATE_PARALLELISM, parallelism);
+           }
+           if (parallelism != PercolatorExecutor.this.parallelism) {
+               logger.info("updating [{}] from [{}] to [{}]", PERCOLATE_PARALLELISM, PercolatorExecutor.this.parallelism, parallelism);
+               PercolatorExecutor.this.parallelism = parallelism;
+           }
            memIndexPool.updateSettings(settings);
         }
     }
 
+    private static int parseParallelism(Settings settings, int defaultParallelism) {
+        int parallelism = settings.getAsInt(PERCOLATE_PARALLELISM, defaultParallelism);
+        if (parallelism <= 0) {
+            throw new ElasticSearchIllegalArgumentException(PERCOLATE_PARALLELISM + " must be > 0 but was [" + parallelism + "]");
+        }
+        return parallelism;
+    }
+
+    /**
+     * The shard the query with the given id is partitioned to, when the percolator is distributed.
+     */
+    public static int partition(String id, int numberOfShards) {
+        return Math.abs(DjbHashFunction.DJB_HASH(id) % numberOfShards);
+    }
+
+    public boolean distributed() {
+        return distributed;
+    }
+
+    public int partition(String id) {
+        return partition(id, numberOfShards);
+    }
+
     public void setIndicesService(IndicesService indicesService) {
         this.indicesService = indicesService;
     }
 
     public void close() {
-        this.queries.clear();
+        clearQueries();
     }
 
     public void addQuery(String name, QueryBuilder queryBuilder) throws ElasticSearchException {
@@ -370,18 +497,66 @@ public class PercolatorExecutor extends AbstractIndexComponent {
 
     private void addQuery(String name, Query query) {
         Preconditions.checkArgument(query != null, "query must be provided for percolate request");
+        // index the query before publishing it, so a percolation seeing the query also sees its terms
+        this.queryTermIndex.add(name, query);
         this.queries.put(name, query);
     }
 
     public void removeQuery(String name) {
+        // unpublish the query before removing its terms, the reverse of addQuery
         this.queries.remove(name);
+        this.queryTermIndex.remove(name);
+    }
+
+    /**
+     * Removes the queries partitioned to the given shard, once it is no longer allocated on this node.
+     */
+    public void removeQueries(int shardId) {
+        for (String id : queries.keySet()) {
+            if (partition(id) == shardId) {
+                removeQuery(id);
+            }
+        }
     }
 
     public void addQueries(Map<String, Query> queries) {
+        // same order as addQuery, index first then publish
+        for (Map.Entry<String, Query> entry : queries.entrySet()) {
+            this.queryTermIndex.add(entry.getKey(), entry.getValue());
+        }
         this.queries.putAll(queries);
     }
 
     public Response percolate(final SourceRequest request) throws ElasticSearchException {
+        return percolate(parseRequest(request));
+    }
+
+    /**
+     * Percolates a batch of docs, all through the same pooled memory index (reset between docs) instead of
+     * checking one out of the pool per doc.
+     */
+    public BatchResponse percolate(List<SourceRequest> requests) {
+        BatchResponse response = new BatchResponse(requests.size());
+        final ReusableMemoryIndex memoryIndex = memIndexPool.acquire();
+        try {
+            for (int i = 0; i < requests.size(); i++) {
+                try {
+                    response.responses[i] = percolate(parseRequest(requests.get(i)), memoryIndex);
+                } catch (ElasticSearchException e) {
+                    response.failures[i] = e;
+                } catch (Exception e) {
+                    response.failures[i] = new PercolatorException(index, "failed to percolate", e);
+                } finally {
+                    memoryIndex.reset();
+                }
+            }
+        } finally {
+            memIndexPool.release(memoryIndex);
+        }
+        return response;
+    }
+
+    private DocAndQueryRequest parseRequest(SourceRequest request) throws ElasticSearchException {
         Query query = null;
         ParsedDocument doc = null;
         XContentParser parser = null;
@@ -419,10 +594,14 @@ public class PercolatorExecutor extends AbstractIndexComponent {
             throw new PercolatorException(index, "No doc to percolate in the request");
         }
 
-        return percolate(new DocAndQueryRequest(doc, query));
+        return new DocAndQueryRequest(doc, query, request.shardId());
     }
 
     public Response percolate(DocAndSourceQueryRequest request) throws ElasticSearchException {
+        if (distributed) {
+            // only the queries of the shards allocated on this node are loaded
+            throw new PercolatorException(index, "percolating on index operations is not supported when [" + PERCOLATE_DISTRIBUTED + "] is set, use the percolate API");
+        }
         Query query = null;
         if (Strings.hasLength(request.query()) && !request.query().equals("*")) {
             query = percolatorIndexServiceSafe().queryParserService().parse(QueryBuilders.queryString(request.query())).query();
@@ -431,73 +610,161 @@ public class PercolatorExecutor extends AbstractIndexComponent {
     }
 
     private Response percolate(DocAndQueryRequest request) throws ElasticSearchException {
-        // first, parse the source doc into a MemoryIndex
         final ReusableMemoryIndex memoryIndex = memIndexPool.acquire();
         try {
-            // TODO: This means percolation does not support nested docs...
-            for (IndexableField field : request.doc().rootDoc().getFields()) {
-                if (!field.fieldType().indexed()) {
-                    continue;
+            return percolate(request, memoryIndex);
+        } finally {
+            memIndexPool.release(memoryIndex);
+        }
+    }
+
+    private Response percolate(DocAndQueryRequest request, ReusableMemoryIndex memoryIndex) throws ElasticSearchException {
+        // first, parse the source doc into a MemoryIndex
+        // TODO: This means percolation does not support nested docs...
+        for (IndexableField field : request.doc().rootDoc().getFields()) {
+            if (!field.fieldType().indexed()) {
+                continue;
+            }
+            // no need to index the UID field
+            if (field.name().equals(UidFieldMapper.NAME)) {
+                continue;
+            }
+            TokenStream tokenStream;
+            try {
+                tokenStream = field.tokenStream(request.doc().analyzer());
+                if (tokenStream != null) {
+                    tokenStream.reset();
+                    memoryIndex.addField(field.name(), tokenStream, field.boost());
+                }
+            } catch (IOException e) {
+                throw new ElasticSearchException("Failed to create token stream", e);
+            }
+        }
+
+        final IndexSearcher searcher = memoryIndex.createSearcher();
+        List<String> matches = new ArrayList<String>();
+
+        try {
+            Set<String> candidates;
+            try {
+                candidates = queryTermIndex.candidates(searcher.getIndexReader().leaves().get(0).reader());
+            } catch (IOException e) {
+                throw new ElasticSearchException("Failed to select the candidate queries", e);
+            }
+            if (request.shardId() != -1) {
+                candidates = partitionCandidates(candidates, request.shardId());
+            }
+            if (request.query() == null) {
+                String[] ids = candidates.toArray(new String[candidates.size()]);
+                int numSlices = Math.min(parallelism, (ids.length + MIN_QUERIES_PER_SLICE - 1) / MIN_QUERIES_PER_SLICE);
+                if (numSlices <= 1) {
+                    runQueries(searcher, ids, 0, ids.length, matches);
+                } else {
+                    runQueries(searcher, ids, numSlices, matches);
                 }
-                // no need to index the UID field
-                if (field.name().equals(UidFieldMapper.NAME)) {
-                    continue;
+            } else {
+                IndexService percolatorIndex = percolatorIndexServiceSafe();
+                if (percolatorIndex.numberOfShards() == 0) {
+                    throw new PercolateIndexUnavailable(new Index(PercolatorService.INDEX_NAME));
                 }
-                TokenStream tokenStream;
+                IndexShard percolatorShard = percolatorIndex.shard(0);
+                Engine.Searcher percolatorSearcher = percolatorShard.searcher();
                 try {
-                    tokenStream = field.tokenStream(request.doc().analyzer());
-                    if (tokenStream != null) {
-                        tokenStream.reset();
-                        memoryIndex.addField(field.name(), tokenStream, field.boost());
-                    }
+                    percolatorSearcher.searcher().search(request.query(), new QueryCollector(logger, queries, candidates, searcher, percolatorIndex, matches));
                 } catch (IOException e) {
-                    throw new ElasticSearchException("Failed to create token stream", e);
+                    logger.warn("failed to execute", e);
+                } finally {
+                    percolatorSearcher.release();
                 }
             }
-    
-            final IndexSearcher searcher = memoryIndex.createSearcher();
-            List<String> matches = new ArrayList<String>();
-    
+        } finally {
+            // explicitly clear the reader, since we can only register on callback on SegmentReader
+            indexCache.clear(searcher.getIndexReader());
+            fieldDataService.clear(searcher.getIndexReader());
+        }
+        return new Response(matches, request.doc().mappingsModified());
+    }
+
+    private Set<String> partitionCandidates(Set<String> candidates, int shardId) {
+        Set<String> partitionCandidates = new HashSet<String>();
+        for (String id : candidates) {
+            if (partition(id) == shardId) {
+                partitionCandidates.add(id);
+            }
+        }
+        return partitionCandidates;
+    }
+
+    private void runQueries(IndexSearcher searcher, String[] ids, int from, int to, List<String> matches) {
+        Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
+        for (int i = from; i < to; i++) {
+            Query query = queries.get(ids[i]);
+            if (query == null) {
+                continue;
+            }
+            collector.reset();
             try {
-                if (request.query() == null) {
-                    Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
-                    for (Map.Entry<String, Query> entry : queries.entrySet()) {
-                        collector.reset();
-                        try {
-                            searcher.search(entry.getValue(), collector);
-                        } catch (IOException e) {
-                            logger.warn("[" + entry.getKey() + "] failed to execute query", e);
-                        }
-    
-                        if (collector.exists()) {
-                            matches.add(entry.getKey());
-                        }
-                    }
-                } else {
-                    IndexService percolatorIndex = percolatorIndexServiceSafe();
-                    if (percolatorIndex.numberOfShards() == 0) {
-                        throw new PercolateIndexUnavailable(new Index(PercolatorService.INDEX_NAME));
-                    }
-                    IndexShard percolatorShard = percolatorIndex.shard(0);
-                    Engine.Searcher percolatorSearcher = percolatorShard.searcher();
+                searcher.search(query, collector);
+            } catch (IOException e) {
+                logger.warn("[" + ids[i] + "] failed to execute query", e);
+            }
+
+            if (collector.exists()) {
+                matches.add(ids[i]);
+            }
+        }
+    }
+
+    /**
+     * Runs the queries split in slices, on up to <tt>numSlices</tt> percolate threads sharing the (read only)
+     * memory index searcher. The calling thread works on the slices too, and only waits for the ones other
+     * threads already started, so the request completes even if no other percolate thread is available.
+     */
+    private void runQueries(final IndexSearcher searcher, final String[] ids, final int numSlices, List<String> matches) {
+        final List<List<String>> slicesMatches = new ArrayList<List<String>>(numSlices);
+        for (int i = 0; i < numSlices; i++) {
+            slicesMatches.add(new ArrayList<String>());
+        }
+        final AtomicInteger nextSlice = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(numSlices);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int slice;
+                while ((slice = nextSlice.getAndIncrement()) < numSlices) {
                     try {
-                        percolatorSearcher.searcher().search(request.query(), new QueryCollector(logger, queries, searcher, percolatorIndex, matches));
-                    } catch (IOException e) {
-                        logger.warn("failed to execute", e);
+                        int from = (int) ((long) slice * ids.length / numSlices);
+                        int to = (int) ((long) (slice + 1) * ids.length / numSlices);
+                        runQueries(searcher, ids, from, to, slicesMatches.get(slice));
+                    } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
                     } finally {
-                        percolatorSearcher.release();
+                        done.countDown();
                     }
                 }
-            } finally {
-                // explicitly clear the reader, since we can only register on callback on SegmentReader
-                indexCache.clear(searcher.getIndexReader());
-                fieldDataService.clear(searcher.getIndexReader());
             }
-            return new Response(matches, request.doc().mappingsModified());
-        } finally {
-            memIndexPool.release(memoryIndex);
+        };
+        for (int i = 1; i < numSlices; i++) {
+            try {
+                threadPool.executor(ThreadPool.Names.PERCOLATE).execute(worker);
+            } catch (EsRejectedExecutionException e) {
+                break;
+            }
+        }
+        worker.run();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PercolatorException(index, "interrupted while percolating", e);
+        }
+        if (failure.get() != null) {
+            throw new PercolatorException(index, "failed to percolate", failure.get());
+        }
+        for (List<String> sliceMatches : slicesMatches) {
+            matches.addAll(sliceMatches);
         }
-
     }
 
     private IndexService percolatorIndexServiceSafe() {
@@ -514,15 +781,17 @@ public class PercolatorExecutor extends AbstractIndexComponent {
         private final IndexService percolatorIndex;
         private final List<String> matches;
         private final Map<String, Query> queries;
+        private final Set<String> candidates;
         private final ESLogger logger;
 
         private final Lucene.ExistsCollector collector = new Lucene.ExistsCollector();
 
         private BytesValues values;
 
-        QueryCollector(ESLogger logger, Map<String, Query> queries, IndexSearcher searcher, IndexService percolatorIndex, List<String> matches) {
+        QueryCollector(ESLogger logger, Map<String, Query> queries, Set<String> candidates, IndexSearcher searcher, IndexService percolatorIndex, List<String> matches) {
             this.logger = logger;
             this.queries = queries;
+            this.candidates = candidates;
             this.searcher = searcher;
             this.percolatorIndex = percolatorIndex;
             this.matches = matches;
@@ -541,6 +810,10 @@ public class PercolatorExecutor extends AbstractIndexComponent {
                 return;
             }
             String id = Uid.idFromUid(uid).toUtf8();
+            if (!candidates.contains(id)) {
+                // can't match the doc
+                return;
+            }
             Query query = queries.get(id);
             if (query == null) {
                 // log???
@@ -572,5 +845,6 @@ public class PercolatorExecutor extends AbstractIndexComponent {
 
     public void clearQueries() {
         this.queries.clear();
+        this.queryTermIndex.clear();
     }
 }
@@ -20,6 +20,7 @@
 package org.elasticsearch.index.percolator;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.lucene.index.AtomicReader;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.Term;
@@ -27,6 +28,7 @@ import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Scorer;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.search.TermFilter;
 import org.elasticsearch.common.lucene.search.XConstantScoreQuery;
@@ -40,12 +42,15 @@ import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.shard.service.IndexShard;
 import org.elasticsearch.indices.IndicesLifecycle;
 import org.elasticsearch.indices.IndicesService;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  *
@@ -66,6 +71,9 @@ public class PercolatorService extends AbstractIndexComponent {
 
     private boolean initialQueriesFetchDone = false;
 
+    // the shards whose queries are loaded, when the percolator is distributed
+    private final Set<Integer> loadedShards = Sets.newHashSet();
+
     @Inject
     public PercolatorService(Index index, @IndexSettings Settings indexSettings, IndicesService indicesService,
                              PercolatorExecutor percolator) {
@@ -115,7 +123,15 @@ public class PercolatorService extends AbstractIndexComponent {
         return percolator.percolate(request);
     }
 
+    public PercolatorExecutor.BatchResponse percolate(List<PercolatorExecutor.SourceRequest> requests) {
+        return percolator.percolate(requests);
+    }
+
     private void loadQueries(String indexName) {
+        loadQueries(indexName, null);
+    }
+
+    private void loadQueries(String indexName, @Nullable Set<Integer> shardIds) {
         IndexService indexService = percolatorIndexService();
         IndexShard shard = indexService.shard(0);
         shard.refresh(new Engine.Refresh(true));
@@ -124,7 +140,7 @@ public class PercolatorService extends AbstractIndexComponent {
             // create a query to fetch all queries that are registered under the index name (which is the type
             // in the percolator).
             Query query = new XConstantScoreQuery(indexQueriesFilter(indexName));
-            QueriesLoaderCollector queries = new QueriesLoaderCollector();
+            QueriesLoaderCollector queries = new QueriesLoaderCollector(shardIds);
             searcher.searcher().search(query, queries);
             percolator.addQueries(queries.queries());
         } catch (IOException e) {
@@ -134,6 +150,41 @@ public class PercolatorService extends AbstractIndexComponent {
         }
     }
 
+    /**
+     * Loads the queries of the started shards of the index allocated on this node which are not loaded yet.
+     */
+    private void loadShardsQueries() {
+        IndexService indexService = indicesService.indexService(index.name());
+        if (indexService == null) {
+            return;
+        }
+        Set<Integer> shardIds = Sets.newHashSet();
+        for (IndexShard indexShard : indexService) {
+            if (indexShard.state() == IndexShardState.STARTED && !loadedShards.contains(indexShard.shardId().id())) {
+                shardIds.add(indexShard.shardId().id());
+            }
+        }
+        if (shardIds.isEmpty()) {
+            return;
+        }
+        logger.debug("loading percolator queries for index [{}], shards {}...", index.name(), shardIds);
+        loadQueries(index.name(), shardIds);
+        logger.trace("done loading percolator queries for index [{}], shards {}", index.name(), shardIds);
+        loadedShards.addAll(shardIds);
+    }
+
+    /**
+     * Is the query with the given id held by this node, which, when the percolator is distributed, is only the
+     * case when the shard it is partitioned to is allocated on it.
+     */
+    private boolean holdsQuery(String id) {
+        if (!percolator.distributed()) {
+            return true;
+        }
+        IndexService indexService = indicesService.indexService(index.name());
+        return indexService != null && indexService.hasShard(percolator.partition(id));
+    }
+
     private Filter indexQueriesFilter(String indexName) {
         return percolatorIndexService().cache().filter().cache(new TermFilter(new Term(TypeFieldMapper.NAME, indexName)));
     }
@@ -157,10 +208,17 @@ public class PercolatorService extends AbstractIndexComponent {
 
     class QueriesLoaderCollector extends Collector {
 
+        @Nullable
+        private final Set<Integer> shardIds;
+
         private AtomicReader reader;
 
         private Map<String, Query> queries = Maps.newHashMap();
 
+        QueriesLoaderCollector(@Nullable Set<Integer> shardIds) {
+            this.shardIds = shardIds;
+        }
+
         public Map<String, Query> queries() {
             return this.queries;
         }
@@ -175,6 +233,9 @@ public class PercolatorService extends AbstractIndexComponent {
             UidAndSourceFieldsVisitor fieldsVisitor = new UidAndSourceFieldsVisitor();
             reader.document(doc, fieldsVisitor);
             String id = fieldsVisitor.uid().id();
+            if (shardIds != null && !shardIds.contains(percolator.partition(id))) {
+                return;
+            }
             try {
                 queries.put(id, percolator.parseQuery(id, fieldsVisitor.source()));
             } catch (Exception e) {
@@ -209,6 +270,12 @@ public class PercolatorService extends AbstractIndexComponent {
             if (indexShard.shardId().index().name().equals(INDEX_NAME)) {
                 // percolator index has started, fetch what we can from it and initialize the indices
                 // we have
+                if (percolator.distributed()) {
+                    synchronized (mutex) {
+                        loadShardsQueries();
+                    }
+                    return;
+                }
                 synchronized (mutex) {
                     if (initialQueriesFetchDone) {
                         return;
@@ -232,6 +299,13 @@ public class PercolatorService extends AbstractIndexComponent {
             if (!percolatorAllocated()) {
                 return;
             }
+            if (percolator.distributed()) {
+                // load the queries partitioned to the started shard
+                synchronized (mutex) {
+                    loadShardsQueries();
+                }
+                return;
+            }
             // we are only interested when the first shard on this node has been created for an index
             // when it does, fetch the relevant queries if not fetched already
             IndexService indexService = indicesService.indexService(indexShard.shardId().index().name());
@@ -252,6 +326,18 @@ public class PercolatorService extends AbstractIndexComponent {
                 initialQueriesFetchDone = true;
             }
         }
+
+        @Override
+        public void afterIndexShardClosed(ShardId shardId, boolean delete) {
+            if (!percolator.distributed() || !shardId.index().equals(index())) {
+                return;
+            }
+            // the shard queries are no longer needed on this node
+            synchronized (mutex) {
+                loadedShards.remove(shardId.id());
+                percolator.removeQueries(shardId.id());
+            }
+        }
     }
 
     class RealTimePercolatorOperationListener extends IndexingOperationListener {
@@ -268,7 +354,7 @@ public class PercolatorService extends AbstractIndexComponent {
         @Override
         public void postCreateUnderLock(Engine.Create create) {
             // add the query under a doc lock
-            if (create.type().equals(index().name())) {
+            if (create.type().equals(index().name()) && holdsQuery(create.id())) {
                 percolator.addQuery(create.id(), create.source());
             }
         }
@@ -285,7 +371,7 @@ public class PercolatorService extends AbstractIndexComponent {
         @Override
         public void postIndexUnderLock(Engine.Index index) {
             // add the query under a doc lock
-            if (index.type().equals(index().name())) {
+            if (index.type().equals(index().name()) && holdsQuery(index.id())) {
                 percolator.addQuery(index.id(), index.source());
             }
         }
@@ -0,0 +1,287 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.percolator;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.queries.FilterClause;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.MultiPhraseQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.search.AndFilter;
+import org.elasticsearch.common.lucene.search.ApplyAcceptedDocsFilter;
+import org.elasticsearch.common.lucene.search.CachedFilter;
+import org.elasticsearch.common.lucene.search.OrFilter;
+import org.elasticsearch.common.lucene.search.TermFilter;
+import org.elasticsearch.common.lucene.search.XBooleanFilter;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.lucene.search.XTermsFilter;
+import org.elasticsearch.common.lucene.search.function.FiltersFunctionScoreQuery;
+import org.elasticsearch.common.lucene.search.function.FunctionScoreQuery;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An inverted index over the registered percolator queries. Each query is indexed under a set of terms, at least
+ * one of which a document has to contain for the query to match it, so percolating a document only needs to run
+ * the queries indexed under the document's terms, plus the ones no such set of terms could be extracted from.
+ */
+public class QueryTermIndex {
+
+    private final ConcurrentMap<Term, Set<String>> termToIds = ConcurrentCollections.newConcurrentMap();
+
+    // guarded by this, only used to unregister queries
+    private final Map<String, Set<Term>> idToTerms = new HashMap<String, Set<Term>>();
+
+    private final Set<String> unindexed = ConcurrentCollections.newConcurrentSet();
+
+    public synchronized void add(String id, Query query) {
+        remove(id);
+        Set<Term> terms = extractTerms(query);
+        if (terms == null) {
+            unindexed.add(id);
+            return;
+        }
+        idToTerms.put(id, terms);
+        for (Term term : terms) {
+            Set<String> ids = termToIds.get(term);
+            if (ids == null) {
+                ids = ConcurrentCollections.newConcurrentSet();
+                termToIds.put(term, ids);
+            }
+            ids.add(id);
+        }
+    }
+
+    public synchronized void remove(String id) {
+        unindexed.remove(id);
+        Set<Term> terms = idToTerms.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (Term term : terms) {
+            Set<String> ids = termToIds.get(term);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    termToIds.remove(term);
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        termToIds.clear();
+        idToTerms.clear();
+        unindexed.clear();
+    }
+
+    /**
+     * Returns the ids of the queries that might match the document indexed in the provided reader.
+     */
+    public Set<String> candidates(AtomicReader reader) throws IOException {
+        Set<String> candidates = new HashSet<String>(unindexed);
+        Fields fields = reader.fields();
+        if (fields == null) {
+            return candidates;
+        }
+        for (String field : fields) {
+            Terms terms = fields.terms(field);
+            if (terms == null) {
+                continue;
+            }
+            TermsEnum termsEnum = terms.iterator(null);
+            for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                Set<String> ids = termToIds.get(new Term(field, term));
+                if (ids != null) {
+                    candidates.addAll(ids);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns a set of terms such that any document matching the query contains at least one of them (an empty
+     * set if the query can't match anything), or <tt>null</tt> if no such set can be extracted.
+     */
+    @Nullable
+    public static Set<Term> extractTerms(Query query) {
+        if (query instanceof TermQuery) {
+            return Collections.singleton(((TermQuery) query).getTerm());
+        } else if (query instanceof PhraseQuery) {
+            Set<Term> best = null;
+            for (Term term : ((PhraseQuery) query).getTerms()) {
+                best = selectBest(best, Collections.singleton(term));
+            }
+            return best;
+        } else if (query instanceof MultiPhraseQuery) {
+            Set<Term> best = null;
+            for (Term[] terms : ((MultiPhraseQuery) query).getTermArrays()) {
+                best = selectBest(best, new HashSet<Term>(Arrays.asList(terms)));
+            }
+            return best;
+        } else if (query instanceof BooleanQuery) {
+            Set<Term> best = null;
+            boolean hasRequired = false;
+            Set<Term> union = new HashSet<Term>();
+            boolean hasOptional = false;
+            for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+                if (clause.isProhibited()) {
+                    continue;
+                }
+                Set<Term> terms = extractTerms(clause.getQuery());
+                if (clause.isRequired()) {
+                    hasRequired = true;
+                    best = selectBest(best, terms);
+                } else {
+                    hasOptional = true;
+                    union = union(union, terms);
+                }
+            }
+            if (hasRequired) {
+                return best;
+            }
+            // a purely negative query
+            return hasOptional ? union : null;
+        } else if (query instanceof DisjunctionMaxQuery) {
+            Set<Term> union = new HashSet<Term>();
+            for (Query disjunct : ((DisjunctionMaxQuery) query).getDisjuncts()) {
+                union = union(union, extractTerms(disjunct));
+            }
+            return union;
+        } else if (query instanceof XFilteredQuery) {
+            return selectBest(extractTerms(((XFilteredQuery) query).getQuery()), extractTerms(((XFilteredQuery) query).getFilter()));
+        } else if (query instanceof FilteredQuery) {
+            return selectBest(extractTerms(((FilteredQuery) query).getQuery()), extractTerms(((FilteredQuery) query).getFilter()));
+        } else if (query instanceof ConstantScoreQuery) {
+            ConstantScoreQuery constantScoreQuery = (ConstantScoreQuery) query;
+            if (constantScoreQuery.getQuery() != null) {
+                return extractTerms(constantScoreQuery.getQuery());
+            }
+            return extractTerms(constantScoreQuery.getFilter());
+        } else if (query instanceof FunctionScoreQuery) {
+            return extractTerms(((FunctionScoreQuery) query).getSubQuery());
+        } else if (query instanceof FiltersFunctionScoreQuery) {
+            return extractTerms(((FiltersFunctionScoreQuery) query).getSubQuery());
+        }
+        return null;
+    }
+
+    @Nullable
+    static Set<Term> extractTerms(Filter filter) {
+        if (filter instanceof TermFilter) {
+            return Collections.singleton(((TermFilter) filter).getTerm());
+        } else if (filter instanceof XTermsFilter) {
+            return new HashSet<Term>(((XTermsFilter) filter).getTerms());
+        } else if (filter instanceof CachedFilter) {
+            return extractTerms(((CachedFilter) filter).filter());
+        } else if (filter instanceof ApplyAcceptedDocsFilter) {
+            return extractTerms(((ApplyAcceptedDocsFilter) filter).filter());
+        } else if (filter instanceof QueryWrapperFilter) {
+            return extractTerms(((QueryWrapperFilter) filter).getQuery());
+        } else if (filter instanceof AndFilter) {
+            Set<Term> best = null;
+            for (Filter clause : ((AndFilter) filter).filters()) {
+                best = selectBest(best, extractTerms(clause));
+            }
+            return best;
+        } else if (filter instanceof OrFilter) {
+            Set<Term> union = new HashSet<Term>();
+            for (Filter clause : ((OrFilter) filter).filters()) {
+                union = union(union, extractTerms(clause));
+            }
+            return union;
+        } else if (filter instanceof XBooleanFilter) {
+            Set<Term> best = null;
+            boolean hasRequired = false;
+            Set<Term> union = new HashSet<Term>();
+            boolean hasOptional = false;
+            for (FilterClause clause : ((XBooleanFilter) filter).clauses()) {
+                if (clause.getOccur() == BooleanClause.Occur.MUST_NOT) {
+                    continue;
+                }
+                Set<Term> terms = extractTerms(clause.getFilter());
+                if (clause.getOccur() == BooleanClause.Occur.MUST) {
+                    hasRequired = true;
+                    best = selectBest(best, terms);
+                } else {
+                    hasOptional = true;
+                    union = union(union, terms);
+                }
+            }
+            if (hasRequired) {
+                return best;
+            }
+            return hasOptional ? union : null;
+        }
+        return null;
+    }
+
+    /**
+     * Of two sets of terms that a matching document must both hit, picks the one selecting the fewest candidates:
+     * the smallest, and then the one with the longest (likely the rarest) shortest term.
+     */
+    private static Set<Term> selectBest(@Nullable Set<Term> a, @Nullable Set<Term> b) {
+        if (a == null) {
+            return b;
+        } else if (b == null) {
+            return a;
+        } else if (a.size() != b.size()) {
+            return a.size() < b.size() ? a : b;
+        }
+        return minTermLength(a) >= minTermLength(b) ? a : b;
+    }
+
+    private static int minTermLength(Set<Term> terms) {
+        int min = Integer.MAX_VALUE;
+        for (Term term : terms) {
+            min = Math.min(min, term.bytes().length);
+        }
+        return min;
+    }
+
+    /**
+     * Adds the terms of an optional clause, <tt>null</tt> if any such clause has no extractable terms.
+     */
+    private static Set<Term> union(@Nullable Set<Term> union, @Nullable Set<Term> terms) {
+        if (union == null || terms == null) {
+            return null;
+        }
+        union.addAll(terms);
+        return union;
+    }
+}
@@ -33,6 +33,7 @@ public class HasChildFilterBuilder extends BaseFilterBuilder {
     private String childType;
     private String filterName;
     private String executionType;
+    private Boolean cache;
 
     public HasChildFilterBuilder(String type, QueryBuilder queryBuilder) {
         this.childType = type;
@@ -64,6 +65,15 @@ public class HasChildFilterBuilder extends BaseFilterBuilder {
         return this;
     }
 
+    /**
+     * Should the join result be cached, and reused by identical filters until the index is refreshed.
+     * Defaults to <tt>false</tt>.
+     */
+    public HasChildFilterBuilder cache(boolean cache) {
+        this.cache = cache;
+        return this;
+    }
+
     @Override
     protected void doXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(HasChildFilterParser.NAME);
@@ -81,6 +91,9 @@ public class HasChildFilterBuilder extends BaseFilterBuilder {
         if (executionType != null) {
             builder.field("execution_type", executionType);
         }
+        if (cache != null) {
+            builder.field("_cache", cache);
+        }
         builder.endObject();
     }
 }
@@ -57,6 +57,7 @@ public class HasChildFilterParser implements FilterParser {
         String childType = null;
 
         String executionType = "uid";
+        boolean cache = false;
         String filterName = null;
         String currentFieldName = null;
         XContentParser.Token token;
@@ -94,6 +95,8 @@ public class HasChildFilterParser implements FilterParser {
                     throw new QueryParsingException(parseContext.index(), "the [_scope] support in [has_child] filter has been removed, use a filter as a facet_filter in the relevant global facet");
                 } else if ("_name".equals(currentFieldName)) {
                     filterName = parser.text();
+                } else if ("_cache".equals(currentFieldName)) {
+                    cache = parser.booleanValue();
                 } else if ("execution_type".equals(currentFieldName) || "executionType".equals(currentFieldName)) {// This option is experimental and will most likely be removed.
                     executionType = parser.text();
                 } else {
@@ -125,7 +128,7 @@ public class HasChildFilterParser implements FilterParser {
 
         SearchContext searchContext = SearchContext.current();
 
-        HasChildFilter childFilter = HasChildFilter.create(query, parentType, childType, searchContext, executionType);
+        HasChildFilter childFilter = HasChildFilter.create(query, parentType, childType, searchContext, executionType, cache);
         searchContext.addRewrite(childFilter);
 
         if (filterName != null) {
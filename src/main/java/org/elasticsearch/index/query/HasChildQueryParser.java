@@ -128,7 +128,7 @@ public class HasChildQueryParser implements QueryParser {
             searchContext.addRewrite(childrenQuery);
             query = childrenQuery;
         } else {
-            HasChildFilter hasChildFilter = HasChildFilter.create(innerQuery, parentType, childType, searchContext, executionType);
+            HasChildFilter hasChildFilter = HasChildFilter.create(innerQuery, parentType, childType, searchContext, executionType, false);
             searchContext.addRewrite(hasChildFilter);
             query = new ConstantScoreQuery(hasChildFilter);
         }
@@ -33,6 +33,7 @@ public class HasParentFilterBuilder extends BaseFilterBuilder {
     private final String parentType;
     private String filterName;
     private String executionType;
+    private Boolean cache;
 
     /**
      * @param parentType  The parent type
@@ -69,6 +70,15 @@ public class HasParentFilterBuilder extends BaseFilterBuilder {
         return this;
     }
 
+    /**
+     * Should the join result be cached, and reused by identical filters until the index is refreshed.
+     * Defaults to <tt>false</tt>.
+     */
+    public HasParentFilterBuilder cache(boolean cache) {
+        this.cache = cache;
+        return this;
+    }
+
     @Override
     protected void doXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(HasParentFilterParser.NAME);
@@ -86,6 +96,9 @@ public class HasParentFilterBuilder extends BaseFilterBuilder {
         if (executionType != null) {
             builder.field("execution_type", executionType);
         }
+        if (cache != null) {
+            builder.field("_cache", cache);
+        }
         builder.endObject();
     }
 }
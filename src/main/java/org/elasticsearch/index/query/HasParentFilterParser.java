@@ -57,6 +57,7 @@ public class HasParentFilterParser implements FilterParser {
         String parentType = null;
         String executionType = "uid";
 
+        boolean cache = false;
         String filterName = null;
         String currentFieldName = null;
         XContentParser.Token token;
@@ -93,6 +94,8 @@ public class HasParentFilterParser implements FilterParser {
                     throw new QueryParsingException(parseContext.index(), "the [_scope] support in [has_parent] filter has been removed, use a filter as a facet_filter in the relevant global facet");
                 } else if ("_name".equals(currentFieldName)) {
                     filterName = parser.text();
+                } else if ("_cache".equals(currentFieldName)) {
+                    cache = parser.booleanValue();
                 } else if ("execution_type".equals(currentFieldName) || "executionType".equals(currentFieldName)) { // This option is experimental and will most likely be removed.
                     executionType = parser.text();
                 } else {
@@ -121,7 +124,7 @@ public class HasParentFilterParser implements FilterParser {
 
         SearchContext searchContext = SearchContext.current();
 
-        HasParentFilter parentFilter = HasParentFilter.create(executionType, query, parentType, searchContext);
+        HasParentFilter parentFilter = HasParentFilter.create(executionType, query, parentType, searchContext, cache);
         searchContext.addRewrite(parentFilter);
 
         if (filterName != null) {
@@ -153,7 +153,7 @@ public class HasParentQueryParser implements QueryParser {
             searchContext.addRewrite(parentQuery);
             query = parentQuery;
         } else {
-            HasParentFilter hasParentFilter = HasParentFilter.create(executionType, innerQuery, parentType, searchContext);
+            HasParentFilter hasParentFilter = HasParentFilter.create(executionType, innerQuery, parentType, searchContext, false);
             searchContext.addRewrite(hasParentFilter);
             query = new ConstantScoreQuery(hasParentFilter);
         }
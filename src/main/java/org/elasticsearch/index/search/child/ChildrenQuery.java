@@ -19,10 +19,6 @@
 
 package org.elasticsearch.index.search.child;
 
-import gnu.trove.map.TObjectFloatMap;
-import gnu.trove.map.TObjectIntMap;
-import gnu.trove.map.hash.TObjectFloatHashMap;
-import gnu.trove.map.hash.TObjectIntHashMap;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.Term;
@@ -30,23 +26,24 @@ import org.apache.lucene.search.*;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.ToStringUtils;
 import org.elasticsearch.ElasticSearchIllegalStateException;
-import org.elasticsearch.common.CacheRecycler;
-import org.elasticsearch.common.bytes.HashedBytesArray;
 import org.elasticsearch.common.lucene.search.NoopCollector;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.cache.id.IdReaderTypeCache;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * A query implementation that executes the wrapped child query and connects all the matching child docs to the related
  * parent documents using the {@link IdReaderTypeCache}.
  * <p/>
  * This query is executed in two rounds. The first round resolves all the matching child documents and groups these
- * documents by parent uid value. Also the child scores are aggregated per parent uid value. During the second round
- * all parent documents having the same uid value that is collected in the first phase are emitted as hit including
- * a score based on the aggregated child scores and score type.
+ * documents by the ordinal of their parent uid within the segment. Also the child scores are aggregated per parent
+ * ordinal. During the second round the ordinals of each child segment are mapped to the ordinals of the parent segment,
+ * and all parent documents having an ordinal that was collected in the first phase are emitted as hit including a
+ * score based on the aggregated child scores and score type.
  */
 public class ChildrenQuery extends Query implements SearchContext.Rewrite {
 
@@ -57,8 +54,13 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
     private final ScoreType scoreType;
     private final Query childQuery;
 
-    private TObjectFloatHashMap<HashedBytesArray> uidToScore;
-    private TObjectIntHashMap<HashedBytesArray> uidToCount;
+    // per child segment (by its ord within the top level reader), the id cache of the parent type, and the
+    // aggregated child scores and number of matching children per parent ordinal
+    private IdReaderTypeCache[] typeCaches;
+    private float[][] ordToScore;
+    private int[][] ordToCount;
+    // per parent segment (by its core cache key), the scores aggregated on its ordinals
+    private ConcurrentMap<Object, ParentScores> parentScores;
 
     public ChildrenQuery(SearchContext searchContext, String parentType, String childType, Filter parentFilter, Query childQuery, ScoreType scoreType) {
         this.searchContext = searchContext;
@@ -77,8 +79,10 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
         this.scoreType = unProcessedQuery.scoreType;
         this.childQuery = rewrittenChildQuery;
 
-        this.uidToScore = unProcessedQuery.uidToScore;
-        this.uidToCount = unProcessedQuery.uidToCount;
+        this.typeCaches = unProcessedQuery.typeCaches;
+        this.ordToScore = unProcessedQuery.ordToScore;
+        this.ordToCount = unProcessedQuery.ordToCount;
+        this.parentScores = unProcessedQuery.parentScores;
     }
 
     @Override
@@ -111,34 +115,25 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
     public void contextRewrite(SearchContext searchContext) throws Exception {
         searchContext.idCache().refresh(searchContext.searcher().getTopReaderContext().leaves());
 
-        uidToScore = CacheRecycler.popObjectFloatMap();
-        Collector collector;
-        switch (scoreType) {
-            case AVG:
-                uidToCount = CacheRecycler.popObjectIntMap();
-                collector = new AvgChildUidCollector(scoreType, searchContext, parentType, uidToScore, uidToCount);
-                break;
-            default:
-                collector = new ChildUidCollector(scoreType, searchContext, parentType, uidToScore);
-        }
-        searchContext.searcher().search(childQuery, collector);
+        int numLeaves = searchContext.searcher().getIndexReader().leaves().size();
+        typeCaches = new IdReaderTypeCache[numLeaves];
+        ordToScore = new float[numLeaves][];
+        ordToCount = new int[numLeaves][];
+        parentScores = ConcurrentCollections.newConcurrentMap();
+        searchContext.searcher().search(childQuery, new ChildOrdCollector(scoreType, searchContext, parentType, typeCaches, ordToScore, ordToCount));
     }
 
     @Override
     public void contextClear() {
-        if (uidToScore != null) {
-            CacheRecycler.pushObjectFloatMap(uidToScore);
-        }
-        uidToScore = null;
-        if (uidToCount != null) {
-            CacheRecycler.pushObjectIntMap(uidToCount);
-        }
-        uidToCount = null;
+        typeCaches = null;
+        ordToScore = null;
+        ordToCount = null;
+        parentScores = null;
     }
 
     @Override
     public Weight createWeight(IndexSearcher searcher) throws IOException {
-        if (uidToScore == null) {
+        if (ordToScore == null) {
             throw new ElasticSearchIllegalStateException("has_child query hasn't executed properly");
         }
 
@@ -182,30 +177,99 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
             }
 
             IdReaderTypeCache idTypeCache = searchContext.idCache().reader(context.reader()).type(parentType);
-            DocIdSetIterator parentsIterator = parentsSet.iterator();
-            switch (scoreType) {
-                case AVG:
-                    return new AvgParentScorer(this, idTypeCache, uidToScore, uidToCount, parentsIterator);
-                default:
-                    return new ParentScorer(this, idTypeCache, uidToScore, parentsIterator);
+            if (idTypeCache == null) {
+                return null;
+            }
+
+            Object coreKey = context.reader().getCoreCacheKey();
+            ParentScores segmentScores = parentScores.get(coreKey);
+            if (segmentScores == null) {
+                segmentScores = parentScores(idTypeCache);
+                parentScores.putIfAbsent(coreKey, segmentScores);
+            }
+            if (segmentScores == ParentScores.NONE) {
+                return null;
             }
+            return new ParentScorer(this, idTypeCache, segmentScores.scores, segmentScores.counts, parentsSet.iterator());
         }
 
+        /**
+         * Aggregates the scores collected on all child segments on the parent ordinals of a segment.
+         */
+        private ParentScores parentScores(IdReaderTypeCache idTypeCache) {
+            float[] scores = new float[idTypeCache.numOrds()];
+            int[] counts = new int[idTypeCache.numOrds()];
+            boolean hasParents = false;
+            for (int i = 0; i < ordToCount.length; i++) {
+                int[] childCounts = ordToCount[i];
+                if (childCounts == null) {
+                    continue;
+                }
+                float[] childScores = ordToScore[i];
+                ParentOrds.OrdTranslator translator = new ParentOrds.OrdTranslator(typeCaches[i], idTypeCache);
+                for (int ord = 1; ord < childCounts.length && !translator.exhausted(); ord++) {
+                    if (childCounts[ord] == 0) {
+                        continue;
+                    }
+                    int parentOrd = translator.translate(ord);
+                    if (parentOrd == 0 || idTypeCache.docByOrd(parentOrd) == -1) {
+                        continue;
+                    }
+                    hasParents = true;
+                    if (counts[parentOrd] == 0) {
+                        scores[parentOrd] = childScores[ord];
+                    } else if (scoreType == ScoreType.MAX) {
+                        scores[parentOrd] = Math.max(scores[parentOrd], childScores[ord]);
+                    } else {
+                        scores[parentOrd] += childScores[ord];
+                    }
+                    counts[parentOrd] += childCounts[ord];
+                }
+            }
+            if (!hasParents) {
+                return ParentScores.NONE;
+            }
+            if (scoreType == ScoreType.AVG) {
+                for (int ord = 1; ord < scores.length; ord++) {
+                    if (counts[ord] > 0) {
+                        scores[ord] /= counts[ord];
+                    }
+                }
+            }
+            return new ParentScores(scores, counts);
+        }
+
+    }
+
+    static class ParentScores {
+
+        // marks segments that don't have any of the parents
+        static final ParentScores NONE = new ParentScores(null, null);
+
+        final float[] scores;
+        final int[] counts;
+
+        ParentScores(float[] scores, int[] counts) {
+            this.scores = scores;
+            this.counts = counts;
+        }
     }
 
     static class ParentScorer extends Scorer {
 
         final IdReaderTypeCache idTypeCache;
-        final TObjectFloatMap<HashedBytesArray> uidToScore;
+        final float[] scores;
+        final int[] counts;
         final DocIdSetIterator parentsIterator;
 
         int currentDocId = -1;
         float currentScore;
 
-        ParentScorer(Weight weight, IdReaderTypeCache idTypeCache, TObjectFloatMap<HashedBytesArray> uidToScore, DocIdSetIterator parentsIterator) {
+        ParentScorer(Weight weight, IdReaderTypeCache idTypeCache, float[] scores, int[] counts, DocIdSetIterator parentsIterator) {
             super(weight);
             this.idTypeCache = idTypeCache;
-            this.uidToScore = uidToScore;
+            this.scores = scores;
+            this.counts = counts;
             this.parentsIterator = parentsIterator;
         }
 
@@ -233,10 +297,7 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
                 if (currentDocId == DocIdSetIterator.NO_MORE_DOCS) {
                     return currentDocId;
                 }
-
-                HashedBytesArray uid = idTypeCache.idByDoc(currentDocId);
-                currentScore = uidToScore.get(uid);
-                if (Float.compare(currentScore, 0) > 0) {
+                if (matches(currentDocId)) {
                     return currentDocId;
                 }
             }
@@ -248,60 +309,44 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
             if (currentDocId == DocIdSetIterator.NO_MORE_DOCS) {
                 return currentDocId;
             }
-
-            HashedBytesArray uid = idTypeCache.idByDoc(currentDocId);
-            currentScore = uidToScore.get(uid);
-            if (Float.compare(currentScore, 0) > 0) {
+            if (matches(currentDocId)) {
                 return currentDocId;
             } else {
                 return nextDoc();
             }
         }
-    }
-
-    static class AvgParentScorer extends ParentScorer {
-
-        final TObjectIntMap<HashedBytesArray> uidToCount;
-        HashedBytesArray currentUid;
-
-        AvgParentScorer(Weight weight, IdReaderTypeCache idTypeCache, TObjectFloatMap<HashedBytesArray> uidToScore, TObjectIntMap<HashedBytesArray> uidToCount, DocIdSetIterator parentsIterator) {
-            super(weight, idTypeCache, uidToScore, parentsIterator);
-            this.uidToCount = uidToCount;
-        }
 
-        @Override
-        public int nextDoc() throws IOException {
-            while (true) {
-                currentDocId = parentsIterator.nextDoc();
-                if (currentDocId == DocIdSetIterator.NO_MORE_DOCS) {
-                    return currentDocId;
-                }
-
-                currentUid = idTypeCache.idByDoc(currentDocId);
-                currentScore = uidToScore.get(currentUid);
-                if (Float.compare(currentScore, 0) > 0) {
-                    currentScore /= uidToCount.get(currentUid);
-                    return currentDocId;
-                }
+        private boolean matches(int doc) {
+            int ord = idTypeCache.ordByDoc(doc);
+            if (counts[ord] == 0) {
+                return false;
             }
+            currentScore = scores[ord];
+            return true;
         }
     }
 
-    static class ChildUidCollector extends NoopCollector {
+    static class ChildOrdCollector extends NoopCollector {
 
-        final TObjectFloatHashMap<HashedBytesArray> uidToScore;
         final ScoreType scoreType;
         final SearchContext searchContext;
-        final String childType;
+        final String parentType;
+        final IdReaderTypeCache[] typeCaches;
+        final float[][] ordToScore;
+        final int[][] ordToCount;
 
         Scorer scorer;
         IdReaderTypeCache typeCache;
+        float[] scores;
+        int[] counts;
 
-        ChildUidCollector(ScoreType scoreType, SearchContext searchContext, String childType, TObjectFloatHashMap<HashedBytesArray> uidToScore) {
-            this.uidToScore = uidToScore;
+        ChildOrdCollector(ScoreType scoreType, SearchContext searchContext, String parentType, IdReaderTypeCache[] typeCaches, float[][] ordToScore, int[][] ordToCount) {
             this.scoreType = scoreType;
             this.searchContext = searchContext;
-            this.childType = childType;
+            this.parentType = parentType;
+            this.typeCaches = typeCaches;
+            this.ordToScore = ordToScore;
+            this.ordToCount = ordToCount;
         }
 
         @Override
@@ -310,23 +355,22 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
                 return;
             }
 
-            HashedBytesArray parentUid = typeCache.parentIdByDoc(doc);
-            float previousScore = uidToScore.get(parentUid);
+            int parentOrd = typeCache.parentOrdByDoc(doc);
+            if (parentOrd == 0) {
+                return;
+            }
             float currentScore = scorer.score();
-            if (Float.compare(previousScore, 0) == 0) {
-                uidToScore.put(parentUid, currentScore);
-            } else {
-                switch (scoreType) {
-                    case SUM:
-                        uidToScore.adjustValue(parentUid, currentScore);
-                        break;
-                    case MAX:
-                        if (Float.compare(previousScore, currentScore) < 0) {
-                            uidToScore.put(parentUid, currentScore);
-                        }
-                        break;
+            if (counts[parentOrd] == 0) {
+                scores[parentOrd] = currentScore;
+            } else if (scoreType == ScoreType.MAX) {
+                if (Float.compare(scores[parentOrd], currentScore) < 0) {
+                    scores[parentOrd] = currentScore;
                 }
+            } else {
+                // SUM, and AVG which is divided by the count when the parents are scored
+                scores[parentOrd] += currentScore;
             }
+            counts[parentOrd]++;
         }
 
         @Override
@@ -336,37 +380,17 @@ public class ChildrenQuery extends Query implements SearchContext.Rewrite {
 
         @Override
         public void setNextReader(AtomicReaderContext context) throws IOException {
-            typeCache = searchContext.idCache().reader(context.reader()).type(childType);
-        }
-
-    }
-
-    static class AvgChildUidCollector extends ChildUidCollector {
-
-        final TObjectIntHashMap<HashedBytesArray> uidToCount;
-
-        AvgChildUidCollector(ScoreType scoreType, SearchContext searchContext, String childType, TObjectFloatHashMap<HashedBytesArray> uidToScore, TObjectIntHashMap<HashedBytesArray> uidToCount) {
-            super(scoreType, searchContext, childType, uidToScore);
-            this.uidToCount = uidToCount;
-            assert scoreType == ScoreType.AVG;
-        }
-
-        @Override
-        public void collect(int doc) throws IOException {
+            typeCache = searchContext.idCache().reader(context.reader()).type(parentType);
             if (typeCache == null) {
+                scores = null;
+                counts = null;
                 return;
             }
-
-            HashedBytesArray parentUid = typeCache.parentIdByDoc(doc);
-            float previousScore = uidToScore.get(parentUid);
-            float currentScore = scorer.score();
-            if (Float.compare(previousScore, 0) == 0) {
-                uidToScore.put(parentUid, currentScore);
-                uidToCount.put(parentUid, 1);
-            } else {
-                uidToScore.adjustValue(parentUid, currentScore);
-                uidToCount.increment(parentUid);
-            }
+            scores = new float[typeCache.numOrds()];
+            counts = new int[typeCache.numOrds()];
+            typeCaches[context.ord] = typeCache;
+            ordToScore[context.ord] = scores;
+            ordToCount[context.ord] = counts;
         }
 
     }
@@ -0,0 +1,281 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.search.child;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.BitsFilteredDocIdSet;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.lucene.search.NoopCollector;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Joins children and parents on the ordinals of the id cache. Each segment has its own dictionary of ids,
+ * shared by its parent and child docs, so the parent ordinals collected on a segment only need to be
+ * translated (by looking up the id) when the other side of the join lives in another segment.
+ * <p/>
+ * An instance holds, per segment (by its ord within the top level reader), the id cache of the parent type
+ * and the bitset of the parent ordinals collected on it. The translations into the segments being filtered are
+ * kept as well (by segment core key), so an instance shared through the join cache is only translated once
+ * per segment.
+ */
+final class ParentOrds {
+
+    // marks segments that don't have any of the collected ids
+    private static final FixedBitSet NONE = new FixedBitSet(0);
+
+    final IdReaderTypeCache[] typeCaches;
+    final FixedBitSet[] ords;
+
+    private final ConcurrentMap<Object, FixedBitSet> translatedOrds = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<Object, FixedBitSet> parentDocs = ConcurrentCollections.newConcurrentMap();
+
+    ParentOrds(IdReaderTypeCache[] typeCaches, FixedBitSet[] ords) {
+        this.typeCaches = typeCaches;
+        this.ords = ords;
+    }
+
+    /**
+     * Runs the query and collects, per segment, the parent ordinals of the matching docs: the ordinals of the
+     * parents they point to when <tt>children</tt> is set, or their own ordinals otherwise. If <tt>cache</tt>
+     * is set, the result is shared with later identical joins on the same reader.
+     */
+    static ParentOrds collect(final SearchContext context, final Query query, final String parentType,
+                              final boolean children, boolean cache) throws Exception {
+        context.idCache().refresh(context.searcher().getTopReaderContext().leaves());
+        if (!cache) {
+            return collect(context, query, parentType, children);
+        }
+        Object key = Arrays.asList(children ? "has_child" : "has_parent", parentType, query);
+        return context.joinCache().get(context.searcher().getIndexReader(), key, new Callable<ParentOrds>() {
+            @Override
+            public ParentOrds call() throws Exception {
+                return collect(context, query, parentType, children);
+            }
+        });
+    }
+
+    private static ParentOrds collect(SearchContext context, Query query, String parentType, boolean children) throws IOException {
+        int numLeaves = context.searcher().getIndexReader().leaves().size();
+        ParentOrds parentOrds = new ParentOrds(new IdReaderTypeCache[numLeaves], new FixedBitSet[numLeaves]);
+        context.searcher().search(query, new OrdCollector(parentType, context, children, parentOrds));
+        return parentOrds;
+    }
+
+    /**
+     * Returns the docs of a segment whose ids were collected, or <tt>null</tt> if there are none.
+     *
+     * @param coreKey the core cache key of the segment, the docs are computed once per segment
+     */
+    DocIdSet parentDocs(Object coreKey, IdReaderTypeCache target, int maxDoc, @Nullable Bits acceptDocs) throws IOException {
+        FixedBitSet docs = parentDocs.get(coreKey);
+        if (docs == null) {
+            docs = parentDocs(coreKey, target, maxDoc);
+            if (docs == null) {
+                docs = NONE;
+            }
+            parentDocs.putIfAbsent(coreKey, docs);
+        }
+        if (docs == NONE) {
+            return null;
+        }
+        return BitsFilteredDocIdSet.wrap(docs, acceptDocs);
+    }
+
+    private FixedBitSet parentDocs(Object coreKey, IdReaderTypeCache target, int maxDoc) throws IOException {
+        FixedBitSet targetOrds = translate(coreKey, target);
+        if (targetOrds == null) {
+            return null;
+        }
+        FixedBitSet parentDocs = null;
+        DocIdSetIterator it = targetOrds.iterator();
+        for (int ord = it.nextDoc(); ord != DocIdSetIterator.NO_MORE_DOCS; ord = it.nextDoc()) {
+            int parentDoc = target.docByOrd(ord);
+            if (parentDoc == -1) {
+                continue;
+            }
+            if (parentDocs == null) {
+                parentDocs = new FixedBitSet(maxDoc);
+            }
+            parentDocs.set(parentDoc);
+        }
+        return parentDocs;
+    }
+
+    /**
+     * Returns the collected ordinals translated into the dictionary of a segment, or <tt>null</tt> if none of
+     * the collected ids exist in it.
+     *
+     * @param coreKey the core cache key of the segment, the translation is done once per segment
+     */
+    FixedBitSet translate(Object coreKey, IdReaderTypeCache target) throws IOException {
+        FixedBitSet targetOrds = translatedOrds.get(coreKey);
+        if (targetOrds == null) {
+            targetOrds = translate(target);
+            if (targetOrds == null) {
+                targetOrds = NONE;
+            }
+            translatedOrds.putIfAbsent(coreKey, targetOrds);
+        }
+        return targetOrds == NONE ? null : targetOrds;
+    }
+
+    private FixedBitSet translate(IdReaderTypeCache target) throws IOException {
+        FixedBitSet targetOrds = null;
+        for (int i = 0; i < ords.length; i++) {
+            if (ords[i] == null) {
+                continue;
+            }
+            if (typeCaches[i] == target) {
+                if (targetOrds == null) {
+                    targetOrds = new FixedBitSet(target.numOrds());
+                }
+                targetOrds.or(ords[i]);
+                continue;
+            }
+            OrdTranslator translator = new OrdTranslator(typeCaches[i], target);
+            DocIdSetIterator it = ords[i].iterator();
+            for (int ord = it.nextDoc(); ord != DocIdSetIterator.NO_MORE_DOCS; ord = it.nextDoc()) {
+                int targetOrd = translator.translate(ord);
+                if (targetOrd == 0) {
+                    if (translator.exhausted()) {
+                        break;
+                    }
+                    continue;
+                }
+                if (targetOrds == null) {
+                    targetOrds = new FixedBitSet(target.numOrds());
+                }
+                targetOrds.set(targetOrd);
+            }
+        }
+        return targetOrds;
+    }
+
+    /**
+     * Returns the ordinal in the <tt>target</tt> dictionary of the id having the provided ordinal in the
+     * <tt>source</tt> one, or 0 if <tt>target</tt> doesn't have it. Use an {@link OrdTranslator} to translate
+     * many ordinals.
+     */
+    static int translate(IdReaderTypeCache source, int ord, IdReaderTypeCache target, BytesRef spare) {
+        if (source == target) {
+            return ord;
+        }
+        return target.ordById(source.idByOrd(ord, spare));
+    }
+
+    /**
+     * Translates the ordinals of a <tt>source</tt> dictionary into the ordinals of a <tt>target</tt> one. The
+     * ordinals must be provided in ascending order: both dictionaries are sorted, so each lookup starts where
+     * the previous one ended, and translating all the ordinals of a segment is a merge of the two dictionaries
+     * instead of a binary search per ordinal.
+     */
+    static final class OrdTranslator {
+
+        private final IdReaderTypeCache source;
+        private final IdReaderTypeCache target;
+        private final BytesRef spare = new BytesRef();
+        private int fromOrd = 1;
+
+        OrdTranslator(IdReaderTypeCache source, IdReaderTypeCache target) {
+            this.source = source;
+            this.target = target;
+        }
+
+        /**
+         * Returns the ordinal in the target dictionary, or 0 if it doesn't have the id.
+         */
+        int translate(int ord) {
+            if (source == target) {
+                return ord;
+            }
+            if (exhausted()) {
+                return 0;
+            }
+            int targetOrd = target.seekOrd(source.idByOrd(ord, spare), fromOrd);
+            if (targetOrd > 0) {
+                fromOrd = targetOrd + 1;
+                return targetOrd;
+            }
+            fromOrd = -targetOrd;
+            return 0;
+        }
+
+        /**
+         * Returns <tt>true</tt> if none of the following (greater) ordinals can be found in the target dictionary.
+         */
+        boolean exhausted() {
+            return source != target && fromOrd >= target.numOrds();
+        }
+    }
+
+    static class OrdCollector extends NoopCollector {
+
+        private final String parentType;
+        private final SearchContext context;
+        private final boolean children;
+        private final ParentOrds parentOrds;
+
+        private IdReaderTypeCache typeCache;
+        private FixedBitSet ords;
+
+        OrdCollector(String parentType, SearchContext context, boolean children, ParentOrds parentOrds) {
+            this.parentType = parentType;
+            this.context = context;
+            this.children = children;
+            this.parentOrds = parentOrds;
+        }
+
+        @Override
+        public void collect(int doc) throws IOException {
+            // It can happen that for particular segment no document exist for an specific type. This prevents NPE
+            if (typeCache != null) {
+                int ord = children ? typeCache.parentOrdByDoc(doc) : typeCache.ordByDoc(doc);
+                if (ord != 0) {
+                    ords.set(ord);
+                }
+            }
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext readerContext) throws IOException {
+            typeCache = context.idCache().reader(readerContext.reader()).type(parentType);
+            if (typeCache != null) {
+                ords = new FixedBitSet(typeCache.numOrds());
+                parentOrds.typeCaches[readerContext.ord] = typeCache;
+                parentOrds.ords[readerContext.ord] = ords;
+            } else {
+                ords = null;
+            }
+        }
+    }
+}
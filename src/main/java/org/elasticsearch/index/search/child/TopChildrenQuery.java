@@ -23,12 +23,13 @@ import gnu.trove.map.hash.TIntObjectHashMap;
 import org.apache.lucene.index.*;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.ToStringUtils;
 import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.common.CacheRecycler;
-import org.elasticsearch.common.bytes.HashedBytesArray;
 import org.elasticsearch.common.lucene.search.EmptyScorer;
 import org.elasticsearch.common.trove.ExtTHashMap;
+import org.elasticsearch.index.cache.id.IdReaderTypeCache;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.io.IOException;
@@ -125,21 +126,34 @@ public class TopChildrenQuery extends Query implements SearchContext.Rewrite {
     int resolveParentDocuments(TopDocs topDocs, SearchContext context) {
         int parentHitsResolved = 0;
         Map<Object, TIntObjectHashMap<ParentDoc>> parentDocsPerReader = new HashMap<Object, TIntObjectHashMap<ParentDoc>>();
+        BytesRef spare = new BytesRef();
         for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
             int readerIndex = ReaderUtil.subIndex(scoreDoc.doc, context.searcher().getIndexReader().leaves());
             AtomicReaderContext subContext = context.searcher().getIndexReader().leaves().get(readerIndex);
             int subDoc = scoreDoc.doc - subContext.docBase;
 
             // find the parent id
-            HashedBytesArray parentId = context.idCache().reader(subContext.reader()).parentIdByDoc(parentType, subDoc);
-            if (parentId == null) {
+            IdReaderTypeCache typeCache = context.idCache().reader(subContext.reader()).type(parentType);
+            if (typeCache == null) {
+                continue;
+            }
+            int parentOrd = typeCache.parentOrdByDoc(subDoc);
+            if (parentOrd == 0) {
                 // no parent found
                 continue;
             }
             // now go over and find the parent doc Id and reader tuple
             for (AtomicReaderContext atomicReaderContext : context.searcher().getIndexReader().leaves()) {
                 AtomicReader indexReader = atomicReaderContext.reader();
-                int parentDocId = context.idCache().reader(indexReader).docById(parentType, parentId);
+                IdReaderTypeCache parentTypeCache = context.idCache().reader(indexReader).type(parentType);
+                if (parentTypeCache == null) {
+                    continue;
+                }
+                int ord = ParentOrds.translate(typeCache, parentOrd, parentTypeCache, spare);
+                if (ord == 0) {
+                    continue;
+                }
+                int parentDocId = parentTypeCache.docByOrd(ord);
                 Bits liveDocs = indexReader.getLiveDocs();
                 if (parentDocId != -1 && (liveDocs == null || liveDocs.get(parentDocId))) {
                     // we found a match, add it and break
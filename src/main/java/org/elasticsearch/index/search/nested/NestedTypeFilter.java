@@ -0,0 +1,37 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.search.nested;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.lucene.search.FixedBitSetFilter;
+import org.elasticsearch.common.lucene.search.TermFilter;
+import org.elasticsearch.index.mapper.internal.TypeFieldMapper;
+
+/**
+ * Filters the docs of a nested type. Since it is used as a parent filter by nested queries, its cached
+ * doc id set is always kept as a {@link org.apache.lucene.util.FixedBitSet}.
+ */
+public class NestedTypeFilter extends TermFilter implements FixedBitSetFilter {
+
+    public NestedTypeFilter(BytesRef nestedTypePath) {
+        super(new Term(TypeFieldMapper.NAME, nestedTypePath));
+    }
+}
@@ -36,6 +36,7 @@ public class ShardIndexWarmerService extends AbstractIndexShardComponent {
 
     private final CounterMetric current = new CounterMetric();
     private final MeanMetric warmerMetric = new MeanMetric();
+    private final MeanMetric fieldDataWarmerMetric = new MeanMetric();
 
 
     @Inject
@@ -56,7 +57,15 @@ public class ShardIndexWarmerService extends AbstractIndexShardComponent {
         warmerMetric.inc(tookInNanos);
     }
 
+    /**
+     * Records the time spent eagerly loading field data (and structures built on top of it) while warming.
+     */
+    public void onPostFieldDataWarm(long tookInNanos) {
+        fieldDataWarmerMetric.inc(tookInNanos);
+    }
+
     public WarmerStats stats() {
-        return new WarmerStats(current.count(), warmerMetric.count(), TimeUnit.NANOSECONDS.toMillis(warmerMetric.sum()));
+        return new WarmerStats(current.count(), warmerMetric.count(), TimeUnit.NANOSECONDS.toMillis(warmerMetric.sum()),
+                fieldDataWarmerMetric.count(), TimeUnit.NANOSECONDS.toMillis(fieldDataWarmerMetric.sum()));
     }
 }
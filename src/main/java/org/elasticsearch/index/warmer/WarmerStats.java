@@ -37,20 +37,28 @@ public class WarmerStats implements Streamable, ToXContent {
 
     private long totalTimeInMillis;
 
+    private long fieldDataTotal;
+
+    private long fieldDataTotalTimeInMillis;
+
     public WarmerStats() {
 
     }
 
-    public WarmerStats(long current, long total, long totalTimeInMillis) {
+    public WarmerStats(long current, long total, long totalTimeInMillis, long fieldDataTotal, long fieldDataTotalTimeInMillis) {
         this.current = current;
         this.total = total;
         this.totalTimeInMillis = totalTimeInMillis;
+        this.fieldDataTotal = fieldDataTotal;
+        this.fieldDataTotalTimeInMillis = fieldDataTotalTimeInMillis;
     }
 
-    public void add(long current, long total, long totalTimeInMillis) {
+    public void add(long current, long total, long totalTimeInMillis, long fieldDataTotal, long fieldDataTotalTimeInMillis) {
         this.current += current;
         this.total += total;
         this.totalTimeInMillis += totalTimeInMillis;
+        this.fieldDataTotal += fieldDataTotal;
+        this.fieldDataTotalTimeInMillis += fieldDataTotalTimeInMillis;
     }
 
     public void add(WarmerStats warmerStats) {
@@ -60,6 +68,8 @@ public class WarmerStats implements Streamable, ToXContent {
         this.current += warmerStats.current;
         this.total += warmerStats.total;
         this.totalTimeInMillis += warmerStats.totalTimeInMillis;
+        this.fieldDataTotal += warmerStats.fieldDataTotal;
+        this.fieldDataTotalTimeInMillis += warmerStats.fieldDataTotalTimeInMillis;
     }
 
     public long current() {
@@ -87,6 +97,27 @@ public class WarmerStats implements Streamable, ToXContent {
         return new TimeValue(totalTimeInMillis);
     }
 
+    /**
+     * The total number of times field data was eagerly loaded by warmers.
+     */
+    public long fieldDataTotal() {
+        return this.fieldDataTotal;
+    }
+
+    /**
+     * The total time spent eagerly loading field data by warmers (in milliseconds).
+     */
+    public long fieldDataTotalTimeInMillis() {
+        return this.fieldDataTotalTimeInMillis;
+    }
+
+    /**
+     * The total time spent eagerly loading field data by warmers.
+     */
+    public TimeValue fieldDataTotalTime() {
+        return new TimeValue(fieldDataTotalTimeInMillis);
+    }
+
     public static WarmerStats readWarmerStats(StreamInput in) throws IOException {
         WarmerStats refreshStats = new WarmerStats();
         refreshStats.readFrom(in);
@@ -100,6 +131,9 @@ public class WarmerStats implements Streamable, ToXContent {
         builder.field(Fields.TOTAL, total);
         builder.field(Fields.TOTAL_TIME, totalTime().toString());
         builder.field(Fields.TOTAL_TIME_IN_MILLIS, totalTimeInMillis);
+        builder.field(Fields.FIELDDATA_TOTAL, fieldDataTotal);
+        builder.field(Fields.FIELDDATA_TOTAL_TIME, fieldDataTotalTime().toString());
+        builder.field(Fields.FIELDDATA_TOTAL_TIME_IN_MILLIS, fieldDataTotalTimeInMillis);
         builder.endObject();
         return builder;
     }
@@ -110,6 +144,9 @@ public class WarmerStats implements Streamable, ToXContent {
         static final XContentBuilderString TOTAL = new XContentBuilderString("total");
         static final XContentBuilderString TOTAL_TIME = new XContentBuilderString("total_time");
         static final XContentBuilderString TOTAL_TIME_IN_MILLIS = new XContentBuilderString("total_time_in_millis");
+        static final XContentBuilderString FIELDDATA_TOTAL = new XContentBuilderString("fielddata_total");
+        static final XContentBuilderString FIELDDATA_TOTAL_TIME = new XContentBuilderString("fielddata_total_time");
+        static final XContentBuilderString FIELDDATA_TOTAL_TIME_IN_MILLIS = new XContentBuilderString("fielddata_total_time_in_millis");
     }
 
     @Override
@@ -117,6 +154,8 @@ public class WarmerStats implements Streamable, ToXContent {
         current = in.readVLong();
         total = in.readVLong();
         totalTimeInMillis = in.readVLong();
+        fieldDataTotal = in.readVLong();
+        fieldDataTotalTimeInMillis = in.readVLong();
     }
 
     @Override
@@ -124,5 +163,7 @@ public class WarmerStats implements Streamable, ToXContent {
         out.writeVLong(current);
         out.writeVLong(total);
         out.writeVLong(totalTimeInMillis);
+        out.writeVLong(fieldDataTotal);
+        out.writeVLong(fieldDataTotalTimeInMillis);
     }
 }
\ No newline at end of file
@@ -70,6 +70,7 @@ import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.index.store.IndexStoreModule;
 import org.elasticsearch.index.store.StoreStats;
 import org.elasticsearch.indices.analysis.IndicesAnalysisService;
+import org.elasticsearch.indices.fielddata.breaker.IndicesFieldDataBreaker;
 import org.elasticsearch.indices.recovery.RecoverySettings;
 import org.elasticsearch.indices.store.IndicesStore;
 import org.elasticsearch.plugins.IndexPluginsModule;
@@ -106,6 +107,8 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
 
     private final IndicesStore indicesStore;
 
+    private final IndicesFieldDataBreaker fieldDataBreaker;
+
     private final Injector injector;
 
     private final PluginsService pluginsService;
@@ -117,13 +120,14 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
     private final OldShardsStats oldShardsStats = new OldShardsStats();
 
     @Inject
-    public InternalIndicesService(Settings settings, NodeEnvironment nodeEnv, ThreadPool threadPool, IndicesLifecycle indicesLifecycle, IndicesAnalysisService indicesAnalysisService, IndicesStore indicesStore, Injector injector) {
+    public InternalIndicesService(Settings settings, NodeEnvironment nodeEnv, ThreadPool threadPool, IndicesLifecycle indicesLifecycle, IndicesAnalysisService indicesAnalysisService, IndicesStore indicesStore, IndicesFieldDataBreaker fieldDataBreaker, Injector injector) {
         super(settings);
         this.nodeEnv = nodeEnv;
         this.threadPool = threadPool;
         this.indicesLifecycle = (InternalIndicesLifecycle) indicesLifecycle;
         this.indicesAnalysisService = indicesAnalysisService;
         this.indicesStore = indicesStore;
+        this.fieldDataBreaker = fieldDataBreaker;
         this.injector = injector;
 
         this.pluginsService = injector.getInstance(PluginsService.class);
@@ -215,7 +219,7 @@ public class InternalIndicesService extends AbstractLifecycleComponent<IndicesSe
             cacheStats.add(indexService.cache().stats());
             fieldDataStats.add(indexService.fieldData().stats());
         }
-        return new NodeIndicesStats(storeStats, docsStats, indexingStats, getStats, searchStats, cacheStats, fieldDataStats, mergeStats, refreshStats, flushStats);
+        return new NodeIndicesStats(storeStats, docsStats, indexingStats, getStats, searchStats, cacheStats, fieldDataStats, mergeStats, refreshStats, flushStats, fieldDataBreaker.stats(), indicesAnalysisService.sharedResourcesStats());
     }
 
     /**
@@ -35,6 +35,8 @@ import org.elasticsearch.index.refresh.RefreshStats;
 import org.elasticsearch.index.search.stats.SearchStats;
 import org.elasticsearch.index.shard.DocsStats;
 import org.elasticsearch.index.store.StoreStats;
+import org.elasticsearch.indices.analysis.AnalysisCacheStats;
+import org.elasticsearch.indices.fielddata.breaker.FieldDataBreakerStats;
 
 import java.io.IOException;
 import java.io.Serializable;
@@ -64,10 +66,14 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
 
     private FlushStats flushStats;
 
+    private FieldDataBreakerStats fieldDataBreakerStats;
+
+    private AnalysisCacheStats analysisCacheStats;
+
     NodeIndicesStats() {
     }
 
-    public NodeIndicesStats(StoreStats storeStats, DocsStats docsStats, IndexingStats indexingStats, GetStats getStats, SearchStats searchStats, CacheStats cacheStats, FieldDataStats fieldDataStats, MergeStats mergeStats, RefreshStats refreshStats, FlushStats flushStats) {
+    public NodeIndicesStats(StoreStats storeStats, DocsStats docsStats, IndexingStats indexingStats, GetStats getStats, SearchStats searchStats, CacheStats cacheStats, FieldDataStats fieldDataStats, MergeStats mergeStats, RefreshStats refreshStats, FlushStats flushStats, FieldDataBreakerStats fieldDataBreakerStats, AnalysisCacheStats analysisCacheStats) {
         this.storeStats = storeStats;
         this.docsStats = docsStats;
         this.indexingStats = indexingStats;
@@ -78,6 +84,8 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         this.mergeStats = mergeStats;
         this.refreshStats = refreshStats;
         this.flushStats = flushStats;
+        this.fieldDataBreakerStats = fieldDataBreakerStats;
+        this.analysisCacheStats = analysisCacheStats;
     }
 
     /**
@@ -107,6 +115,10 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         return this.cacheStats;
     }
 
+    public FieldDataStats getFieldData() {
+        return this.fieldDataStats;
+    }
+
     public MergeStats getMerge() {
         return this.mergeStats;
     }
@@ -119,6 +131,14 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         return this.flushStats;
     }
 
+    public FieldDataBreakerStats getFieldDataBreaker() {
+        return this.fieldDataBreakerStats;
+    }
+
+    public AnalysisCacheStats getAnalysisCache() {
+        return this.analysisCacheStats;
+    }
+
     public static NodeIndicesStats readIndicesStats(StreamInput in) throws IOException {
         NodeIndicesStats stats = new NodeIndicesStats();
         stats.readFrom(in);
@@ -137,6 +157,8 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         mergeStats = MergeStats.readMergeStats(in);
         refreshStats = RefreshStats.readRefreshStats(in);
         flushStats = FlushStats.readFlushStats(in);
+        fieldDataBreakerStats = FieldDataBreakerStats.readFieldDataBreakerStats(in);
+        analysisCacheStats = AnalysisCacheStats.readAnalysisCacheStats(in);
     }
 
     @Override
@@ -151,6 +173,8 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         mergeStats.writeTo(out);
         refreshStats.writeTo(out);
         flushStats.writeTo(out);
+        fieldDataBreakerStats.writeTo(out);
+        analysisCacheStats.writeTo(out);
     }
 
     @Override
@@ -167,6 +191,8 @@ public class NodeIndicesStats implements Streamable, Serializable, ToXContent {
         mergeStats.toXContent(builder, params);
         refreshStats.toXContent(builder, params);
         flushStats.toXContent(builder, params);
+        fieldDataBreakerStats.toXContent(builder, params);
+        analysisCacheStats.toXContent(builder, params);
 
         builder.endObject();
         return builder;
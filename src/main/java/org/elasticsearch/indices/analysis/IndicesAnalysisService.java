@@ -19,6 +19,7 @@
 
 package org.elasticsearch.indices.analysis;
 
+import com.google.common.collect.Maps;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.Tokenizer;
@@ -77,10 +78,13 @@ import org.apache.lucene.analysis.sv.SwedishAnalyzer;
 import org.apache.lucene.analysis.th.ThaiAnalyzer;
 import org.apache.lucene.analysis.tr.TurkishAnalyzer;
 import org.apache.lucene.analysis.util.ElisionFilter;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.ElasticSearchIllegalStateException;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
@@ -89,6 +93,7 @@ import org.elasticsearch.index.analysis.*;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import static org.elasticsearch.common.settings.ImmutableSettings.Builder.EMPTY_SETTINGS;
 
@@ -103,6 +108,11 @@ public class IndicesAnalysisService extends AbstractComponent {
     private final Map<String, PreBuiltTokenFilterFactoryFactory> tokenFilterFactories = ConcurrentCollections.newConcurrentMap();
     private final Map<String, PreBuiltCharFilterFactoryFactory> charFilterFactories = ConcurrentCollections.newConcurrentMap();
 
+    // analysis resources built from the index settings, shared by the indices with identical ones
+    private final Map<String, SharedResource> sharedResources = Maps.newHashMap();
+    private final CounterMetric sharedResourcesHits = new CounterMetric();
+    private final CounterMetric sharedResourcesMisses = new CounterMetric();
+
     public IndicesAnalysisService() {
         super(EMPTY_SETTINGS);
     }
@@ -735,7 +745,84 @@ public class IndicesAnalysisService extends AbstractComponent {
         return analyzerProviderFactory.analyzer();
     }
 
+    /**
+     * Returns the analysis resource (synonym map, stop words set...) registered under the given key, building
+     * it with the loader if no index on the node holds it yet. The key must identify the content of the resource
+     * (typically a hash of the settings and files it is built from), and each acquire must be matched by a
+     * {@link #releaseSharedResource(String)} once the resource is not used anymore.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T acquireSharedResource(String key, Callable<T> loader) throws ElasticSearchException {
+        SharedResource resource;
+        synchronized (sharedResources) {
+            resource = sharedResources.get(key);
+            if (resource == null) {
+                resource = new SharedResource();
+                sharedResources.put(key, resource);
+            }
+            resource.refCount++;
+        }
+        // build outside of the global lock, other resources might be acquired meanwhile
+        synchronized (resource) {
+            if (resource.value != null) {
+                sharedResourcesHits.inc();
+                return (T) resource.value;
+            }
+            try {
+                T value = loader.call();
+                resource.sizeInBytes = RamUsageEstimator.sizeOf(value);
+                resource.value = value;
+            } catch (Exception e) {
+                releaseSharedResource(key);
+                if (e instanceof ElasticSearchException) {
+                    throw (ElasticSearchException) e;
+                }
+                throw new ElasticSearchException("failed to build analysis resource", e);
+            }
+            sharedResourcesMisses.inc();
+            return (T) resource.value;
+        }
+    }
+
+    /**
+     * Releases a resource acquired with {@link #acquireSharedResource(String, java.util.concurrent.Callable)},
+     * dropping it once no index on the node holds it anymore.
+     */
+    public void releaseSharedResource(String key) {
+        synchronized (sharedResources) {
+            SharedResource resource = sharedResources.get(key);
+            if (resource != null && --resource.refCount == 0) {
+                sharedResources.remove(key);
+            }
+        }
+    }
+
+    public AnalysisCacheStats sharedResourcesStats() {
+        long entries = 0;
+        long memorySize = 0;
+        synchronized (sharedResources) {
+            for (SharedResource resource : sharedResources.values()) {
+                if (resource.value != null) {
+                    entries++;
+                    memorySize += resource.sizeInBytes;
+                }
+            }
+        }
+        return new AnalysisCacheStats(entries, memorySize, sharedResourcesHits.count(), sharedResourcesMisses.count());
+    }
+
+    static class SharedResource {
+        // set under the resource lock, read under the resources map one
+        volatile Object value;
+        volatile long sizeInBytes;
+        // guarded by the resources map lock
+        int refCount;
+    }
+
     public void close() {
+        synchronized (sharedResources) {
+            sharedResources.clear();
+        }
         for (PreBuiltAnalyzerProviderFactory analyzerProviderFactory : analyzerProviderFactories.values()) {
             try {
                 analyzerProviderFactory.analyzer().close();
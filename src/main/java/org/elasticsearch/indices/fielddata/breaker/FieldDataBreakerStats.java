@@ -0,0 +1,123 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.fielddata.breaker;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * The limit and current usage of the field data breaker of a node.
+ */
+public class FieldDataBreakerStats implements Streamable, ToXContent {
+
+    long maximum;
+
+    long estimated;
+
+    double overhead;
+
+    long trippedCount;
+
+    FieldDataBreakerStats() {
+    }
+
+    public FieldDataBreakerStats(long maximum, long estimated, double overhead, long trippedCount) {
+        this.maximum = maximum;
+        this.estimated = estimated;
+        this.overhead = overhead;
+        this.trippedCount = trippedCount;
+    }
+
+    public long getMaximumSizeInBytes() {
+        return this.maximum;
+    }
+
+    public ByteSizeValue getMaximumSize() {
+        return new ByteSizeValue(maximum);
+    }
+
+    public long getEstimatedSizeInBytes() {
+        return this.estimated;
+    }
+
+    public ByteSizeValue getEstimatedSize() {
+        return new ByteSizeValue(estimated);
+    }
+
+    public double getOverhead() {
+        return this.overhead;
+    }
+
+    public long getTrippedCount() {
+        return this.trippedCount;
+    }
+
+    public static FieldDataBreakerStats readFieldDataBreakerStats(StreamInput in) throws IOException {
+        FieldDataBreakerStats stats = new FieldDataBreakerStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        maximum = in.readLong();
+        estimated = in.readLong();
+        overhead = in.readDouble();
+        trippedCount = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeLong(maximum);
+        out.writeLong(estimated);
+        out.writeDouble(overhead);
+        out.writeVLong(trippedCount);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.FIELD_DATA_BREAKER);
+        builder.field(Fields.MAX_SIZE_IN_BYTES, maximum);
+        builder.field(Fields.MAX_SIZE, getMaximumSize().toString());
+        builder.field(Fields.ESTIMATED_SIZE_IN_BYTES, estimated);
+        builder.field(Fields.ESTIMATED_SIZE, getEstimatedSize().toString());
+        builder.field(Fields.OVERHEAD, overhead);
+        builder.field(Fields.TRIPPED, trippedCount);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString FIELD_DATA_BREAKER = new XContentBuilderString("fielddata_breaker");
+        static final XContentBuilderString MAX_SIZE_IN_BYTES = new XContentBuilderString("maximum_size_in_bytes");
+        static final XContentBuilderString MAX_SIZE = new XContentBuilderString("maximum_size");
+        static final XContentBuilderString ESTIMATED_SIZE_IN_BYTES = new XContentBuilderString("estimated_size_in_bytes");
+        static final XContentBuilderString ESTIMATED_SIZE = new XContentBuilderString("estimated_size");
+        static final XContentBuilderString OVERHEAD = new XContentBuilderString("overhead");
+        static final XContentBuilderString TRIPPED = new XContentBuilderString("tripped");
+    }
+}
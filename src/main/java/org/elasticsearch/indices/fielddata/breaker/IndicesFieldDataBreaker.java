@@ -0,0 +1,98 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.fielddata.breaker;
+
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.node.settings.NodeSettingsService;
+
+/**
+ * The node level memory breaker for field data. Field data loads are estimated before they happen, and
+ * rejected if the node would go over <tt>indices.fielddata.breaker.limit</tt> (defaults to 80% of the heap).
+ * Both the limit and the overhead factor applied to estimates can be updated at runtime.
+ */
+public class IndicesFieldDataBreaker extends AbstractComponent {
+
+    public static final String FIELDDATA_BREAKER_LIMIT = "indices.fielddata.breaker.limit";
+    public static final String FIELDDATA_BREAKER_OVERHEAD = "indices.fielddata.breaker.overhead";
+
+    public static final String DEFAULT_BREAKER_LIMIT = "80%";
+    public static final double DEFAULT_OVERHEAD_CONSTANT = 1.03;
+
+    static {
+        MetaData.addDynamicSettings(
+                FIELDDATA_BREAKER_LIMIT,
+                FIELDDATA_BREAKER_OVERHEAD
+        );
+    }
+
+    private final MemoryCircuitBreaker breaker;
+
+    private volatile String limit;
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            String limit = settings.get(FIELDDATA_BREAKER_LIMIT, IndicesFieldDataBreaker.this.limit);
+            if (!limit.equals(IndicesFieldDataBreaker.this.limit)) {
+                logger.info("updating [{}] from [{}] to [{}]", FIELDDATA_BREAKER_LIMIT, IndicesFieldDataBreaker.this.limit, limit);
+                IndicesFieldDataBreaker.this.limit = limit;
+                breaker.setLimit(parseLimit(limit));
+            }
+            double overhead = settings.getAsDouble(FIELDDATA_BREAKER_OVERHEAD, breaker.getOverhead());
+            if (overhead != breaker.getOverhead()) {
+                logger.info("updating [{}] from [{}] to [{}]", FIELDDATA_BREAKER_OVERHEAD, breaker.getOverhead(), overhead);
+                breaker.setOverhead(overhead);
+            }
+        }
+    }
+
+    @Inject
+    public IndicesFieldDataBreaker(Settings settings, NodeSettingsService nodeSettingsService) {
+        super(settings);
+        this.limit = settings.get(FIELDDATA_BREAKER_LIMIT, DEFAULT_BREAKER_LIMIT);
+        double overhead = settings.getAsDouble(FIELDDATA_BREAKER_OVERHEAD, DEFAULT_OVERHEAD_CONSTANT);
+        this.breaker = new MemoryCircuitBreaker(parseLimit(limit), overhead, logger);
+        logger.debug("using field data breaker with limit [{}], overhead [{}]", limit, overhead);
+
+        nodeSettingsService.addListener(new ApplySettings());
+    }
+
+    public MemoryCircuitBreaker breaker() {
+        return breaker;
+    }
+
+    public FieldDataBreakerStats stats() {
+        return new FieldDataBreakerStats(breaker.getMaximum(), breaker.getUsed(), breaker.getOverhead(), breaker.getTrippedCount());
+    }
+
+    private static ByteSizeValue parseLimit(String limit) {
+        if (limit.endsWith("%")) {
+            double percent = Double.parseDouble(limit.substring(0, limit.length() - 1));
+            return new ByteSizeValue((long) ((percent / 100) * JvmInfo.jvmInfo().getMem().getHeapMax().bytes()));
+        }
+        return ByteSizeValue.parseBytesSizeValue(limit);
+    }
+}
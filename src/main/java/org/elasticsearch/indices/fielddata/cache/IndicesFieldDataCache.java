@@ -0,0 +1,353 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.fielddata.cache;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SegmentReader;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.indices.fielddata.breaker.IndicesFieldDataBreaker;
+import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.node.settings.NodeSettingsService;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A node level field data cache shared by all the indices (and fields) on the node, bounded by the total
+ * memory size of the loaded field data (<tt>indices.fielddata.cache.size</tt>) and optionally expiring
+ * entries that have not been accessed (<tt>indices.fielddata.cache.expire</tt>). Least recently used
+ * entries are evicted first. Both settings can be updated dynamically, the loaded entries are kept.
+ */
+public class IndicesFieldDataCache extends AbstractComponent implements RemovalListener<IndicesFieldDataCache.Key, AtomicFieldData> {
+
+    public static final String FIELDDATA_CACHE_SIZE = "indices.fielddata.cache.size";
+    public static final String FIELDDATA_CACHE_EXPIRE = "indices.fielddata.cache.expire";
+
+    static {
+        MetaData.addDynamicSettings(
+                FIELDDATA_CACHE_SIZE,
+                FIELDDATA_CACHE_EXPIRE
+        );
+    }
+
+    private final MemoryCircuitBreaker breaker;
+
+    private volatile Cache<Key, AtomicFieldData> cache;
+    private volatile CacheRemovalListener cacheRemovalListener;
+    // held for reading while changing the entries of the cache, and for writing while replacing the cache
+    private final ReadWriteLock cacheLock = new ReentrantReadWriteLock();
+
+    private volatile String size;
+    private volatile long sizeInBytes;
+    private volatile TimeValue expire;
+
+    class ApplySettings implements NodeSettingsService.Listener {
+        @Override
+        public void onRefreshSettings(Settings settings) {
+            boolean replace = false;
+            String size = settings.get(FIELDDATA_CACHE_SIZE, IndicesFieldDataCache.this.size);
+            if (!size.equals(IndicesFieldDataCache.this.size)) {
+                logger.info("updating [{}] from [{}] to [{}]", FIELDDATA_CACHE_SIZE, IndicesFieldDataCache.this.size, size);
+                IndicesFieldDataCache.this.size = size;
+                replace = true;
+            }
+            TimeValue expire = settings.getAsTime(FIELDDATA_CACHE_EXPIRE, IndicesFieldDataCache.this.expire);
+            if (!Objects.equal(expire, IndicesFieldDataCache.this.expire)) {
+                logger.info("updating [{}] from [{}] to [{}]", FIELDDATA_CACHE_EXPIRE, IndicesFieldDataCache.this.expire, expire);
+                IndicesFieldDataCache.this.expire = expire;
+                replace = true;
+            }
+            if (replace) {
+                computeSizeInBytes();
+                rebuildCache();
+            }
+        }
+    }
+
+    @Inject
+    public IndicesFieldDataCache(Settings settings, IndicesFieldDataBreaker fieldDataBreaker, NodeSettingsService nodeSettingsService) {
+        super(settings);
+        this.breaker = fieldDataBreaker.breaker();
+        this.size = componentSettings.get("size", "-1");
+        this.expire = componentSettings.getAsTime("expire", null);
+        computeSizeInBytes();
+        buildCache();
+        logger.debug("using [node] field data cache with size [{}], actual_size [{}], expire [{}]",
+                size, sizeInBytes < 0 ? "unbounded" : new ByteSizeValue(sizeInBytes), expire);
+
+        nodeSettingsService.addListener(new ApplySettings());
+    }
+
+    /**
+     * Replaces the cache with one using the current bounds, moving the loaded entries across. In flight loads
+     * are waited for, so none of them ends up in the replaced cache.
+     */
+    private void rebuildCache() {
+        cacheLock.writeLock().lock();
+        try {
+            Cache<Key, AtomicFieldData> oldCache = cache;
+            CacheRemovalListener oldCacheRemovalListener = cacheRemovalListener;
+            buildCache();
+            Set<AtomicFieldData> moved = Collections.newSetFromMap(new IdentityHashMap<AtomicFieldData, Boolean>());
+            for (Map.Entry<Key, AtomicFieldData> entry : oldCache.asMap().entrySet()) {
+                // evicts if over the new bounds, releasing the evicted entries from the breaker
+                cache.put(entry.getKey(), entry.getValue());
+                moved.add(entry.getValue());
+            }
+            // the moved entries are released by the new cache, the others (like expired ones) by the old one
+            oldCacheRemovalListener.moved = moved;
+            oldCache.invalidateAll();
+            oldCache.cleanUp();
+        } finally {
+            cacheLock.writeLock().unlock();
+        }
+    }
+
+    private void buildCache() {
+        cacheRemovalListener = new CacheRemovalListener();
+        CacheBuilder<Key, AtomicFieldData> cacheBuilder = CacheBuilder.newBuilder()
+                .removalListener(cacheRemovalListener);
+
+        if (sizeInBytes > 0) {
+            cacheBuilder.maximumWeight(sizeInBytes).weigher(new FieldDataWeigher());
+        }
+
+        // defaults to 4, but this is a busy map for all indices, increase it a bit
+        cacheBuilder.concurrencyLevel(16);
+
+        if (expire != null && expire.millis() > 0) {
+            cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+        }
+
+        cache = cacheBuilder.build();
+    }
+
+    private void computeSizeInBytes() {
+        if (size.equals("-1")) {
+            sizeInBytes = -1;
+        } else if (size.endsWith("%")) {
+            double percent = Double.parseDouble(size.substring(0, size.length() - 1));
+            sizeInBytes = (long) ((percent / 100) * JvmInfo.jvmInfo().getMem().getHeapMax().bytes());
+        } else {
+            sizeInBytes = ByteSizeValue.parseBytesSizeValue(size).bytes();
+        }
+    }
+
+    public void close() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Builds the cache view used by the field data of a single field in an index.
+     */
+    public IndexFieldDataCache buildIndexFieldDataCache(IndexFieldDataCache.Listener listener, Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType) {
+        return new IndexFieldCache(listener, index, fieldNames, fieldDataType);
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, AtomicFieldData> notification) {
+        Key key = notification.getKey();
+        AtomicFieldData value = notification.getValue();
+        if (key == null || value == null) {
+            return;
+        }
+        breaker.addWithoutBreaking(-value.getMemorySizeInBytes());
+        IndexFieldCache indexCache = key.indexCache;
+        indexCache.listener.onUnload(indexCache.index, indexCache.fieldNames, indexCache.fieldDataType, key.readerKey, notification.wasEvicted(), value);
+    }
+
+    /**
+     * Forwards the removals of a cache, except for the entries that were moved to the cache replacing it.
+     */
+    class CacheRemovalListener implements RemovalListener<Key, AtomicFieldData> {
+
+        volatile Set<AtomicFieldData> moved = Collections.emptySet();
+
+        @Override
+        public void onRemoval(RemovalNotification<Key, AtomicFieldData> notification) {
+            if (!moved.contains(notification.getValue())) {
+                IndicesFieldDataCache.this.onRemoval(notification);
+            }
+        }
+    }
+
+    public static class FieldDataWeigher implements Weigher<Key, AtomicFieldData> {
+
+        @Override
+        public int weigh(Key key, AtomicFieldData fieldData) {
+            int weight = (int) Math.min(fieldData.getMemorySizeInBytes(), Integer.MAX_VALUE);
+            return weight == 0 ? 1 : weight;
+        }
+    }
+
+    /**
+     * A specific cache instance for the relevant parameters of it (index, fieldNames, fieldType).
+     */
+    class IndexFieldCache implements IndexFieldDataCache, SegmentReader.CoreClosedListener {
+
+        final Index index;
+        final FieldMapper.Names fieldNames;
+        final FieldDataType fieldDataType;
+        final IndexFieldDataCache.Listener listener;
+
+        IndexFieldCache(IndexFieldDataCache.Listener listener, Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType) {
+            this.listener = listener;
+            this.index = index;
+            this.fieldNames = fieldNames;
+            this.fieldDataType = fieldDataType;
+        }
+
+        @Override
+        public <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(final AtomicReaderContext context, final IFD indexFieldData) throws Exception {
+            final Key key = new Key(this, context.reader().getCoreCacheKey());
+            AtomicFieldData fieldData = cache.getIfPresent(key);
+            if (fieldData != null) {
+                //noinspection unchecked
+                return (FD) fieldData;
+            }
+            // account for the estimate before loading, failing the load if it would go over the limit
+            final long estimate = FieldDataSizeEstimator.estimate(context.reader(), fieldNames.indexName(), fieldDataType);
+            breaker.addEstimateBytesAndMaybeBreak(estimate, fieldNames.fullName());
+            final boolean[] loaded = new boolean[1];
+            cacheLock.readLock().lock();
+            try {
+                fieldData = cache.get(key, new Callable<AtomicFieldData>() {
+                    @Override
+                    public AtomicFieldData call() throws Exception {
+                        if (context.reader() instanceof SegmentReader) {
+                            ((SegmentReader) context.reader()).addCoreClosedListener(IndexFieldCache.this);
+                        }
+                        long start = System.nanoTime();
+                        AtomicFieldData fieldData = indexFieldData.loadDirect(context);
+                        long loadTime = System.nanoTime() - start;
+                        listener.onLoad(index, fieldNames, fieldDataType, context.reader(), fieldData, loadTime);
+                        // replace the estimate with the actual size, only once nothing can fail anymore, otherwise
+                        // the entry would never make it into the cache and the bytes would never be released
+                        breaker.addWithoutBreaking(fieldData.getMemorySizeInBytes() - estimate);
+                        loaded[0] = true;
+                        return fieldData;
+                    }
+                });
+            } finally {
+                cacheLock.readLock().unlock();
+                if (!loaded[0]) {
+                    // either failed to load, or someone else loaded it concurrently
+                    breaker.addWithoutBreaking(-estimate);
+                }
+            }
+            //noinspection unchecked
+            return (FD) fieldData;
+        }
+
+        @Override
+        public void onClose(SegmentReader owner) {
+            invalidate(new Key(this, owner.getCoreCacheKey()));
+        }
+
+        @Override
+        public void clear(Index index) {
+            clearAll();
+        }
+
+        @Override
+        public void clear(Index index, String fieldName) {
+            clearAll();
+        }
+
+        private void clearAll() {
+            cacheLock.readLock().lock();
+            try {
+                for (Iterator<Key> it = cache.asMap().keySet().iterator(); it.hasNext(); ) {
+                    if (it.next().indexCache == this) {
+                        // same as invalidate
+                        it.remove();
+                    }
+                }
+            } finally {
+                cacheLock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void clear(Index index, IndexReader reader) {
+            invalidate(new Key(this, reader.getCoreCacheKey()));
+        }
+
+        private void invalidate(Key key) {
+            // not while the cache is replaced, the entry could be moved to the new cache right after
+            cacheLock.readLock().lock();
+            try {
+                cache.invalidate(key);
+            } finally {
+                cacheLock.readLock().unlock();
+            }
+        }
+    }
+
+    public static class Key {
+
+        final IndexFieldCache indexCache;
+        final Object readerKey;
+
+        Key(IndexFieldCache indexCache, Object readerKey) {
+            this.indexCache = indexCache;
+            this.readerKey = readerKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            Key key = (Key) o;
+            if (!indexCache.equals(key.indexCache)) return false;
+            if (!readerKey.equals(key.readerKey)) return false;
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = indexCache.hashCode();
+            result = 31 * result + readerKey.hashCode();
+            return result;
+        }
+    }
+}
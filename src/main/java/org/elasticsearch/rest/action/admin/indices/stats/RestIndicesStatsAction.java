@@ -77,6 +77,9 @@ public class RestIndicesStatsAction extends BaseRestHandler {
 
         controller.registerHandler(GET, "/_stats/warmer", new RestWarmerStatsHandler());
         controller.registerHandler(GET, "/{index}/_stats/warmer", new RestWarmerStatsHandler());
+
+        controller.registerHandler(GET, "/_stats/fielddata", new RestFieldDataStatsHandler());
+        controller.registerHandler(GET, "/{index}/_stats/fielddata", new RestFieldDataStatsHandler());
     }
 
     @Override
@@ -108,6 +111,8 @@ public class RestIndicesStatsAction extends BaseRestHandler {
         indicesStatsRequest.refresh(request.paramAsBoolean("refresh", indicesStatsRequest.refresh()));
         indicesStatsRequest.flush(request.paramAsBoolean("flush", indicesStatsRequest.flush()));
         indicesStatsRequest.warmer(request.paramAsBoolean("warmer", indicesStatsRequest.warmer()));
+        indicesStatsRequest.fieldData(request.paramAsBoolean("fielddata", indicesStatsRequest.fieldData()));
+        indicesStatsRequest.fieldDataSegments(request.paramAsBoolean("fielddata_segments", indicesStatsRequest.fieldDataSegments()));
 
         client.admin().indices().stats(indicesStatsRequest, new ActionListener<IndicesStats>() {
             @Override
@@ -451,6 +456,45 @@ public class RestIndicesStatsAction extends BaseRestHandler {
         }
     }
 
+    class RestFieldDataStatsHandler implements RestHandler {
+
+        @Override
+        public void handleRequest(final RestRequest request, final RestChannel channel) {
+            IndicesStatsRequest indicesStatsRequest = new IndicesStatsRequest();
+            indicesStatsRequest.listenerThreaded(false);
+            indicesStatsRequest.clear().fieldData(true);
+            indicesStatsRequest.fieldDataSegments(request.paramAsBoolean("segments", false));
+            indicesStatsRequest.indices(splitIndices(request.param("index")));
+            indicesStatsRequest.types(splitTypes(request.param("types")));
+
+            client.admin().indices().stats(indicesStatsRequest, new ActionListener<IndicesStats>() {
+                @Override
+                public void onResponse(IndicesStats response) {
+                    try {
+                        XContentBuilder builder = RestXContentBuilder.restContentBuilder(request);
+                        builder.startObject();
+                        builder.field("ok", true);
+                        buildBroadcastShardsHeader(builder, response);
+                        response.toXContent(builder, request);
+                        builder.endObject();
+                        channel.sendResponse(new XContentRestResponse(request, OK, builder));
+                    } catch (Exception e) {
+                        onFailure(e);
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable e) {
+                    try {
+                        channel.sendResponse(new XContentThrowableRestResponse(request, e));
+                    } catch (IOException e1) {
+                        logger.error("Failed to send failure response", e1);
+                    }
+                }
+            });
+        }
+    }
+
     class RestRefreshStatsHandler implements RestHandler {
 
         @Override
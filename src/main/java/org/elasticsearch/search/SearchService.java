@@ -20,6 +20,7 @@
 package org.elasticsearch.search;
 
 import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.search.TopDocs;
 import org.elasticsearch.ElasticSearchException;
 import org.elasticsearch.action.search.SearchType;
@@ -38,6 +39,10 @@ import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.search.stats.StatsGroupsParseElement;
 import org.elasticsearch.index.service.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -59,7 +64,10 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -127,6 +135,7 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
 
         this.keepAliveReaper = threadPool.scheduleWithFixedDelay(new Reaper(), keepAliveInterval);
 
+        this.indicesWarmer.addListener(new FieldDataWarmer());
         this.indicesWarmer.addListener(new SearchWarmer());
     }
 
@@ -622,6 +631,68 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         }
     }
 
+    /**
+     * Loads the field data of fields mapped with <tt>fielddata.loading</tt> set to <tt>eager</tt> for the new segments,
+     * and the id cache when <tt>index.cache.id.loading</tt> is set to <tt>eager</tt>, before they are exposed to searches.
+     */
+    class FieldDataWarmer implements IndicesWarmer.Listener {
+
+        @Override
+        public String executor() {
+            return ThreadPool.Names.SEARCH;
+        }
+
+        @Override
+        public void warm(IndexShard indexShard, IndexMetaData indexMetaData, IndicesWarmer.WarmerContext warmerContext) {
+            IndexService indexService = indicesService.indexService(indexShard.shardId().index().name());
+            if (indexService == null) {
+                return;
+            }
+            List<AtomicReaderContext> leaves = warmerContext.newSearcher().reader().leaves();
+            long now = System.nanoTime();
+            boolean warmed = false;
+            Set<String> fields = new HashSet<String>();
+            for (DocumentMapper docMapper : indexService.mapperService()) {
+                for (FieldMapper fieldMapper : docMapper.mappers()) {
+                    FieldDataType fieldDataType = fieldMapper.fieldDataType();
+                    if (fieldDataType == null || fieldDataType.getLoading() != FieldDataType.Loading.EAGER) {
+                        continue;
+                    }
+                    if (!fields.add(fieldMapper.names().indexName())) {
+                        continue;
+                    }
+                    try {
+                        IndexFieldData indexFieldData = indexService.fieldData().getForField(fieldMapper);
+                        for (AtomicReaderContext context : leaves) {
+                            indexFieldData.load(context);
+                        }
+                        warmed = true;
+                        if (indexShard.warmerService().logger().isTraceEnabled()) {
+                            indexShard.warmerService().logger().trace("warmed fielddata for [{}]", fieldMapper.names().name());
+                        }
+                    } catch (Throwable t) {
+                        indexShard.warmerService().logger().warn("failed to warm fielddata for [{}]", t, fieldMapper.names().name());
+                    }
+                }
+            }
+            if ("eager".equals(indexMetaData.settings().get("index.cache.id.loading"))) {
+                try {
+                    indexService.cache().idCache().refresh(leaves);
+                    warmed = true;
+                } catch (Throwable t) {
+                    indexShard.warmerService().logger().warn("failed to warm id cache", t);
+                }
+            }
+            if (warmed) {
+                long took = System.nanoTime() - now;
+                indexShard.warmerService().onPostFieldDataWarm(took);
+                if (indexShard.warmerService().logger().isTraceEnabled()) {
+                    indexShard.warmerService().logger().trace("warmed fielddata, took [{}]", TimeValue.timeValueNanos(took));
+                }
+            }
+        }
+    }
+
     class SearchWarmer implements IndicesWarmer.Listener {
 
         @Override
@@ -38,6 +38,10 @@ public abstract class AbstractFacetBuilder implements ToXContent {
 
     protected String nested;
 
+    protected int sampleSize = -1;
+
+    protected String sampleMode;
+
     protected AbstractFacetBuilder(String name) {
         this.name = name;
     }
@@ -64,6 +68,17 @@ public abstract class AbstractFacetBuilder implements ToXContent {
         return this;
     }
 
+    /**
+     * Computes the facet on a sample of <tt>size</tt> matching docs per shard, and extrapolates the counts to
+     * all the matching docs. The <tt>mode</tt> can be <tt>random</tt> (the default) or <tt>top</tt> to sample
+     * the top scoring docs. Supported by the terms, filter, query and geohash_grid facets.
+     */
+    public AbstractFacetBuilder sample(int size, String mode) {
+        this.sampleSize = size;
+        this.sampleMode = mode;
+        return this;
+    }
+
     protected void addFilterFacetAndGlobal(XContentBuilder builder, Params params) throws IOException {
         if (facetFilter != null) {
             builder.field("facet_filter");
@@ -77,5 +92,14 @@ public abstract class AbstractFacetBuilder implements ToXContent {
         if (global != null) {
             builder.field("global", global);
         }
+
+        if (sampleSize != -1) {
+            builder.startObject("sample");
+            builder.field("size", sampleSize);
+            if (sampleMode != null) {
+                builder.field("mode", sampleMode);
+            }
+            builder.endObject();
+        }
     }
 }
@@ -21,9 +21,12 @@ package org.elasticsearch.search.facet;
 
 import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.facet.aggregation.AggregationBuilder;
+import org.elasticsearch.search.facet.aggregation.AggregationFacetBuilder;
 import org.elasticsearch.search.facet.datehistogram.DateHistogramFacetBuilder;
 import org.elasticsearch.search.facet.filter.FilterFacetBuilder;
 import org.elasticsearch.search.facet.geodistance.GeoDistanceFacetBuilder;
+import org.elasticsearch.search.facet.geohashgrid.GeoHashGridFacetBuilder;
 import org.elasticsearch.search.facet.histogram.HistogramFacetBuilder;
 import org.elasticsearch.search.facet.histogram.HistogramScriptFacetBuilder;
 import org.elasticsearch.search.facet.query.QueryFacetBuilder;
@@ -94,4 +97,16 @@ public class FacetBuilders {
     public static GeoDistanceFacetBuilder geoDistanceFacet(String facetName) {
         return new GeoDistanceFacetBuilder(facetName);
     }
+
+    public static GeoHashGridFacetBuilder geoHashGridFacet(String facetName) {
+        return new GeoHashGridFacetBuilder(facetName);
+    }
+
+    public static AggregationFacetBuilder aggregationFacet(String facetName) {
+        return new AggregationFacetBuilder(facetName);
+    }
+
+    public static AggregationFacetBuilder aggregationFacet(String facetName, AggregationBuilder aggregation) {
+        return new AggregationFacetBuilder(facetName).aggregation(aggregation);
+    }
 }
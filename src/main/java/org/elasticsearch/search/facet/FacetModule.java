@@ -22,9 +22,11 @@ package org.elasticsearch.search.facet;
 import com.google.common.collect.Lists;
 import org.elasticsearch.common.inject.AbstractModule;
 import org.elasticsearch.common.inject.multibindings.Multibinder;
+import org.elasticsearch.search.facet.aggregation.AggregationFacetProcessor;
 import org.elasticsearch.search.facet.datehistogram.DateHistogramFacetProcessor;
 import org.elasticsearch.search.facet.filter.FilterFacetProcessor;
 import org.elasticsearch.search.facet.geodistance.GeoDistanceFacetProcessor;
+import org.elasticsearch.search.facet.geohashgrid.GeoHashGridFacetProcessor;
 import org.elasticsearch.search.facet.histogram.HistogramFacetProcessor;
 import org.elasticsearch.search.facet.query.QueryFacetProcessor;
 import org.elasticsearch.search.facet.range.RangeFacetProcessor;
@@ -45,12 +47,14 @@ public class FacetModule extends AbstractModule {
         processors.add(FilterFacetProcessor.class);
         processors.add(QueryFacetProcessor.class);
         processors.add(GeoDistanceFacetProcessor.class);
+        processors.add(GeoHashGridFacetProcessor.class);
         processors.add(HistogramFacetProcessor.class);
         processors.add(DateHistogramFacetProcessor.class);
         processors.add(RangeFacetProcessor.class);
         processors.add(StatisticalFacetProcessor.class);
         processors.add(TermsFacetProcessor.class);
         processors.add(TermsStatsFacetProcessor.class);
+        processors.add(AggregationFacetProcessor.class);
     }
 
     public void addFacetProcessor(Class<? extends FacetProcessor> facetProcessor) {
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.facet;
 
+import com.google.common.collect.ImmutableSet;
 import org.apache.lucene.search.Filter;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -28,6 +29,10 @@ import org.elasticsearch.index.search.nested.NestedChildrenCollector;
 import org.elasticsearch.index.search.nested.NonNestedDocsFilter;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchParseException;
+import org.elasticsearch.search.facet.filter.FilterFacet;
+import org.elasticsearch.search.facet.geohashgrid.GeoHashGridFacet;
+import org.elasticsearch.search.facet.query.QueryFacet;
+import org.elasticsearch.search.facet.terms.TermsFacet;
 import org.elasticsearch.search.internal.SearchContext;
 
 import java.util.ArrayList;
@@ -46,12 +51,26 @@ import java.util.List;
  *          size : 12
  *      },
  *      global : false
+ *  },
+ *  facet3: {
+ *      terms : {
+ *          name : "myfield"
+ *      },
+ *      sample : {
+ *          size : 10000,
+ *          mode : "random"
+ *      }
  *  }
  * }
  * </pre>
  */
 public class FacetParseElement implements SearchParseElement {
 
+    /**
+     * The facet types whose counts can be extrapolated from a sample, see {@link InternalSampledFacet}.
+     */
+    private static final ImmutableSet<String> SAMPLED_FACET_TYPES = ImmutableSet.of(TermsFacet.TYPE, FilterFacet.TYPE, QueryFacet.TYPE, GeoHashGridFacet.TYPE, "geohashGrid");
+
     private final FacetProcessors facetProcessors;
 
     @Inject
@@ -77,13 +96,33 @@ public class FacetParseElement implements SearchParseElement {
                 Filter filter = null;
                 boolean cacheFilter = true;
                 String nestedPath = null;
+                String facetType = null;
+                int sampleSize = -1;
+                SamplingFacetCollector.Mode sampleMode = SamplingFacetCollector.Mode.RANDOM;
                 while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
                     if (token == XContentParser.Token.FIELD_NAME) {
                         facetFieldName = parser.currentName();
                     } else if (token == XContentParser.Token.START_OBJECT) {
                         if ("facet_filter".equals(facetFieldName) || "facetFilter".equals(facetFieldName)) {
                             filter = context.queryParserService().parseInnerFilter(parser);
+                        } else if ("sample".equals(facetFieldName)) {
+                            String sampleFieldName = null;
+                            while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                                if (token == XContentParser.Token.FIELD_NAME) {
+                                    sampleFieldName = parser.currentName();
+                                } else if (token.isValue()) {
+                                    if ("size".equals(sampleFieldName)) {
+                                        sampleSize = parser.intValue();
+                                    } else if ("mode".equals(sampleFieldName)) {
+                                        sampleMode = SamplingFacetCollector.Mode.fromString(parser.text());
+                                    }
+                                }
+                            }
+                            if (sampleSize <= 0) {
+                                throw new SearchParseException(context, "facet [" + topLevelFieldName + "] sample requires a positive [size]");
+                            }
                         } else {
+                            facetType = facetFieldName;
                             FacetProcessor facetProcessor = facetProcessors.processor(facetFieldName);
                             if (facetProcessor == null) {
                                 throw new SearchParseException(context, "No facet type found for [" + facetFieldName + "]");
@@ -129,6 +168,15 @@ public class FacetParseElement implements SearchParseElement {
                     throw new SearchParseException(context, "no facet type found for facet named [" + topLevelFieldName + "]");
                 }
 
+                if (sampleSize > 0) {
+                    if (!SAMPLED_FACET_TYPES.contains(facetType)) {
+                        throw new SearchParseException(context, "facet [" + topLevelFieldName + "] of type [" + facetType + "] does not support sampling");
+                    }
+                    // the sample queue is allocated upfront, never sample more docs than the shard has
+                    int maxDoc = context.searcher().getIndexReader().maxDoc();
+                    facet = new SamplingFacetCollector(topLevelFieldName, facet, Math.max(1, Math.min(sampleSize, maxDoc)), sampleMode);
+                }
+
                 if (global) {
                     if (globalCollectors == null) {
                         globalCollectors = new ArrayList<FacetCollector>();
@@ -31,6 +31,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.lucene.search.XConstantScoreQuery;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.search.SearchParseElement;
 import org.elasticsearch.search.SearchPhase;
 import org.elasticsearch.search.internal.SearchContext;
@@ -50,10 +51,15 @@ public class FacetPhase implements SearchPhase {
 
     private final FacetBinaryParseElement facetBinaryParseElement;
 
+    private final int matchingDocsThreshold;
+
     @Inject
-    public FacetPhase(FacetParseElement facetParseElement, FacetBinaryParseElement facetBinaryParseElement) {
+    public FacetPhase(Settings settings, FacetParseElement facetParseElement, FacetBinaryParseElement facetBinaryParseElement) {
         this.facetParseElement = facetParseElement;
         this.facetBinaryParseElement = facetBinaryParseElement;
+        // the number of query/filter facets from which we rather materialize the main query matches per segment
+        // and compute them using bitset intersections, a value <= 0 disables it
+        this.matchingDocsThreshold = settings.getAsInt("search.facets.matching_docs_threshold", 3);
     }
 
     @Override
@@ -64,8 +70,29 @@ public class FacetPhase implements SearchPhase {
     @Override
     public void preProcess(SearchContext context) {
         if (context.facets() != null && context.facets().queryCollectors() != null) {
+            List<MatchingDocsFacetCollector> matchingDocsCollectors = null;
+            if (matchingDocsThreshold > 0) {
+                for (FacetCollector collector : context.facets().queryCollectors()) {
+                    if (collector instanceof MatchingDocsFacetCollector && ((MatchingDocsFacetCollector) collector).acceptsMatchingDocs()) {
+                        if (matchingDocsCollectors == null) {
+                            matchingDocsCollectors = new ArrayList<MatchingDocsFacetCollector>();
+                        }
+                        matchingDocsCollectors.add((MatchingDocsFacetCollector) collector);
+                    }
+                }
+                if (matchingDocsCollectors != null && matchingDocsCollectors.size() < matchingDocsThreshold) {
+                    matchingDocsCollectors = null;
+                }
+            }
             for (FacetCollector collector : context.facets().queryCollectors()) {
-                context.searcher().addMainQueryCollector(collector);
+                if (matchingDocsCollectors == null || !matchingDocsCollectors.contains(collector)) {
+                    context.searcher().addMainQueryCollector(collector);
+                }
+            }
+            if (matchingDocsCollectors != null) {
+                MatchingDocsCollector matchingDocsCollector = new MatchingDocsCollector(matchingDocsCollectors);
+                context.facets().matchingDocsCollector(matchingDocsCollector);
+                context.searcher().addMainQueryCollector(matchingDocsCollector);
             }
         }
     }
@@ -129,6 +156,14 @@ public class FacetPhase implements SearchPhase {
 
         SearchContextFacets contextFacets = context.facets();
 
+        if (contextFacets.matchingDocsCollector() != null) {
+            try {
+                contextFacets.matchingDocsCollector().finish();
+            } catch (IOException e) {
+                throw new QueryPhaseExecutionException(context, "Failed to execute facets", e);
+            }
+        }
+
         List<Facet> facets = Lists.newArrayListWithCapacity(2);
         if (contextFacets.queryCollectors() != null) {
             for (FacetCollector facetCollector : contextFacets.queryCollectors()) {
@@ -0,0 +1,154 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet;
+
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Describes the sample of matching docs a facet was computed on: <tt>size</tt> docs out of the
+ * <tt>from</tt> docs that matched. Counts of sampled facets are scaled by <tt>from / size</tt>.
+ */
+public class FacetSample implements Streamable, ToXContent {
+
+    private long size;
+
+    private long from;
+
+    FacetSample() {
+    }
+
+    public FacetSample(long size, long from) {
+        this.size = size;
+        this.from = from;
+    }
+
+    /**
+     * The number of docs the facet was computed on.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * The number of docs the facet was computed on.
+     */
+    public long getSize() {
+        return size();
+    }
+
+    /**
+     * The number of matching docs the sample was taken from.
+     */
+    public long from() {
+        return from;
+    }
+
+    /**
+     * The number of matching docs the sample was taken from.
+     */
+    public long getFrom() {
+        return from();
+    }
+
+    /**
+     * Extrapolates a count computed on the sample to all the matching docs.
+     */
+    public long scale(long count) {
+        if (size == 0 || size >= from) {
+            return count;
+        }
+        return Math.round(count * ((double) from / size));
+    }
+
+    /**
+     * Extrapolates a count computed on the sample to all the matching docs.
+     */
+    public int scale(int count) {
+        return (int) Math.min(Integer.MAX_VALUE, scale((long) count));
+    }
+
+    /**
+     * Merges the samples of the same facet on different shards, any of them may be <tt>null</tt>.
+     */
+    @Nullable
+    public static FacetSample merge(@Nullable FacetSample sample1, @Nullable FacetSample sample2) {
+        if (sample1 == null) {
+            return sample2;
+        }
+        if (sample2 == null) {
+            return sample1;
+        }
+        return new FacetSample(sample1.size + sample2.size, sample1.from + sample2.from);
+    }
+
+    @Nullable
+    public static FacetSample readOptionalFacetSample(StreamInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        FacetSample sample = new FacetSample();
+        sample.readFrom(in);
+        return sample;
+    }
+
+    public static void writeOptionalFacetSample(@Nullable FacetSample sample, StreamOutput out) throws IOException {
+        if (sample == null) {
+            out.writeBoolean(false);
+        } else {
+            out.writeBoolean(true);
+            sample.writeTo(out);
+        }
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        size = in.readVLong();
+        from = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(size);
+        out.writeVLong(from);
+    }
+
+    static final class Fields {
+        static final XContentBuilderString _SAMPLE = new XContentBuilderString("_sample");
+        static final XContentBuilderString SIZE = new XContentBuilderString("size");
+        static final XContentBuilderString FROM = new XContentBuilderString("from");
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields._SAMPLE);
+        builder.field(Fields.SIZE, size);
+        builder.field(Fields.FROM, from);
+        builder.endObject();
+        return builder;
+    }
+}
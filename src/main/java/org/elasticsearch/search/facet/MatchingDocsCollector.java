@@ -0,0 +1,93 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Materializes the docs matching the main query into a bitset per segment, and hands it over to a list of
+ * {@link MatchingDocsFacetCollector}s once the segment is done. Each of them can then be computed with
+ * a single intersection instead of a random access check per collected doc.
+ */
+public class MatchingDocsCollector extends Collector {
+
+    private final List<MatchingDocsFacetCollector> collectors;
+
+    private AtomicReaderContext context;
+
+    private FixedBitSet matchingDocs;
+
+    private boolean hasMatches;
+
+    public MatchingDocsCollector(List<MatchingDocsFacetCollector> collectors) {
+        this.collectors = collectors;
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return true;
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context) throws IOException {
+        flush();
+        this.context = context;
+        int maxDoc = context.reader().maxDoc();
+        if (matchingDocs != null && matchingDocs.length() == maxDoc) {
+            matchingDocs.clear(0, maxDoc);
+        } else {
+            matchingDocs = new FixedBitSet(maxDoc);
+        }
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        matchingDocs.set(doc);
+        hasMatches = true;
+    }
+
+    /**
+     * Processes the last segment visited, needs to be called once the main query is done.
+     */
+    public void finish() throws IOException {
+        flush();
+        matchingDocs = null;
+    }
+
+    private void flush() throws IOException {
+        if (context != null && hasMatches) {
+            for (MatchingDocsFacetCollector collector : collectors) {
+                collector.collectMatchingDocs(context, matchingDocs);
+            }
+        }
+        context = null;
+        hasMatches = false;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+
+/**
+ * A facet collector that can be computed from the set of docs matching the main query on a segment,
+ * instead of being called per collected doc. Used to count filter and query facets with bitset
+ * intersections when several of them are requested, see {@link MatchingDocsCollector}.
+ */
+public interface MatchingDocsFacetCollector {
+
+    /**
+     * Can this collector currently be computed from the matching docs? For example, facets that have
+     * a facet filter need to go through the per doc collection.
+     */
+    boolean acceptsMatchingDocs();
+
+    /**
+     * Processes all the docs (live ones only) that matched the main query on the provided segment.
+     */
+    void collectMatchingDocs(AtomicReaderContext context, FixedBitSet matchingDocs) throws IOException;
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet;
+
+import org.elasticsearch.common.Nullable;
+
+/**
+ * A facet that can be computed on a sample of the matching docs, see the <tt>sample</tt> facet option.
+ */
+public interface SampledFacet extends Facet {
+
+    /**
+     * The sample the facet was computed on, <tt>null</tt> if it was computed on all the matching docs.
+     */
+    @Nullable
+    FacetSample sample();
+
+    /**
+     * The sample the facet was computed on, <tt>null</tt> if it was computed on all the matching docs.
+     */
+    @Nullable
+    FacetSample getSample();
+}
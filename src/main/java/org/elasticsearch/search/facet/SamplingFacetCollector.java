@@ -0,0 +1,259 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.PriorityQueue;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A collector that only feeds a sample of <tt>size</tt> matching docs to the wrapped facet collector, either the
+ * top scoring ones or a deterministic pseudo random subset of them. The sampled docs are buffered while the main
+ * query runs and replayed, in doc id order, to the wrapped collector when the facet is built. The resulting facet
+ * counts are then extrapolated to all the matching docs, see {@link InternalSampledFacet#applySample(FacetSample)}.
+ */
+public class SamplingFacetCollector extends FacetCollector {
+
+    public static enum Mode {
+        /**
+         * Samples the top scoring docs.
+         */
+        TOP,
+        /**
+         * Samples a uniformly distributed subset of the docs, chosen by hashing their doc ids.
+         */
+        RANDOM;
+
+        public static Mode fromString(String mode) {
+            if ("top".equals(mode)) {
+                return TOP;
+            } else if ("random".equals(mode)) {
+                return RANDOM;
+            }
+            throw new ElasticSearchIllegalArgumentException("No sample mode found for [" + mode + "]");
+        }
+    }
+
+    private final String facetName;
+
+    private final FacetCollector collector;
+
+    private final Mode mode;
+
+    private final SampleQueue queue;
+
+    private final List<AtomicReaderContext> readers = new ArrayList<AtomicReaderContext>();
+
+    private Scorer scorer;
+
+    private int readerIndex = -1;
+
+    private int docBase;
+
+    private long totalHits;
+
+    // reused to avoid creating an object per doc that does not make it into the sample
+    private SampledDoc spare;
+
+    public SamplingFacetCollector(String facetName, FacetCollector collector, int size, Mode mode) {
+        this.facetName = facetName;
+        this.collector = collector;
+        this.mode = mode;
+        this.queue = new SampleQueue(size);
+    }
+
+    @Override
+    public void setFilter(Filter filter) {
+        // the facet filter is applied on the sampled docs
+        collector.setFilter(filter);
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        this.scorer = scorer;
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return true;
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context) throws IOException {
+        readers.add(context);
+        readerIndex = readers.size() - 1;
+        docBase = context.docBase;
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        totalHits++;
+        float priority;
+        float score = 0;
+        if (mode == Mode.TOP) {
+            score = scorer.score();
+            priority = score;
+        } else {
+            priority = hash(docBase + doc);
+        }
+        if (queue.size() == queue.maxSize && priority <= queue.top().priority) {
+            return;
+        }
+        if (spare == null) {
+            spare = new SampledDoc();
+        }
+        spare.readerIndex = readerIndex;
+        spare.doc = doc;
+        spare.score = score;
+        spare.priority = priority;
+        spare = queue.insertWithOverflow(spare);
+    }
+
+    @Override
+    public Facet facet() {
+        SampledDoc[] sample = new SampledDoc[queue.size()];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = queue.pop();
+        }
+        Arrays.sort(sample, DOC_ORDER);
+        SampleScorer sampleScorer = new SampleScorer();
+        try {
+            collector.setScorer(sampleScorer);
+            int currentReader = -1;
+            for (SampledDoc sampledDoc : sample) {
+                if (sampledDoc.readerIndex != currentReader) {
+                    currentReader = sampledDoc.readerIndex;
+                    collector.setNextReader(readers.get(currentReader));
+                }
+                sampleScorer.doc = sampledDoc.doc;
+                sampleScorer.score = sampledDoc.score;
+                collector.collect(sampledDoc.doc);
+            }
+        } catch (IOException e) {
+            throw new FacetPhaseExecutionException(facetName, "failed to collect sampled docs", e);
+        }
+        readers.clear();
+
+        Facet facet = collector.facet();
+        if (!(facet instanceof InternalSampledFacet)) {
+            throw new FacetPhaseExecutionException(facetName, "facet type [" + facet.type() + "] does not support sampling");
+        }
+        ((InternalSampledFacet) facet).applySample(new FacetSample(sample.length, totalHits));
+        return facet;
+    }
+
+    /**
+     * Murmur3 finalizer of the doc id, mapped to a positive float. Docs with the highest hashes are sampled.
+     */
+    private static float hash(int doc) {
+        int h = doc;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return (h >>> 8) / (float) (1 << 24);
+    }
+
+    static class SampledDoc {
+        int readerIndex;
+        int doc;
+        float score;
+        float priority;
+    }
+
+    private static final Comparator<SampledDoc> DOC_ORDER = new Comparator<SampledDoc>() {
+        @Override
+        public int compare(SampledDoc o1, SampledDoc o2) {
+            if (o1.readerIndex != o2.readerIndex) {
+                return o1.readerIndex - o2.readerIndex;
+            }
+            return o1.doc - o2.doc;
+        }
+    };
+
+    static class SampleQueue extends PriorityQueue<SampledDoc> {
+
+        final int maxSize;
+
+        SampleQueue(int maxSize) {
+            super(maxSize);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean lessThan(SampledDoc a, SampledDoc b) {
+            if (a.priority != b.priority) {
+                return a.priority < b.priority;
+            }
+            // prefer lower doc ids on ties, like the top docs collectors do
+            if (a.readerIndex != b.readerIndex) {
+                return a.readerIndex > b.readerIndex;
+            }
+            return a.doc > b.doc;
+        }
+    }
+
+    /**
+     * Exposes the score captured for each sampled doc while it is replayed.
+     */
+    static class SampleScorer extends Scorer {
+
+        int doc = -1;
+        float score;
+
+        SampleScorer() {
+            super(null);
+        }
+
+        @Override
+        public float score() throws IOException {
+            return score;
+        }
+
+        @Override
+        public int freq() throws IOException {
+            return 1;
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -29,6 +29,8 @@ public class SearchContextFacets {
     private final List<FacetCollector> queryCollectors;
     private final List<FacetCollector> globalCollectors;
 
+    private MatchingDocsCollector matchingDocsCollector;
+
     public SearchContextFacets(List<FacetCollector> queryCollectors, List<FacetCollector> globalCollectors) {
         this.queryCollectors = queryCollectors;
         this.globalCollectors = globalCollectors;
@@ -41,4 +43,15 @@ public class SearchContextFacets {
     public List<FacetCollector> globalCollectors() {
         return globalCollectors;
     }
+
+    /**
+     * The collector computing query/filter facets from the matching docs bitset, if used.
+     */
+    public MatchingDocsCollector matchingDocsCollector() {
+        return matchingDocsCollector;
+    }
+
+    public void matchingDocsCollector(MatchingDocsCollector matchingDocsCollector) {
+        this.matchingDocsCollector = matchingDocsCollector;
+    }
 }
@@ -20,9 +20,11 @@
 package org.elasticsearch.search.facet;
 
 import org.elasticsearch.common.inject.AbstractModule;
+import org.elasticsearch.search.facet.aggregation.InternalAggregationFacet;
 import org.elasticsearch.search.facet.datehistogram.InternalDateHistogramFacet;
 import org.elasticsearch.search.facet.filter.InternalFilterFacet;
 import org.elasticsearch.search.facet.geodistance.InternalGeoDistanceFacet;
+import org.elasticsearch.search.facet.geohashgrid.InternalGeoHashGridFacet;
 import org.elasticsearch.search.facet.histogram.InternalHistogramFacet;
 import org.elasticsearch.search.facet.query.InternalQueryFacet;
 import org.elasticsearch.search.facet.range.InternalRangeFacet;
@@ -40,11 +42,13 @@ public class TransportFacetModule extends AbstractModule {
         InternalFilterFacet.registerStreams();
         InternalQueryFacet.registerStreams();
         InternalGeoDistanceFacet.registerStreams();
+        InternalGeoHashGridFacet.registerStreams();
         InternalHistogramFacet.registerStreams();
         InternalDateHistogramFacet.registerStreams();
         InternalRangeFacet.registerStreams();
         InternalStatisticalFacet.registerStreams();
         InternalTermsFacet.registerStreams();
         InternalTermsStatsFacet.registerStreams();
+        InternalAggregationFacet.registerStreams();
     }
 }
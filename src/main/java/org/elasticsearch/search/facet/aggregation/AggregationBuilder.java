@@ -0,0 +1,88 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import com.google.common.collect.Lists;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Base class for building an aggregation, with its (optional) sub aggregations.
+ */
+public abstract class AggregationBuilder<B extends AggregationBuilder<B>> implements ToXContent {
+
+    protected final String name;
+
+    private List<AggregationBuilder> subAggregations;
+
+    protected AggregationBuilder(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Adds a sub aggregation, computed for each bucket of this aggregation.
+     */
+    @SuppressWarnings("unchecked")
+    public B subAggregation(AggregationBuilder subAggregation) {
+        if (subAggregations == null) {
+            subAggregations = Lists.newArrayList();
+        }
+        subAggregations.add(subAggregation);
+        return (B) this;
+    }
+
+    protected abstract String type();
+
+    /**
+     * Writes the type specific definition of the aggregation, as an object value.
+     */
+    protected abstract void internalXContent(XContentBuilder builder, Params params) throws IOException;
+
+    /**
+     * Writes the aggregation definition, without wrapping it in its named object.
+     */
+    public XContentBuilder toXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.field(type());
+        internalXContent(builder, params);
+        if (subAggregations != null) {
+            builder.startObject("aggregations");
+            for (AggregationBuilder subAggregation : subAggregations) {
+                subAggregation.toXContent(builder, params);
+            }
+            builder.endObject();
+        }
+        return builder;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(name);
+        toXContentBody(builder, params);
+        builder.endObject();
+        return builder;
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.search.facet.aggregation.filter.FilterAggregationBuilder;
+import org.elasticsearch.search.facet.aggregation.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.facet.aggregation.histogram.HistogramAggregationBuilder;
+import org.elasticsearch.search.facet.aggregation.range.RangeAggregationBuilder;
+import org.elasticsearch.search.facet.aggregation.stats.StatsAggregationBuilder;
+import org.elasticsearch.search.facet.aggregation.terms.TermsAggregationBuilder;
+
+/**
+ *
+ */
+public class AggregationBuilders {
+
+    public static TermsAggregationBuilder terms(String name) {
+        return new TermsAggregationBuilder(name);
+    }
+
+    public static HistogramAggregationBuilder histogram(String name) {
+        return new HistogramAggregationBuilder(name);
+    }
+
+    public static DateHistogramAggregationBuilder dateHistogram(String name) {
+        return new DateHistogramAggregationBuilder(name);
+    }
+
+    public static RangeAggregationBuilder range(String name) {
+        return new RangeAggregationBuilder(name);
+    }
+
+    public static FilterAggregationBuilder filter(String name, FilterBuilder filter) {
+        return new FilterAggregationBuilder(name).filter(filter);
+    }
+
+    public static StatsAggregationBuilder stats(String name) {
+        return new StatsAggregationBuilder(name);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilderException;
+import org.elasticsearch.search.facet.AbstractFacetBuilder;
+
+import java.io.IOException;
+
+/**
+ * Builds an aggregation facet, the root aggregation is named after the facet.
+ */
+public class AggregationFacetBuilder extends AbstractFacetBuilder {
+
+    private AggregationBuilder aggregation;
+
+    public AggregationFacetBuilder(String name) {
+        super(name);
+    }
+
+    /**
+     * Marks the facet to run in a global scope, not bounded by any query.
+     */
+    @Override
+    public AggregationFacetBuilder global(boolean global) {
+        super.global(global);
+        return this;
+    }
+
+    public AggregationFacetBuilder facetFilter(FilterBuilder filter) {
+        this.facetFilter = filter;
+        return this;
+    }
+
+    /**
+     * Sets the nested path the facet will execute on. A match (root object) will then cause all the
+     * nested objects matching the path to be computed into the facet.
+     */
+    public AggregationFacetBuilder nested(String nested) {
+        this.nested = nested;
+        return this;
+    }
+
+    /**
+     * The root aggregation to compute, its name is ignored.
+     */
+    public AggregationFacetBuilder aggregation(AggregationBuilder aggregation) {
+        this.aggregation = aggregation;
+        return this;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        if (aggregation == null) {
+            throw new SearchSourceBuilderException("aggregation must be set on aggregation facet for facet [" + name + "]");
+        }
+        builder.startObject(name);
+        builder.startObject(AggregationFacet.TYPE);
+        aggregation.toXContentBody(builder, params);
+        builder.endObject();
+
+        addFilterFacetAndGlobal(builder, params);
+
+        builder.endObject();
+        return builder;
+    }
+}
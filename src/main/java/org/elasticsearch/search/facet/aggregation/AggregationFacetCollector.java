@@ -0,0 +1,55 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.elasticsearch.search.facet.AbstractFacetCollector;
+import org.elasticsearch.search.facet.Facet;
+
+import java.io.IOException;
+
+/**
+ * Feeds the matching docs to the root aggregator, which in turn feeds its sub aggregators, so the
+ * whole aggregation tree is computed in a single pass.
+ */
+public class AggregationFacetCollector extends AbstractFacetCollector {
+
+    private final Aggregator aggregator;
+
+    public AggregationFacetCollector(String facetName, Aggregator aggregator) {
+        super(facetName);
+        this.aggregator = aggregator;
+    }
+
+    @Override
+    protected void doSetNextReader(AtomicReaderContext context) throws IOException {
+        aggregator.setNextReader(context);
+    }
+
+    @Override
+    protected void doCollect(int doc) throws IOException {
+        aggregator.collect(doc, 0);
+    }
+
+    @Override
+    public Facet facet() {
+        return new InternalAggregationFacet(facetName, aggregator.buildAggregation(0));
+    }
+}
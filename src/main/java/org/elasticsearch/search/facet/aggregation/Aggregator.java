@@ -0,0 +1,64 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import org.apache.lucene.index.AtomicReaderContext;
+
+import java.io.IOException;
+
+/**
+ * A shard level aggregator. A single aggregator instance computes the aggregation for all the
+ * buckets of its parent aggregator, each parent bucket being identified by an <tt>owningBucketOrd</tt>.
+ * This means that per bucket state must be kept in primitive structures indexed by ordinal, and
+ * never in per bucket objects.
+ */
+public abstract class Aggregator {
+
+    protected final String name;
+
+    protected Aggregator(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    /**
+     * Moves to the next segment, sub aggregators (if any) are moved as well.
+     */
+    public abstract void setNextReader(AtomicReaderContext context) throws IOException;
+
+    /**
+     * Collects the provided doc into the bucket of the parent aggregator identified
+     * by the <tt>owningBucketOrd</tt>.
+     */
+    public abstract void collect(int doc, int owningBucketOrd) throws IOException;
+
+    /**
+     * Builds the shard level result of this aggregator for the provided parent bucket.
+     */
+    public abstract InternalAggregation buildAggregation(int owningBucketOrd);
+
+    /**
+     * Builds an empty result, used when the parent bucket has no docs collected into it.
+     */
+    public abstract InternalAggregation buildEmptyAggregation();
+}
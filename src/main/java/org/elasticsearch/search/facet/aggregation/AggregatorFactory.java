@@ -0,0 +1,62 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import org.elasticsearch.search.facet.FacetPhaseExecutionException;
+
+/**
+ * The parsed definition of an aggregator. Since bucket aggregators need their sub aggregators when
+ * they get created, the definition is parsed first, and the aggregators are created bottom up once the
+ * whole tree is known.
+ */
+public abstract class AggregatorFactory {
+
+    protected final String name;
+
+    protected AggregatorFactory(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public abstract Aggregator create(Aggregator[] subAggregators);
+
+    /**
+     * Factory for aggregators that do not have buckets, and as such can't have sub aggregators.
+     */
+    public static abstract class Metric extends AggregatorFactory {
+
+        protected Metric(String name) {
+            super(name);
+        }
+
+        @Override
+        public Aggregator create(Aggregator[] subAggregators) {
+            if (subAggregators.length > 0) {
+                throw new FacetPhaseExecutionException(name, "metric aggregations can't have sub aggregations");
+            }
+            return create();
+        }
+
+        protected abstract Aggregator create();
+    }
+}
@@ -0,0 +1,351 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import com.google.common.collect.ImmutableMap;
+import org.apache.lucene.search.Filter;
+import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.joda.Joda;
+import org.elasticsearch.common.joda.TimeZoneRounding;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.search.facet.FacetPhaseExecutionException;
+import org.elasticsearch.search.facet.aggregation.filter.FilterAggregator;
+import org.elasticsearch.search.facet.aggregation.histogram.HistogramAggregator;
+import org.elasticsearch.search.facet.aggregation.range.RangeAggregator;
+import org.elasticsearch.search.facet.aggregation.stats.StatsAggregator;
+import org.elasticsearch.search.facet.aggregation.terms.InternalTerms;
+import org.elasticsearch.search.facet.aggregation.terms.TermsAggregator;
+import org.elasticsearch.search.internal.SearchContext;
+import org.joda.time.Chronology;
+import org.joda.time.DateTimeField;
+import org.joda.time.DateTimeZone;
+import org.joda.time.chrono.ISOChronology;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses an aggregation tree:
+ * <pre>
+ * {
+ *     "terms" : { "field" : "host", "size" : 10 },
+ *     "aggregations" : {
+ *         "per_hour" : {
+ *             "date_histogram" : { "field" : "timestamp", "interval" : "hour" },
+ *             "aggregations" : {
+ *                 "latency" : { "stats" : { "field" : "latency" } }
+ *             }
+ *         }
+ *     }
+ * }
+ * </pre>
+ */
+public class AggregatorParser {
+
+    private static final ImmutableMap<String, DateTimeField> dateTimeFields;
+
+    static {
+        Chronology chronology = ISOChronology.getInstanceUTC();
+        dateTimeFields = MapBuilder.<String, DateTimeField>newMapBuilder()
+                .put("year", chronology.yearOfCentury())
+                .put("quarter", Joda.QuarterOfYear.getField(chronology))
+                .put("month", chronology.monthOfYear())
+                .put("week", chronology.weekOfWeekyear())
+                .put("day", chronology.dayOfMonth())
+                .put("hour", chronology.hourOfDay())
+                .put("minute", chronology.minuteOfHour())
+                .put("second", chronology.secondOfMinute())
+                .immutableMap();
+    }
+
+    private final String facetName;
+
+    private final SearchContext context;
+
+    public AggregatorParser(String facetName, SearchContext context) {
+        this.facetName = facetName;
+        this.context = context;
+    }
+
+    /**
+     * Parses the aggregation, the parser is expected to be positioned after its start object.
+     */
+    public Aggregator parse(String name, XContentParser parser) throws IOException {
+        AggregatorFactory factory = null;
+        List<Aggregator> subAggregators = new ArrayList<Aggregator>();
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.START_OBJECT) {
+                if ("aggregations".equals(currentFieldName) || "aggs".equals(currentFieldName)) {
+                    String subName = null;
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                        if (token == XContentParser.Token.FIELD_NAME) {
+                            subName = parser.currentName();
+                        } else if (token == XContentParser.Token.START_OBJECT) {
+                            subAggregators.add(parse(subName, parser));
+                        }
+                    }
+                } else {
+                    if (factory != null) {
+                        throw new FacetPhaseExecutionException(facetName, "aggregation [" + name + "] defines more than one type, [" + currentFieldName + "] is not allowed");
+                    }
+                    factory = parseFactory(name, currentFieldName, parser);
+                }
+            }
+        }
+        if (factory == null) {
+            throw new FacetPhaseExecutionException(facetName, "no aggregation type defined for aggregation [" + name + "]");
+        }
+        return factory.create(subAggregators.toArray(new Aggregator[subAggregators.size()]));
+    }
+
+    private AggregatorFactory parseFactory(String name, String type, XContentParser parser) throws IOException {
+        if ("terms".equals(type)) {
+            return parseTerms(name, parser);
+        } else if ("histogram".equals(type)) {
+            return parseHistogram(name, parser);
+        } else if ("date_histogram".equals(type) || "dateHistogram".equals(type)) {
+            return parseDateHistogram(name, parser);
+        } else if ("range".equals(type)) {
+            return parseRange(name, parser);
+        } else if ("filter".equals(type)) {
+            return parseFilter(name, parser);
+        } else if ("stats".equals(type)) {
+            return parseStats(name, parser);
+        }
+        throw new FacetPhaseExecutionException(facetName, "no aggregation of type [" + type + "] found for aggregation [" + name + "]");
+    }
+
+    private AggregatorFactory parseTerms(final String name, XContentParser parser) throws IOException {
+        String field = null;
+        int size = 10;
+        int shardSize = -1;
+        InternalTerms.Order order = InternalTerms.Order.COUNT;
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token.isValue()) {
+                if ("field".equals(currentFieldName)) {
+                    field = parser.text();
+                } else if ("size".equals(currentFieldName)) {
+                    size = parser.intValue();
+                } else if ("shard_size".equals(currentFieldName) || "shardSize".equals(currentFieldName)) {
+                    shardSize = parser.intValue();
+                } else if ("order".equals(currentFieldName)) {
+                    order = InternalTerms.Order.fromString(parser.text());
+                }
+            }
+        }
+        final IndexFieldData indexFieldData = fieldData(name, field);
+        final InternalTerms.Order fOrder = order;
+        final int fSize = size;
+        final int fShardSize = shardSize < size ? size : shardSize;
+        return new AggregatorFactory(name) {
+            @Override
+            public Aggregator create(Aggregator[] subAggregators) {
+                return new TermsAggregator(name, indexFieldData, fOrder, fSize, fShardSize, subAggregators);
+            }
+        };
+    }
+
+    private AggregatorFactory parseHistogram(final String name, XContentParser parser) throws IOException {
+        String field = null;
+        long interval = 0;
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token.isValue()) {
+                if ("field".equals(currentFieldName)) {
+                    field = parser.text();
+                } else if ("interval".equals(currentFieldName)) {
+                    interval = parser.longValue();
+                } else if ("time_interval".equals(currentFieldName) || "timeInterval".equals(currentFieldName)) {
+                    interval = TimeValue.parseTimeValue(parser.text(), null).millis();
+                }
+            }
+        }
+        if (interval <= 0) {
+            throw new FacetPhaseExecutionException(facetName, "[interval] is required to be set for histogram aggregation [" + name + "]");
+        }
+        final IndexNumericFieldData indexFieldData = numericFieldData(name, field);
+        final long fInterval = interval;
+        return new AggregatorFactory(name) {
+            @Override
+            public Aggregator create(Aggregator[] subAggregators) {
+                return new HistogramAggregator(name, indexFieldData, fInterval, null, subAggregators);
+            }
+        };
+    }
+
+    private AggregatorFactory parseDateHistogram(final String name, XContentParser parser) throws IOException {
+        String field = null;
+        String interval = null;
+        DateTimeZone timeZone = DateTimeZone.UTC;
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token.isValue()) {
+                if ("field".equals(currentFieldName)) {
+                    field = parser.text();
+                } else if ("interval".equals(currentFieldName)) {
+                    interval = parser.text();
+                } else if ("time_zone".equals(currentFieldName) || "timeZone".equals(currentFieldName)) {
+                    if (token == XContentParser.Token.VALUE_NUMBER) {
+                        timeZone = DateTimeZone.forOffsetHours(parser.intValue());
+                    } else {
+                        timeZone = DateTimeZone.forID(parser.text());
+                    }
+                }
+            }
+        }
+        if (interval == null) {
+            throw new FacetPhaseExecutionException(facetName, "[interval] is required to be set for date_histogram aggregation [" + name + "]");
+        }
+        TimeZoneRounding.Builder roundingBuilder;
+        DateTimeField dateTimeField = dateTimeFields.get(interval);
+        if (dateTimeField != null) {
+            roundingBuilder = TimeZoneRounding.builder(dateTimeField);
+        } else {
+            roundingBuilder = TimeZoneRounding.builder(TimeValue.parseTimeValue(interval, null));
+        }
+        final TimeZoneRounding rounding = roundingBuilder.preZone(timeZone).postZone(timeZone).build();
+        final IndexNumericFieldData indexFieldData = numericFieldData(name, field);
+        return new AggregatorFactory(name) {
+            @Override
+            public Aggregator create(Aggregator[] subAggregators) {
+                return new HistogramAggregator(name, indexFieldData, 0, rounding, subAggregators);
+            }
+        };
+    }
+
+    private AggregatorFactory parseRange(final String name, XContentParser parser) throws IOException {
+        String field = null;
+        final List<RangeAggregator.Range> ranges = new ArrayList<RangeAggregator.Range>();
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.START_ARRAY) {
+                if ("ranges".equals(currentFieldName)) {
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_ARRAY) {
+                        String key = null;
+                        double from = Double.NEGATIVE_INFINITY;
+                        double to = Double.POSITIVE_INFINITY;
+                        String rangeFieldName = null;
+                        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                            if (token == XContentParser.Token.FIELD_NAME) {
+                                rangeFieldName = parser.currentName();
+                            } else if (token.isValue()) {
+                                if ("from".equals(rangeFieldName)) {
+                                    from = parser.doubleValue();
+                                } else if ("to".equals(rangeFieldName)) {
+                                    to = parser.doubleValue();
+                                } else if ("key".equals(rangeFieldName)) {
+                                    key = parser.text();
+                                }
+                            }
+                        }
+                        ranges.add(new RangeAggregator.Range(key, from, to));
+                    }
+                }
+            } else if (token.isValue()) {
+                if ("field".equals(currentFieldName)) {
+                    field = parser.text();
+                }
+            }
+        }
+        if (ranges.isEmpty()) {
+            throw new FacetPhaseExecutionException(facetName, "no ranges defined for range aggregation [" + name + "]");
+        }
+        final IndexNumericFieldData indexFieldData = numericFieldData(name, field);
+        return new AggregatorFactory(name) {
+            @Override
+            public Aggregator create(Aggregator[] subAggregators) {
+                return new RangeAggregator(name, indexFieldData, ranges.toArray(new RangeAggregator.Range[ranges.size()]), subAggregators);
+            }
+        };
+    }
+
+    private AggregatorFactory parseFilter(final String name, XContentParser parser) throws IOException {
+        final Filter filter = context.filterCache().cache(context.queryParserService().parseInnerFilter(parser));
+        return new AggregatorFactory(name) {
+            @Override
+            public Aggregator create(Aggregator[] subAggregators) {
+                return new FilterAggregator(name, filter, subAggregators);
+            }
+        };
+    }
+
+    private AggregatorFactory parseStats(final String name, XContentParser parser) throws IOException {
+        String field = null;
+        XContentParser.Token token;
+        String currentFieldName = null;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token.isValue()) {
+                if ("field".equals(currentFieldName)) {
+                    field = parser.text();
+                }
+            }
+        }
+        final IndexNumericFieldData indexFieldData = numericFieldData(name, field);
+        return new AggregatorFactory.Metric(name) {
+            @Override
+            protected Aggregator create() {
+                return new StatsAggregator(name, indexFieldData);
+            }
+        };
+    }
+
+    private IndexFieldData fieldData(String name, String field) {
+        if (field == null) {
+            throw new FacetPhaseExecutionException(facetName, "[field] is required to be set for aggregation [" + name + "]");
+        }
+        FieldMapper mapper = context.smartNameFieldMapper(field);
+        if (mapper == null) {
+            throw new FacetPhaseExecutionException(facetName, "no mapping found for field [" + field + "] of aggregation [" + name + "]");
+        }
+        return context.fieldData().getForField(mapper);
+    }
+
+    private IndexNumericFieldData numericFieldData(String name, String field) {
+        IndexFieldData indexFieldData = fieldData(name, field);
+        if (!(indexFieldData instanceof IndexNumericFieldData)) {
+            throw new FacetPhaseExecutionException(facetName, "field [" + field + "] of aggregation [" + name + "] is not a numeric field");
+        }
+        return (IndexNumericFieldData) indexFieldData;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import org.apache.lucene.util.ArrayUtil;
+
+import java.util.Arrays;
+
+/**
+ * Maps <tt>(owningBucketOrd, key)</tt> pairs to dense bucket ordinals, starting at <tt>0</tt>. Keys
+ * and owners are stored in primitive arrays indexed by the bucket ordinal, and the hash table itself
+ * is a single open addressing <tt>int[]</tt>, so no objects are allocated per bucket.
+ * <p/>
+ * Not thread safe.
+ */
+public final class BucketOrds {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private int[] owners;
+    private int size;
+
+    // slot -> bucket ord + 1, 0 marks an empty slot
+    private int[] table;
+    private int mask;
+
+    // lazily built index of bucket ordinals per owning bucket, see #bucketOrds(int)
+    private int[] ownerStarts;
+    private int[] ordsByOwner;
+
+    public BucketOrds() {
+        this(16);
+    }
+
+    public BucketOrds(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        table = new int[capacity];
+        mask = capacity - 1;
+        keys = new long[expectedSize];
+        owners = new int[expectedSize];
+    }
+
+    /**
+     * Adds the pair, returning its bucket ordinal if it was just added, or <tt>-1 - ord</tt> if
+     * it already existed.
+     */
+    public int add(int owningBucketOrd, long key) {
+        int slot = hash(owningBucketOrd, key) & mask;
+        while (true) {
+            int id = table[slot];
+            if (id == 0) {
+                int ord = size++;
+                if (ord == keys.length) {
+                    keys = ArrayUtil.grow(keys, ord + 1);
+                    owners = ArrayUtil.grow(owners, ord + 1);
+                }
+                keys[ord] = key;
+                owners[ord] = owningBucketOrd;
+                table[slot] = ord + 1;
+                ownerStarts = null;
+                if (size > table.length * LOAD_FACTOR) {
+                    rehash();
+                }
+                return ord;
+            }
+            int ord = id - 1;
+            if (keys[ord] == key && owners[ord] == owningBucketOrd) {
+                return -1 - ord;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Returns the bucket ordinal of the pair, or <tt>-1</tt> if it does not exist.
+     */
+    public int find(int owningBucketOrd, long key) {
+        int slot = hash(owningBucketOrd, key) & mask;
+        while (true) {
+            int id = table[slot];
+            if (id == 0) {
+                return -1;
+            }
+            int ord = id - 1;
+            if (keys[ord] == key && owners[ord] == owningBucketOrd) {
+                return ord;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * The number of buckets.
+     */
+    public int size() {
+        return size;
+    }
+
+    public long key(int bucketOrd) {
+        return keys[bucketOrd];
+    }
+
+    public int owner(int bucketOrd) {
+        return owners[bucketOrd];
+    }
+
+    /**
+     * Returns the bucket ordinals belonging to the provided owning bucket. The first call builds
+     * an index over all the buckets, so this is meant to be called once collection is done.
+     */
+    public int[] bucketOrds(int owningBucketOrd) {
+        if (ownerStarts == null) {
+            buildOwnerIndex();
+        }
+        if (owningBucketOrd + 1 >= ownerStarts.length) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(ordsByOwner, ownerStarts[owningBucketOrd], ownerStarts[owningBucketOrd + 1]);
+    }
+
+    /**
+     * The memory used by this structure, in bytes.
+     */
+    public long getMemorySizeInBytes() {
+        long size = table.length * 4l + keys.length * 8l + owners.length * 4l;
+        if (ordsByOwner != null) {
+            size += ordsByOwner.length * 4l + ownerStarts.length * 4l;
+        }
+        return size;
+    }
+
+    private void buildOwnerIndex() {
+        int maxOwner = -1;
+        for (int i = 0; i < size; i++) {
+            maxOwner = Math.max(maxOwner, owners[i]);
+        }
+        int[] starts = new int[maxOwner + 2];
+        for (int i = 0; i < size; i++) {
+            starts[owners[i] + 1]++;
+        }
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+        int[] upto = Arrays.copyOf(starts, starts.length);
+        int[] ords = new int[size];
+        for (int i = 0; i < size; i++) {
+            ords[upto[owners[i]]++] = i;
+        }
+        this.ordsByOwner = ords;
+        this.ownerStarts = starts;
+    }
+
+    private void rehash() {
+        int[] newTable = new int[table.length << 1];
+        int newMask = newTable.length - 1;
+        for (int ord = 0; ord < size; ord++) {
+            int slot = hash(owners[ord], keys[ord]) & newMask;
+            while (newTable[slot] != 0) {
+                slot = (slot + 1) & newMask;
+            }
+            newTable[slot] = ord + 1;
+        }
+        this.table = newTable;
+        this.mask = newMask;
+    }
+
+    private static int hash(int owningBucketOrd, long key) {
+        // murmur3 finalizer, mixes all the bits of the key and the owner
+        long h = key ^ (((long) owningBucketOrd) * 0x9E3779B97F4A7C15L);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
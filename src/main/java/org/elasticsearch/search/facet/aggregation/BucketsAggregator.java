@@ -0,0 +1,100 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.ArrayUtil;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class for aggregators that map docs into buckets. Each bucket is identified by a dense
+ * ordinal, and the doc count of each bucket is kept in a single <tt>long[]</tt>. Docs collected into
+ * a bucket are forwarded to the sub aggregators with the bucket ordinal as their owning bucket.
+ */
+public abstract class BucketsAggregator extends Aggregator {
+
+    protected final Aggregator[] subAggregators;
+
+    private long[] docCounts = new long[16];
+
+    protected BucketsAggregator(String name, Aggregator[] subAggregators) {
+        super(name);
+        this.subAggregators = subAggregators;
+    }
+
+    @Override
+    public final void setNextReader(AtomicReaderContext context) throws IOException {
+        doSetNextReader(context);
+        for (Aggregator subAggregator : subAggregators) {
+            subAggregator.setNextReader(context);
+        }
+    }
+
+    protected abstract void doSetNextReader(AtomicReaderContext context) throws IOException;
+
+    /**
+     * Collects the doc into the provided bucket, and into all the sub aggregators.
+     */
+    protected final void collectBucket(int doc, int bucketOrd) throws IOException {
+        if (bucketOrd >= docCounts.length) {
+            docCounts = ArrayUtil.grow(docCounts, bucketOrd + 1);
+        }
+        docCounts[bucketOrd]++;
+        for (Aggregator subAggregator : subAggregators) {
+            subAggregator.collect(doc, bucketOrd);
+        }
+    }
+
+    protected final long bucketDocCount(int bucketOrd) {
+        if (bucketOrd >= docCounts.length) {
+            return 0;
+        }
+        return docCounts[bucketOrd];
+    }
+
+    protected final InternalAggregations buildSubAggregations(int bucketOrd) {
+        if (subAggregators.length == 0) {
+            return InternalAggregations.EMPTY;
+        }
+        List<InternalAggregation> aggregations = new ArrayList<InternalAggregation>(subAggregators.length);
+        for (Aggregator subAggregator : subAggregators) {
+            if (bucketDocCount(bucketOrd) == 0) {
+                aggregations.add(subAggregator.buildEmptyAggregation());
+            } else {
+                aggregations.add(subAggregator.buildAggregation(bucketOrd));
+            }
+        }
+        return new InternalAggregations(aggregations);
+    }
+
+    protected final InternalAggregations buildEmptySubAggregations() {
+        if (subAggregators.length == 0) {
+            return InternalAggregations.EMPTY;
+        }
+        List<InternalAggregation> aggregations = new ArrayList<InternalAggregation>(subAggregators.length);
+        for (Aggregator subAggregator : subAggregators) {
+            aggregations.add(subAggregator.buildEmptyAggregation());
+        }
+        return new InternalAggregations(aggregations);
+    }
+}
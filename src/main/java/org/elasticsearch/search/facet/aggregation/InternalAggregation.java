@@ -0,0 +1,94 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.common.collect.MapBuilder;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The shard level (and reduced) result of an aggregation.
+ */
+public abstract class InternalAggregation implements Aggregation, Streamable, ToXContent {
+
+    protected String name;
+
+    protected InternalAggregation() {
+    }
+
+    protected InternalAggregation(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Reduces the results of the same aggregation coming from different shards (or buckets).
+     */
+    public abstract InternalAggregation reduce(List<InternalAggregation> aggregations);
+
+    /**
+     * Writes the content of the aggregation, without wrapping it in its named object.
+     */
+    public abstract XContentBuilder toXContentBody(XContentBuilder builder, Params params) throws IOException;
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(name);
+        toXContentBody(builder, params);
+        builder.endObject();
+        return builder;
+    }
+
+    public static interface Stream {
+        InternalAggregation readAggregation(StreamInput in) throws IOException;
+    }
+
+    public static class Streams {
+
+        private static ImmutableMap<String, Stream> streams = ImmutableMap.of();
+
+        public static synchronized void registerStream(Stream stream, String... types) {
+            MapBuilder<String, Stream> uStreams = MapBuilder.newMapBuilder(streams);
+            for (String type : types) {
+                uStreams.put(type, stream);
+            }
+            streams = uStreams.immutableMap();
+        }
+
+        public static Stream stream(String type) {
+            return streams.get(type);
+        }
+    }
+}
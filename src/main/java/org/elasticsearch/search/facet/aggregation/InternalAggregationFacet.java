@@ -0,0 +1,149 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.facet.Facet;
+import org.elasticsearch.search.facet.InternalFacet;
+import org.elasticsearch.search.facet.aggregation.filter.InternalFilter;
+import org.elasticsearch.search.facet.aggregation.histogram.InternalHistogram;
+import org.elasticsearch.search.facet.aggregation.range.InternalRange;
+import org.elasticsearch.search.facet.aggregation.stats.InternalStats;
+import org.elasticsearch.search.facet.aggregation.terms.InternalTerms;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ */
+public class InternalAggregationFacet implements AggregationFacet, InternalFacet {
+
+    private static final String STREAM_TYPE = "aggregation";
+
+    public static void registerStreams() {
+        Streams.registerStream(STREAM, STREAM_TYPE);
+        InternalTerms.registerStreams();
+        InternalHistogram.registerStreams();
+        InternalRange.registerStreams();
+        InternalFilter.registerStreams();
+        InternalStats.registerStreams();
+    }
+
+    static Stream STREAM = new Stream() {
+        @Override
+        public Facet readFacet(String type, StreamInput in) throws IOException {
+            return readAggregationFacet(in);
+        }
+    };
+
+    @Override
+    public String streamType() {
+        return STREAM_TYPE;
+    }
+
+    private String name;
+
+    private InternalAggregation aggregation;
+
+    private InternalAggregationFacet() {
+
+    }
+
+    public InternalAggregationFacet(String name, InternalAggregation aggregation) {
+        this.name = name;
+        this.aggregation = aggregation;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String getName() {
+        return name();
+    }
+
+    @SuppressWarnings({"unchecked"})
+    @Override
+    public <A extends Aggregation> A aggregation() {
+        return (A) aggregation;
+    }
+
+    @Override
+    public <A extends Aggregation> A getAggregation() {
+        return aggregation();
+    }
+
+    @Override
+    public Facet reduce(List<Facet> facets) {
+        List<InternalAggregation> aggregations = new ArrayList<InternalAggregation>(facets.size());
+        for (Facet facet : facets) {
+            aggregations.add(((InternalAggregationFacet) facet).aggregation);
+        }
+        return new InternalAggregationFacet(name, aggregation.reduce(aggregations));
+    }
+
+    static final class Fields {
+        static final XContentBuilderString _TYPE = new XContentBuilderString("_type");
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(name);
+        builder.field(Fields._TYPE, AggregationFacet.TYPE);
+        aggregation.toXContentBody(builder, params);
+        builder.endObject();
+        return builder;
+    }
+
+    public static AggregationFacet readAggregationFacet(StreamInput in) throws IOException {
+        InternalAggregationFacet result = new InternalAggregationFacet();
+        result.readFrom(in);
+        return result;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        name = in.readString();
+        aggregation = InternalAggregations.readAggregation(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        InternalAggregations.writeAggregation(aggregation, out);
+    }
+}
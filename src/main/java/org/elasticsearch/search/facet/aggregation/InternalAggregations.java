@@ -0,0 +1,139 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The named sub aggregations of a bucket.
+ */
+public class InternalAggregations implements Iterable<InternalAggregation>, Streamable, ToXContent {
+
+    public static final InternalAggregations EMPTY = new InternalAggregations(ImmutableList.<InternalAggregation>of());
+
+    private List<InternalAggregation> aggregations = ImmutableList.of();
+
+    private InternalAggregations() {
+    }
+
+    public InternalAggregations(List<InternalAggregation> aggregations) {
+        this.aggregations = aggregations;
+    }
+
+    @Override
+    public Iterator<InternalAggregation> iterator() {
+        return aggregations.iterator();
+    }
+
+    public List<InternalAggregation> aggregations() {
+        return aggregations;
+    }
+
+    /**
+     * Returns the aggregation of the provided name, <tt>null</tt> if there is none.
+     */
+    @SuppressWarnings({"unchecked"})
+    public <A extends Aggregation> A get(String name) {
+        for (InternalAggregation aggregation : aggregations) {
+            if (aggregation.name().equals(name)) {
+                return (A) aggregation;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reduces the sub aggregations of the same bucket coming from different shards. All of them are
+     * built by the same aggregators, so the aggregations are in the same order. Reduction is applied
+     * even when there is a single shard result, since it is also responsible for the final ordering and
+     * trimming of the buckets.
+     */
+    public static InternalAggregations reduce(List<InternalAggregations> aggregationsList) {
+        InternalAggregations first = aggregationsList.get(0);
+        if (first.aggregations.isEmpty()) {
+            return first;
+        }
+        List<InternalAggregation> reduced = new ArrayList<InternalAggregation>(first.aggregations.size());
+        for (int i = 0; i < first.aggregations.size(); i++) {
+            List<InternalAggregation> toReduce = new ArrayList<InternalAggregation>(aggregationsList.size());
+            for (InternalAggregations aggregations : aggregationsList) {
+                toReduce.add(aggregations.aggregations.get(i));
+            }
+            reduced.add(first.aggregations.get(i).reduce(toReduce));
+        }
+        return new InternalAggregations(reduced);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        for (InternalAggregation aggregation : aggregations) {
+            aggregation.toXContent(builder, params);
+        }
+        return builder;
+    }
+
+    public static InternalAggregations readAggregations(StreamInput in) throws IOException {
+        InternalAggregations result = new InternalAggregations();
+        result.readFrom(in);
+        return result;
+    }
+
+    public static InternalAggregation readAggregation(StreamInput in) throws IOException {
+        String type = in.readString();
+        return InternalAggregation.Streams.stream(type).readAggregation(in);
+    }
+
+    public static void writeAggregation(InternalAggregation aggregation, StreamOutput out) throws IOException {
+        out.writeString(aggregation.type());
+        aggregation.writeTo(out);
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        int size = in.readVInt();
+        if (size == 0) {
+            aggregations = ImmutableList.of();
+        } else {
+            aggregations = Lists.newArrayListWithCapacity(size);
+            for (int i = 0; i < size; i++) {
+                aggregations.add(readAggregation(in));
+            }
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVInt(aggregations.size());
+        for (InternalAggregation aggregation : aggregations) {
+            writeAggregation(aggregation, out);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.filter;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.Bits;
+import org.elasticsearch.common.lucene.docset.DocIdSets;
+import org.elasticsearch.search.facet.aggregation.Aggregator;
+import org.elasticsearch.search.facet.aggregation.BucketsAggregator;
+import org.elasticsearch.search.facet.aggregation.InternalAggregation;
+
+import java.io.IOException;
+
+/**
+ * A single bucket aggregator holding the docs matching a filter. The bucket ordinal is the
+ * owning bucket ordinal.
+ */
+public class FilterAggregator extends BucketsAggregator {
+
+    private final Filter filter;
+
+    private Bits bits;
+
+    public FilterAggregator(String name, Filter filter, Aggregator[] subAggregators) {
+        super(name, subAggregators);
+        this.filter = filter;
+    }
+
+    @Override
+    protected void doSetNextReader(AtomicReaderContext context) throws IOException {
+        bits = DocIdSets.toSafeBits(context.reader(), filter.getDocIdSet(context, context.reader().getLiveDocs()));
+    }
+
+    @Override
+    public void collect(int doc, int owningBucketOrd) throws IOException {
+        if (bits.get(doc)) {
+            collectBucket(doc, owningBucketOrd);
+        }
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(int owningBucketOrd) {
+        return new InternalFilter(name, bucketDocCount(owningBucketOrd), buildSubAggregations(owningBucketOrd));
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalFilter(name, 0, buildEmptySubAggregations());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.filter;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.facet.aggregation.InternalAggregation;
+import org.elasticsearch.search.facet.aggregation.InternalAggregations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *
+ */
+public class InternalFilter extends InternalAggregation {
+
+    public static final String TYPE = "filter";
+
+    public static void registerStreams() {
+        Streams.registerStream(STREAM, TYPE);
+    }
+
+    static Stream STREAM = new Stream() {
+        @Override
+        public InternalAggregation readAggregation(StreamInput in) throws IOException {
+            InternalFilter result = new InternalFilter();
+            result.readFrom(in);
+            return result;
+        }
+    };
+
+    private long docCount;
+    private InternalAggregations aggregations;
+
+    InternalFilter() {
+    }
+
+    public InternalFilter(String name, long docCount, InternalAggregations aggregations) {
+        super(name);
+        this.docCount = docCount;
+        this.aggregations = aggregations;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    public long docCount() {
+        return docCount;
+    }
+
+    public InternalAggregations aggregations() {
+        return aggregations;
+    }
+
+    @Override
+    public InternalAggregation reduce(List<InternalAggregation> aggregations) {
+        long docCount = 0;
+        List<InternalAggregations> subAggregations = new ArrayList<InternalAggregations>(aggregations.size());
+        for (InternalAggregation aggregation : aggregations) {
+            InternalFilter filter = (InternalFilter) aggregation;
+            docCount += filter.docCount;
+            subAggregations.add(filter.aggregations);
+        }
+        return new InternalFilter(name, docCount, InternalAggregations.reduce(subAggregations));
+    }
+
+    static final class Fields {
+        static final XContentBuilderString DOC_COUNT = new XContentBuilderString("doc_count");
+    }
+
+    @Override
+    public XContentBuilder toXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.field(Fields.DOC_COUNT, docCount);
+        aggregations.toXContent(builder, params);
+        return builder;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        name = in.readString();
+        docCount = in.readVLong();
+        aggregations = InternalAggregations.readAggregations(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        out.writeVLong(docCount);
+        aggregations.writeTo(out);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.histogram;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilderException;
+import org.elasticsearch.search.facet.aggregation.AggregationBuilder;
+
+import java.io.IOException;
+
+/**
+ *
+ */
+public class DateHistogramAggregationBuilder extends AggregationBuilder<DateHistogramAggregationBuilder> {
+
+    private String field;
+    private String interval;
+    private String timeZone;
+
+    public DateHistogramAggregationBuilder(String name) {
+        super(name);
+    }
+
+    public DateHistogramAggregationBuilder field(String field) {
+        this.field = field;
+        return this;
+    }
+
+    /**
+     * The interval used to bucket dates, can be one of <tt>year</tt>, <tt>quarter</tt>, <tt>month</tt>,
+     * <tt>week</tt>, <tt>day</tt>, <tt>hour</tt>, <tt>minute</tt>, <tt>second</tt> or a time value like <tt>1.5h</tt>.
+     */
+    public DateHistogramAggregationBuilder interval(String interval) {
+        this.interval = interval;
+        return this;
+    }
+
+    public DateHistogramAggregationBuilder timeZone(String timeZone) {
+        this.timeZone = timeZone;
+        return this;
+    }
+
+    @Override
+    protected String type() {
+        return "date_histogram";
+    }
+
+    @Override
+    protected void internalXContent(XContentBuilder builder, Params params) throws IOException {
+        if (field == null) {
+            throw new SearchSourceBuilderException("field must be set on date_histogram aggregation [" + name + "]");
+        }
+        if (interval == null) {
+            throw new SearchSourceBuilderException("interval must be set on date_histogram aggregation [" + name + "]");
+        }
+        builder.startObject();
+        builder.field("field", field);
+        builder.field("interval", interval);
+        if (timeZone != null) {
+            builder.field("time_zone", timeZone);
+        }
+        builder.endObject();
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.histogram;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.joda.TimeZoneRounding;
+import org.elasticsearch.index.fielddata.DoubleValues;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.LongValues;
+import org.elasticsearch.search.facet.aggregation.Aggregator;
+import org.elasticsearch.search.facet.aggregation.BucketOrds;
+import org.elasticsearch.search.facet.aggregation.BucketsAggregator;
+import org.elasticsearch.search.facet.aggregation.InternalAggregation;
+import org.elasticsearch.search.facet.histogram.unbounded.CountHistogramFacetCollector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buckets docs by a numeric key, either using a fixed interval, or (for dates) using a
+ * {@link TimeZoneRounding}. The rounded key of each <tt>(owning bucket, key)</tt> pair is mapped to
+ * a bucket ordinal in a {@link BucketOrds}.
+ */
+public class HistogramAggregator extends BucketsAggregator {
+
+    private final IndexNumericFieldData indexFieldData;
+    private final long interval;
+    private final TimeZoneRounding rounding;
+
+    private final BucketOrds bucketOrds = new BucketOrds();
+
+    private DoubleValues doubleValues;
+    private LongValues longValues;
+
+    public HistogramAggregator(String name, IndexNumericFieldData indexFieldData, long interval, @Nullable TimeZoneRounding rounding, Aggregator[] subAggregators) {
+        super(name, subAggregators);
+        this.indexFieldData = indexFieldData;
+        this.interval = interval;
+        this.rounding = rounding;
+    }
+
+    @Override
+    protected void doSetNextReader(AtomicReaderContext context) throws IOException {
+        if (rounding != null) {
+            longValues = indexFieldData.load(context).getLongValues();
+        } else {
+            doubleValues = indexFieldData.load(context).getDoubleValues();
+        }
+    }
+
+    @Override
+    public void collect(int doc, int owningBucketOrd) throws IOException {
+        // values are sorted within a doc, and so are the keys, so only need to compare with the previous key
+        // in order to count each doc once per bucket
+        int previousBucketOrd = -1;
+        if (rounding != null) {
+            LongValues.Iter iter = longValues.getIter(doc);
+            while (iter.hasNext()) {
+                previousBucketOrd = collectKey(doc, owningBucketOrd, rounding.calc(iter.next()), previousBucketOrd);
+            }
+        } else {
+            DoubleValues.Iter iter = doubleValues.getIter(doc);
+            while (iter.hasNext()) {
+                previousBucketOrd = collectKey(doc, owningBucketOrd, CountHistogramFacetCollector.bucket(iter.next(), interval), previousBucketOrd);
+            }
+        }
+    }
+
+    private int collectKey(int doc, int owningBucketOrd, long key, int previousBucketOrd) throws IOException {
+        int bucketOrd = bucketOrds.add(owningBucketOrd, key);
+        if (bucketOrd < 0) {
+            bucketOrd = -1 - bucketOrd;
+        }
+        if (bucketOrd != previousBucketOrd) {
+            collectBucket(doc, bucketOrd);
+        }
+        return bucketOrd;
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(int owningBucketOrd) {
+        int[] ords = bucketOrds.bucketOrds(owningBucketOrd);
+        List<InternalHistogram.Bucket> buckets = new ArrayList<InternalHistogram.Bucket>(ords.length);
+        for (int bucketOrd : ords) {
+            buckets.add(new InternalHistogram.Bucket(bucketOrds.key(bucketOrd), bucketDocCount(bucketOrd), buildSubAggregations(bucketOrd)));
+        }
+        return new InternalHistogram(name, buckets);
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalHistogram(name, new ArrayList<InternalHistogram.Bucket>(0));
+    }
+}
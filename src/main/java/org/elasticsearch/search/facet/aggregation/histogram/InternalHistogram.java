@@ -0,0 +1,183 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.histogram;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.trove.ExtTLongObjectHashMap;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.facet.aggregation.InternalAggregation;
+import org.elasticsearch.search.facet.aggregation.InternalAggregations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The result of a histogram or date histogram aggregation, buckets are ordered by key.
+ */
+public class InternalHistogram extends InternalAggregation {
+
+    public static final String TYPE = "histogram";
+
+    public static void registerStreams() {
+        Streams.registerStream(STREAM, TYPE);
+    }
+
+    static Stream STREAM = new Stream() {
+        @Override
+        public InternalAggregation readAggregation(StreamInput in) throws IOException {
+            InternalHistogram result = new InternalHistogram();
+            result.readFrom(in);
+            return result;
+        }
+    };
+
+    static final Comparator<Bucket> KEY_COMPARATOR = new Comparator<Bucket>() {
+        @Override
+        public int compare(Bucket o1, Bucket o2) {
+            return o1.key < o2.key ? -1 : (o1.key == o2.key ? 0 : 1);
+        }
+    };
+
+    public static class Bucket {
+
+        long key;
+        long docCount;
+        InternalAggregations aggregations;
+
+        public Bucket(long key, long docCount, InternalAggregations aggregations) {
+            this.key = key;
+            this.docCount = docCount;
+            this.aggregations = aggregations;
+        }
+
+        public long key() {
+            return key;
+        }
+
+        public long docCount() {
+            return docCount;
+        }
+
+        public InternalAggregations aggregations() {
+            return aggregations;
+        }
+    }
+
+    private List<Bucket> buckets;
+
+    InternalHistogram() {
+    }
+
+    public InternalHistogram(String name, List<Bucket> buckets) {
+        super(name);
+        this.buckets = buckets;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    public List<Bucket> buckets() {
+        return buckets;
+    }
+
+    public Bucket bucket(long key) {
+        for (Bucket bucket : buckets) {
+            if (bucket.key == key) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public InternalAggregation reduce(List<InternalAggregation> aggregations) {
+        ExtTLongObjectHashMap<List<Bucket>> bucketsByKey = new ExtTLongObjectHashMap<List<Bucket>>();
+        for (InternalAggregation aggregation : aggregations) {
+            for (Bucket bucket : ((InternalHistogram) aggregation).buckets) {
+                List<Bucket> sameKeyBuckets = bucketsByKey.get(bucket.key);
+                if (sameKeyBuckets == null) {
+                    sameKeyBuckets = new ArrayList<Bucket>(aggregations.size());
+                    bucketsByKey.put(bucket.key, sameKeyBuckets);
+                }
+                sameKeyBuckets.add(bucket);
+            }
+        }
+        List<Bucket> reducedBuckets = new ArrayList<Bucket>(bucketsByKey.size());
+        for (List<Bucket> sameKeyBuckets : bucketsByKey.valueCollection()) {
+            long docCount = 0;
+            List<InternalAggregations> subAggregations = new ArrayList<InternalAggregations>(sameKeyBuckets.size());
+            for (Bucket bucket : sameKeyBuckets) {
+                docCount += bucket.docCount;
+                subAggregations.add(bucket.aggregations);
+            }
+            reducedBuckets.add(new Bucket(sameKeyBuckets.get(0).key, docCount, InternalAggregations.reduce(subAggregations)));
+        }
+        Collections.sort(reducedBuckets, KEY_COMPARATOR);
+        return new InternalHistogram(name, reducedBuckets);
+    }
+
+    static final class Fields {
+        static final XContentBuilderString BUCKETS = new XContentBuilderString("buckets");
+        static final XContentBuilderString KEY = new XContentBuilderString("key");
+        static final XContentBuilderString DOC_COUNT = new XContentBuilderString("doc_count");
+    }
+
+    @Override
+    public XContentBuilder toXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.startArray(Fields.BUCKETS);
+        for (Bucket bucket : buckets) {
+            builder.startObject();
+            builder.field(Fields.KEY, bucket.key);
+            builder.field(Fields.DOC_COUNT, bucket.docCount);
+            bucket.aggregations.toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        name = in.readString();
+        int size = in.readVInt();
+        buckets = new ArrayList<Bucket>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new Bucket(in.readLong(), in.readVLong(), InternalAggregations.readAggregations(in)));
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        out.writeVInt(buckets.size());
+        for (Bucket bucket : buckets) {
+            out.writeLong(bucket.key);
+            out.writeVLong(bucket.docCount);
+            bucket.aggregations.writeTo(out);
+        }
+    }
+}
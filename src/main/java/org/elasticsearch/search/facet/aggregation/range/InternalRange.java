@@ -0,0 +1,178 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.range;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.facet.aggregation.InternalAggregation;
+import org.elasticsearch.search.facet.aggregation.InternalAggregations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of a range aggregation, buckets are in the order the ranges were defined.
+ */
+public class InternalRange extends InternalAggregation {
+
+    public static final String TYPE = "range";
+
+    public static void registerStreams() {
+        Streams.registerStream(STREAM, TYPE);
+    }
+
+    static Stream STREAM = new Stream() {
+        @Override
+        public InternalAggregation readAggregation(StreamInput in) throws IOException {
+            InternalRange result = new InternalRange();
+            result.readFrom(in);
+            return result;
+        }
+    };
+
+    public static class Bucket {
+
+        String key;
+        double from;
+        double to;
+        long docCount;
+        InternalAggregations aggregations;
+
+        public Bucket(String key, double from, double to, long docCount, InternalAggregations aggregations) {
+            this.key = key;
+            this.from = from;
+            this.to = to;
+            this.docCount = docCount;
+            this.aggregations = aggregations;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public double from() {
+            return from;
+        }
+
+        public double to() {
+            return to;
+        }
+
+        public long docCount() {
+            return docCount;
+        }
+
+        public InternalAggregations aggregations() {
+            return aggregations;
+        }
+    }
+
+    private List<Bucket> buckets;
+
+    InternalRange() {
+    }
+
+    public InternalRange(String name, List<Bucket> buckets) {
+        super(name);
+        this.buckets = buckets;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    public List<Bucket> buckets() {
+        return buckets;
+    }
+
+    @Override
+    public InternalAggregation reduce(List<InternalAggregation> aggregations) {
+        List<Bucket> reducedBuckets = new ArrayList<Bucket>(buckets.size());
+        for (int i = 0; i < buckets.size(); i++) {
+            long docCount = 0;
+            List<InternalAggregations> subAggregations = new ArrayList<InternalAggregations>(aggregations.size());
+            for (InternalAggregation aggregation : aggregations) {
+                Bucket bucket = ((InternalRange) aggregation).buckets.get(i);
+                docCount += bucket.docCount;
+                subAggregations.add(bucket.aggregations);
+            }
+            Bucket first = buckets.get(i);
+            reducedBuckets.add(new Bucket(first.key, first.from, first.to, docCount, InternalAggregations.reduce(subAggregations)));
+        }
+        return new InternalRange(name, reducedBuckets);
+    }
+
+    static final class Fields {
+        static final XContentBuilderString BUCKETS = new XContentBuilderString("buckets");
+        static final XContentBuilderString KEY = new XContentBuilderString("key");
+        static final XContentBuilderString FROM = new XContentBuilderString("from");
+        static final XContentBuilderString TO = new XContentBuilderString("to");
+        static final XContentBuilderString DOC_COUNT = new XContentBuilderString("doc_count");
+    }
+
+    @Override
+    public XContentBuilder toXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.startArray(Fields.BUCKETS);
+        for (Bucket bucket : buckets) {
+            builder.startObject();
+            if (bucket.key != null) {
+                builder.field(Fields.KEY, bucket.key);
+            }
+            if (!Double.isInfinite(bucket.from)) {
+                builder.field(Fields.FROM, bucket.from);
+            }
+            if (!Double.isInfinite(bucket.to)) {
+                builder.field(Fields.TO, bucket.to);
+            }
+            builder.field(Fields.DOC_COUNT, bucket.docCount);
+            bucket.aggregations.toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        name = in.readString();
+        int size = in.readVInt();
+        buckets = new ArrayList<Bucket>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new Bucket(in.readOptionalString(), in.readDouble(), in.readDouble(), in.readVLong(), InternalAggregations.readAggregations(in)));
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        out.writeVInt(buckets.size());
+        for (Bucket bucket : buckets) {
+            out.writeOptionalString(bucket.key);
+            out.writeDouble(bucket.from);
+            out.writeDouble(bucket.to);
+            out.writeVLong(bucket.docCount);
+            bucket.aggregations.writeTo(out);
+        }
+    }
+}
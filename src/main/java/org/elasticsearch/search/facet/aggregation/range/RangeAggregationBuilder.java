@@ -0,0 +1,112 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.range;
+
+import com.google.common.collect.Lists;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilderException;
+import org.elasticsearch.search.facet.aggregation.AggregationBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ *
+ */
+public class RangeAggregationBuilder extends AggregationBuilder<RangeAggregationBuilder> {
+
+    private String field;
+
+    private List<Entry> entries = Lists.newArrayList();
+
+    public RangeAggregationBuilder(String name) {
+        super(name);
+    }
+
+    public RangeAggregationBuilder field(String field) {
+        this.field = field;
+        return this;
+    }
+
+    /**
+     * Adds a range, <tt>from</tt> is inclusive and <tt>to</tt> is exclusive.
+     */
+    public RangeAggregationBuilder addRange(String key, double from, double to) {
+        entries.add(new Entry(key, from, to));
+        return this;
+    }
+
+    public RangeAggregationBuilder addRange(double from, double to) {
+        return addRange(null, from, to);
+    }
+
+    public RangeAggregationBuilder addUnboundedTo(double to) {
+        return addRange(null, Double.NEGATIVE_INFINITY, to);
+    }
+
+    public RangeAggregationBuilder addUnboundedFrom(double from) {
+        return addRange(null, from, Double.POSITIVE_INFINITY);
+    }
+
+    @Override
+    protected String type() {
+        return InternalRange.TYPE;
+    }
+
+    @Override
+    protected void internalXContent(XContentBuilder builder, Params params) throws IOException {
+        if (field == null) {
+            throw new SearchSourceBuilderException("field must be set on range aggregation [" + name + "]");
+        }
+        if (entries.isEmpty()) {
+            throw new SearchSourceBuilderException("at least one range must be defined for range aggregation [" + name + "]");
+        }
+        builder.startObject();
+        builder.field("field", field);
+        builder.startArray("ranges");
+        for (Entry entry : entries) {
+            builder.startObject();
+            if (entry.key != null) {
+                builder.field("key", entry.key);
+            }
+            if (!Double.isInfinite(entry.from)) {
+                builder.field("from", entry.from);
+            }
+            if (!Double.isInfinite(entry.to)) {
+                builder.field("to", entry.to);
+            }
+            builder.endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+    }
+
+    static class Entry {
+        final String key;
+        final double from;
+        final double to;
+
+        Entry(String key, double from, double to) {
+            this.key = key;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.range;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.elasticsearch.index.fielddata.DoubleValues;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.search.facet.aggregation.Aggregator;
+import org.elasticsearch.search.facet.aggregation.BucketsAggregator;
+import org.elasticsearch.search.facet.aggregation.InternalAggregation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Buckets docs by a set of (possibly overlapping) numeric ranges. Since the number of ranges is fixed,
+ * the bucket ordinal is simply <tt>owningBucketOrd * numRanges + rangeIndex</tt>.
+ */
+public class RangeAggregator extends BucketsAggregator {
+
+    public static class Range {
+
+        final String key;
+        final double from;
+        final double to;
+
+        public Range(String key, double from, double to) {
+            this.key = key;
+            this.from = from;
+            this.to = to;
+        }
+
+        boolean matches(double value) {
+            return value >= from && value < to;
+        }
+    }
+
+    private final IndexNumericFieldData indexFieldData;
+    private final Range[] ranges;
+    private final boolean[] matched;
+
+    private DoubleValues values;
+
+    public RangeAggregator(String name, IndexNumericFieldData indexFieldData, Range[] ranges, Aggregator[] subAggregators) {
+        super(name, subAggregators);
+        this.indexFieldData = indexFieldData;
+        this.ranges = ranges;
+        this.matched = new boolean[ranges.length];
+    }
+
+    @Override
+    protected void doSetNextReader(AtomicReaderContext context) throws IOException {
+        values = indexFieldData.load(context).getDoubleValues();
+    }
+
+    @Override
+    public void collect(int doc, int owningBucketOrd) throws IOException {
+        if (!values.isMultiValued()) {
+            if (values.hasValue(doc)) {
+                double value = values.getValue(doc);
+                for (int i = 0; i < ranges.length; i++) {
+                    if (ranges[i].matches(value)) {
+                        collectBucket(doc, owningBucketOrd * ranges.length + i);
+                    }
+                }
+            }
+            return;
+        }
+        // a doc is counted once per range, even if several of its values fall into it
+        Arrays.fill(matched, false);
+        DoubleValues.Iter iter = values.getIter(doc);
+        while (iter.hasNext()) {
+            double value = iter.next();
+            for (int i = 0; i < ranges.length; i++) {
+                if (!matched[i] && ranges[i].matches(value)) {
+                    matched[i] = true;
+                    collectBucket(doc, owningBucketOrd * ranges.length + i);
+                }
+            }
+        }
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(int owningBucketOrd) {
+        List<InternalRange.Bucket> buckets = new ArrayList<InternalRange.Bucket>(ranges.length);
+        for (int i = 0; i < ranges.length; i++) {
+            int bucketOrd = owningBucketOrd * ranges.length + i;
+            Range range = ranges[i];
+            buckets.add(new InternalRange.Bucket(range.key, range.from, range.to, bucketDocCount(bucketOrd), buildSubAggregations(bucketOrd)));
+        }
+        return new InternalRange(name, buckets);
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        List<InternalRange.Bucket> buckets = new ArrayList<InternalRange.Bucket>(ranges.length);
+        for (Range range : ranges) {
+            buckets.add(new InternalRange.Bucket(range.key, range.from, range.to, 0, buildEmptySubAggregations()));
+        }
+        return new InternalRange(name, buckets);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.stats;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.facet.aggregation.InternalAggregation;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ *
+ */
+public class InternalStats extends InternalAggregation {
+
+    public static final String TYPE = "stats";
+
+    public static void registerStreams() {
+        Streams.registerStream(STREAM, TYPE);
+    }
+
+    static Stream STREAM = new Stream() {
+        @Override
+        public InternalAggregation readAggregation(StreamInput in) throws IOException {
+            InternalStats result = new InternalStats();
+            result.readFrom(in);
+            return result;
+        }
+    };
+
+    private long count;
+    private double sum;
+    private double min;
+    private double max;
+
+    InternalStats() {
+    }
+
+    public InternalStats(String name, long count, double sum, double min, double max) {
+        super(name);
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double sum() {
+        return sum;
+    }
+
+    public double min() {
+        return min;
+    }
+
+    public double max() {
+        return max;
+    }
+
+    public double avg() {
+        if (count == 0) {
+            return 0;
+        }
+        return sum / count;
+    }
+
+    @Override
+    public InternalAggregation reduce(List<InternalAggregation> aggregations) {
+        if (aggregations.size() == 1) {
+            return aggregations.get(0);
+        }
+        InternalStats reduced = new InternalStats(name, 0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+        for (InternalAggregation aggregation : aggregations) {
+            InternalStats stats = (InternalStats) aggregation;
+            reduced.count += stats.count;
+            reduced.sum += stats.sum;
+            reduced.min = Math.min(reduced.min, stats.min);
+            reduced.max = Math.max(reduced.max, stats.max);
+        }
+        return reduced;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString SUM = new XContentBuilderString("sum");
+        static final XContentBuilderString MIN = new XContentBuilderString("min");
+        static final XContentBuilderString MAX = new XContentBuilderString("max");
+        static final XContentBuilderString AVG = new XContentBuilderString("avg");
+    }
+
+    @Override
+    public XContentBuilder toXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.field(Fields.COUNT, count);
+        builder.field(Fields.SUM, sum);
+        if (count > 0) {
+            builder.field(Fields.MIN, min);
+            builder.field(Fields.MAX, max);
+            builder.field(Fields.AVG, avg());
+        }
+        return builder;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        name = in.readString();
+        count = in.readVLong();
+        sum = in.readDouble();
+        min = in.readDouble();
+        max = in.readDouble();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        out.writeVLong(count);
+        out.writeDouble(sum);
+        out.writeDouble(min);
+        out.writeDouble(max);
+    }
+}
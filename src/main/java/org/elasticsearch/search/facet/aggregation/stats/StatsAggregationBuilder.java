@@ -0,0 +1,58 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.stats;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilderException;
+import org.elasticsearch.search.facet.aggregation.AggregationBuilder;
+
+import java.io.IOException;
+
+/**
+ *
+ */
+public class StatsAggregationBuilder extends AggregationBuilder<StatsAggregationBuilder> {
+
+    private String field;
+
+    public StatsAggregationBuilder(String name) {
+        super(name);
+    }
+
+    public StatsAggregationBuilder field(String field) {
+        this.field = field;
+        return this;
+    }
+
+    @Override
+    protected String type() {
+        return InternalStats.TYPE;
+    }
+
+    @Override
+    protected void internalXContent(XContentBuilder builder, Params params) throws IOException {
+        if (field == null) {
+            throw new SearchSourceBuilderException("field must be set on stats aggregation [" + name + "]");
+        }
+        builder.startObject();
+        builder.field("field", field);
+        builder.endObject();
+    }
+}
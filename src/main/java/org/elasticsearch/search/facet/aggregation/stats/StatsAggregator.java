@@ -0,0 +1,99 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.stats;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.index.fielddata.DoubleValues;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.search.facet.aggregation.Aggregator;
+import org.elasticsearch.search.facet.aggregation.InternalAggregation;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Computes count, sum, min and max of a numeric field for each bucket of its parent, using
+ * parallel primitive arrays indexed by the owning bucket ordinal.
+ */
+public class StatsAggregator extends Aggregator {
+
+    private final IndexNumericFieldData indexFieldData;
+
+    private DoubleValues values;
+
+    private long[] counts = new long[1];
+    private double[] sums = new double[1];
+    private double[] mins = new double[]{Double.POSITIVE_INFINITY};
+    private double[] maxes = new double[]{Double.NEGATIVE_INFINITY};
+
+    public StatsAggregator(String name, IndexNumericFieldData indexFieldData) {
+        super(name);
+        this.indexFieldData = indexFieldData;
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext context) throws IOException {
+        values = indexFieldData.load(context).getDoubleValues();
+    }
+
+    @Override
+    public void collect(int doc, int owningBucketOrd) throws IOException {
+        if (owningBucketOrd >= counts.length) {
+            grow(owningBucketOrd + 1);
+        }
+        DoubleValues.Iter iter = values.getIter(doc);
+        while (iter.hasNext()) {
+            double value = iter.next();
+            counts[owningBucketOrd]++;
+            sums[owningBucketOrd] += value;
+            if (value < mins[owningBucketOrd]) {
+                mins[owningBucketOrd] = value;
+            }
+            if (value > maxes[owningBucketOrd]) {
+                maxes[owningBucketOrd] = value;
+            }
+        }
+    }
+
+    private void grow(int minSize) {
+        int from = counts.length;
+        counts = ArrayUtil.grow(counts, minSize);
+        int to = counts.length;
+        sums = Arrays.copyOf(sums, to);
+        mins = Arrays.copyOf(mins, to);
+        Arrays.fill(mins, from, to, Double.POSITIVE_INFINITY);
+        maxes = Arrays.copyOf(maxes, to);
+        Arrays.fill(maxes, from, to, Double.NEGATIVE_INFINITY);
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(int owningBucketOrd) {
+        if (owningBucketOrd >= counts.length) {
+            return buildEmptyAggregation();
+        }
+        return new InternalStats(name, counts[owningBucketOrd], sums[owningBucketOrd], mins[owningBucketOrd], maxes[owningBucketOrd]);
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalStats(name, 0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.terms;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticSearchIllegalArgumentException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.facet.aggregation.InternalAggregation;
+import org.elasticsearch.search.facet.aggregation.InternalAggregations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ */
+public class InternalTerms extends InternalAggregation {
+
+    public static final String TYPE = "terms";
+
+    public static void registerStreams() {
+        Streams.registerStream(STREAM, TYPE);
+    }
+
+    static Stream STREAM = new Stream() {
+        @Override
+        public InternalAggregation readAggregation(StreamInput in) throws IOException {
+            InternalTerms result = new InternalTerms();
+            result.readFrom(in);
+            return result;
+        }
+    };
+
+    public static enum Order {
+        /**
+         * Buckets with the higher doc count first, ties broken by term.
+         */
+        COUNT((byte) 0, new Comparator<Bucket>() {
+            @Override
+            public int compare(Bucket o1, Bucket o2) {
+                if (o1.docCount != o2.docCount) {
+                    return o1.docCount > o2.docCount ? -1 : 1;
+                }
+                return o1.term.compareTo(o2.term);
+            }
+        }),
+        /**
+         * Buckets ordered by term.
+         */
+        TERM((byte) 1, new Comparator<Bucket>() {
+            @Override
+            public int compare(Bucket o1, Bucket o2) {
+                return o1.term.compareTo(o2.term);
+            }
+        });
+
+        private final byte id;
+        private final Comparator<Bucket> comparator;
+
+        Order(byte id, Comparator<Bucket> comparator) {
+            this.id = id;
+            this.comparator = comparator;
+        }
+
+        public byte id() {
+            return id;
+        }
+
+        public Comparator<Bucket> comparator() {
+            return comparator;
+        }
+
+        public static Order fromId(byte id) {
+            if (id == 0) {
+                return COUNT;
+            } else if (id == 1) {
+                return TERM;
+            }
+            throw new ElasticSearchIllegalArgumentException("No order type found for id [" + id + "]");
+        }
+
+        public static Order fromString(String type) {
+            if ("count".equals(type)) {
+                return COUNT;
+            } else if ("term".equals(type)) {
+                return TERM;
+            }
+            throw new ElasticSearchIllegalArgumentException("No order type found for value [" + type + "]");
+        }
+    }
+
+    public static class Bucket {
+
+        BytesRef term;
+        long docCount;
+        InternalAggregations aggregations;
+
+        public Bucket(BytesRef term, long docCount, InternalAggregations aggregations) {
+            this.term = term;
+            this.docCount = docCount;
+            this.aggregations = aggregations;
+        }
+
+        public String term() {
+            return term.utf8ToString();
+        }
+
+        public long docCount() {
+            return docCount;
+        }
+
+        public InternalAggregations aggregations() {
+            return aggregations;
+        }
+    }
+
+    private Order order;
+    private int size;
+    private List<Bucket> buckets;
+
+    InternalTerms() {
+    }
+
+    public InternalTerms(String name, Order order, int size, List<Bucket> buckets) {
+        super(name);
+        this.order = order;
+        this.size = size;
+        this.buckets = buckets;
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    public List<Bucket> buckets() {
+        return buckets;
+    }
+
+    public Bucket bucket(String term) {
+        BytesRef bytes = new BytesRef(term);
+        for (Bucket bucket : buckets) {
+            if (bucket.term.equals(bytes)) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public InternalAggregation reduce(List<InternalAggregation> aggregations) {
+        Map<BytesRef, List<Bucket>> bucketsByTerm = Maps.newHashMap();
+        for (InternalAggregation aggregation : aggregations) {
+            for (Bucket bucket : ((InternalTerms) aggregation).buckets) {
+                List<Bucket> sameTermBuckets = bucketsByTerm.get(bucket.term);
+                if (sameTermBuckets == null) {
+                    sameTermBuckets = new ArrayList<Bucket>(aggregations.size());
+                    bucketsByTerm.put(bucket.term, sameTermBuckets);
+                }
+                sameTermBuckets.add(bucket);
+            }
+        }
+        List<Bucket> reducedBuckets = new ArrayList<Bucket>(bucketsByTerm.size());
+        for (List<Bucket> sameTermBuckets : bucketsByTerm.values()) {
+            reducedBuckets.add(reduceBuckets(sameTermBuckets));
+        }
+        InternalTerms reduced = new InternalTerms(name, order, size, reducedBuckets);
+        reduced.trimToSize();
+        return reduced;
+    }
+
+    private static Bucket reduceBuckets(List<Bucket> buckets) {
+        long docCount = 0;
+        List<InternalAggregations> aggregations = new ArrayList<InternalAggregations>(buckets.size());
+        for (Bucket bucket : buckets) {
+            docCount += bucket.docCount;
+            aggregations.add(bucket.aggregations);
+        }
+        return new Bucket(buckets.get(0).term, docCount, InternalAggregations.reduce(aggregations));
+    }
+
+    private void trimToSize() {
+        Collections.sort(buckets, order.comparator());
+        if (size > 0 && buckets.size() > size) {
+            buckets = Lists.newArrayList(buckets.subList(0, size));
+        }
+    }
+
+    static final class Fields {
+        static final XContentBuilderString BUCKETS = new XContentBuilderString("buckets");
+        static final XContentBuilderString KEY = new XContentBuilderString("key");
+        static final XContentBuilderString DOC_COUNT = new XContentBuilderString("doc_count");
+    }
+
+    @Override
+    public XContentBuilder toXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.startArray(Fields.BUCKETS);
+        for (Bucket bucket : buckets) {
+            builder.startObject();
+            builder.field(Fields.KEY, bucket.term);
+            builder.field(Fields.DOC_COUNT, bucket.docCount);
+            bucket.aggregations.toXContent(builder, params);
+            builder.endObject();
+        }
+        builder.endArray();
+        return builder;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        name = in.readString();
+        order = Order.fromId(in.readByte());
+        size = in.readVInt();
+        int numBuckets = in.readVInt();
+        buckets = new ArrayList<Bucket>(numBuckets);
+        for (int i = 0; i < numBuckets; i++) {
+            buckets.add(new Bucket(in.readBytesRef(), in.readVLong(), InternalAggregations.readAggregations(in)));
+        }
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        out.writeByte(order.id());
+        out.writeVInt(size);
+        out.writeVInt(buckets.size());
+        for (Bucket bucket : buckets) {
+            out.writeBytesRef(bucket.term);
+            out.writeVLong(bucket.docCount);
+            bucket.aggregations.writeTo(out);
+        }
+    }
+}
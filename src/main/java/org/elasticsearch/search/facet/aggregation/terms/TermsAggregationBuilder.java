@@ -0,0 +1,92 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.terms;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilderException;
+import org.elasticsearch.search.facet.aggregation.AggregationBuilder;
+
+import java.io.IOException;
+
+/**
+ *
+ */
+public class TermsAggregationBuilder extends AggregationBuilder<TermsAggregationBuilder> {
+
+    private String field;
+    private int size = -1;
+    private int shardSize = -1;
+    private InternalTerms.Order order;
+
+    public TermsAggregationBuilder(String name) {
+        super(name);
+    }
+
+    public TermsAggregationBuilder field(String field) {
+        this.field = field;
+        return this;
+    }
+
+    /**
+     * The number of buckets to return, defaults to <tt>10</tt>.
+     */
+    public TermsAggregationBuilder size(int size) {
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * The number of buckets each shard returns, defaults to the size. Higher values give more
+     * accurate counts at the cost of more memory and network usage.
+     */
+    public TermsAggregationBuilder shardSize(int shardSize) {
+        this.shardSize = shardSize;
+        return this;
+    }
+
+    public TermsAggregationBuilder order(InternalTerms.Order order) {
+        this.order = order;
+        return this;
+    }
+
+    @Override
+    protected String type() {
+        return InternalTerms.TYPE;
+    }
+
+    @Override
+    protected void internalXContent(XContentBuilder builder, Params params) throws IOException {
+        if (field == null) {
+            throw new SearchSourceBuilderException("field must be set on terms aggregation [" + name + "]");
+        }
+        builder.startObject();
+        builder.field("field", field);
+        if (size != -1) {
+            builder.field("size", size);
+        }
+        if (shardSize != -1) {
+            builder.field("shard_size", shardSize);
+        }
+        if (order != null) {
+            builder.field("order", order.name().toLowerCase());
+        }
+        builder.endObject();
+    }
+}
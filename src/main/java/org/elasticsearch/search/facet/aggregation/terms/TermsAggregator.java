@@ -0,0 +1,194 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.aggregation.terms;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefHash;
+import org.apache.lucene.util.SorterTemplate;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.search.facet.aggregation.Aggregator;
+import org.elasticsearch.search.facet.aggregation.BucketOrds;
+import org.elasticsearch.search.facet.aggregation.BucketsAggregator;
+import org.elasticsearch.search.facet.aggregation.InternalAggregation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Buckets docs by the terms of a field. Terms are interned once in a {@link BytesRefHash}, and each
+ * <tt>(owning bucket, term id)</tt> pair maps to a bucket ordinal. When the field data has ordinals,
+ * the segment ordinal to term id mapping is cached per segment so each unique term of a segment is
+ * only hashed once.
+ */
+public class TermsAggregator extends BucketsAggregator {
+
+    private final IndexFieldData indexFieldData;
+
+    private final InternalTerms.Order order;
+    private final int size;
+    private final int shardSize;
+
+    private final BytesRefHash terms = new BytesRefHash();
+    private final BucketOrds bucketOrds = new BucketOrds();
+
+    private BytesValues values;
+
+    private BytesValues.WithOrdinals ordinalsValues;
+    private Ordinals.Docs ordinals;
+    private int[] segmentOrdToTermId;
+
+    public TermsAggregator(String name, IndexFieldData indexFieldData, InternalTerms.Order order, int size, int shardSize, Aggregator[] subAggregators) {
+        super(name, subAggregators);
+        this.indexFieldData = indexFieldData;
+        this.order = order;
+        this.size = size;
+        this.shardSize = shardSize;
+    }
+
+    @Override
+    protected void doSetNextReader(AtomicReaderContext context) throws IOException {
+        AtomicFieldData fieldData = indexFieldData.load(context);
+        if (fieldData instanceof AtomicFieldData.WithOrdinals) {
+            ordinalsValues = ((AtomicFieldData.WithOrdinals) fieldData).getBytesValues();
+            ordinals = ordinalsValues.ordinals();
+            segmentOrdToTermId = new int[ordinals.getNumOrds() + 1];
+            Arrays.fill(segmentOrdToTermId, -1);
+            values = null;
+        } else {
+            values = fieldData.getBytesValues();
+            ordinalsValues = null;
+            ordinals = null;
+            segmentOrdToTermId = null;
+        }
+    }
+
+    @Override
+    public void collect(int doc, int owningBucketOrd) throws IOException {
+        if (ordinals != null) {
+            Ordinals.Docs.Iter iter = ordinals.getIter(doc);
+            for (int ord = iter.next(); ord != 0; ord = iter.next()) {
+                int termId = segmentOrdToTermId[ord];
+                if (termId == -1) {
+                    termId = termId(ordinalsValues.getValueByOrd(ord));
+                    segmentOrdToTermId[ord] = termId;
+                }
+                collectTerm(doc, owningBucketOrd, termId);
+            }
+        } else {
+            BytesValues.Iter iter = values.getIter(doc);
+            while (iter.hasNext()) {
+                collectTerm(doc, owningBucketOrd, termId(iter.next()));
+            }
+        }
+    }
+
+    private int termId(BytesRef term) {
+        int termId = terms.add(term);
+        if (termId < 0) {
+            termId = -1 - termId;
+        }
+        return termId;
+    }
+
+    private void collectTerm(int doc, int owningBucketOrd, int termId) throws IOException {
+        int bucketOrd = bucketOrds.add(owningBucketOrd, termId);
+        if (bucketOrd < 0) {
+            bucketOrd = -1 - bucketOrd;
+        }
+        collectBucket(doc, bucketOrd);
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(int owningBucketOrd) {
+        final int[] ords = bucketOrds.bucketOrds(owningBucketOrd);
+        if (shardSize > 0 && ords.length > shardSize) {
+            new BucketSorter(ords).quickSort(0, ords.length - 1);
+        }
+        int limit = shardSize > 0 ? Math.min(shardSize, ords.length) : ords.length;
+        List<InternalTerms.Bucket> buckets = new ArrayList<InternalTerms.Bucket>(limit);
+        for (int i = 0; i < limit; i++) {
+            int bucketOrd = ords[i];
+            BytesRef term = terms.get((int) bucketOrds.key(bucketOrd), new BytesRef());
+            buckets.add(new InternalTerms.Bucket(BytesRef.deepCopyOf(term), bucketDocCount(bucketOrd), buildSubAggregations(bucketOrd)));
+        }
+        return new InternalTerms(name, order, size, buckets);
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalTerms(name, order, size, new ArrayList<InternalTerms.Bucket>(0));
+    }
+
+    /**
+     * Sorts the bucket ordinals in place based on the order, without creating bucket objects.
+     */
+    private class BucketSorter extends SorterTemplate {
+
+        private final int[] ords;
+        private final BytesRef scratch1 = new BytesRef();
+        private final BytesRef scratch2 = new BytesRef();
+        private int pivot;
+
+        BucketSorter(int[] ords) {
+            this.ords = ords;
+        }
+
+        @Override
+        protected void swap(int i, int j) {
+            int tmp = ords[i];
+            ords[i] = ords[j];
+            ords[j] = tmp;
+        }
+
+        @Override
+        protected int compare(int i, int j) {
+            return compareOrds(ords[i], ords[j]);
+        }
+
+        @Override
+        protected void setPivot(int i) {
+            pivot = ords[i];
+        }
+
+        @Override
+        protected int comparePivot(int j) {
+            return compareOrds(pivot, ords[j]);
+        }
+
+        private int compareOrds(int ord1, int ord2) {
+            if (order == InternalTerms.Order.COUNT) {
+                long count1 = bucketDocCount(ord1);
+                long count2 = bucketDocCount(ord2);
+                if (count1 != count2) {
+                    return count1 > count2 ? -1 : 1;
+                }
+            }
+            terms.get((int) bucketOrds.key(ord1), scratch1);
+            terms.get((int) bucketOrds.key(ord2), scratch2);
+            return scratch1.compareTo(scratch2);
+        }
+    }
+}
@@ -24,12 +24,14 @@ import org.apache.lucene.search.Filter;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
 import org.elasticsearch.common.lucene.search.XConstantScoreQuery;
 import org.elasticsearch.common.lucene.search.XFilteredQuery;
 import org.elasticsearch.index.cache.filter.FilterCache;
 import org.elasticsearch.search.facet.AbstractFacetCollector;
 import org.elasticsearch.search.facet.Facet;
+import org.elasticsearch.search.facet.MatchingDocsFacetCollector;
 import org.elasticsearch.search.facet.OptimizeGlobalFacetCollector;
 import org.elasticsearch.search.internal.SearchContext;
 
@@ -38,13 +40,13 @@ import java.io.IOException;
 /**
  *
  */
-public class FilterFacetCollector extends AbstractFacetCollector implements OptimizeGlobalFacetCollector {
+public class FilterFacetCollector extends AbstractFacetCollector implements OptimizeGlobalFacetCollector, MatchingDocsFacetCollector {
 
     private final Filter filter;
 
     private Bits bits;
 
-    private int count = 0;
+    private long count = 0;
 
     public FilterFacetCollector(String facetName, Filter filter, FilterCache filterCache) {
         super(facetName);
@@ -78,6 +80,18 @@ public class FilterFacetCollector extends AbstractFacetCollector implements Opti
         }
     }
 
+    @Override
+    public boolean acceptsMatchingDocs() {
+        // a facet filter needs to be applied per doc
+        return super.filter == null;
+    }
+
+    @Override
+    public void collectMatchingDocs(AtomicReaderContext context, FixedBitSet matchingDocs) throws IOException {
+        // no accept docs, so cached filters return their bitset as is, the matching docs are all live already
+        count += DocIdSets.intersectionCount(matchingDocs, filter.getDocIdSet(context, null));
+    }
+
     @Override
     public Facet facet() {
         return new InternalFilterFacet(facetName, count);
@@ -24,7 +24,8 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.search.facet.Facet;
-import org.elasticsearch.search.facet.InternalFacet;
+import org.elasticsearch.search.facet.FacetSample;
+import org.elasticsearch.search.facet.InternalSampledFacet;
 
 import java.io.IOException;
 import java.util.List;
@@ -32,7 +33,7 @@ import java.util.List;
 /**
  *
  */
-public class InternalFilterFacet implements FilterFacet, InternalFacet {
+public class InternalFilterFacet implements FilterFacet, InternalSampledFacet {
 
     private static final String STREAM_TYPE = "filter";
 
@@ -56,6 +57,8 @@ public class InternalFilterFacet implements FilterFacet, InternalFacet {
 
     private long count;
 
+    private FacetSample sample;
+
     private InternalFilterFacet() {
 
     }
@@ -101,16 +104,36 @@ public class InternalFilterFacet implements FilterFacet, InternalFacet {
         return count;
     }
 
+    @Override
+    public FacetSample sample() {
+        return sample;
+    }
+
+    @Override
+    public FacetSample getSample() {
+        return sample();
+    }
+
+    @Override
+    public void applySample(FacetSample sample) {
+        this.sample = sample;
+        this.count = sample.scale(count);
+    }
+
     @Override
     public Facet reduce(List<Facet> facets) {
         if (facets.size() == 1) {
             return facets.get(0);
         }
         int count = 0;
+        FacetSample sample = null;
         for (Facet facet : facets) {
+            sample = FacetSample.merge(sample, ((InternalFilterFacet) facet).sample());
             count += ((FilterFacet) facet).count();
         }
-        return new InternalFilterFacet(name, count);
+        InternalFilterFacet reduced = new InternalFilterFacet(name, count);
+        reduced.sample = sample;
+        return reduced;
     }
 
     static final class Fields {
@@ -123,6 +146,9 @@ public class InternalFilterFacet implements FilterFacet, InternalFacet {
         builder.startObject(name);
         builder.field(Fields._TYPE, FilterFacet.TYPE);
         builder.field(Fields.COUNT, count);
+        if (sample != null) {
+            sample.toXContent(builder, params);
+        }
         builder.endObject();
         return builder;
     }
@@ -137,11 +163,13 @@ public class InternalFilterFacet implements FilterFacet, InternalFacet {
     public void readFrom(StreamInput in) throws IOException {
         name = in.readString();
         count = in.readVLong();
+        sample = FacetSample.readOptionalFacetSample(in);
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeString(name);
         out.writeVLong(count);
+        FacetSample.writeOptionalFacetSample(sample, out);
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.geohashgrid;
+
+import org.elasticsearch.search.facet.Facet;
+
+import java.util.List;
+
+/**
+ * A facet counting the docs falling in each geohash cell of a given precision.
+ */
+public interface GeoHashGridFacet extends Facet, Iterable<GeoHashGridFacet.Entry> {
+
+    /**
+     * The type of the geohash grid facet.
+     */
+    public static final String TYPE = "geohash_grid";
+
+    /**
+     * The cells with the highest counts, ordered by count.
+     */
+    List<? extends Entry> entries();
+
+    /**
+     * The cells with the highest counts, ordered by count.
+     */
+    List<? extends Entry> getEntries();
+
+    public interface Entry {
+
+        /**
+         * The geohash of the cell.
+         */
+        String geohash();
+
+        /**
+         * The geohash of the cell.
+         */
+        String getGeohash();
+
+        /**
+         * The number of docs with at least one point in the cell.
+         */
+        long count();
+
+        /**
+         * The number of docs with at least one point in the cell.
+         */
+        long getCount();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.geohashgrid;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.index.query.FilterBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilderException;
+import org.elasticsearch.search.facet.AbstractFacetBuilder;
+
+import java.io.IOException;
+
+/**
+ * A geohash grid facet builder, counting the hits falling in each geohash cell of a given precision.
+ */
+public class GeoHashGridFacetBuilder extends AbstractFacetBuilder {
+
+    private String fieldName;
+
+    private int precision = -1;
+
+    private int size = -1;
+
+    private int shardSize = -1;
+
+    /**
+     * Constructs a new geohash grid facet with the provided facet name.
+     */
+    public GeoHashGridFacetBuilder(String name) {
+        super(name);
+    }
+
+    /**
+     * The geo point field that will be used to extract the document location(s).
+     */
+    public GeoHashGridFacetBuilder field(String fieldName) {
+        this.fieldName = fieldName;
+        return this;
+    }
+
+    /**
+     * The geohash length of the cells, from 1 to 12. Defaults to 5.
+     */
+    public GeoHashGridFacetBuilder precision(int precision) {
+        this.precision = precision;
+        return this;
+    }
+
+    /**
+     * The number of cells to return, the ones with the highest counts. Defaults to 10000.
+     */
+    public GeoHashGridFacetBuilder size(int size) {
+        this.size = size;
+        return this;
+    }
+
+    /**
+     * The number of cells each shard returns, for more accurate counts when the cells are spread
+     * unevenly across shards. Defaults to <tt>size</tt>.
+     */
+    public GeoHashGridFacetBuilder shardSize(int shardSize) {
+        this.shardSize = shardSize;
+        return this;
+    }
+
+    /**
+     * Marks the facet to run in a global scope, not bounded by any query.
+     */
+    public GeoHashGridFacetBuilder global(boolean global) {
+        super.global(global);
+        return this;
+    }
+
+    public GeoHashGridFacetBuilder facetFilter(FilterBuilder filter) {
+        this.facetFilter = filter;
+        return this;
+    }
+
+    /**
+     * Sets the nested path the facet will execute on. A match (root object) will then cause all the
+     * nested objects matching the path to be computed into the facet.
+     */
+    public GeoHashGridFacetBuilder nested(String nested) {
+        this.nested = nested;
+        return this;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        if (fieldName == null) {
+            throw new SearchSourceBuilderException("field must be set on geohash_grid facet for facet [" + name + "]");
+        }
+        builder.startObject(name);
+
+        builder.startObject(GeoHashGridFacet.TYPE);
+        builder.field("field", fieldName);
+        if (precision != -1) {
+            builder.field("precision", precision);
+        }
+        if (size != -1) {
+            builder.field("size", size);
+        }
+        if (shardSize != -1) {
+            builder.field("shard_size", shardSize);
+        }
+        builder.endObject();
+
+        addFilterFacetAndGlobal(builder, params);
+
+        builder.endObject();
+        return builder;
+    }
+}
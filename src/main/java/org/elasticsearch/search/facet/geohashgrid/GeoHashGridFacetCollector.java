@@ -0,0 +1,110 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.geohashgrid;
+
+import gnu.trove.map.hash.TLongLongHashMap;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.elasticsearch.common.CacheRecycler;
+import org.elasticsearch.common.geo.GeoHashUtils;
+import org.elasticsearch.index.fielddata.GeoPointValues;
+import org.elasticsearch.index.fielddata.IndexGeoPointFieldData;
+import org.elasticsearch.search.facet.AbstractFacetCollector;
+import org.elasticsearch.search.facet.Facet;
+
+import java.io.IOException;
+
+/**
+ * Counts docs per geohash cell, keyed by the cell encoded as a long so no strings are created per hit.
+ * Only the <tt>shard_size</tt> cells with the highest counts are sent back from the shard.
+ */
+public class GeoHashGridFacetCollector extends AbstractFacetCollector {
+
+    private final IndexGeoPointFieldData indexFieldData;
+
+    private final int size;
+
+    private final int shardSize;
+
+    private final Aggregator aggregator;
+
+    private GeoPointValues values;
+
+    public GeoHashGridFacetCollector(String facetName, IndexGeoPointFieldData indexFieldData, int precision, int size, int shardSize) {
+        super(facetName);
+        this.indexFieldData = indexFieldData;
+        this.size = size;
+        this.shardSize = shardSize;
+        this.aggregator = new Aggregator(precision);
+    }
+
+    @Override
+    protected void doSetNextReader(AtomicReaderContext context) throws IOException {
+        values = indexFieldData.load(context).getGeoPointValues();
+    }
+
+    @Override
+    protected void doCollect(int doc) throws IOException {
+        aggregator.numDocCells = 0;
+        values.forEachLatLonValueInDoc(doc, aggregator);
+    }
+
+    @Override
+    public Facet facet() {
+        InternalGeoHashGridFacet.CellEntry[] entries = InternalGeoHashGridFacet.topEntries(aggregator.counts, shardSize);
+        CacheRecycler.pushLongLongMap(aggregator.counts);
+        return new InternalGeoHashGridFacet(facetName, size, entries);
+    }
+
+    public static class Aggregator implements GeoPointValues.LatLonValueInDocProc {
+
+        private final int precision;
+
+        final TLongLongHashMap counts = CacheRecycler.popLongLongMap();
+
+        // the cells already counted for the current doc, so a doc with several points in a cell counts once
+        long[] docCells = new long[4];
+        int numDocCells;
+
+        public Aggregator(int precision) {
+            this.precision = precision;
+        }
+
+        @Override
+        public void onMissing(int docId) {
+        }
+
+        @Override
+        public void onValue(int docId, double lat, double lon) {
+            long cell = GeoHashUtils.encodeAsLong(lat, lon, precision);
+            for (int i = 0; i < numDocCells; i++) {
+                if (docCells[i] == cell) {
+                    return;
+                }
+            }
+            if (numDocCells == docCells.length) {
+                long[] newDocCells = new long[docCells.length << 1];
+                System.arraycopy(docCells, 0, newDocCells, 0, numDocCells);
+                docCells = newDocCells;
+            }
+            docCells[numDocCells++] = cell;
+            counts.adjustOrPutValue(cell, 1, 1);
+        }
+    }
+}
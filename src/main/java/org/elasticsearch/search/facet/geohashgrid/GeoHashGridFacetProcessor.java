@@ -0,0 +1,98 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.geohashgrid;
+
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.geo.GeoHashUtils;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexGeoPointFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.search.facet.FacetCollector;
+import org.elasticsearch.search.facet.FacetPhaseExecutionException;
+import org.elasticsearch.search.facet.FacetProcessor;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+
+/**
+ *
+ */
+public class GeoHashGridFacetProcessor extends AbstractComponent implements FacetProcessor {
+
+    @Inject
+    public GeoHashGridFacetProcessor(Settings settings) {
+        super(settings);
+        InternalGeoHashGridFacet.registerStreams();
+    }
+
+    @Override
+    public String[] types() {
+        return new String[]{GeoHashGridFacet.TYPE, "geohashGrid"};
+    }
+
+    @Override
+    public FacetCollector parse(String facetName, XContentParser parser, SearchContext context) throws IOException {
+        String field = null;
+        int precision = 5;
+        int size = 10000;
+        int shardSize = -1;
+
+        String currentFieldName = null;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token.isValue()) {
+                if ("field".equals(currentFieldName)) {
+                    field = parser.text();
+                } else if ("precision".equals(currentFieldName)) {
+                    precision = parser.intValue();
+                } else if ("size".equals(currentFieldName)) {
+                    size = parser.intValue();
+                } else if ("shard_size".equals(currentFieldName) || "shardSize".equals(currentFieldName)) {
+                    shardSize = parser.intValue();
+                }
+            }
+        }
+
+        if (field == null) {
+            throw new FacetPhaseExecutionException(facetName, "[field] is required to be set for geohash_grid facet");
+        }
+        if (precision < 1 || precision > GeoHashUtils.PRECISION) {
+            throw new FacetPhaseExecutionException(facetName, "[precision] must be between 1 and " + GeoHashUtils.PRECISION + ", got [" + precision + "]");
+        }
+        if (shardSize < size) {
+            shardSize = size;
+        }
+
+        FieldMapper fieldMapper = context.smartNameFieldMapper(field);
+        if (fieldMapper == null) {
+            throw new FacetPhaseExecutionException(facetName, "failed to find mapping for [" + field + "]");
+        }
+        IndexFieldData indexFieldData = context.fieldData().getForField(fieldMapper);
+        if (!(indexFieldData instanceof IndexGeoPointFieldData)) {
+            throw new FacetPhaseExecutionException(facetName, "field [" + field + "] is not a geo_point field");
+        }
+        return new GeoHashGridFacetCollector(facetName, (IndexGeoPointFieldData) indexFieldData, precision, size, shardSize);
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.geohashgrid;
+
+import gnu.trove.iterator.TLongLongIterator;
+import gnu.trove.map.hash.TLongLongHashMap;
+import org.apache.lucene.util.PriorityQueue;
+import org.elasticsearch.common.CacheRecycler;
+import org.elasticsearch.common.geo.GeoHashUtils;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+import org.elasticsearch.search.facet.Facet;
+import org.elasticsearch.search.facet.FacetSample;
+import org.elasticsearch.search.facet.InternalSampledFacet;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ *
+ */
+public class InternalGeoHashGridFacet implements GeoHashGridFacet, InternalSampledFacet {
+
+    private static final String STREAM_TYPE = "geohashGrid";
+
+    public static void registerStreams() {
+        Streams.registerStream(STREAM, STREAM_TYPE);
+    }
+
+    static Stream STREAM = new Stream() {
+        @Override
+        public Facet readFacet(String type, StreamInput in) throws IOException {
+            return readGeoHashGridFacet(in);
+        }
+    };
+
+    @Override
+    public String streamType() {
+        return STREAM_TYPE;
+    }
+
+    public static class CellEntry implements Entry {
+
+        private final long cell;
+        private final long count;
+
+        public CellEntry(long cell, long count) {
+            this.cell = cell;
+            this.count = count;
+        }
+
+        /**
+         * The geohash of the cell, as encoded by {@link GeoHashUtils#encodeAsLong(double, double, int)}.
+         */
+        public long cell() {
+            return cell;
+        }
+
+        @Override
+        public String geohash() {
+            return GeoHashUtils.toString(cell);
+        }
+
+        @Override
+        public String getGeohash() {
+            return geohash();
+        }
+
+        @Override
+        public long count() {
+            return count;
+        }
+
+        @Override
+        public long getCount() {
+            return count();
+        }
+    }
+
+    private String name;
+
+    private int size;
+
+    private CellEntry[] entries;
+
+    private FacetSample sample;
+
+    private InternalGeoHashGridFacet() {
+    }
+
+    public InternalGeoHashGridFacet(String name, int size, CellEntry[] entries) {
+        this.name = name;
+        this.size = size;
+        this.entries = entries;
+    }
+
+    @Override
+    public String name() {
+        return this.name;
+    }
+
+    @Override
+    public String getName() {
+        return name();
+    }
+
+    @Override
+    public String type() {
+        return TYPE;
+    }
+
+    @Override
+    public String getType() {
+        return type();
+    }
+
+    @Override
+    public List<CellEntry> entries() {
+        return Arrays.asList(entries);
+    }
+
+    @Override
+    public List<CellEntry> getEntries() {
+        return entries();
+    }
+
+    @Override
+    public Iterator<Entry> iterator() {
+        return (Iterator) entries().iterator();
+    }
+
+    @Override
+    public FacetSample sample() {
+        return sample;
+    }
+
+    @Override
+    public FacetSample getSample() {
+        return sample();
+    }
+
+    @Override
+    public void applySample(FacetSample sample) {
+        this.sample = sample;
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new CellEntry(entries[i].cell, sample.scale(entries[i].count));
+        }
+    }
+
+    @Override
+    public Facet reduce(List<Facet> facets) {
+        TLongLongHashMap counts = CacheRecycler.popLongLongMap();
+        FacetSample sample = null;
+        for (Facet facet : facets) {
+            InternalGeoHashGridFacet gridFacet = (InternalGeoHashGridFacet) facet;
+            sample = FacetSample.merge(sample, gridFacet.sample);
+            for (CellEntry entry : gridFacet.entries) {
+                counts.adjustOrPutValue(entry.cell, entry.count, entry.count);
+            }
+        }
+        InternalGeoHashGridFacet reduced = new InternalGeoHashGridFacet(name, size, topEntries(counts, size));
+        reduced.sample = sample;
+        CacheRecycler.pushLongLongMap(counts);
+        return reduced;
+    }
+
+    /**
+     * Selects the <tt>size</tt> cells with the highest counts, ties broken on the cell so that all shards
+     * agree on the order.
+     */
+    static CellEntry[] topEntries(TLongLongHashMap counts, int size) {
+        if (size <= 0 || counts.isEmpty()) {
+            return new CellEntry[0];
+        }
+        CellQueue queue = new CellQueue(Math.min(size, counts.size()));
+        for (TLongLongIterator it = counts.iterator(); it.hasNext(); ) {
+            it.advance();
+            CellEntry top = queue.top();
+            if (queue.size() == queue.maxSize() && (it.value() < top.count || (it.value() == top.count && it.key() > top.cell))) {
+                continue;
+            }
+            queue.insertWithOverflow(new CellEntry(it.key(), it.value()));
+        }
+        CellEntry[] entries = new CellEntry[queue.size()];
+        for (int i = entries.length - 1; i >= 0; i--) {
+            entries[i] = queue.pop();
+        }
+        return entries;
+    }
+
+    static class CellQueue extends PriorityQueue<CellEntry> {
+
+        private final int maxSize;
+
+        CellQueue(int maxSize) {
+            super(maxSize);
+            this.maxSize = maxSize;
+        }
+
+        int maxSize() {
+            return maxSize;
+        }
+
+        @Override
+        protected boolean lessThan(CellEntry a, CellEntry b) {
+            if (a.count != b.count) {
+                return a.count < b.count;
+            }
+            return a.cell > b.cell;
+        }
+    }
+
+    static final class Fields {
+        static final XContentBuilderString _TYPE = new XContentBuilderString("_type");
+        static final XContentBuilderString ENTRIES = new XContentBuilderString("entries");
+        static final XContentBuilderString GEOHASH = new XContentBuilderString("geohash");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(name);
+        builder.field(Fields._TYPE, GeoHashGridFacet.TYPE);
+        if (sample != null) {
+            sample.toXContent(builder, params);
+        }
+        builder.startArray(Fields.ENTRIES);
+        for (CellEntry entry : entries) {
+            builder.startObject();
+            builder.field(Fields.GEOHASH, entry.geohash());
+            builder.field(Fields.COUNT, entry.count());
+            builder.endObject();
+        }
+        builder.endArray();
+        builder.endObject();
+        return builder;
+    }
+
+    public static InternalGeoHashGridFacet readGeoHashGridFacet(StreamInput in) throws IOException {
+        InternalGeoHashGridFacet facet = new InternalGeoHashGridFacet();
+        facet.readFrom(in);
+        return facet;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        name = in.readString();
+        size = in.readVInt();
+        entries = new CellEntry[in.readVInt()];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new CellEntry(in.readLong(), in.readVLong());
+        }
+        sample = FacetSample.readOptionalFacetSample(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(name);
+        out.writeVInt(size);
+        out.writeVInt(entries.length);
+        for (CellEntry entry : entries) {
+            out.writeLong(entry.cell);
+            out.writeVLong(entry.count);
+        }
+        FacetSample.writeOptionalFacetSample(sample, out);
+    }
+}
@@ -22,6 +22,7 @@ package org.elasticsearch.search.facet.query;
 import org.apache.lucene.index.AtomicReaderContext;
 import org.apache.lucene.search.*;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
 import org.elasticsearch.common.lucene.search.Queries;
 import org.elasticsearch.common.lucene.search.XConstantScoreQuery;
@@ -29,6 +30,7 @@ import org.elasticsearch.common.lucene.search.XFilteredQuery;
 import org.elasticsearch.index.cache.filter.FilterCache;
 import org.elasticsearch.search.facet.AbstractFacetCollector;
 import org.elasticsearch.search.facet.Facet;
+import org.elasticsearch.search.facet.MatchingDocsFacetCollector;
 import org.elasticsearch.search.facet.OptimizeGlobalFacetCollector;
 import org.elasticsearch.search.internal.SearchContext;
 
@@ -37,7 +39,7 @@ import java.io.IOException;
 /**
  *
  */
-public class QueryFacetCollector extends AbstractFacetCollector implements OptimizeGlobalFacetCollector {
+public class QueryFacetCollector extends AbstractFacetCollector implements OptimizeGlobalFacetCollector, MatchingDocsFacetCollector {
 
     private final Query query;
 
@@ -45,7 +47,7 @@ public class QueryFacetCollector extends AbstractFacetCollector implements Optim
 
     private Bits bits;
 
-    private int count = 0;
+    private long count = 0;
 
     public QueryFacetCollector(String facetName, Query query, FilterCache filterCache) {
         super(facetName);
@@ -85,6 +87,18 @@ public class QueryFacetCollector extends AbstractFacetCollector implements Optim
         count = collector.getTotalHits();
     }
 
+    @Override
+    public boolean acceptsMatchingDocs() {
+        // a facet filter needs to be applied per doc
+        return super.filter == null;
+    }
+
+    @Override
+    public void collectMatchingDocs(AtomicReaderContext context, FixedBitSet matchingDocs) throws IOException {
+        // no accept docs, so cached filters return their bitset as is, the matching docs are all live already
+        count += DocIdSets.intersectionCount(matchingDocs, filter.getDocIdSet(context, null));
+    }
+
     @Override
     public Facet facet() {
         return new InternalQueryFacet(facetName, count);
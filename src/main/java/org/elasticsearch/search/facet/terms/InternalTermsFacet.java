@@ -19,7 +19,8 @@
 
 package org.elasticsearch.search.facet.terms;
 
-import org.elasticsearch.search.facet.InternalFacet;
+import org.elasticsearch.search.facet.FacetSample;
+import org.elasticsearch.search.facet.InternalSampledFacet;
 import org.elasticsearch.search.facet.terms.doubles.InternalDoubleTermsFacet;
 import org.elasticsearch.search.facet.terms.longs.InternalLongTermsFacet;
 import org.elasticsearch.search.facet.terms.strings.InternalStringTermsFacet;
@@ -27,11 +28,23 @@ import org.elasticsearch.search.facet.terms.strings.InternalStringTermsFacet;
 /**
  *
  */
-public abstract class InternalTermsFacet implements TermsFacet, InternalFacet {
+public abstract class InternalTermsFacet implements TermsFacet, InternalSampledFacet {
+
+    protected FacetSample sample;
 
     public static void registerStreams() {
         InternalStringTermsFacet.registerStream();
         InternalLongTermsFacet.registerStream();
         InternalDoubleTermsFacet.registerStream();
     }
+
+    @Override
+    public FacetSample sample() {
+        return sample;
+    }
+
+    @Override
+    public FacetSample getSample() {
+        return sample();
+    }
 }
@@ -164,7 +164,9 @@ public class TermsFacetBuilder extends AbstractFacetBuilder {
     }
 
     /**
-     * An execution hint to how the facet is computed.
+     * An execution hint to how the facet is computed. Can be <tt>map</tt>, <tt>ordinals</tt>
+     * or <tt>auto</tt> (the default), which picks one per shard based on the field cardinality
+     * and the estimated number of hits.
      */
     public TermsFacetBuilder executionHint(String executionHint) {
         this.executionHint = executionHint;
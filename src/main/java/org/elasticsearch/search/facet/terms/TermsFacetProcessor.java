@@ -39,6 +39,7 @@ import org.elasticsearch.search.facet.terms.index.IndexNameFacetCollector;
 import org.elasticsearch.search.facet.terms.longs.TermsLongFacetCollector;
 import org.elasticsearch.search.facet.terms.strings.FieldsTermsStringFacetCollector;
 import org.elasticsearch.search.facet.terms.strings.ScriptTermsStringFieldFacetCollector;
+import org.elasticsearch.search.facet.terms.strings.TermsStringAutoFacetCollector;
 import org.elasticsearch.search.facet.terms.strings.TermsStringFacetCollector;
 import org.elasticsearch.search.facet.terms.strings.TermsStringOrdinalsFacetCollector;
 import org.elasticsearch.search.internal.SearchContext;
@@ -166,6 +167,9 @@ public class TermsFacetProcessor extends AbstractComponent implements FacetProce
             if (script != null || "map".equals(executionHint)) {
                 return new TermsStringFacetCollector(facetName, indexFieldData, size, comparatorType, allTerms, context, excluded, pattern, searchScript);
             } else if (indexFieldData instanceof IndexFieldData.WithOrdinals) {
+                if (executionHint == null || "auto".equals(executionHint)) {
+                    return new TermsStringAutoFacetCollector(logger, facetName, (IndexFieldData.WithOrdinals) indexFieldData, size, comparatorType, allTerms, context, excluded, pattern);
+                }
                 return new TermsStringOrdinalsFacetCollector(facetName, (IndexFieldData.WithOrdinals) indexFieldData, size, comparatorType, allTerms, context, excluded, pattern);
             } else {
                 return new TermsStringFacetCollector(facetName, indexFieldData, size, comparatorType, allTerms, context, excluded, pattern, searchScript);
@@ -31,6 +31,7 @@ import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.search.facet.Facet;
+import org.elasticsearch.search.facet.FacetSample;
 import org.elasticsearch.search.facet.terms.InternalTermsFacet;
 import org.elasticsearch.search.facet.terms.TermsFacet;
 
@@ -212,6 +213,18 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         return otherCount();
     }
 
+    @Override
+    public void applySample(FacetSample sample) {
+        this.sample = sample;
+        List<DoubleEntry> scaled = new ArrayList<DoubleEntry>(entries.size());
+        for (DoubleEntry entry : entries) {
+            scaled.add(new DoubleEntry(entry.term, sample.scale(entry.count())));
+        }
+        entries = scaled;
+        missing = sample.scale(missing);
+        total = sample.scale(total);
+    }
+
     @Override
     public Facet reduce(List<Facet> facets) {
         if (facets.size() == 1) {
@@ -221,10 +234,12 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         TDoubleIntHashMap aggregated = CacheRecycler.popDoubleIntMap();
         long missing = 0;
         long total = 0;
+        FacetSample sample = null;
         for (Facet facet : facets) {
             InternalDoubleTermsFacet mFacet = (InternalDoubleTermsFacet) facet;
             missing += mFacet.missingCount();
             total += mFacet.totalCount();
+            sample = FacetSample.merge(sample, mFacet.sample());
             for (DoubleEntry entry : mFacet.entries) {
                 aggregated.adjustOrPutValue(entry.term, entry.count(), entry.count());
             }
@@ -238,6 +253,7 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         first.entries = ordered;
         first.missing = missing;
         first.total = total;
+        first.sample = sample;
 
         CacheRecycler.pushDoubleIntMap(aggregated);
 
@@ -261,6 +277,9 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         builder.field(Fields.MISSING, missing);
         builder.field(Fields.TOTAL, total);
         builder.field(Fields.OTHER, otherCount());
+        if (sample != null) {
+            sample.toXContent(builder, params);
+        }
         builder.startArray(Fields.TERMS);
         for (DoubleEntry entry : entries) {
             builder.startObject();
@@ -292,6 +311,7 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
         for (int i = 0; i < size; i++) {
             entries.add(new DoubleEntry(in.readDouble(), in.readVInt()));
         }
+        sample = FacetSample.readOptionalFacetSample(in);
     }
 
     @Override
@@ -307,5 +327,6 @@ public class InternalDoubleTermsFacet extends InternalTermsFacet {
             out.writeDouble(entry.term);
             out.writeVInt(entry.count());
         }
+        FacetSample.writeOptionalFacetSample(sample, out);
     }
 }
\ No newline at end of file
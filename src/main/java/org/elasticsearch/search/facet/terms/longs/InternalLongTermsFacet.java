@@ -31,6 +31,7 @@ import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.search.facet.Facet;
+import org.elasticsearch.search.facet.FacetSample;
 import org.elasticsearch.search.facet.terms.InternalTermsFacet;
 import org.elasticsearch.search.facet.terms.TermsFacet;
 
@@ -212,6 +213,18 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         return otherCount();
     }
 
+    @Override
+    public void applySample(FacetSample sample) {
+        this.sample = sample;
+        List<LongEntry> scaled = new ArrayList<LongEntry>(entries.size());
+        for (LongEntry entry : entries) {
+            scaled.add(new LongEntry(entry.term, sample.scale(entry.count())));
+        }
+        entries = scaled;
+        missing = sample.scale(missing);
+        total = sample.scale(total);
+    }
+
     @Override
     public Facet reduce(List<Facet> facets) {
         if (facets.size() == 1) {
@@ -221,10 +234,12 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         TLongIntHashMap aggregated = CacheRecycler.popLongIntMap();
         long missing = 0;
         long total = 0;
+        FacetSample sample = null;
         for (Facet facet : facets) {
             InternalLongTermsFacet mFacet = (InternalLongTermsFacet) facet;
             missing += mFacet.missingCount();
             total += mFacet.totalCount();
+            sample = FacetSample.merge(sample, mFacet.sample());
             for (LongEntry entry : mFacet.entries) {
                 aggregated.adjustOrPutValue(entry.term, entry.count(), entry.count());
             }
@@ -238,6 +253,7 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         first.entries = ordered;
         first.missing = missing;
         first.total = total;
+        first.sample = sample;
 
         CacheRecycler.pushLongIntMap(aggregated);
 
@@ -261,6 +277,9 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         builder.field(Fields.MISSING, missing);
         builder.field(Fields.TOTAL, total);
         builder.field(Fields.OTHER, otherCount());
+        if (sample != null) {
+            sample.toXContent(builder, params);
+        }
         builder.startArray(Fields.TERMS);
         for (LongEntry entry : entries) {
             builder.startObject();
@@ -292,6 +311,7 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
         for (int i = 0; i < size; i++) {
             entries.add(new LongEntry(in.readLong(), in.readVInt()));
         }
+        sample = FacetSample.readOptionalFacetSample(in);
     }
 
     @Override
@@ -307,5 +327,6 @@ public class InternalLongTermsFacet extends InternalTermsFacet {
             out.writeLong(entry.term);
             out.writeVInt(entry.count());
         }
+        FacetSample.writeOptionalFacetSample(sample, out);
     }
 }
\ No newline at end of file
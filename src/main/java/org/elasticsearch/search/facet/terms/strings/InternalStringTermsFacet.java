@@ -34,6 +34,7 @@ import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.search.facet.Facet;
+import org.elasticsearch.search.facet.FacetSample;
 import org.elasticsearch.search.facet.terms.InternalTermsFacet;
 import org.elasticsearch.search.facet.terms.TermsFacet;
 
@@ -223,6 +224,18 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         return otherCount();
     }
 
+    @Override
+    public void applySample(FacetSample sample) {
+        this.sample = sample;
+        List<TermEntry> scaled = new ArrayList<TermEntry>(entries.size());
+        for (TermEntry entry : entries) {
+            scaled.add(new TermEntry(entry.term(), sample.scale(entry.count())));
+        }
+        entries = scaled;
+        missing = sample.scale(missing);
+        total = sample.scale(total);
+    }
+
     @Override
     public Facet reduce(List<Facet> facets) {
         if (facets.size() == 1) {
@@ -232,10 +245,12 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         TObjectIntHashMap<Text> aggregated = CacheRecycler.popObjectIntMap();
         long missing = 0;
         long total = 0;
+        FacetSample sample = null;
         for (Facet facet : facets) {
             InternalStringTermsFacet mFacet = (InternalStringTermsFacet) facet;
             missing += mFacet.missingCount();
             total += mFacet.totalCount();
+            sample = FacetSample.merge(sample, mFacet.sample());
             for (TermEntry entry : mFacet.entries) {
                 aggregated.adjustOrPutValue(entry.term(), entry.count(), entry.count());
             }
@@ -249,6 +264,7 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         first.entries = ordered;
         first.missing = missing;
         first.total = total;
+        first.sample = sample;
 
         CacheRecycler.pushObjectIntMap(aggregated);
 
@@ -272,6 +288,9 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         builder.field(Fields.MISSING, missing);
         builder.field(Fields.TOTAL, total);
         builder.field(Fields.OTHER, otherCount());
+        if (sample != null) {
+            sample.toXContent(builder, params);
+        }
         builder.startArray(Fields.TERMS);
         for (Entry entry : entries) {
             builder.startObject();
@@ -303,6 +322,7 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
         for (int i = 0; i < size; i++) {
             entries.add(new TermEntry(in.readText(), in.readVInt()));
         }
+        sample = FacetSample.readOptionalFacetSample(in);
     }
 
     @Override
@@ -318,5 +338,6 @@ public class InternalStringTermsFacet extends InternalTermsFacet {
             out.writeText(entry.term());
             out.writeVInt(entry.count());
         }
+        FacetSample.writeOptionalFacetSample(sample, out);
     }
 }
\ No newline at end of file
@@ -0,0 +1,252 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.facet.terms.strings;
+
+import com.google.common.collect.ImmutableSet;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.common.lucene.search.XConstantScoreQuery;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.lucene.search.function.FunctionScoreQuery;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.search.facet.Facet;
+import org.elasticsearch.search.facet.FacetCollector;
+import org.elasticsearch.search.facet.FacetPhaseExecutionException;
+import org.elasticsearch.search.facet.terms.TermsFacet;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A terms facet collector that picks between the hash based {@link TermsStringFacetCollector} and the
+ * ordinals based {@link TermsStringOrdinalsFacetCollector} on a per shard basis.
+ * <p/>
+ * The choice is deferred until the first segment is visited, since the main query is not necessarily
+ * parsed yet when the facet is. It is based on the number of unique terms of the field on this shard
+ * (which bounds the ordinal space the ordinals collector has to allocate and merge) and on an estimate
+ * of the number of hits (which bounds the number of hash lookups the map collector has to do).
+ */
+public class TermsStringAutoFacetCollector extends FacetCollector {
+
+    /**
+     * Relative cost of a hash lookup (hashing and possibly copying the term) compared to incrementing
+     * a counter in an ordinals array.
+     */
+    static final int MAP_COST_PER_HIT = 4;
+
+    public static enum Execution {
+        MAP, ORDINALS
+    }
+
+    private final ESLogger logger;
+    private final String facetName;
+    private final IndexFieldData.WithOrdinals indexFieldData;
+    private final int size;
+    private final TermsFacet.ComparatorType comparatorType;
+    private final boolean allTerms;
+    private final SearchContext context;
+    private final ImmutableSet<BytesRef> excluded;
+    private final Pattern pattern;
+
+    private Filter filter;
+    private Scorer scorer;
+
+    private FacetCollector collector;
+
+    public TermsStringAutoFacetCollector(ESLogger logger, String facetName, IndexFieldData.WithOrdinals indexFieldData, int size, TermsFacet.ComparatorType comparatorType, boolean allTerms, SearchContext context,
+                                         ImmutableSet<BytesRef> excluded, Pattern pattern) {
+        this.logger = logger;
+        this.facetName = facetName;
+        this.indexFieldData = indexFieldData;
+        this.size = size;
+        this.comparatorType = comparatorType;
+        this.allTerms = allTerms;
+        this.context = context;
+        this.excluded = excluded;
+        this.pattern = pattern;
+    }
+
+    @Override
+    public void setFilter(Filter filter) {
+        // the delegate is not created yet, it gets the filter once it is
+        this.filter = filter;
+    }
+
+    @Override
+    public void setScorer(Scorer scorer) throws IOException {
+        this.scorer = scorer;
+        if (collector != null) {
+            collector.setScorer(scorer);
+        }
+    }
+
+    @Override
+    public boolean acceptsDocsOutOfOrder() {
+        return true;
+    }
+
+    @Override
+    public void setNextReader(AtomicReaderContext readerContext) throws IOException {
+        if (collector == null) {
+            collector = createCollector();
+        }
+        collector.setNextReader(readerContext);
+    }
+
+    @Override
+    public void collect(int doc) throws IOException {
+        collector.collect(doc);
+    }
+
+    @Override
+    public Facet facet() {
+        if (collector == null) {
+            // no segment was visited, pick the cheaper one to build an empty facet
+            try {
+                collector = createCollector(Execution.MAP);
+            } catch (IOException e) {
+                throw new FacetPhaseExecutionException(facetName, "failed to create collector", e);
+            }
+        }
+        return collector.facet();
+    }
+
+    private FacetCollector createCollector() throws IOException {
+        IndexReader reader = context.searcher().getIndexReader();
+        long numTerms = numberOfTerms(reader, indexFieldData.getFieldNames().indexName());
+        long estimatedHits = estimateHits(context.query(), reader);
+        Execution execution = allTerms ? Execution.ORDINALS : selectExecution(numTerms, estimatedHits, reader.leaves().size());
+        if (logger.isDebugEnabled()) {
+            logger.debug("{}[{}] terms facet [{}] on [{}] using [{}] execution, unique terms [{}], estimated hits [{}], size [{}]",
+                    context.shardTarget(), context.id(), facetName, indexFieldData.getFieldNames().name(), execution.name().toLowerCase(), numTerms, estimatedHits, size);
+        }
+        return createCollector(execution);
+    }
+
+    private FacetCollector createCollector(Execution execution) throws IOException {
+        FacetCollector collector;
+        if (execution == Execution.MAP) {
+            collector = new TermsStringFacetCollector(facetName, indexFieldData, size, comparatorType, allTerms, context, excluded, pattern, null);
+        } else {
+            collector = new TermsStringOrdinalsFacetCollector(facetName, indexFieldData, size, comparatorType, allTerms, context, excluded, pattern);
+        }
+        if (filter != null) {
+            collector.setFilter(filter);
+        }
+        if (scorer != null) {
+            collector.setScorer(scorer);
+        }
+        return collector;
+    }
+
+    /**
+     * Picks the execution mode given the number of unique terms on the shard, the estimated number of hits
+     * and the number of segments. The ordinals collector allocates a counts array per segment and merges
+     * all the ordinals across segments when building the facet, while the map collector only pays per hit.
+     * The final top <tt>size</tt> selection is done the same way by both, so it does not tip the balance.
+     */
+    public static Execution selectExecution(long numTerms, long estimatedHits, int numSegments) {
+        if (numTerms <= 0) {
+            return Execution.ORDINALS;
+        }
+        long ordinalsCost = estimatedHits + numTerms * (1 + log2(numSegments));
+        long mapCost = estimatedHits * MAP_COST_PER_HIT;
+        return mapCost < ordinalsCost ? Execution.MAP : Execution.ORDINALS;
+    }
+
+    private static int log2(int value) {
+        return 32 - Integer.numberOfLeadingZeros(Math.max(value, 1)) - 1;
+    }
+
+    /**
+     * Sums the number of unique terms of the field over all segments, which is the number of ordinals
+     * the ordinals collector will visit. Falls back to the number of documents if a codec does not
+     * store the count.
+     */
+    public static long numberOfTerms(IndexReader reader, String field) throws IOException {
+        long numTerms = 0;
+        for (AtomicReaderContext readerContext : reader.leaves()) {
+            Terms terms = readerContext.reader().terms(field);
+            if (terms == null) {
+                continue;
+            }
+            long size = terms.size();
+            numTerms += size == -1 ? readerContext.reader().maxDoc() : size;
+        }
+        return numTerms;
+    }
+
+    /**
+     * A cheap, upper bound estimate of the number of docs the query matches, based on term statistics
+     * where possible. Unknown queries are assumed to match all docs.
+     */
+    public static long estimateHits(Query query, IndexReader reader) throws IOException {
+        long maxHits = reader.numDocs();
+        if (query == null || query instanceof MatchAllDocsQuery || Queries.isConstantMatchAllQuery(query)) {
+            return maxHits;
+        }
+        if (query instanceof TermQuery) {
+            return Math.min(maxHits, reader.docFreq(((TermQuery) query).getTerm()));
+        }
+        if (query instanceof XFilteredQuery) {
+            return estimateHits(((XFilteredQuery) query).getQuery(), reader);
+        }
+        if (query instanceof FilteredQuery) {
+            return estimateHits(((FilteredQuery) query).getQuery(), reader);
+        }
+        if (query instanceof FunctionScoreQuery) {
+            return estimateHits(((FunctionScoreQuery) query).getSubQuery(), reader);
+        }
+        if (query instanceof XConstantScoreQuery) {
+            return maxHits;
+        }
+        if (query instanceof ConstantScoreQuery && ((ConstantScoreQuery) query).getQuery() != null) {
+            return estimateHits(((ConstantScoreQuery) query).getQuery(), reader);
+        }
+        if (query instanceof BooleanQuery) {
+            List<BooleanClause> clauses = ((BooleanQuery) query).clauses();
+            long required = Long.MAX_VALUE;
+            long optional = 0;
+            boolean hasRequired = false;
+            for (BooleanClause clause : clauses) {
+                if (clause.isProhibited()) {
+                    continue;
+                }
+                long hits = estimateHits(clause.getQuery(), reader);
+                if (clause.isRequired()) {
+                    hasRequired = true;
+                    required = Math.min(required, hits);
+                } else {
+                    optional += hits;
+                }
+            }
+            if (hasRequired) {
+                return required;
+            }
+            return Math.min(maxHits, optional);
+        }
+        return maxHits;
+    }
+}
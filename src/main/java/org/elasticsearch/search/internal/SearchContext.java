@@ -36,6 +36,7 @@ import org.elasticsearch.common.lucene.search.function.FunctionScoreQuery;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.cache.filter.FilterCache;
 import org.elasticsearch.index.cache.id.IdCache;
+import org.elasticsearch.index.cache.id.JoinCache;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.fielddata.IndexFieldDataService;
 import org.elasticsearch.index.mapper.FieldMapper;
@@ -376,6 +377,10 @@ public class SearchContext implements Releasable {
         return indexService.cache().idCache();
     }
 
+    public JoinCache joinCache() {
+        return indexService.cache().joinCache();
+    }
+
     public long timeoutInMillis() {
         return timeoutInMillis;
     }
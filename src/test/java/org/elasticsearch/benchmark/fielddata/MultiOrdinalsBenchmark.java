@@ -0,0 +1,106 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.fielddata;
+
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.SizeValue;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
+import org.elasticsearch.index.fielddata.util.IntArrayRef;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares memory usage and iteration speed of the multi valued ordinals implementations, on a segment where
+ * most docs have a few values and a handful of docs have hundreds.
+ */
+public class MultiOrdinalsBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int NUMBER_OF_DOCS = (int) SizeValue.parseSizeValue("1m").singles();
+        int NUMBER_OF_ORDS = (int) SizeValue.parseSizeValue("100k").singles();
+        int MAX_VALUES_PER_DOC = 3;
+        double HEAVY_DOCS_RATIO = 0.001;
+        int HEAVY_DOC_VALUES = 500;
+        int ITERATIONS = 10;
+
+        Random random = new Random(0);
+        // doc ids per ordinal, ordinals have to be added in order to the builder
+        List<List<Integer>> docsPerOrd = new ArrayList<List<Integer>>(NUMBER_OF_ORDS);
+        for (int i = 0; i < NUMBER_OF_ORDS; i++) {
+            docsPerOrd.add(new ArrayList<Integer>());
+        }
+        for (int doc = 0; doc < NUMBER_OF_DOCS; doc++) {
+            int numValues = random.nextDouble() < HEAVY_DOCS_RATIO ? HEAVY_DOC_VALUES : random.nextInt(MAX_VALUES_PER_DOC + 1);
+            int ord = random.nextInt(NUMBER_OF_ORDS);
+            for (int i = 0; i < numValues; i++) {
+                docsPerOrd.get((ord + i) % NUMBER_OF_ORDS).add(doc);
+            }
+        }
+        OrdinalsBuilder builder = new OrdinalsBuilder(NUMBER_OF_DOCS);
+        for (List<Integer> docs : docsPerOrd) {
+            builder.nextOrdinal();
+            for (int doc : docs) {
+                builder.addDoc(doc);
+            }
+        }
+        docsPerOrd = null;
+        System.out.println("--> docs [" + NUMBER_OF_DOCS + "], values [" + builder.getTotalNumOrds() + "], multi valued docs [" + builder.getNumMultiValuesDocs() + "]");
+
+        for (String multiOrdinals : new String[]{"flat", "sparse", "packed", "auto"}) {
+            StopWatch stopWatch = new StopWatch().start();
+            Ordinals ordinals = builder.build(ImmutableSettings.settingsBuilder().put("multi_ordinals", multiOrdinals).build());
+            stopWatch.stop();
+            System.out.println("--> [" + multiOrdinals + "] " + ordinals.getClass().getSimpleName() + ", memory [" + new ByteSizeValue(ordinals.getMemorySizeInBytes()) + "], build took [" + stopWatch.totalTime() + "]");
+
+            long checksum = 0;
+            stopWatch = new StopWatch().start();
+            for (int iter = 0; iter < ITERATIONS; iter++) {
+                Ordinals.Docs docs = ordinals.ordinals();
+                for (int doc = 0; doc < NUMBER_OF_DOCS; doc++) {
+                    Ordinals.Docs.Iter ordsIter = docs.getIter(doc);
+                    for (int ord = ordsIter.next(); ord != 0; ord = ordsIter.next()) {
+                        checksum += ord;
+                    }
+                }
+            }
+            stopWatch.stop();
+            System.out.println("--> [" + multiOrdinals + "] iter took [" + stopWatch.totalTime() + "], " + (stopWatch.totalTime().millisFrac() / ITERATIONS) + "ms per pass");
+
+            stopWatch = new StopWatch().start();
+            for (int iter = 0; iter < ITERATIONS; iter++) {
+                Ordinals.Docs docs = ordinals.ordinals();
+                for (int doc = 0; doc < NUMBER_OF_DOCS; doc++) {
+                    IntArrayRef ords = docs.getOrds(doc);
+                    for (int i = ords.start; i < ords.end; i++) {
+                        checksum -= ords.values[i];
+                    }
+                }
+            }
+            stopWatch.stop();
+            System.out.println("--> [" + multiOrdinals + "] getOrds took [" + stopWatch.totalTime() + "], " + (stopWatch.totalTime().millisFrac() / ITERATIONS) + "ms per pass, checksum [" + checksum + "]");
+        }
+        builder.close();
+    }
+}
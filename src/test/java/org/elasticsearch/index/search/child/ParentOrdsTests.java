@@ -0,0 +1,169 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.search.child;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.bytes.HashedBytesArray;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+import org.elasticsearch.index.cache.id.simple.SimpleIdCache;
+import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class ParentOrdsTests {
+
+    private static Document doc(String uid, String parentUid) {
+        Document document = new Document();
+        document.add(new StringField(UidFieldMapper.NAME, uid, Field.Store.NO));
+        if (parentUid != null) {
+            document.add(new StringField(ParentFieldMapper.NAME, parentUid, Field.Store.NO));
+        }
+        return document;
+    }
+
+    @Test
+    public void testTranslationIsCachedPerSegment() throws Exception {
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        writer.addDocument(doc("child#1", "parent#1"));
+        writer.addDocument(doc("child#2", "parent#3"));
+        writer.commit();
+        writer.addDocument(doc("parent#1", null)); // 0
+        writer.addDocument(doc("parent#2", null)); // 1
+        writer.addDocument(doc("parent#3", null)); // 2
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        writer.close();
+        assertThat(reader.leaves().size(), equalTo(2));
+        AtomicReader childReader = reader.leaves().get(0).reader();
+        AtomicReader parentReader = reader.leaves().get(1).reader();
+
+        SimpleIdCache idCache = new SimpleIdCache(new Index("test"), ImmutableSettings.Builder.EMPTY_SETTINGS);
+        idCache.refresh(reader.leaves());
+
+        // the parent ordinals collected on the child segment, all of its ids
+        IdReaderTypeCache childSegmentCache = idCache.reader(childReader).type("parent");
+        FixedBitSet ords = new FixedBitSet(childSegmentCache.numOrds());
+        ords.set(1, childSegmentCache.numOrds());
+        ParentOrds parentOrds = new ParentOrds(new IdReaderTypeCache[]{childSegmentCache, null}, new FixedBitSet[]{ords, null});
+
+        CountingIdReaderTypeCache target = new CountingIdReaderTypeCache(idCache.reader(parentReader).type("parent"));
+        DocIdSet parentDocs = parentOrds.parentDocs(parentReader.getCoreCacheKey(), target, parentReader.maxDoc(), null);
+        assertThat(parentDocs, instanceOf(FixedBitSet.class));
+        FixedBitSet docs = (FixedBitSet) parentDocs;
+        assertThat(docs.cardinality(), equalTo(2));
+        assertThat(docs.get(0), equalTo(true));
+        assertThat(docs.get(2), equalTo(true));
+        assertThat(target.lookups, greaterThan(0));
+
+        // hits don't translate again
+        target.lookups = 0;
+        assertThat(parentOrds.parentDocs(parentReader.getCoreCacheKey(), target, parentReader.maxDoc(), null), sameInstance(parentDocs));
+        FixedBitSet translated = parentOrds.translate(parentReader.getCoreCacheKey(), target);
+        assertThat(translated.cardinality(), equalTo(2));
+        assertThat(parentOrds.translate(parentReader.getCoreCacheKey(), target), sameInstance(translated));
+        assertThat(target.lookups, equalTo(0));
+
+        reader.close();
+    }
+
+    static class CountingIdReaderTypeCache implements IdReaderTypeCache {
+
+        final IdReaderTypeCache delegate;
+        int lookups;
+
+        CountingIdReaderTypeCache(IdReaderTypeCache delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HashedBytesArray parentIdByDoc(int docId) {
+            return delegate.parentIdByDoc(docId);
+        }
+
+        @Override
+        public int docById(HashedBytesArray uid) {
+            return delegate.docById(uid);
+        }
+
+        @Override
+        public HashedBytesArray idByDoc(int docId) {
+            return delegate.idByDoc(docId);
+        }
+
+        @Override
+        public int numOrds() {
+            return delegate.numOrds();
+        }
+
+        @Override
+        public int ordByDoc(int docId) {
+            return delegate.ordByDoc(docId);
+        }
+
+        @Override
+        public int parentOrdByDoc(int docId) {
+            return delegate.parentOrdByDoc(docId);
+        }
+
+        @Override
+        public int ordById(BytesRef uid) {
+            lookups++;
+            return delegate.ordById(uid);
+        }
+
+        @Override
+        public int seekOrd(BytesRef uid, int fromOrd) {
+            lookups++;
+            return delegate.seekOrd(uid, fromOrd);
+        }
+
+        @Override
+        public int docByOrd(int ord) {
+            return delegate.docByOrd(ord);
+        }
+
+        @Override
+        public BytesRef idByOrd(int ord, BytesRef spare) {
+            return delegate.idByOrd(ord, spare);
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return delegate.sizeInBytes();
+        }
+    }
+}
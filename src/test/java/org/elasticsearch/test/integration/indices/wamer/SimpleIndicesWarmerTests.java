@@ -19,6 +19,8 @@
 
 package org.elasticsearch.test.integration.indices.wamer;
 
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.common.settings.ImmutableSettings;
@@ -31,8 +33,10 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 
 /**
  */
@@ -159,4 +163,34 @@ public class SimpleIndicesWarmerTests extends AbstractNodesTests {
         }
     }
 
+    @Test
+    public void eagerFieldDataLoading() throws Exception {
+        client.admin().indices().prepareDelete().execute().actionGet();
+
+        client.admin().indices().prepareCreate("test")
+                .setSettings(ImmutableSettings.settingsBuilder().put("index.number_of_shards", 1).put("index.number_of_replicas", 0))
+                .addMapping("type1", jsonBuilder().startObject().startObject("type1").startObject("properties")
+                        .startObject("eager").field("type", "string").field("index", "not_analyzed").field("fielddata", "loading=eager").endObject()
+                        .startObject("lazy").field("type", "string").field("index", "not_analyzed").endObject()
+                        .endObject().endObject().endObject())
+                .execute().actionGet();
+
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        client.prepareIndex("test", "type1", "1").setSource("eager", "value1", "lazy", "value1").setRefresh(true).execute().actionGet();
+        client.prepareIndex("test", "type1", "2").setSource("eager", "value2", "lazy", "value2").setRefresh(true).execute().actionGet();
+
+        // no search was executed, so only the eager field should have been loaded, by the warmer
+        long eagerMemory = 0;
+        for (NodeStats nodeStats : client.admin().cluster().prepareNodesStats().setIndices(true).execute().actionGet().nodes()) {
+            if (nodeStats.indices().getFieldData().getFields() != null) {
+                assertThat(nodeStats.indices().getFieldData().getFields().containsKey("lazy"), equalTo(false));
+            }
+            eagerMemory += nodeStats.indices().getFieldData().getMemorySizeInBytes();
+        }
+        assertThat(eagerMemory, greaterThan(0l));
+
+        IndicesStatsResponse indicesStats = client.admin().indices().prepareStats("test").setWarmer(true).execute().actionGet();
+        assertThat(indicesStats.total().warmer().fieldDataTotal(), greaterThan(0l));
+    }
 }
@@ -23,6 +23,7 @@ import org.elasticsearch.action.bulk.BulkItemResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.action.percolate.MultiPercolateResponse;
 import org.elasticsearch.action.percolate.PercolateResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.xcontent.XContentFactory;
@@ -36,6 +37,7 @@ import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
 import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItem;
 
@@ -196,6 +198,107 @@ public class SimplePercolatorTests extends AbstractNodesTests {
         assertThat(client.prepareCount("_percolator").setQuery(matchAllQuery()).execute().actionGet().count(), equalTo(0l));
     }
 
+    @Test
+    public void multiPercolate() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+        try {
+            client.admin().indices().prepareDelete("_percolator").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+
+        client.admin().indices().prepareCreate("test").setSettings(settingsBuilder().put("index.number_of_shards", 1)).execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        logger.info("--> register queries");
+        client.prepareIndex("_percolator", "test", "1")
+                .setSource(jsonBuilder().startObject().field("query", termQuery("field1", "value1")).endObject())
+                .execute().actionGet();
+        client.prepareIndex("_percolator", "test", "2")
+                .setSource(jsonBuilder().startObject().field("query", termQuery("field1", "value2")).endObject())
+                .setRefresh(true)
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().setWaitForActiveShards(4).execute().actionGet();
+
+        MultiPercolateResponse response = client.prepareMultiPercolate("test")
+                .add(client.preparePercolate("test", "type1").setSource(jsonBuilder().startObject().startObject("doc").field("field1", "value1").endObject().endObject()))
+                .add(client.preparePercolate("test", "type1").setSource(jsonBuilder().startObject().startObject("doc").field("field1", "value3").endObject().endObject()))
+                .add(client.preparePercolate("test", "type1").setSource(jsonBuilder().startObject().field("no_doc", "value1").endObject()))
+                .add(client.preparePercolate("test", "type1").setSource(jsonBuilder().startObject().startObject("doc").field("field1", "value2").endObject().endObject()))
+                .execute().actionGet();
+
+        assertThat(response.responses().length, equalTo(4));
+        assertThat(response.responses()[0].isFailure(), equalTo(false));
+        assertThat(response.responses()[0].response().matches(), contains("1"));
+        assertThat(response.responses()[1].isFailure(), equalTo(false));
+        assertThat(response.responses()[1].response().matches().size(), equalTo(0));
+        // a failed doc doesn't fail the others
+        assertThat(response.responses()[2].isFailure(), equalTo(true));
+        assertThat(response.responses()[3].isFailure(), equalTo(false));
+        assertThat(response.responses()[3].response().matches(), contains("2"));
+    }
+
+    @Test
+    public void distributedPercolate() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+        try {
+            client.admin().indices().prepareDelete("_percolator").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+
+        client.admin().indices().prepareCreate("test").setSettings(settingsBuilder()
+                .put("index.number_of_shards", 4)
+                .put("index.number_of_replicas", 0)
+                .put("index.percolate.distributed", true))
+                .execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        logger.info("--> register queries, spread over all the shards");
+        for (int i = 0; i < 20; i++) {
+            client.prepareIndex("_percolator", "test", Integer.toString(i))
+                    .setSource(jsonBuilder().startObject().field("query", termQuery("field1", i % 2 == 0 ? "even" : "odd")).endObject())
+                    .execute().actionGet();
+        }
+        client.admin().indices().prepareRefresh("_percolator").execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().setWaitForActiveShards(6).execute().actionGet();
+
+        for (int i = 0; i < 5; i++) {
+            PercolateResponse percolate = client.preparePercolate("test", "type1").setSource(jsonBuilder().startObject().startObject("doc")
+                    .field("field1", "even")
+                    .endObject().endObject())
+                    .execute().actionGet();
+            assertThat(percolate.matches().size(), equalTo(10));
+            assertThat(percolate.matches(), hasItem("0"));
+            assertThat(percolate.matches(), hasItem("18"));
+        }
+
+        MultiPercolateResponse response = client.prepareMultiPercolate("test")
+                .add(client.preparePercolate("test", "type1").setSource(jsonBuilder().startObject().startObject("doc").field("field1", "odd").endObject().endObject()))
+                .add(client.preparePercolate("test", "type1").setSource(jsonBuilder().startObject().startObject("doc").field("field1", "none").endObject().endObject()))
+                .execute().actionGet();
+        assertThat(response.responses()[0].isFailure(), equalTo(false));
+        assertThat(response.responses()[0].response().matches().size(), equalTo(10));
+        assertThat(response.responses()[1].isFailure(), equalTo(false));
+        assertThat(response.responses()[1].response().matches().size(), equalTo(0));
+
+        logger.info("--> remove a query");
+        client.prepareDelete("_percolator", "test", "0").setRefresh(true).execute().actionGet();
+        PercolateResponse percolate = client.preparePercolate("test", "type1").setSource(jsonBuilder().startObject().startObject("doc")
+                .field("field1", "even")
+                .endObject().endObject())
+                .execute().actionGet();
+        assertThat(percolate.matches().size(), equalTo(9));
+    }
+
     @Test
     public void percolateOnIndexOperation() throws Exception {
         try {
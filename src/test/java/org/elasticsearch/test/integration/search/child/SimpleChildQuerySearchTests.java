@@ -359,6 +359,62 @@ public class SimpleChildQuerySearchTests extends AbstractNodesTests {
         }
     }
 
+    @Test
+    public void testCachedJoinFilters() throws Exception {
+        client.admin().indices().prepareDelete().execute().actionGet();
+        client.admin().indices().prepareCreate("test")
+                .setSettings(
+                        ImmutableSettings.settingsBuilder()
+                                .put("index.number_of_shards", 1)
+                                .put("index.number_of_replicas", 0)
+                ).execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+        client.admin().indices().preparePutMapping("test").setType("child").setSource(jsonBuilder().startObject().startObject("type")
+                .startObject("_parent").field("type", "parent").endObject()
+                .endObject().endObject()).execute().actionGet();
+
+        // children in another segment than their parent
+        client.prepareIndex("test", "parent", "p1").setSource("p_field", "p_value1").execute().actionGet();
+        client.prepareIndex("test", "parent", "p2").setSource("p_field", "p_value2").execute().actionGet();
+        client.admin().indices().prepareFlush().execute().actionGet();
+        client.prepareIndex("test", "child", "c1").setSource("c_field", "red").setParent("p1").execute().actionGet();
+        client.prepareIndex("test", "child", "c2").setSource("c_field", "blue").setParent("p1").execute().actionGet();
+        client.prepareIndex("test", "child", "c3").setSource("c_field", "red").setParent("p2").execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        for (int i = 0; i < 2; i++) {
+            SearchResponse searchResponse = client.prepareSearch("test")
+                    .setQuery(constantScoreQuery(hasChildFilter("child", termQuery("c_field", "red")).executionType(getExecutionMethod()).cache(true)))
+                    .execute().actionGet();
+            assertThat("Failures " + Arrays.toString(searchResponse.shardFailures()), searchResponse.shardFailures().length, equalTo(0));
+            assertThat(searchResponse.hits().totalHits(), equalTo(2l));
+
+            searchResponse = client.prepareSearch("test")
+                    .setQuery(constantScoreQuery(hasParentFilter("parent", termQuery("p_field", "p_value1")).executionType(getExecutionMethod()).cache(true)))
+                    .execute().actionGet();
+            assertThat("Failures " + Arrays.toString(searchResponse.shardFailures()), searchResponse.shardFailures().length, equalTo(0));
+            assertThat(searchResponse.hits().totalHits(), equalTo(2l));
+        }
+
+        // a refresh must not serve the join computed on the previous reader
+        client.prepareIndex("test", "parent", "p3").setSource("p_field", "p_value3").execute().actionGet();
+        client.prepareIndex("test", "child", "c4").setSource("c_field", "red").setParent("p3").execute().actionGet();
+        client.prepareIndex("test", "child", "c5").setSource("c_field", "blue").setParent("p1").execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        SearchResponse searchResponse = client.prepareSearch("test")
+                .setQuery(constantScoreQuery(hasChildFilter("child", termQuery("c_field", "red")).executionType(getExecutionMethod()).cache(true)))
+                .execute().actionGet();
+        assertThat("Failures " + Arrays.toString(searchResponse.shardFailures()), searchResponse.shardFailures().length, equalTo(0));
+        assertThat(searchResponse.hits().totalHits(), equalTo(3l));
+
+        searchResponse = client.prepareSearch("test")
+                .setQuery(constantScoreQuery(hasParentFilter("parent", termQuery("p_field", "p_value1")).executionType(getExecutionMethod()).cache(true)))
+                .execute().actionGet();
+        assertThat("Failures " + Arrays.toString(searchResponse.shardFailures()), searchResponse.shardFailures().length, equalTo(0));
+        assertThat(searchResponse.hits().totalHits(), equalTo(3l));
+    }
+
     @Test
     public void simpleChildQueryWithFlush() throws Exception {
         client.admin().indices().prepareDelete().execute().actionGet();
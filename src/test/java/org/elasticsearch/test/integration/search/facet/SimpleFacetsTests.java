@@ -19,6 +19,7 @@
 
 package org.elasticsearch.test.integration.search.facet;
 
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.action.search.ShardSearchFailure;
@@ -27,6 +28,14 @@ import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.facet.FacetSample;
+import org.elasticsearch.search.facet.SampledFacet;
+import org.elasticsearch.search.facet.aggregation.AggregationFacet;
+import org.elasticsearch.search.facet.aggregation.filter.InternalFilter;
+import org.elasticsearch.search.facet.aggregation.histogram.InternalHistogram;
+import org.elasticsearch.search.facet.aggregation.range.InternalRange;
+import org.elasticsearch.search.facet.aggregation.stats.InternalStats;
+import org.elasticsearch.search.facet.aggregation.terms.InternalTerms;
 import org.elasticsearch.search.facet.datehistogram.DateHistogramFacet;
 import org.elasticsearch.search.facet.filter.FilterFacet;
 import org.elasticsearch.search.facet.histogram.HistogramFacet;
@@ -44,12 +53,14 @@ import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
 import static org.elasticsearch.index.query.FilterBuilders.termFilter;
 import static org.elasticsearch.index.query.QueryBuilders.*;
 import static org.elasticsearch.search.facet.FacetBuilders.*;
+import static org.elasticsearch.search.facet.aggregation.AggregationBuilders.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 
@@ -341,6 +352,76 @@ public class SimpleFacetsTests extends AbstractNodesTests {
             FilterFacet facet = searchResponse.facets().facet("facet1");
             assertThat(facet.name(), equalTo("facet1"));
             assertThat(facet.count(), equalTo(2l));
+            facet = searchResponse.facets().facet("facet2");
+            assertThat(facet.count(), equalTo(1l));
+            facet = searchResponse.facets().facet("facet3");
+            assertThat(facet.count(), equalTo(2l));
+
+            // enough query/filter facets to be computed from the main query matches, mixed with one that has a facet filter
+            searchResponse = client.prepareSearch()
+                    .setQuery(termQuery("tag", "zzz"))
+                    .addFacet(filterFacet("facet1").filter(termFilter("stag", "111")))
+                    .addFacet(filterFacet("facet2").filter(termFilter("tag", "xxx")))
+                    .addFacet(filterFacet("facet3").filter(termFilter("tag", "yyy")))
+                    .addFacet(queryFacet("facet4").query(termQuery("tag", "yyy")))
+                    .addFacet(filterFacet("facet5").filter(termFilter("tag", "yyy")).facetFilter(termFilter("tag", "xxx")))
+                    .execute().actionGet();
+
+            assertThat(searchResponse.hits().totalHits(), equalTo(1l));
+            facet = searchResponse.facets().facet("facet1");
+            assertThat(facet.count(), equalTo(1l));
+            facet = searchResponse.facets().facet("facet2");
+            assertThat(facet.count(), equalTo(0l));
+            facet = searchResponse.facets().facet("facet3");
+            assertThat(facet.count(), equalTo(1l));
+            QueryFacet queryFacet = searchResponse.facets().facet("facet4");
+            assertThat(queryFacet.count(), equalTo(1l));
+            facet = searchResponse.facets().facet("facet5");
+            assertThat(facet.count(), equalTo(0l));
+        }
+    }
+
+    @Test
+    public void testFilterFacetsWithDeletes() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+        client.admin().indices().prepareCreate("test").execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        for (int i = 0; i < 10; i++) {
+            client.prepareIndex("test", "type1", Integer.toString(i)).setSource(jsonBuilder().startObject()
+                    .field("stag", "111")
+                    .field("tag", i % 2 == 0 ? "xxx" : "yyy")
+                    .endObject()).execute().actionGet();
+        }
+        client.admin().indices().prepareFlush().setRefresh(true).execute().actionGet();
+        // the deleted docs stay in the segments, but must not be counted
+        client.prepareDelete("test", "type1", "0").execute().actionGet();
+        client.prepareDelete("test", "type1", "1").execute().actionGet();
+        client.prepareDelete("test", "type1", "2").execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        for (int i = 0; i < numberOfRuns(); i++) {
+            SearchResponse searchResponse = client.prepareSearch()
+                    .setQuery(matchAllQuery())
+                    .addFacet(filterFacet("facet1").filter(termFilter("stag", "111")))
+                    .addFacet(filterFacet("facet2").filter(termFilter("tag", "xxx")))
+                    .addFacet(filterFacet("facet3").filter(termFilter("tag", "yyy")))
+                    .addFacet(queryFacet("facet4").query(termQuery("tag", "yyy")))
+                    .execute().actionGet();
+
+            assertThat(searchResponse.hits().totalHits(), equalTo(7l));
+            FilterFacet facet = searchResponse.facets().facet("facet1");
+            assertThat(facet.count(), equalTo(7l));
+            facet = searchResponse.facets().facet("facet2");
+            assertThat(facet.count(), equalTo(3l));
+            facet = searchResponse.facets().facet("facet3");
+            assertThat(facet.count(), equalTo(4l));
+            QueryFacet queryFacet = searchResponse.facets().facet("facet4");
+            assertThat(queryFacet.count(), equalTo(4l));
         }
     }
 
@@ -398,6 +479,11 @@ public class SimpleFacetsTests extends AbstractNodesTests {
         testTermsFacets("map");
     }
 
+    @Test
+    public void testTermsFacetsOrdinalsHint() throws Exception {
+        testTermsFacets("ordinals");
+    }
+
     private void testTermsFacets(String executionHint) throws Exception {
         try {
             client.admin().indices().prepareDelete("test").execute().actionGet();
@@ -808,6 +894,49 @@ public class SimpleFacetsTests extends AbstractNodesTests {
         }
     }
 
+    @Test
+    public void testStatsFacetsDocValuesMissing() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+        String mapping = jsonBuilder().startObject().startObject("type1").startObject("properties")
+                .startObject("num").field("type", "integer").field("doc_values", true).endObject()
+                .endObject().endObject().endObject().string();
+        client.admin().indices().prepareCreate("test").addMapping("type1", mapping).execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        client.prepareIndex("test", "type1").setSource(jsonBuilder().startObject()
+                .field("num", 1)
+                .endObject()).execute().actionGet();
+        client.prepareIndex("test", "type1").setSource(jsonBuilder().startObject()
+                .field("other", 1)
+                .endObject()).execute().actionGet();
+        client.admin().indices().prepareFlush().setRefresh(true).execute().actionGet();
+
+        client.prepareIndex("test", "type1").setSource(jsonBuilder().startObject()
+                .field("num", 2)
+                .endObject()).execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        for (int i = 0; i < numberOfRuns(); i++) {
+            SearchResponse searchResponse = client.prepareSearch()
+                    .setQuery(matchAllQuery())
+                    .addFacet(statisticalFacet("stats1").field("num"))
+                    .execute().actionGet();
+
+            assertThat(Arrays.toString(searchResponse.shardFailures()), searchResponse.failedShards(), equalTo(0));
+            assertThat(searchResponse.hits().totalHits(), equalTo(3l));
+
+            StatisticalFacet facet = searchResponse.facets().facet("stats1");
+            assertThat(facet.count(), equalTo(2l));
+            assertThat(facet.total(), equalTo(3d));
+            assertThat(facet.min(), equalTo(1d));
+            assertThat(facet.max(), equalTo(2d));
+        }
+    }
+
     @Test
     public void testStatsFacets() throws Exception {
         try {
@@ -1932,6 +2061,179 @@ public class SimpleFacetsTests extends AbstractNodesTests {
         return timeInMillis(time, DateTimeZone.UTC);
     }
 
+    @Test
+    public void testAggregationFacet() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+        String mapping = jsonBuilder().startObject().startObject("type1").startObject("properties")
+                .startObject("host").field("type", "string").field("index", "not_analyzed").endObject()
+                .startObject("latency").field("type", "long").endObject()
+                .startObject("date").field("type", "date").endObject()
+                .endObject().endObject().endObject().string();
+        client.admin().indices().prepareCreate("test").addMapping("type1", mapping).execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        client.prepareIndex("test", "type1").setSource(jsonBuilder().startObject()
+                .field("host", "host1")
+                .field("latency", 10)
+                .field("date", "1970-01-01T00:10:00")
+                .endObject()).execute().actionGet();
+        client.prepareIndex("test", "type1").setSource(jsonBuilder().startObject()
+                .field("host", "host1")
+                .field("latency", 30)
+                .field("date", "1970-01-01T01:10:00")
+                .endObject()).execute().actionGet();
+        client.admin().indices().prepareFlush().setRefresh(true).execute().actionGet();
+
+        client.prepareIndex("test", "type1").setSource(jsonBuilder().startObject()
+                .field("host", "host1")
+                .field("latency", 20)
+                .field("date", "1970-01-01T00:20:00")
+                .endObject()).execute().actionGet();
+        client.prepareIndex("test", "type1").setSource(jsonBuilder().startObject()
+                .field("host", "host2")
+                .field("latency", 100)
+                .field("date", "1970-01-01T00:30:00")
+                .endObject()).execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        for (int i = 0; i < numberOfRuns(); i++) {
+            SearchResponse searchResponse = client.prepareSearch()
+                    .setQuery(matchAllQuery())
+                    .addFacet(aggregationFacet("hosts", terms("hosts").field("host")
+                            .subAggregation(dateHistogram("per_hour").field("date").interval("hour")
+                                    .subAggregation(stats("latency").field("latency")))
+                            .subAggregation(range("latency_ranges").field("latency").addUnboundedTo(25).addUnboundedFrom(25))
+                            .subAggregation(filter("slow", termFilter("latency", 100)))))
+                    .execute().actionGet();
+
+            if (searchResponse.failedShards() > 0) {
+                logger.warn("Failed shards:");
+                for (ShardSearchFailure shardSearchFailure : searchResponse.shardFailures()) {
+                    logger.warn("-> {}", shardSearchFailure);
+                }
+            }
+            assertThat(searchResponse.failedShards(), equalTo(0));
+
+            AggregationFacet facet = searchResponse.facets().facet("hosts");
+            assertThat(facet.name(), equalTo("hosts"));
+            InternalTerms hosts = facet.aggregation();
+            assertThat(hosts.buckets().size(), equalTo(2));
+            assertThat(hosts.buckets().get(0).term(), equalTo("host1"));
+            assertThat(hosts.buckets().get(0).docCount(), equalTo(3l));
+            assertThat(hosts.buckets().get(1).term(), equalTo("host2"));
+            assertThat(hosts.buckets().get(1).docCount(), equalTo(1l));
+
+            InternalHistogram perHour = hosts.buckets().get(0).aggregations().get("per_hour");
+            assertThat(perHour.buckets().size(), equalTo(2));
+            assertThat(perHour.buckets().get(0).key(), equalTo(0l));
+            assertThat(perHour.buckets().get(0).docCount(), equalTo(2l));
+            InternalStats latency = perHour.buckets().get(0).aggregations().get("latency");
+            assertThat(latency.count(), equalTo(2l));
+            assertThat(latency.min(), closeTo(10, 0.000001));
+            assertThat(latency.max(), closeTo(20, 0.000001));
+            assertThat(latency.avg(), closeTo(15, 0.000001));
+            assertThat(perHour.buckets().get(1).key(), equalTo(3600000l));
+            assertThat(perHour.buckets().get(1).docCount(), equalTo(1l));
+            latency = perHour.buckets().get(1).aggregations().get("latency");
+            assertThat(latency.sum(), closeTo(30, 0.000001));
+
+            InternalRange latencyRanges = hosts.buckets().get(0).aggregations().get("latency_ranges");
+            assertThat(latencyRanges.buckets().size(), equalTo(2));
+            assertThat(latencyRanges.buckets().get(0).docCount(), equalTo(2l));
+            assertThat(latencyRanges.buckets().get(1).docCount(), equalTo(1l));
+
+            InternalFilter slow = hosts.buckets().get(0).aggregations().get("slow");
+            assertThat(slow.docCount(), equalTo(0l));
+            slow = hosts.buckets().get(1).aggregations().get("slow");
+            assertThat(slow.docCount(), equalTo(1l));
+        }
+    }
+
+    @Test
+    public void testSampledFacets() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+        client.admin().indices().prepareCreate("test").execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        for (int i = 0; i < 100; i++) {
+            client.prepareIndex("test", "type1", Integer.toString(i)).setSource(jsonBuilder().startObject()
+                    .field("stag", "111")
+                    .field("tag", i % 2 == 0 ? "even" : "odd")
+                    .field("num", i)
+                    .endObject()).execute().actionGet();
+        }
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        for (int i = 0; i < numberOfRuns(); i++) {
+            // the sample is larger than the hits, counts are exact
+            SearchResponse searchResponse = client.prepareSearch()
+                    .setQuery(matchAllQuery())
+                    .addFacet(termsFacet("facet1").field("tag").sample(1000, "random"))
+                    .execute().actionGet();
+            assertThat(searchResponse.failedShards(), equalTo(0));
+
+            TermsFacet termsFacet = searchResponse.facets().facet("facet1");
+            assertThat(termsFacet.entries().size(), equalTo(2));
+            assertThat(termsFacet.entries().get(0).count(), equalTo(50));
+            assertThat(termsFacet.entries().get(1).count(), equalTo(50));
+            FacetSample sample = ((SampledFacet) termsFacet).sample();
+            assertThat(sample.size(), equalTo(100l));
+            assertThat(sample.from(), equalTo(100l));
+
+            // a term every doc has is extrapolated back to the number of hits
+            searchResponse = client.prepareSearch()
+                    .setQuery(matchAllQuery())
+                    .addFacet(termsFacet("facet1").field("stag").sample(5, "random"))
+                    .addFacet(termsFacet("facet2").field("num").sample(5, "top"))
+                    .addFacet(filterFacet("facet3").filter(termFilter("stag", "111")).sample(5, "random"))
+                    .execute().actionGet();
+            assertThat(searchResponse.failedShards(), equalTo(0));
+
+            termsFacet = searchResponse.facets().facet("facet1");
+            assertThat(termsFacet.entries().size(), equalTo(1));
+            assertThat(termsFacet.entries().get(0).count(), equalTo(100));
+            sample = ((SampledFacet) termsFacet).sample();
+            assertThat(sample.size(), lessThanOrEqualTo(5l * numberOfShards()));
+            assertThat(sample.from(), equalTo(100l));
+
+            termsFacet = searchResponse.facets().facet("facet2");
+            assertThat(((SampledFacet) termsFacet).sample().size(), lessThanOrEqualTo(5l * numberOfShards()));
+            assertThat(termsFacet.totalCount(), equalTo(100l));
+
+            FilterFacet filterFacet = searchResponse.facets().facet("facet3");
+            assertThat(filterFacet.count(), equalTo(100l));
+            assertThat(((SampledFacet) filterFacet).sample().from(), equalTo(100l));
+
+            // the sample size is capped to the docs of each shard
+            searchResponse = client.prepareSearch()
+                    .setQuery(matchAllQuery())
+                    .addFacet(termsFacet("facet1").field("tag").sample(Integer.MAX_VALUE, "random"))
+                    .execute().actionGet();
+            assertThat(searchResponse.failedShards(), equalTo(0));
+            termsFacet = searchResponse.facets().facet("facet1");
+            assertThat(((SampledFacet) termsFacet).sample().size(), equalTo(100l));
+            assertThat(termsFacet.entries().get(0).count(), equalTo(50));
+
+            try {
+                client.prepareSearch()
+                        .setQuery(matchAllQuery())
+                        .addFacet(termsFacet("facet1").field("tag").sample(0, "random"))
+                        .execute().actionGet();
+                assert false;
+            } catch (SearchPhaseExecutionException e) {
+                // expected
+            }
+        }
+    }
+
     private long timeInMillis(String time, DateTimeZone zone) {
         return ISODateTimeFormat.dateOptionalTimeParser().withZone(zone).parseMillis(time);
     }
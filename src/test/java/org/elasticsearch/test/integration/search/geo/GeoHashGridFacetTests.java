@@ -0,0 +1,124 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.integration.search.geo;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.geo.GeoHashUtils;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.facet.geohashgrid.GeoHashGridFacet;
+import org.elasticsearch.test.integration.AbstractNodesTests;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.search.facet.FacetBuilders.geoHashGridFacet;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ *
+ */
+public class GeoHashGridFacetTests extends AbstractNodesTests {
+
+    private Client client;
+
+    @BeforeClass
+    public void createNodes() throws Exception {
+        startNode("server1");
+        startNode("server2");
+        client = getClient();
+    }
+
+    @AfterClass
+    public void closeNodes() {
+        client.close();
+        closeAllNodes();
+    }
+
+    protected Client getClient() {
+        return client("server1");
+    }
+
+    @Test
+    public void simpleGeoHashGridFacetTests() throws Exception {
+        try {
+            client.admin().indices().prepareDelete("test").execute().actionGet();
+        } catch (Exception e) {
+            // ignore
+        }
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type1")
+                .startObject("properties").startObject("location").field("type", "geo_point").field("lat_lon", true).endObject().endObject()
+                .endObject().endObject().string();
+        client.admin().indices().prepareCreate("test").addMapping("type1", mapping).execute().actionGet();
+        client.admin().cluster().prepareHealth().setWaitForGreenStatus().execute().actionGet();
+
+        client.prepareIndex("test", "type1", "1").setSource(jsonBuilder().startObject()
+                .field("name", "New York")
+                .startObject("location").field("lat", 40.7143528).field("lon", -74.0059731).endObject()
+                .endObject()).execute().actionGet();
+        client.prepareIndex("test", "type1", "2").setSource(jsonBuilder().startObject()
+                .field("name", "Tribeca")
+                .startObject("location").field("lat", 40.718266).field("lon", -74.007819).endObject()
+                .endObject()).execute().actionGet();
+        // two points in the same cell, counted once
+        client.prepareIndex("test", "type1", "3").setSource(jsonBuilder().startObject()
+                .field("name", "Wall Street and Soho")
+                .startArray("location")
+                .startObject().field("lat", 40.7051157).field("lon", -74.0088305).endObject()
+                .startObject().field("lat", 40.7247222).field("lon", -74).endObject()
+                .endArray()
+                .endObject()).execute().actionGet();
+        client.prepareIndex("test", "type1", "4").setSource(jsonBuilder().startObject()
+                .field("name", "London")
+                .startObject("location").field("lat", 51.5072).field("lon", -0.1275).endObject()
+                .endObject()).execute().actionGet();
+        client.admin().indices().prepareRefresh().execute().actionGet();
+
+        String newYork = GeoHashUtils.encode(40.7143528, -74.0059731, 3);
+        String london = GeoHashUtils.encode(51.5072, -0.1275, 3);
+
+        SearchResponse searchResponse = client.prepareSearch()
+                .setQuery(matchAllQuery())
+                .addFacet(geoHashGridFacet("grid").field("location").precision(3))
+                .execute().actionGet();
+
+        assertThat(searchResponse.failedShards(), equalTo(0));
+        GeoHashGridFacet facet = searchResponse.facets().facet("grid");
+        assertThat(facet.entries().size(), equalTo(2));
+        assertThat(facet.entries().get(0).geohash(), equalTo(newYork));
+        assertThat(facet.entries().get(0).count(), equalTo(3l));
+        assertThat(facet.entries().get(1).geohash(), equalTo(london));
+        assertThat(facet.entries().get(1).count(), equalTo(1l));
+
+        searchResponse = client.prepareSearch()
+                .setQuery(matchAllQuery())
+                .addFacet(geoHashGridFacet("grid").field("location").precision(3).size(1).shardSize(10))
+                .execute().actionGet();
+
+        assertThat(searchResponse.failedShards(), equalTo(0));
+        facet = searchResponse.facets().facet("grid");
+        assertThat(facet.entries().size(), equalTo(1));
+        assertThat(facet.entries().get(0).geohash(), equalTo(newYork));
+        assertThat(facet.entries().get(0).count(), equalTo(3l));
+    }
+}
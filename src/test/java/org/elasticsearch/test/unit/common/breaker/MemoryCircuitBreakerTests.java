@@ -0,0 +1,87 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.common.breaker;
+
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.testng.Assert.fail;
+
+/**
+ */
+public class MemoryCircuitBreakerTests {
+
+    private final ESLogger logger = Loggers.getLogger(MemoryCircuitBreakerTests.class);
+
+    @Test
+    public void testBreaks() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(100), 1.0, logger);
+        breaker.addEstimateBytesAndMaybeBreak(60, "first");
+        assertThat(breaker.getUsed(), equalTo(60l));
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(50, "second");
+            fail("should have broken");
+        } catch (CircuitBreakingException e) {
+            // all is well
+        }
+        assertThat(breaker.getUsed(), equalTo(60l));
+        assertThat(breaker.getTrippedCount(), equalTo(1l));
+
+        breaker.addWithoutBreaking(-60);
+        breaker.addEstimateBytesAndMaybeBreak(50, "second");
+        assertThat(breaker.getUsed(), equalTo(50l));
+    }
+
+    @Test
+    public void testOverhead() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(100), 2.0, logger);
+        breaker.addEstimateBytesAndMaybeBreak(50, "first");
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(1, "second");
+            fail("should have broken");
+        } catch (CircuitBreakingException e) {
+            // all is well
+        }
+        breaker.setOverhead(1.0);
+        breaker.addEstimateBytesAndMaybeBreak(1, "second");
+        assertThat(breaker.getUsed(), equalTo(51l));
+    }
+
+    @Test
+    public void testUpdateLimit() {
+        MemoryCircuitBreaker breaker = new MemoryCircuitBreaker(new ByteSizeValue(10), 1.0, logger);
+        try {
+            breaker.addEstimateBytesAndMaybeBreak(50, "first");
+            fail("should have broken");
+        } catch (CircuitBreakingException e) {
+            // all is well
+        }
+        breaker.setLimit(new ByteSizeValue(100));
+        breaker.addEstimateBytesAndMaybeBreak(50, "first");
+        assertThat(breaker.getMaximum(), equalTo(100l));
+        assertThat(breaker.getUsed(), equalTo(50l));
+    }
+}
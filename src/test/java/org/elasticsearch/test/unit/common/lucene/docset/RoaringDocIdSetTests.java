@@ -0,0 +1,157 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.common.lucene.docset;
+
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.common.lucene.docset.AndDocIdSet;
+import org.elasticsearch.common.lucene.docset.OrDocIdSet;
+import org.elasticsearch.common.lucene.docset.RoaringDocIdSet;
+import org.apache.lucene.search.DocIdSet;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ */
+public class RoaringDocIdSetTests {
+
+    private final Random random = new Random();
+
+    private FixedBitSet randomBits(int maxDoc, float density) {
+        FixedBitSet bits = new FixedBitSet(maxDoc);
+        for (int i = 0; i < maxDoc; i++) {
+            if (random.nextFloat() < density) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    private FixedBitSet randomBits(int maxDoc) {
+        // mix of sparse, medium and dense blocks
+        FixedBitSet bits = new FixedBitSet(maxDoc);
+        for (int start = 0; start < maxDoc; start += 1 << 16) {
+            float density = new float[]{0f, 0.001f, 0.3f, 0.999f, 1f}[random.nextInt(5)];
+            for (int i = start; i < Math.min(maxDoc, start + (1 << 16)); i++) {
+                if (random.nextFloat() < density) {
+                    bits.set(i);
+                }
+            }
+        }
+        return bits;
+    }
+
+    private void assertSameDocs(FixedBitSet expected, DocIdSet actual) throws Exception {
+        DocIdSetIterator expectedIt = expected.iterator();
+        DocIdSetIterator actualIt = actual.iterator();
+        int doc;
+        while ((doc = expectedIt.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+            assertThat(actualIt.nextDoc(), equalTo(doc));
+        }
+        assertThat(actualIt.nextDoc(), equalTo(DocIdSetIterator.NO_MORE_DOCS));
+    }
+
+    @Test
+    public void testIterationAndRandomAccess() throws Exception {
+        for (int iter = 0; iter < 20; iter++) {
+            int maxDoc = 1 + random.nextInt(300000);
+            FixedBitSet bits = randomBits(maxDoc);
+            RoaringDocIdSet set = RoaringDocIdSet.build(bits.iterator(), maxDoc);
+            assertThat(set.cardinality(), equalTo(bits.cardinality()));
+            assertSameDocs(bits, set);
+            for (int i = 0; i < 1000; i++) {
+                int doc = random.nextInt(maxDoc);
+                assertThat(set.bits().get(doc), equalTo(bits.get(doc)));
+            }
+        }
+    }
+
+    @Test
+    public void testAdvance() throws Exception {
+        for (int iter = 0; iter < 20; iter++) {
+            int maxDoc = 1 + random.nextInt(300000);
+            FixedBitSet bits = randomBits(maxDoc);
+            RoaringDocIdSet set = RoaringDocIdSet.build(bits.iterator(), maxDoc);
+            DocIdSetIterator it = set.iterator();
+            int doc = -1;
+            while (true) {
+                int target = doc + 1 + random.nextInt(5000);
+                int expected = target >= maxDoc ? -1 : bits.nextSetBit(target);
+                if (random.nextBoolean()) {
+                    doc = it.advance(target);
+                } else {
+                    // next followed by advance when needed, to exercise both paths
+                    doc = it.nextDoc();
+                    if (doc != DocIdSetIterator.NO_MORE_DOCS && doc < target) {
+                        doc = it.advance(target);
+                    }
+                }
+                if (expected == -1) {
+                    assertThat(doc, equalTo(DocIdSetIterator.NO_MORE_DOCS));
+                    break;
+                }
+                assertThat(doc, equalTo(expected));
+            }
+            assertThat(it.nextDoc(), equalTo(DocIdSetIterator.NO_MORE_DOCS));
+        }
+    }
+
+    @Test
+    public void testIntersectAndUnion() throws Exception {
+        for (int iter = 0; iter < 10; iter++) {
+            int maxDoc = 1 + random.nextInt(300000);
+            FixedBitSet bits1 = randomBits(maxDoc);
+            FixedBitSet bits2 = randomBits(maxDoc);
+            RoaringDocIdSet set1 = RoaringDocIdSet.build(bits1.iterator(), maxDoc);
+            RoaringDocIdSet set2 = RoaringDocIdSet.build(bits2.iterator(), maxDoc);
+
+            FixedBitSet and = bits1.clone();
+            and.and(bits2);
+            assertSameDocs(and, RoaringDocIdSet.intersect(set1, set2));
+            assertSameDocs(and, new AndDocIdSet(new DocIdSet[]{set1, set2}));
+
+            FixedBitSet or = bits1.clone();
+            or.or(bits2);
+            assertSameDocs(or, RoaringDocIdSet.union(set1, set2));
+            assertSameDocs(or, new OrDocIdSet(new DocIdSet[]{set1, set2}));
+        }
+    }
+
+    @Test
+    public void testCompression() throws Exception {
+        int maxDoc = 1 << 20;
+        long fixedBitSetSize = FixedBitSet.bits2words(maxDoc) * 8;
+
+        RoaringDocIdSet sparse = RoaringDocIdSet.build(randomBits(maxDoc, 0.001f).iterator(), maxDoc);
+        assertThat(sparse.ramBytesUsed(), lessThan(fixedBitSetSize / 10));
+
+        RoaringDocIdSet dense = RoaringDocIdSet.build(randomBits(maxDoc, 0.999f).iterator(), maxDoc);
+        assertThat(dense.ramBytesUsed(), lessThan(fixedBitSetSize / 10));
+
+        RoaringDocIdSet medium = RoaringDocIdSet.build(randomBits(maxDoc, 0.5f).iterator(), maxDoc);
+        assertThat(medium.ramBytesUsed(), lessThan(fixedBitSetSize + 1024));
+        assertSameDocs(medium.toFixedBitSet(), medium);
+    }
+}
@@ -218,6 +218,34 @@ public class XBooleanFilterTests {
         }
     }
 
+    @Test
+    public void testClauseOrderDoesNotMatter() throws Exception {
+        for (boolean slowerBitsBackedFilter : new boolean[]{false, true}) {
+            List<XBooleanFilter> booleanFilters = new ArrayList<XBooleanFilter>();
+            booleanFilters.add(createBooleanFilter(
+                    newFilterClause(0, 'a', MUST, slowerBitsBackedFilter), newFilterClause(2, 'a', SHOULD, !slowerBitsBackedFilter),
+                    newFilterClause(3, 'b', SHOULD, slowerBitsBackedFilter)
+            ));
+            booleanFilters.add(createBooleanFilter(
+                    newFilterClause(2, 'a', SHOULD, !slowerBitsBackedFilter), newFilterClause(3, 'b', SHOULD, slowerBitsBackedFilter),
+                    newFilterClause(0, 'a', MUST, slowerBitsBackedFilter)
+            ));
+            booleanFilters.add(createBooleanFilter(
+                    newFilterClause(1, 'b', MUST_NOT, !slowerBitsBackedFilter), newFilterClause(0, 'a', MUST, slowerBitsBackedFilter),
+                    newFilterClause(3, 'a', MUST, !slowerBitsBackedFilter)
+            ));
+
+            for (XBooleanFilter booleanFilter : booleanFilters) {
+                FixedBitSet result = new FixedBitSet(reader.maxDoc());
+                result.or(booleanFilter.getDocIdSet(reader.getContext(), reader.getLiveDocs()).iterator());
+                assertThat(result.cardinality(), equalTo(1));
+                assertThat(result.get(0), equalTo(false));
+                assertThat(result.get(1), equalTo(false));
+                assertThat(result.get(2), equalTo(true));
+            }
+        }
+    }
+
     private static FilterClause newFilterClause(int field, char character, BooleanClause.Occur occur, boolean slowerBitsBackedFilter) {
         Filter filter;
         if (slowerBitsBackedFilter) {
@@ -37,6 +37,7 @@ import org.elasticsearch.index.IndexNameModule;
 import org.elasticsearch.index.analysis.AnalysisModule;
 import org.elasticsearch.index.analysis.AnalysisService;
 import org.elasticsearch.index.settings.IndexSettingsModule;
+import org.elasticsearch.indices.analysis.AnalysisCacheStats;
 import org.elasticsearch.indices.analysis.IndicesAnalysisModule;
 import org.elasticsearch.indices.analysis.IndicesAnalysisService;
 import org.hamcrest.MatcherAssert;
@@ -81,6 +82,47 @@ public class SynonymsAnalysisTest {
 
     }
 
+    @Test
+    public void testSynonymMapsSharedAcrossIndices() {
+        Settings settings = settingsBuilder().loadFromClasspath("org/elasticsearch/test/unit/index/analysis/synonyms/synonyms.json").build();
+
+        Injector parentInjector = new ModulesBuilder().add(
+                new SettingsModule(settings),
+                new EnvironmentModule(new Environment(settings)),
+                new IndicesAnalysisModule())
+                .createInjector();
+        IndicesAnalysisService indicesAnalysisService = parentInjector.getInstance(IndicesAnalysisService.class);
+
+        AnalysisService analysisService1 = createAnalysisService(new Index("test1"), settings, parentInjector);
+        AnalysisCacheStats stats = indicesAnalysisService.sharedResourcesStats();
+        long entries = stats.getEntries();
+        long misses = stats.getMissCount();
+        MatcherAssert.assertThat(entries > 0, equalTo(true));
+        MatcherAssert.assertThat(stats.getMemorySizeInBytes() > 0, equalTo(true));
+
+        // identical settings on another index, nothing gets built again
+        AnalysisService analysisService2 = createAnalysisService(new Index("test2"), settings, parentInjector);
+        stats = indicesAnalysisService.sharedResourcesStats();
+        MatcherAssert.assertThat(stats.getEntries(), equalTo(entries));
+        MatcherAssert.assertThat(stats.getMissCount(), equalTo(misses));
+        MatcherAssert.assertThat(stats.getHitCount() >= entries, equalTo(true));
+
+        // released once no index uses them anymore
+        analysisService1.close();
+        MatcherAssert.assertThat(indicesAnalysisService.sharedResourcesStats().getEntries(), equalTo(entries));
+        analysisService2.close();
+        MatcherAssert.assertThat(indicesAnalysisService.sharedResourcesStats().getEntries(), equalTo(0l));
+    }
+
+    private AnalysisService createAnalysisService(Index index, Settings settings, Injector parentInjector) {
+        Injector injector = new ModulesBuilder().add(
+                new IndexSettingsModule(index, settings),
+                new IndexNameModule(index),
+                new AnalysisModule(settings, parentInjector.getInstance(IndicesAnalysisService.class)))
+                .createChildInjector(parentInjector);
+        return injector.getInstance(AnalysisService.class);
+    }
+
     private void match(String analyzerName, String source, String target) throws IOException {
 
         Analyzer analyzer = analysisService.analyzer(analyzerName).analyzer();
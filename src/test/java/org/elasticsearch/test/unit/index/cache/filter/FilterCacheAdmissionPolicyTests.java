@@ -0,0 +1,97 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.cache.filter;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SlowCompositeReaderWrapper;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.cache.filter.support.FilterCacheAdmissionPolicy;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class FilterCacheAdmissionPolicyTests {
+
+    private AtomicReader reader(int numDocs) throws Exception {
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        for (int i = 0; i < numDocs; i++) {
+            writer.addDocument(new Document());
+        }
+        AtomicReader reader = new SlowCompositeReaderWrapper(DirectoryReader.open(writer, true));
+        writer.close();
+        return reader;
+    }
+
+    @Test
+    public void testMinFrequency() throws Exception {
+        AtomicReader reader = reader(10);
+        FilterCacheAdmissionPolicy policy = new FilterCacheAdmissionPolicy(3, 0, 100);
+        assertThat(policy.admit("a", reader), equalTo(false));
+        assertThat(policy.admit("b", reader), equalTo(false));
+        assertThat(policy.admit("a", reader), equalTo(false));
+        assertThat(policy.admit("a", reader), equalTo(true));
+        assertThat(policy.admit("b", reader), equalTo(false));
+
+        policy.clear();
+        assertThat(policy.admit("b", reader), equalTo(false));
+        reader.close();
+    }
+
+    @Test
+    public void testAlwaysAdmit() throws Exception {
+        AtomicReader reader = reader(10);
+        FilterCacheAdmissionPolicy policy = new FilterCacheAdmissionPolicy(1, 0, 100);
+        assertThat(policy.admit("a", reader), equalTo(true));
+        assertThat(policy.admit("a", reader), equalTo(true));
+        reader.close();
+    }
+
+    @Test
+    public void testMinSegmentSize() throws Exception {
+        AtomicReader small = reader(10);
+        AtomicReader large = reader(100);
+        FilterCacheAdmissionPolicy policy = new FilterCacheAdmissionPolicy(1, 50, 100);
+        assertThat(policy.admit("a", small), equalTo(false));
+        assertThat(policy.admit("a", small), equalTo(false));
+        assertThat(policy.admit("a", large), equalTo(true));
+        small.close();
+        large.close();
+    }
+
+    @Test
+    public void testHistorySize() throws Exception {
+        AtomicReader reader = reader(10);
+        FilterCacheAdmissionPolicy policy = new FilterCacheAdmissionPolicy(2, 0, 1);
+        assertThat(policy.admit("a", reader), equalTo(false));
+        // pushes "a" out of the history
+        assertThat(policy.admit("b", reader), equalTo(false));
+        assertThat(policy.admit("a", reader), equalTo(false));
+        assertThat(policy.admit("a", reader), equalTo(true));
+        reader.close();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.cache.id;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SlowCompositeReaderWrapper;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.bytes.HashedBytesArray;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.cache.id.IdReaderTypeCache;
+import org.elasticsearch.index.cache.id.simple.SimpleIdCache;
+import org.elasticsearch.index.mapper.internal.ParentFieldMapper;
+import org.elasticsearch.index.mapper.internal.UidFieldMapper;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class SimpleIdCacheTests {
+
+    private static Document doc(String uid, String parentUid) {
+        Document document = new Document();
+        document.add(new StringField(UidFieldMapper.NAME, uid, Field.Store.NO));
+        if (parentUid != null) {
+            document.add(new StringField(ParentFieldMapper.NAME, parentUid, Field.Store.NO));
+        }
+        return document;
+    }
+
+    @Test
+    public void testOrdinals() throws Exception {
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        writer.addDocument(doc("parent#1", null)); // 0
+        writer.addDocument(doc("child#1", "parent#1")); // 1
+        writer.addDocument(doc("child#2", "parent#2")); // 2, parent lives in another segment
+        writer.addDocument(doc("parent#3", null)); // 3
+        writer.addDocument(doc("child#3", "parent#3")); // 4
+        writer.addDocument(doc("child#4", "parent#1")); // 5
+        AtomicReader reader = new SlowCompositeReaderWrapper(DirectoryReader.open(writer, true));
+        writer.close();
+
+        SimpleIdCache idCache = new SimpleIdCache(new Index("test"), ImmutableSettings.Builder.EMPTY_SETTINGS);
+        idCache.refresh(reader.getContext().leaves());
+
+        IdReaderTypeCache parentCache = idCache.reader(reader).type("parent");
+        // 0 is reserved for docs without an id, then 1, 2 and 3
+        assertThat(parentCache.numOrds(), equalTo(4));
+        assertThat(parentCache.idByOrd(1, new BytesRef()).utf8ToString(), equalTo("1"));
+        assertThat(parentCache.idByOrd(2, new BytesRef()).utf8ToString(), equalTo("2"));
+        assertThat(parentCache.idByOrd(3, new BytesRef()).utf8ToString(), equalTo("3"));
+        assertThat(parentCache.ordById(new BytesRef("2")), equalTo(2));
+        assertThat(parentCache.ordById(new BytesRef("4")), equalTo(0));
+
+        // parent and child docs share the ordinals
+        assertThat(parentCache.ordByDoc(0), equalTo(1));
+        assertThat(parentCache.parentOrdByDoc(1), equalTo(1));
+        assertThat(parentCache.parentOrdByDoc(5), equalTo(1));
+        assertThat(parentCache.parentOrdByDoc(2), equalTo(2));
+        assertThat(parentCache.ordByDoc(3), equalTo(3));
+        assertThat(parentCache.parentOrdByDoc(4), equalTo(3));
+        assertThat(parentCache.parentOrdByDoc(0), equalTo(0));
+        assertThat(parentCache.ordByDoc(1), equalTo(0));
+
+        assertThat(parentCache.docByOrd(1), equalTo(0));
+        assertThat(parentCache.docByOrd(2), equalTo(-1));
+        assertThat(parentCache.docByOrd(3), equalTo(3));
+
+        assertThat(parentCache.idByDoc(3).toUtf8(), equalTo("3"));
+        assertThat(parentCache.parentIdByDoc(2).toUtf8(), equalTo("2"));
+        assertThat(parentCache.parentIdByDoc(0), nullValue());
+        assertThat(parentCache.docById(new HashedBytesArray("3")), equalTo(3));
+        assertThat(parentCache.docById(new HashedBytesArray("2")), equalTo(-1));
+
+        IdReaderTypeCache childCache = idCache.reader(reader).type("child");
+        assertThat(childCache.numOrds(), equalTo(5));
+        assertThat(childCache.ordByDoc(5), equalTo(4));
+        assertThat(childCache.ordByDoc(0), equalTo(0));
+        assertThat(childCache.parentOrdByDoc(1), equalTo(0));
+
+        assertThat(idCache.sizeInBytes(), greaterThan(0l));
+        reader.close();
+    }
+
+    @Test
+    public void testSeekOrd() throws Exception {
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        for (int i = 10; i < 60; i += 2) {
+            writer.addDocument(doc("parent#" + i, null));
+        }
+        AtomicReader reader = new SlowCompositeReaderWrapper(DirectoryReader.open(writer, true));
+        writer.close();
+
+        SimpleIdCache idCache = new SimpleIdCache(new Index("test"), ImmutableSettings.Builder.EMPTY_SETTINGS);
+        idCache.refresh(reader.getContext().leaves());
+        IdReaderTypeCache parentCache = idCache.reader(reader).type("parent");
+        // ids 10, 12, ..., 58 have the ordinals 1 to 25
+        assertThat(parentCache.numOrds(), equalTo(26));
+
+        for (int fromOrd = 1; fromOrd <= 25; fromOrd++) {
+            for (int i = 10; i < 60; i += 2) {
+                int ord = (i - 10) / 2 + 1;
+                if (ord >= fromOrd) {
+                    assertThat(parentCache.seekOrd(new BytesRef(Integer.toString(i)), fromOrd), equalTo(ord));
+                    // missing id, the next ordinal holds the next greater one
+                    assertThat(parentCache.seekOrd(new BytesRef(Integer.toString(i + 1)), fromOrd), equalTo(-(ord + 1)));
+                } else {
+                    assertThat(parentCache.seekOrd(new BytesRef(Integer.toString(i)), fromOrd), equalTo(-fromOrd));
+                }
+            }
+        }
+        assertThat(parentCache.seekOrd(new BytesRef("0"), 1), equalTo(-1));
+        assertThat(parentCache.seekOrd(new BytesRef("99"), 1), equalTo(-26));
+        assertThat(parentCache.seekOrd(new BytesRef("99"), 26), equalTo(-26));
+        reader.close();
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.fielddata;
+
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.fielddata.*;
+import org.elasticsearch.index.fielddata.plain.DocValuesBytesAtomicFieldData;
+import org.elasticsearch.index.fielddata.plain.DocValuesNumericAtomicFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.core.NumberFieldMapper;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class DocValuesFieldDataTests extends AbstractFieldDataTests {
+
+    @Override
+    protected FieldDataType getFieldDataType() {
+        return new FieldDataType("long", ImmutableSettings.builder().put("format", FieldDataType.DOC_VALUES_FORMAT));
+    }
+
+    private IndexFieldData getForField(String fieldName, String type) {
+        return ifdService.getForField(new FieldMapper.Names(fieldName),
+                new FieldDataType(type, ImmutableSettings.builder().put("format", FieldDataType.DOC_VALUES_FORMAT)));
+    }
+
+    @Test
+    public void testNumericValues() throws Exception {
+        for (long value : new long[]{2, 1, 3}) {
+            Document d = new Document();
+            d.add(new LongField("value", value, Field.Store.NO));
+            d.add(new PackedLongDocValuesField("value", value));
+            writer.addDocument(d);
+        }
+        AtomicReaderContext readerContext = refreshReader();
+        IndexNumericFieldData indexFieldData = (IndexNumericFieldData) getForField("value");
+        AtomicNumericFieldData fieldData = indexFieldData.load(readerContext);
+
+        assertThat(fieldData, instanceOf(DocValuesNumericAtomicFieldData.class));
+        assertThat(fieldData.getMemorySizeInBytes(), equalTo(0l));
+        assertThat(fieldData.isMultiValued(), equalTo(false));
+
+        LongValues longValues = fieldData.getLongValues();
+        assertThat(longValues.getValue(0), equalTo(2l));
+        assertThat(longValues.getValue(1), equalTo(1l));
+        assertThat(longValues.getValue(2), equalTo(3l));
+
+        DoubleValues doubleValues = fieldData.getDoubleValues();
+        assertThat(doubleValues.getValue(2), equalTo(3d));
+
+        StringValues stringValues = fieldData.getStringValues();
+        assertThat(stringValues.getValue(1), equalTo("1"));
+    }
+
+    @Test
+    public void testMissingNumericValues() throws Exception {
+        Long[] values = new Long[]{2l, null, 3l};
+        for (Long value : values) {
+            Document d = new Document();
+            if (value != null) {
+                d.add(new LongField("value", value, Field.Store.NO));
+                d.add(new PackedLongDocValuesField("value", value));
+                // what the mapper adds along with the doc values
+                d.add(new PackedLongDocValuesField(NumberFieldMapper.docValuesPresenceFieldName("value"), 1));
+            }
+            writer.addDocument(d);
+        }
+        AtomicReaderContext readerContext = refreshReader();
+        IndexNumericFieldData indexFieldData = (IndexNumericFieldData) getForField("value");
+        AtomicNumericFieldData fieldData = indexFieldData.load(readerContext);
+
+        assertThat(fieldData, instanceOf(DocValuesNumericAtomicFieldData.class));
+        // presence is read from doc values as well, nothing is loaded on the heap
+        assertThat(fieldData.getMemorySizeInBytes(), equalTo(0l));
+
+        LongValues longValues = fieldData.getLongValues();
+        assertThat(longValues.hasValue(0), equalTo(true));
+        assertThat(longValues.hasValue(1), equalTo(false));
+        assertThat(longValues.getValueMissing(0, 7), equalTo(2l));
+        assertThat(longValues.getValueMissing(1, 7), equalTo(7l));
+        assertThat(longValues.getValues(1).size(), equalTo(0));
+        assertThat(longValues.getIter(1).hasNext(), equalTo(false));
+
+        DoubleValues doubleValues = fieldData.getDoubleValues();
+        assertThat(doubleValues.hasValue(1), equalTo(false));
+        assertThat(doubleValues.getValueMissing(1, 7.5), equalTo(7.5d));
+        assertThat(doubleValues.getValueMissing(2, 7.5), equalTo(3d));
+
+        StringValues stringValues = fieldData.getStringValues();
+        assertThat(stringValues.getValue(1), nullValue());
+        assertThat(stringValues.getValue(2), equalTo("3"));
+    }
+
+    @Test
+    public void testDoubleValues() throws Exception {
+        for (double value : new double[]{2.5, 1.5}) {
+            Document d = new Document();
+            d.add(new DoubleDocValuesField("value", value));
+            writer.addDocument(d);
+        }
+        AtomicReaderContext readerContext = refreshReader();
+        IndexNumericFieldData indexFieldData = (IndexNumericFieldData) getForField("value", "double");
+        AtomicNumericFieldData fieldData = indexFieldData.load(readerContext);
+
+        assertThat(fieldData.getDoubleValues().getValue(0), equalTo(2.5d));
+        assertThat(fieldData.getDoubleValues().getValue(1), equalTo(1.5d));
+        assertThat(fieldData.getLongValues().getValue(0), equalTo(2l));
+    }
+
+    @Test
+    public void testFloatStringValues() throws Exception {
+        Document d = new Document();
+        d.add(new FloatDocValuesField("value", 0.1f));
+        writer.addDocument(d);
+        AtomicReaderContext readerContext = refreshReader();
+
+        AtomicNumericFieldData floatFieldData = ((IndexNumericFieldData) getForField("value", "float")).load(readerContext);
+        assertThat(floatFieldData.getStringValues().getValue(0), equalTo("0.1"));
+
+        ifdService.clear();
+        AtomicNumericFieldData doubleFieldData = ((IndexNumericFieldData) getForField("value", "double")).load(readerContext);
+        assertThat(doubleFieldData.getStringValues().getValue(0), equalTo(Double.toString(0.1f)));
+    }
+
+    @Test
+    public void testFallbackWithoutDocValues() throws Exception {
+        Document d = new Document();
+        d.add(new LongField("value", 4, Field.Store.NO));
+        writer.addDocument(d);
+        AtomicReaderContext readerContext = refreshReader();
+        IndexNumericFieldData indexFieldData = (IndexNumericFieldData) getForField("value");
+        AtomicNumericFieldData fieldData = indexFieldData.load(readerContext);
+
+        assertThat(fieldData, not(instanceOf(DocValuesNumericAtomicFieldData.class)));
+        assertThat(fieldData.getLongValues().getValue(0), equalTo(4l));
+    }
+
+    @Test
+    public void testBytesValues() throws Exception {
+        String[] values = new String[]{"b", null, "a"};
+        for (String value : values) {
+            Document d = new Document();
+            if (value != null) {
+                d.add(new StringField("value", value, Field.Store.NO));
+                d.add(new SortedBytesDocValuesField("value", new BytesRef(value)));
+            }
+            writer.addDocument(d);
+        }
+        AtomicReaderContext readerContext = refreshReader();
+        AtomicFieldData fieldData = getForField("value", "string").load(readerContext);
+
+        assertThat(fieldData, instanceOf(DocValuesBytesAtomicFieldData.class));
+        BytesValues bytesValues = fieldData.getBytesValues();
+        assertThat(bytesValues.getValue(0), equalTo(new BytesRef("b")));
+        assertThat(bytesValues.hasValue(1), equalTo(false));
+        assertThat(bytesValues.getValue(1), nullValue());
+        assertThat(bytesValues.getValue(2), equalTo(new BytesRef("a")));
+
+        StringValues stringValues = fieldData.getStringValues();
+        assertThat(stringValues.getValue(0), equalTo("b"));
+        assertThat(stringValues.getValue(1), nullValue());
+    }
+}
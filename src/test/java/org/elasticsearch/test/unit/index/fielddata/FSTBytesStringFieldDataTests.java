@@ -0,0 +1,72 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.fielddata;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.plain.FSTBytesAtomicFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+@Test
+public class FSTBytesStringFieldDataTests extends StringFieldDataTests {
+
+    @Override
+    protected FieldDataType getFieldDataType() {
+        return new FieldDataType("string", ImmutableSettings.builder().put("format", "fst"));
+    }
+
+    @Test
+    public void testSharedPrefixes() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            Document d = new Document();
+            d.add(new StringField("value", "http://www.elasticsearch.org/guide/reference/api/" + i, Field.Store.NO));
+            writer.addDocument(d);
+        }
+        AtomicReaderContext readerContext = refreshReader();
+
+        AtomicFieldData.WithOrdinals fst = ((IndexFieldData.WithOrdinals) getForField("value")).load(readerContext);
+        assertThat(fst, instanceOf(FSTBytesAtomicFieldData.class));
+
+        ifdService.clear();
+        AtomicFieldData.WithOrdinals paged = ((IndexFieldData.WithOrdinals) ifdService.getForField(new FieldMapper.Names("value"),
+                new FieldDataType("string", ImmutableSettings.builder().put("format", "paged_bytes")))).load(readerContext);
+
+        BytesValues.WithOrdinals fstValues = fst.getBytesValues();
+        BytesValues.WithOrdinals pagedValues = paged.getBytesValues();
+        for (int i = 0; i < 1000; i++) {
+            assertThat(fstValues.getValue(i), equalTo(pagedValues.getValue(i)));
+            assertThat(fstValues.ordinals().getOrd(i), equalTo(pagedValues.ordinals().getOrd(i)));
+        }
+        assertThat(fst.getMemorySizeInBytes(), lessThan(paged.getMemorySizeInBytes()));
+    }
+}
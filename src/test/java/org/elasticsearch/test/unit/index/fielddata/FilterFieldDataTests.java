@@ -0,0 +1,108 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.fielddata;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.BytesValues;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class FilterFieldDataTests extends AbstractFieldDataTests {
+
+    @Override
+    protected FieldDataType getFieldDataType() {
+        return new FieldDataType("string");
+    }
+
+    private AtomicFieldData.WithOrdinals load(AtomicReaderContext context, String format, ImmutableSettings.Builder filter) {
+        FieldDataType type = new FieldDataType("string", filter.put("format", format));
+        return ((IndexFieldData.WithOrdinals) ifdService.getForField(new FieldMapper.Names("high_freq"), type)).load(context);
+    }
+
+    private void fill() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Document d = new Document();
+            // "10" is in every doc, "5" in every other doc, "100" only in the first one
+            d.add(new StringField("high_freq", "10", Field.Store.NO));
+            if (i % 2 == 0) {
+                d.add(new StringField("high_freq", "5", Field.Store.NO));
+            }
+            if (i == 0) {
+                d.add(new StringField("high_freq", "100", Field.Store.NO));
+            }
+            writer.addDocument(d);
+        }
+    }
+
+    @Test
+    public void testFilterByFrequency() throws Exception {
+        fill();
+        AtomicReaderContext context = refreshReader();
+        for (String format : new String[]{"paged_bytes", "fst", "concrete_bytes"}) {
+            ifdService.clear();
+            AtomicFieldData.WithOrdinals fieldData = load(context, format, ImmutableSettings.builder()
+                    .put("filter.frequency.min", 0.5));
+            BytesValues.WithOrdinals values = fieldData.getBytesValues();
+            assertThat(values.ordinals().getNumOrds(), equalTo(2));
+            assertThat(values.getValueByOrd(1).utf8ToString(), equalTo("10"));
+            assertThat(values.getValueByOrd(2).utf8ToString(), equalTo("5"));
+
+            ifdService.clear();
+            fieldData = load(context, format, ImmutableSettings.builder()
+                    .put("filter.frequency.min", 2).put("filter.frequency.max", 6));
+            values = fieldData.getBytesValues();
+            assertThat(values.ordinals().getNumOrds(), equalTo(1));
+            assertThat(values.getValueByOrd(1).utf8ToString(), equalTo("5"));
+            assertThat(values.hasValue(1), equalTo(false));
+
+            ifdService.clear();
+            fieldData = load(context, format, ImmutableSettings.builder()
+                    .put("filter.frequency.min", 0.5).put("filter.frequency.min_segment_size", 100));
+            assertThat(fieldData.getBytesValues().ordinals().getNumOrds(), equalTo(3));
+        }
+    }
+
+    @Test
+    public void testFilterByRegex() throws Exception {
+        fill();
+        AtomicReaderContext context = refreshReader();
+        for (String format : new String[]{"paged_bytes", "fst", "concrete_bytes"}) {
+            ifdService.clear();
+            AtomicFieldData.WithOrdinals fieldData = load(context, format, ImmutableSettings.builder()
+                    .put("filter.regex.pattern", "\\d{2,}"));
+            BytesValues.WithOrdinals values = fieldData.getBytesValues();
+            assertThat(values.ordinals().getNumOrds(), equalTo(2));
+            assertThat(values.getValueByOrd(1).utf8ToString(), equalTo("10"));
+            assertThat(values.getValueByOrd(2).utf8ToString(), equalTo("100"));
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.fielddata;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.util.BytesRefIterator;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.RamUsage;
+import org.elasticsearch.common.geo.GeoPoint;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.fielddata.AtomicGeoPointFieldData;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.GeoPointValues;
+import org.elasticsearch.index.fielddata.IndexGeoPointFieldData;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
+import org.elasticsearch.index.fielddata.plain.GeoPointCompressedAtomicFieldData;
+import org.elasticsearch.index.fielddata.util.GeoPointArrayRef;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class GeoPointCompressedFieldDataTests extends AbstractFieldDataTests {
+
+    @Override
+    protected FieldDataType getFieldDataType() {
+        return new FieldDataType("geo_point", ImmutableSettings.builder().put("format", "compressed"));
+    }
+
+    private AtomicGeoPointFieldData load(AtomicReaderContext context, String format, String precision) {
+        FieldDataType type = new FieldDataType("geo_point", ImmutableSettings.builder().put("format", format).put("precision", precision));
+        return ((IndexGeoPointFieldData<?>) ifdService.getForField(new FieldMapper.Names("value"), type)).load(context);
+    }
+
+    private static Document doc(double... latLons) {
+        Document d = new Document();
+        for (int i = 0; i < latLons.length; i += 2) {
+            d.add(new StringField("value", latLons[i] + "," + latLons[i + 1], Field.Store.NO));
+        }
+        return d;
+    }
+
+    @Test
+    public void testSingleValuedWithinPrecision() throws Exception {
+        Random random = new Random(42);
+        double[] lats = new double[100];
+        double[] lons = new double[100];
+        for (int i = 0; i < lats.length; i++) {
+            lats[i] = random.nextDouble() * 180 - 90;
+            lons[i] = random.nextDouble() * 360 - 180;
+            writer.addDocument(doc(lats[i], lons[i]));
+        }
+        AtomicReaderContext context = refreshReader();
+
+        for (String precision : new String[]{"1mm", "1cm", "1m", "1km"}) {
+            ifdService.clear();
+            AtomicGeoPointFieldData fieldData = load(context, "compressed", precision);
+            assertThat(fieldData.isMultiValued(), equalTo(false));
+            GeoPointValues values = fieldData.getGeoPointValues();
+            // one degree is ~111km at the equator
+            double maxError = Double.parseDouble(precision.replaceAll("[a-z]", "")) * (precision.endsWith("km") ? 1000 : precision.endsWith("cm") ? 0.01 : precision.endsWith("mm") ? 0.001 : 1) / 111319.49;
+            for (int i = 0; i < lats.length; i++) {
+                GeoPoint point = values.getValue(i);
+                assertThat(point.lat(), closeTo(lats[i], maxError));
+                assertThat(point.lon(), closeTo(lons[i], maxError));
+            }
+        }
+    }
+
+    @Test
+    public void testLessMemoryThanDoubleArray() throws Exception {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            writer.addDocument(doc(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180));
+        }
+        AtomicReaderContext context = refreshReader();
+
+        long arraySize = load(context, "array", "1cm").getMemorySizeInBytes();
+        ifdService.clear();
+        long compressedSize = load(context, "compressed", "1cm").getMemorySizeInBytes();
+        ifdService.clear();
+        long coarseSize = load(context, "compressed", "1km").getMemorySizeInBytes();
+        assertThat(compressedSize, lessThan(arraySize));
+        assertThat(coarseSize, lessThan(compressedSize));
+    }
+
+    @Test
+    public void testMissingAndMultiValued() throws Exception {
+        writer.addDocument(doc(10, 20, 30, 40));
+        writer.addDocument(doc());
+        writer.addDocument(doc(-45.5, 120.25));
+        AtomicReaderContext context = refreshReader();
+
+        AtomicGeoPointFieldData fieldData = load(context, "compressed", "1cm");
+        assertThat(fieldData.isMultiValued(), equalTo(true));
+        GeoPointValues values = fieldData.getGeoPointValues();
+
+        assertThat(values.hasValue(0), equalTo(true));
+        GeoPointArrayRef points = values.getValues(0);
+        assertThat(points.size(), equalTo(2));
+        assertThat(points.values[points.start].lat() + points.values[points.start + 1].lat(), closeTo(40, 0.001));
+
+        assertThat(values.hasValue(1), equalTo(false));
+        assertThat(values.getValue(1), nullValue());
+        assertThat(values.getValues(1).size(), equalTo(0));
+        assertThat(values.getIter(1).hasNext(), equalTo(false));
+
+        GeoPointValues.Iter iter = values.getIter(2);
+        assertThat(iter.hasNext(), equalTo(true));
+        GeoPoint point = iter.next();
+        assertThat(point.lat(), closeTo(-45.5, 0.001));
+        assertThat(point.lon(), closeTo(120.25, 0.001));
+        assertThat(iter.hasNext(), equalTo(false));
+
+        assertThat(fieldData.getStringValues().getValue(1), nullValue());
+        assertThat(fieldData.getStringValues().getValue(2), notNullValue());
+    }
+
+    @Test
+    public void testMultiValuedArraysTrimmed() throws Exception {
+        // 300 distinct points, more than the initial 128 slots, so the arrays grow while loading
+        for (int i = 0; i < 150; i++) {
+            writer.addDocument(doc(i * 0.1, i * 0.2, -i * 0.1, -i * 0.2 - 1));
+        }
+        AtomicReaderContext context = refreshReader();
+        AtomicGeoPointFieldData fieldData = load(context, "compressed", "1cm");
+        assertThat(fieldData.isMultiValued(), equalTo(true));
+
+        // rebuild the same ordinals to isolate the size of the points
+        Terms terms = context.reader().terms("value");
+        OrdinalsBuilder builder = new OrdinalsBuilder(terms, context.reader().maxDoc());
+        BytesRefIterator iter = builder.buildFromTerms(terms.iterator(null), context.reader().getLiveDocs());
+        while (iter.next() != null) {
+        }
+        Ordinals ordinals = builder.build(ImmutableSettings.builder().put("format", "compressed").put("precision", "1cm").build());
+        builder.close();
+        assertThat(ordinals.getNumOrds(), equalTo(300));
+
+        GeoPointCompressedAtomicFieldData.Encoding encoding = GeoPointCompressedAtomicFieldData.Encoding.of("1cm");
+        long pointsSize = PackedInts.getMutable(301, encoding.latBits(), PackedInts.FAST).ramBytesUsed()
+                + PackedInts.getMutable(301, encoding.lonBits(), PackedInts.FAST).ramBytesUsed();
+        assertThat(fieldData.getMemorySizeInBytes(), equalTo(RamUsage.NUM_BYTES_OBJECT_REF * 3 + pointsSize + ordinals.getMemorySizeInBytes()));
+
+        GeoPointValues values = fieldData.getGeoPointValues();
+        GeoPointArrayRef points = values.getValues(149);
+        assertThat(points.size(), equalTo(2));
+        assertThat(points.values[points.start].lat() + points.values[points.start + 1].lat(), closeTo(0, 0.001));
+    }
+
+    @Test
+    public void testSingleValuedWithMissing() throws Exception {
+        writer.addDocument(doc(1, 2));
+        writer.addDocument(doc());
+        AtomicReaderContext context = refreshReader();
+
+        AtomicGeoPointFieldData fieldData = load(context, "compressed", "1cm");
+        assertThat(fieldData.isMultiValued(), equalTo(false));
+        GeoPointValues values = fieldData.getGeoPointValues();
+        assertThat(values.getValue(0).lat(), closeTo(1, 0.001));
+        assertThat(values.getValue(0).lon(), closeTo(2, 0.001));
+        assertThat(values.hasValue(1), equalTo(false));
+        assertThat(values.getValue(1), nullValue());
+    }
+}
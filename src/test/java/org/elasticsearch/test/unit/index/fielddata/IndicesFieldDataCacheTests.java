@@ -0,0 +1,274 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.fielddata;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.AtomicFieldData;
+import org.elasticsearch.index.fielddata.FieldDataStats;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.IndexFieldDataService;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.fielddata.breaker.IndicesFieldDataBreaker;
+import org.elasticsearch.indices.fielddata.cache.IndicesFieldDataCache;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ */
+@Test
+public class IndicesFieldDataCacheTests {
+
+    private IndexWriter writer;
+    private AtomicReader reader;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, new StandardAnalyzer(Lucene.VERSION)));
+        for (int i = 0; i < 10; i++) {
+            Document d = new Document();
+            d.add(new StringField("field1", "value" + i, Field.Store.NO));
+            d.add(new StringField("field2", "value" + i, Field.Store.NO));
+            writer.addDocument(d);
+        }
+        reader = new SlowCompositeReaderWrapper(DirectoryReader.open(writer, true));
+    }
+
+    @AfterMethod
+    public void tearDown() throws Exception {
+        reader.close();
+        writer.close();
+    }
+
+    private IndexFieldDataService fieldDataService(Settings settings, IndicesFieldDataBreaker breaker) {
+        IndicesFieldDataCache cache = new IndicesFieldDataCache(settings, breaker, new NodeSettingsService(settings));
+        return new IndexFieldDataService(new Index("test"), ImmutableSettings.Builder.EMPTY_SETTINGS, breaker, cache);
+    }
+
+    private IndexFieldData getForField(IndexFieldDataService service, String field) {
+        return service.getForField(new FieldMapper.Names(field), new FieldDataType("string"));
+    }
+
+    @Test
+    public void testSelectiveClear() throws Exception {
+        Settings settings = ImmutableSettings.Builder.EMPTY_SETTINGS;
+        IndicesFieldDataBreaker breaker = new IndicesFieldDataBreaker(settings, new NodeSettingsService(settings));
+        IndexFieldDataService service = fieldDataService(settings, breaker);
+
+        getForField(service, "field1").load(reader.getContext());
+        getForField(service, "field2").load(reader.getContext());
+
+        FieldDataStats stats = service.stats();
+        long field1Size = stats.getFields().get("field1").getMemorySizeInBytes();
+        long field2Size = stats.getFields().get("field2").getMemorySizeInBytes();
+        assertThat(field1Size, greaterThan(0l));
+        assertThat(field2Size, greaterThan(0l));
+        assertThat(stats.getMemorySizeInBytes(), equalTo(field1Size + field2Size));
+        assertThat(breaker.stats().getEstimatedSizeInBytes(), equalTo(field1Size + field2Size));
+
+        service.clearField("field1");
+        stats = service.stats();
+        assertThat(stats.getFields().get("field1").getMemorySizeInBytes(), equalTo(0l));
+        assertThat(stats.getFields().get("field2").getMemorySizeInBytes(), equalTo(field2Size));
+        assertThat(stats.getEvictions(), equalTo(0l));
+        assertThat(breaker.stats().getEstimatedSizeInBytes(), equalTo(field2Size));
+
+        service.clear();
+        assertThat(service.stats().getMemorySizeInBytes(), equalTo(0l));
+        assertThat(breaker.stats().getEstimatedSizeInBytes(), equalTo(0l));
+    }
+
+    @Test
+    public void testEvictions() throws Exception {
+        Settings settings = ImmutableSettings.settingsBuilder().put(IndicesFieldDataCache.FIELDDATA_CACHE_SIZE, "1b").build();
+        IndicesFieldDataBreaker breaker = new IndicesFieldDataBreaker(settings, new NodeSettingsService(settings));
+        IndexFieldDataService service = fieldDataService(settings, breaker);
+
+        getForField(service, "field1").load(reader.getContext());
+        getForField(service, "field2").load(reader.getContext());
+
+        FieldDataStats stats = service.stats();
+        assertThat(stats.getEvictions(), greaterThan(0l));
+        assertThat(stats.getMemorySizeInBytes(), equalTo(0l));
+        assertThat(breaker.stats().getEstimatedSizeInBytes(), equalTo(0l));
+    }
+
+    @Test
+    public void testBreakerReleasedWhenListenerFails() throws Exception {
+        Settings settings = ImmutableSettings.Builder.EMPTY_SETTINGS;
+        IndicesFieldDataBreaker breaker = new IndicesFieldDataBreaker(settings, new NodeSettingsService(settings));
+        IndicesFieldDataCache cache = new IndicesFieldDataCache(settings, breaker, new NodeSettingsService(settings));
+        IndexFieldDataCache fieldCache = cache.buildIndexFieldDataCache(new IndexFieldDataCache.Listener() {
+            @Override
+            public void onLoad(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicReader reader, AtomicFieldData fieldData, long loadTimeInNanos) {
+                throw new RuntimeException("failed on load");
+            }
+
+            @Override
+            public void onUnload(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Object readerKey, boolean wasEvicted, AtomicFieldData fieldData) {
+            }
+        }, new Index("test"), new FieldMapper.Names("field1"), new FieldDataType("string"));
+        IndexFieldData indexFieldData = getForField(fieldDataService(settings, breaker), "field1");
+
+        try {
+            fieldCache.load(reader.getContext(), indexFieldData);
+            assert false;
+        } catch (Exception e) {
+            // expected
+        }
+        assertThat(breaker.stats().getEstimatedSizeInBytes(), equalTo(0l));
+    }
+
+    @Test
+    public void testSettingsUpdateDuringLoad() throws Exception {
+        Settings settings = ImmutableSettings.Builder.EMPTY_SETTINGS;
+        IndicesFieldDataBreaker breaker = new IndicesFieldDataBreaker(settings, new NodeSettingsService(settings));
+        final AtomicReference<NodeSettingsService.Listener> settingsListener = new AtomicReference<NodeSettingsService.Listener>();
+        IndicesFieldDataCache cache = new IndicesFieldDataCache(settings, breaker, new NodeSettingsService(settings) {
+            @Override
+            public void addListener(Listener listener) {
+                settingsListener.set(listener);
+            }
+        });
+        final CountDownLatch loading = new CountDownLatch(1);
+        final CountDownLatch resume = new CountDownLatch(1);
+        final IndexFieldDataCache fieldCache = cache.buildIndexFieldDataCache(new IndexFieldDataCache.Listener() {
+            @Override
+            public void onLoad(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, AtomicReader reader, AtomicFieldData fieldData, long loadTimeInNanos) {
+                loading.countDown();
+                try {
+                    resume.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public void onUnload(Index index, FieldMapper.Names fieldNames, FieldDataType fieldDataType, Object readerKey, boolean wasEvicted, AtomicFieldData fieldData) {
+            }
+        }, new Index("test"), new FieldMapper.Names("field1"), new FieldDataType("string"));
+        final IndexFieldData indexFieldData = getForField(fieldDataService(settings, breaker), "field1");
+
+        final AtomicReference<AtomicFieldData> loaded = new AtomicReference<AtomicFieldData>();
+        Thread load = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    loaded.set(fieldCache.load(reader.getContext(), indexFieldData));
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        load.start();
+        loading.await();
+
+        Thread update = new Thread() {
+            @Override
+            public void run() {
+                settingsListener.get().onRefreshSettings(ImmutableSettings.settingsBuilder().put(IndicesFieldDataCache.FIELDDATA_CACHE_SIZE, "1mb").build());
+            }
+        };
+        update.start();
+        // let the update reach the cache replacement before the load completes
+        for (int i = 0; i < 1000 && update.getState() != Thread.State.WAITING; i++) {
+            Thread.sleep(1);
+        }
+        resume.countDown();
+        load.join();
+        update.join();
+
+        // the loaded entry is kept across the update, and accounted for exactly once
+        long size = loaded.get().getMemorySizeInBytes();
+        assertThat(size, greaterThan(0l));
+        assertThat(breaker.stats().getEstimatedSizeInBytes(), equalTo(size));
+        assertThat(fieldCache.load(reader.getContext(), indexFieldData), sameInstance(loaded.get()));
+
+        fieldCache.clear(new Index("test"));
+        assertThat(breaker.stats().getEstimatedSizeInBytes(), equalTo(0l));
+    }
+
+    @Test
+    public void testPerSegmentStats() throws Exception {
+        Settings settings = ImmutableSettings.Builder.EMPTY_SETTINGS;
+        IndicesFieldDataBreaker breaker = new IndicesFieldDataBreaker(settings, new NodeSettingsService(settings));
+        IndexFieldDataService service = fieldDataService(settings, breaker);
+
+        // a second segment
+        writer.commit();
+        Document d = new Document();
+        d.add(new StringField("field1", "value", Field.Store.NO));
+        writer.addDocument(d);
+        DirectoryReader directoryReader = DirectoryReader.open(writer, true);
+        try {
+            assertThat(directoryReader.leaves().size(), equalTo(2));
+            for (AtomicReaderContext context : directoryReader.leaves()) {
+                getForField(service, "field1").load(context);
+            }
+
+            FieldDataStats stats = service.stats();
+            assertThat(stats.getLoads(), equalTo(2l));
+            assertThat(stats.getFields().get("field1").getLoads(), equalTo(2l));
+            assertThat(stats.getFields().get("field1").getSegments(), nullValue());
+
+            FieldDataStats shardStats = service.stats(new ShardId("test", 0), directoryReader, true);
+            assertThat(shardStats.getMemorySizeInBytes(), equalTo(stats.getMemorySizeInBytes()));
+            assertThat(shardStats.getLoads(), equalTo(2l));
+            FieldDataStats.FieldStats field1 = shardStats.getFields().get("field1");
+            assertThat(field1.getMemorySizeInBytes(), equalTo(stats.getMemorySizeInBytes()));
+            assertThat(field1.getSegments().size(), equalTo(2));
+            long segmentsSize = 0;
+            for (AtomicReaderContext context : directoryReader.leaves()) {
+                FieldDataStats.FieldStats segment = field1.getSegments().get("0/" + ((SegmentReader) context.reader()).getSegmentName());
+                assertThat(segment.getLoads(), equalTo(1l));
+                segmentsSize += segment.getMemorySizeInBytes();
+            }
+            assertThat(segmentsSize, equalTo(field1.getMemorySizeInBytes()));
+            assertThat(service.stats(new ShardId("test", 0), directoryReader, false).getFields().get("field1").getSegments(), nullValue());
+
+            // the shard level stats only account for the segments of the provided reader
+            assertThat(service.stats(new ShardId("test", 0), reader, true).getFields().isEmpty(), equalTo(true));
+        } finally {
+            directoryReader.close();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.fielddata;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.fielddata.AtomicNumericFieldData;
+import org.elasticsearch.index.fielddata.FieldDataStats;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexNumericFieldData;
+import org.elasticsearch.index.fielddata.LongValues;
+import org.elasticsearch.index.fielddata.plain.LongArrayAtomicFieldData;
+import org.elasticsearch.index.fielddata.plain.PackedArrayAtomicFieldData;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+public class PackedLongFieldDataTests extends LongFieldDataTests {
+
+    @Override
+    protected FieldDataType getFieldDataType() {
+        return new FieldDataType("long", ImmutableSettings.builder().put("format", "packed"));
+    }
+
+    @Test
+    public void testGcdEncoding() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            Document d = new Document();
+            d.add(new LongField("value", 1000000000000l + i * 60000l, Field.Store.NO));
+            writer.addDocument(d);
+        }
+        AtomicReaderContext readerContext = refreshReader();
+
+        AtomicNumericFieldData packed = ((IndexNumericFieldData) getForField("value")).load(readerContext);
+        assertThat(packed, instanceOf(PackedArrayAtomicFieldData.class));
+        assertThat(packed.isMultiValued(), equalTo(false));
+
+        LongValues values = packed.getLongValues();
+        for (int i = 0; i < 100; i++) {
+            assertThat(values.hasValue(i), equalTo(true));
+            assertThat(values.getValue(i), equalTo(1000000000000l + i * 60000l));
+        }
+
+        ifdService.clear();
+        AtomicNumericFieldData array = ((IndexNumericFieldData) ifdService.getForField(new FieldMapper.Names("value"), new FieldDataType("long", ImmutableSettings.builder().put("format", "array")))).load(readerContext);
+        assertThat(packed.getMemorySizeInBytes(), lessThan(array.getMemorySizeInBytes()));
+    }
+
+    @Test
+    public void testFallbackOnWideRange() throws Exception {
+        for (long value : new long[]{Long.MIN_VALUE, Long.MAX_VALUE, 0}) {
+            Document d = new Document();
+            d.add(new LongField("value", value, Field.Store.NO));
+            writer.addDocument(d);
+        }
+        AtomicReaderContext readerContext = refreshReader();
+
+        AtomicNumericFieldData fieldData = ((IndexNumericFieldData) getForField("value")).load(readerContext);
+        assertThat(fieldData, instanceOf(LongArrayAtomicFieldData.class));
+        LongValues values = fieldData.getLongValues();
+        assertThat(values.getValue(0), equalTo(Long.MIN_VALUE));
+        assertThat(values.getValue(1), equalTo(Long.MAX_VALUE));
+        assertThat(values.getValue(2), equalTo(0l));
+    }
+
+    @Test
+    public void testPackedWithFastestOverheadRatio() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            Document d = new Document();
+            d.add(new LongField("value", i * i, Field.Store.NO)); // 14 bits per value
+            writer.addDocument(d);
+        }
+        AtomicReaderContext readerContext = refreshReader();
+
+        AtomicNumericFieldData fieldData = ((IndexNumericFieldData) ifdService.getForField(new FieldMapper.Names("value"), new FieldDataType("long",
+                ImmutableSettings.builder().put("format", "packed").put("acceptable_overhead_ratio", PackedInts.FASTEST)))).load(readerContext);
+        assertThat(fieldData, instanceOf(PackedArrayAtomicFieldData.class));
+        assertThat(((PackedArrayAtomicFieldData) fieldData).getSavedMemorySizeInBytes(), greaterThan(0l));
+        LongValues values = fieldData.getLongValues();
+        for (int i = 0; i < 100; i++) {
+            assertThat(values.getValue(i), equalTo((long) i * i));
+        }
+    }
+
+    @Test
+    public void testSavedMemoryStats() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            Document d = new Document();
+            d.add(new LongField("value", i, Field.Store.NO));
+            writer.addDocument(d);
+        }
+        AtomicReaderContext readerContext = refreshReader();
+
+        PackedArrayAtomicFieldData packed = (PackedArrayAtomicFieldData) ((IndexNumericFieldData) getForField("value")).load(readerContext);
+        assertThat(packed.getSavedMemorySizeInBytes(), greaterThan(0l));
+
+        FieldDataStats stats = ifdService.stats();
+        assertThat(stats.getSavedMemorySizeInBytes(), equalTo(packed.getSavedMemorySizeInBytes()));
+        assertThat(stats.getFields().get("value").getSavedMemorySizeInBytes(), equalTo(packed.getSavedMemorySizeInBytes()));
+
+        ifdService.clear();
+        stats = ifdService.stats();
+        assertThat(stats.getSavedMemorySizeInBytes(), equalTo(0l));
+        assertThat(stats.getFields().get("value").getSavedMemorySizeInBytes(), equalTo(0l));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.fielddata.ordinals;
+
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.fielddata.ordinals.MultiFlatArrayOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.MultiPackedOrdinals;
+import org.elasticsearch.index.fielddata.ordinals.Ordinals;
+import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
+import org.elasticsearch.index.fielddata.util.IntArrayRef;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ */
+public class PackedMultiOrdinalsTests extends MultiOrdinalsTests {
+
+    @Override
+    protected Ordinals creationMultiOrdinals(OrdinalsBuilder builder, ImmutableSettings.Builder settings) {
+        settings.put("multi_ordinals", "packed");
+        return builder.build(settings.build());
+    }
+
+    private static final Settings AUTO = ImmutableSettings.builder().put("multi_ordinals", "auto").build();
+
+    @Test
+    public void testAutoSelection() throws Exception {
+        // every doc has two values, flat arrays are cheap
+        OrdinalsBuilder builder = new OrdinalsBuilder(100);
+        for (int doc = 0; doc < 100; doc++) {
+            builder.nextOrdinal();
+            builder.addDoc(doc);
+            if (doc > 0) {
+                builder.addDoc(doc - 1);
+            }
+        }
+        builder.nextOrdinal();
+        builder.addDoc(99);
+        assertThat(builder.getMaxValuesPerDoc(), equalTo(2));
+        assertThat(builder.build(AUTO), instanceOf(MultiFlatArrayOrdinals.class));
+        // the layout is picked automatically by default
+        assertThat(builder.build(ImmutableSettings.Builder.EMPTY_SETTINGS), instanceOf(MultiFlatArrayOrdinals.class));
+
+        // a single doc has many values, flat arrays would need 1000 arrays
+        builder = new OrdinalsBuilder(1000);
+        for (int doc = 0; doc < 1000; doc++) {
+            builder.nextOrdinal();
+            builder.addDoc(doc);
+            if (doc > 0) {
+                builder.addDoc(0);
+            }
+        }
+        assertThat(builder.getMaxValuesPerDoc(), equalTo(1000));
+        Ordinals ordinals = builder.build(AUTO);
+        assertThat(ordinals, instanceOf(MultiPackedOrdinals.class));
+        assertThat(builder.build(ImmutableSettings.Builder.EMPTY_SETTINGS), instanceOf(MultiPackedOrdinals.class));
+        Ordinals flat = builder.build(ImmutableSettings.builder().put("multi_ordinals", "flat").build());
+        assertThat(ordinals.getMemorySizeInBytes(), lessThan(flat.getMemorySizeInBytes()));
+    }
+
+    @Test
+    public void testOffsetsOverSeveralBlocks() throws Exception {
+        // doc i has i % 4 values, 0 to 3, over several blocks of offsets
+        int maxDoc = 5000;
+        OrdinalsBuilder builder = new OrdinalsBuilder(maxDoc);
+        for (int ord = 1; ord <= 3; ord++) {
+            builder.nextOrdinal();
+            for (int doc = 0; doc < maxDoc; doc++) {
+                if (doc % 4 >= ord) {
+                    builder.addDoc(doc);
+                }
+            }
+        }
+        Ordinals.Docs docs = creationMultiOrdinals(builder, ImmutableSettings.builder()).ordinals();
+        for (int doc = 0; doc < maxDoc; doc++) {
+            IntArrayRef ords = docs.getOrds(doc);
+            assertThat(ords.size(), equalTo(doc % 4));
+            for (int i = 0; i < ords.size(); i++) {
+                assertThat(ords.values[ords.start + i], equalTo(i + 1));
+            }
+            assertThat(docs.getOrd(doc), equalTo(doc % 4 == 0 ? 0 : 1));
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.mapper.docvalues;
+
+import org.apache.lucene.index.IndexableField;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.mapper.DocumentMapperParser;
+import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.index.mapper.ParsedDocument;
+import org.elasticsearch.index.mapper.core.NumberFieldMapper;
+import org.elasticsearch.test.unit.index.mapper.MapperTests;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ */
+@Test
+public class DocValuesMappingTests {
+
+    public void testMappingRoundTrip() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties")
+                    .startObject("num").field("type", "long").field("doc_values", true).endObject()
+                    .startObject("str").field("type", "string").field("index", "not_analyzed").field("doc_values", true).endObject()
+                .endObject()
+                .endObject().endObject().string();
+
+        DocumentMapperParser mapperParser = MapperTests.newParser();
+        DocumentMapper docMapper = mapperParser.parse(mapping);
+        String builtMapping = docMapper.mappingSource().string();
+        assertThat(builtMapping, containsString("\"doc_values\":true"));
+        assertThat(builtMapping, not(containsString("fielddata")));
+
+        // reparse it
+        docMapper = mapperParser.parse(builtMapping);
+        assertThat(docMapper.mappers().smartNameFieldMapper("num").fieldDataType().hasDocValues(), equalTo(true));
+        assertThat(docMapper.mappers().smartNameFieldMapper("str").fieldDataType().hasDocValues(), equalTo(true));
+        assertThat(docMapper.mappingSource().string(), equalTo(builtMapping));
+    }
+
+    public void testAnalyzedStringWithDocValuesFormat() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties")
+                    .startObject("str").field("type", "string").field("fielddata", "format=doc_values").endObject()
+                .endObject()
+                .endObject().endObject().string();
+
+        try {
+            MapperTests.newParser().parse(mapping);
+            assert false;
+        } catch (MapperParsingException e) {
+            assertThat(e.getDetailedMessage(), containsString("not_analyzed"));
+        }
+    }
+
+    public void testSingleValue() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties")
+                    .startObject("num").field("type", "integer").field("doc_values", true).endObject()
+                .endObject()
+                .endObject().endObject().string();
+
+        DocumentMapper docMapper = MapperTests.newParser().parse(mapping);
+        ParsedDocument doc = docMapper.parse("type", "1", XContentFactory.jsonBuilder()
+                .startObject()
+                .field("num", 5)
+                .endObject()
+                .bytes());
+
+        int docValuesFields = 0;
+        for (IndexableField field : doc.rootDoc().getFields("num")) {
+            if (field.fieldType().docValueType() != null) {
+                docValuesFields++;
+            }
+        }
+        assertThat(docValuesFields, equalTo(1));
+        // the docs with a value are marked in a companion doc values field
+        IndexableField presence = doc.rootDoc().getField(NumberFieldMapper.docValuesPresenceFieldName("num"));
+        assertThat(presence, notNullValue());
+        assertThat(presence.numericValue().longValue(), equalTo(1l));
+    }
+
+    public void testMultiValuesRejected() throws Exception {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties")
+                    .startObject("num").field("type", "integer").field("doc_values", true).endObject()
+                .endObject()
+                .endObject().endObject().string();
+
+        DocumentMapper docMapper = MapperTests.newParser().parse(mapping);
+        try {
+            docMapper.parse("type", "1", XContentFactory.jsonBuilder()
+                    .startObject()
+                    .startArray("num").value(1).value(2).endArray()
+                    .endObject()
+                    .bytes());
+            assert false;
+        } catch (MapperParsingException e) {
+            assertThat(e.getCause(), instanceOf(MapperParsingException.class));
+            assertThat(e.getCause().getMessage(), containsString("single value"));
+        }
+    }
+}
@@ -247,4 +247,50 @@ public class PercolatorExecutorTests {
         }
         
     }
+
+    @Test
+    public void testParallelPercolation() throws Exception {
+        IndexSettingsService settingsService = injector.getInstance(IndexSettingsService.class);
+        settingsService.refreshSettings(ImmutableSettings.settingsBuilder().put(PercolatorExecutor.PERCOLATE_PARALLELISM, 4).build());
+        try {
+            percolatorExecutor.clearQueries();
+            for (int i = 0; i < 1000; i++) {
+                percolatorExecutor.addQuery("test" + i, termQuery("field2", i % 2 == 0 ? "value" : "other"));
+            }
+            BytesReference source = XContentFactory.jsonBuilder().startObject().startObject("doc")
+                    .field("field2", "value")
+                    .endObject().endObject().bytes();
+
+            PercolatorExecutor.Response percolate = percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", source));
+            assertThat(percolate.matches(), hasSize(500));
+            for (int i = 0; i < 1000; i += 2) {
+                assertThat(percolate.matches(), hasItem("test" + i));
+            }
+        } finally {
+            percolatorExecutor.clearQueries();
+            settingsService.refreshSettings(ImmutableSettings.settingsBuilder().put(PercolatorExecutor.PERCOLATE_PARALLELISM, 1).build());
+        }
+    }
+
+    @Test
+    public void testInvalidParallelismIsIgnored() throws Exception {
+        IndexSettingsService settingsService = injector.getInstance(IndexSettingsService.class);
+        // an invalid value must not fail the refresh, nor the listeners registered after the percolator
+        settingsService.refreshSettings(ImmutableSettings.settingsBuilder().put(PercolatorExecutor.PERCOLATE_PARALLELISM, -1).build());
+        settingsService.refreshSettings(ImmutableSettings.settingsBuilder().put(PercolatorExecutor.PERCOLATE_PARALLELISM, "foo").build());
+        try {
+            percolatorExecutor.clearQueries();
+            percolatorExecutor.addQuery("test1", termQuery("field2", "value"));
+            BytesReference source = XContentFactory.jsonBuilder().startObject().startObject("doc")
+                    .field("field2", "value")
+                    .endObject().endObject().bytes();
+
+            PercolatorExecutor.Response percolate = percolatorExecutor.percolate(new PercolatorExecutor.SourceRequest("type1", source));
+            assertThat(percolate.matches(), hasSize(1));
+            assertThat(percolate.matches(), hasItem("test1"));
+        } finally {
+            percolatorExecutor.clearQueries();
+            settingsService.refreshSettings(ImmutableSettings.settingsBuilder().put(PercolatorExecutor.PERCOLATE_PARALLELISM, 1).build());
+        }
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.index.percolator;
+
+import org.apache.lucene.analysis.core.WhitespaceAnalyzer;
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.memory.MemoryIndex;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.TermQuery;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.common.lucene.search.TermFilter;
+import org.elasticsearch.common.lucene.search.XFilteredQuery;
+import org.elasticsearch.common.lucene.search.XTermsFilter;
+import org.elasticsearch.index.percolator.QueryTermIndex;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ *
+ */
+@Test
+public class QueryTermIndexTests {
+
+    @Test
+    public void testExtractTerms() {
+        assertThat(QueryTermIndex.extractTerms(new TermQuery(new Term("field", "value"))), contains(new Term("field", "value")));
+        assertThat(QueryTermIndex.extractTerms(new PrefixQuery(new Term("field", "val"))), nullValue());
+
+        PhraseQuery phraseQuery = new PhraseQuery();
+        phraseQuery.add(new Term("field", "a"));
+        phraseQuery.add(new Term("field", "longest"));
+        assertThat(QueryTermIndex.extractTerms(phraseQuery), contains(new Term("field", "longest")));
+
+        // a required clause is enough, pick the one selecting the fewest queries
+        BooleanQuery booleanQuery = new BooleanQuery();
+        booleanQuery.add(new PrefixQuery(new Term("field", "val")), BooleanClause.Occur.MUST);
+        booleanQuery.add(new XFilteredQuery(new TermQuery(new Term("field", "a")), new XTermsFilter(new Term("field", "b"), new Term("field", "c"))), BooleanClause.Occur.MUST);
+        booleanQuery.add(new TermQuery(new Term("field", "d")), BooleanClause.Occur.SHOULD);
+        booleanQuery.add(new TermQuery(new Term("field", "e")), BooleanClause.Occur.MUST_NOT);
+        assertThat(QueryTermIndex.extractTerms(booleanQuery), contains(new Term("field", "a")));
+
+        // all optional clauses are needed
+        booleanQuery = new BooleanQuery();
+        booleanQuery.add(new TermQuery(new Term("field", "a")), BooleanClause.Occur.SHOULD);
+        booleanQuery.add(new XFilteredQuery(Queries.MATCH_ALL_QUERY, new TermFilter(new Term("field", "b"))), BooleanClause.Occur.SHOULD);
+        assertThat(QueryTermIndex.extractTerms(booleanQuery), containsInAnyOrder(new Term("field", "a"), new Term("field", "b")));
+        booleanQuery.add(new PrefixQuery(new Term("field", "val")), BooleanClause.Occur.SHOULD);
+        assertThat(QueryTermIndex.extractTerms(booleanQuery), nullValue());
+
+        booleanQuery = new BooleanQuery();
+        booleanQuery.add(new TermQuery(new Term("field", "a")), BooleanClause.Occur.MUST_NOT);
+        assertThat(QueryTermIndex.extractTerms(booleanQuery), nullValue());
+    }
+
+    @Test
+    public void testCandidates() throws Exception {
+        QueryTermIndex index = new QueryTermIndex();
+        index.add("1", new TermQuery(new Term("field", "quick")));
+        index.add("2", new TermQuery(new Term("field", "slow")));
+        index.add("3", new TermQuery(new Term("other", "quick")));
+        index.add("4", new PrefixQuery(new Term("field", "sl")));
+        BooleanQuery booleanQuery = new BooleanQuery();
+        booleanQuery.add(new TermQuery(new Term("field", "brown")), BooleanClause.Occur.MUST);
+        booleanQuery.add(new TermQuery(new Term("field", "fox")), BooleanClause.Occur.MUST);
+        index.add("5", booleanQuery);
+
+        MemoryIndex memoryIndex = new MemoryIndex();
+        memoryIndex.addField("field", "the quick brown fox", new WhitespaceAnalyzer(Lucene.VERSION));
+        AtomicReader reader = memoryIndex.createSearcher().getIndexReader().leaves().get(0).reader();
+
+        Set<String> candidates = index.candidates(reader);
+        assertThat(candidates, containsInAnyOrder("1", "4", "5"));
+
+        index.remove("1");
+        index.remove("4");
+        index.add("2", new TermQuery(new Term("field", "fox")));
+        assertThat(index.candidates(reader), containsInAnyOrder("2", "5"));
+
+        index.clear();
+        assertThat(index.candidates(reader), empty());
+    }
+}
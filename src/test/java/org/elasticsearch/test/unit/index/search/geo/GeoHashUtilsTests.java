@@ -85,4 +85,16 @@ public class GeoHashUtilsTests {
 
         assertEquals(geoHash, GeoHashUtils.encode(decode.lat(), decode.lon()));
     }
+
+    @Test
+    public void testEncodeAsLong() {
+        for (int precision = 1; precision <= GeoHashUtils.PRECISION; precision++) {
+            long hash = GeoHashUtils.encodeAsLong(42.6, -5.6, precision);
+            assertEquals("ezs42e44yx96".substring(0, precision), GeoHashUtils.toString(hash));
+            hash = GeoHashUtils.encodeAsLong(57.64911, 10.40744, precision);
+            assertEquals(GeoHashUtils.encode(57.64911, 10.40744, precision), GeoHashUtils.toString(hash));
+        }
+        // same cell prefix, different precisions must not collide
+        assertEquals(false, GeoHashUtils.encodeAsLong(0.1, 0.1, 1) == GeoHashUtils.encodeAsLong(0.1, 0.1, 2));
+    }
 }
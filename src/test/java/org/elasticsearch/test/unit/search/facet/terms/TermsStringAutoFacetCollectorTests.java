@@ -0,0 +1,99 @@
+/*
+ * Licensed to ElasticSearch and Shay Banon under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. ElasticSearch licenses this
+ * file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.test.unit.search.facet.terms;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.search.facet.terms.strings.TermsStringAutoFacetCollector;
+import org.elasticsearch.search.facet.terms.strings.TermsStringAutoFacetCollector.Execution;
+import org.testng.annotations.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class TermsStringAutoFacetCollectorTests {
+
+    @Test
+    public void testSelectExecution() {
+        // few hits over a large number of unique terms, hashing the hits is cheaper
+        assertThat(TermsStringAutoFacetCollector.selectExecution(1000000, 10, 10), equalTo(Execution.MAP));
+        // many hits over a few unique terms, counting on ordinals is cheaper
+        assertThat(TermsStringAutoFacetCollector.selectExecution(100, 1000000, 10), equalTo(Execution.ORDINALS));
+        // the more segments, the more expensive merging the ordinals
+        assertThat(TermsStringAutoFacetCollector.selectExecution(1000, 1000, 1), equalTo(Execution.ORDINALS));
+        assertThat(TermsStringAutoFacetCollector.selectExecution(1000, 1000, 32), equalTo(Execution.MAP));
+        // unknown number of terms
+        assertThat(TermsStringAutoFacetCollector.selectExecution(0, 10, 10), equalTo(Execution.ORDINALS));
+    }
+
+    @Test
+    public void testEstimateHits() throws Exception {
+        IndexWriter writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Lucene.VERSION, Lucene.STANDARD_ANALYZER));
+        for (int i = 0; i < 10; i++) {
+            Document document = new Document();
+            document.add(new StringField("tag", i < 3 ? "a" : "b", Field.Store.NO));
+            document.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+            writer.addDocument(document);
+        }
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        writer.close();
+
+        assertThat(TermsStringAutoFacetCollector.numberOfTerms(reader, "tag"), equalTo(2l));
+        assertThat(TermsStringAutoFacetCollector.numberOfTerms(reader, "id"), equalTo(10l));
+        assertThat(TermsStringAutoFacetCollector.numberOfTerms(reader, "missing"), equalTo(0l));
+
+        assertThat(TermsStringAutoFacetCollector.estimateHits(null, reader), equalTo(10l));
+        assertThat(TermsStringAutoFacetCollector.estimateHits(new MatchAllDocsQuery(), reader), equalTo(10l));
+        TermQuery a = new TermQuery(new Term("tag", "a"));
+        TermQuery b = new TermQuery(new Term("tag", "b"));
+        assertThat(TermsStringAutoFacetCollector.estimateHits(a, reader), equalTo(3l));
+
+        BooleanQuery query = new BooleanQuery();
+        query.add(a, BooleanClause.Occur.MUST);
+        query.add(b, BooleanClause.Occur.MUST);
+        assertThat(TermsStringAutoFacetCollector.estimateHits(query, reader), equalTo(3l));
+
+        query = new BooleanQuery();
+        query.add(a, BooleanClause.Occur.SHOULD);
+        query.add(b, BooleanClause.Occur.SHOULD);
+        query.add(new TermQuery(new Term("id", "1")), BooleanClause.Occur.MUST_NOT);
+        assertThat(TermsStringAutoFacetCollector.estimateHits(query, reader), equalTo(10l));
+
+        // a selective query on a high cardinality field goes to the map, a match all to the ordinals
+        long numTerms = TermsStringAutoFacetCollector.numberOfTerms(reader, "id");
+        int numSegments = reader.leaves().size();
+        assertThat(TermsStringAutoFacetCollector.selectExecution(numTerms, TermsStringAutoFacetCollector.estimateHits(new TermQuery(new Term("id", "1")), reader), numSegments), equalTo(Execution.MAP));
+        assertThat(TermsStringAutoFacetCollector.selectExecution(TermsStringAutoFacetCollector.numberOfTerms(reader, "tag"), TermsStringAutoFacetCollector.estimateHits(new MatchAllDocsQuery(), reader), numSegments), equalTo(Execution.ORDINALS));
+        reader.close();
+    }
+}